@@ -18,9 +18,11 @@ import java.util.ListIterator;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -82,6 +84,7 @@ public class Bosk<R extends Entity> {
 	private final Type rootType;
 	private final ThreadLocal<R> rootSnapshot = new ThreadLocal<>();
 	private final List<HookRegistration<?>> hooks = new ArrayList<>();
+	private final List<CatalogIndex<?,?>> indexes = new CopyOnWriteArrayList<>();
 	private final PathCompiler pathCompiler;
 
 	// Mutable state
@@ -286,6 +289,7 @@ public class Bosk<R extends Entity> {
 				@SuppressWarnings("unchecked")
 				R newRoot = (R) requireNonNull(dereferencer.with(oldRoot, target, requireNonNull(newValue)));
 				currentRoot = newRoot;
+				updateIndexes(target, oldRoot, newRoot);
 				if (LOGGER.isTraceEnabled()) {
 					LOGGER.trace("Replacement at {} changed root from {} to {}",
 						target,
@@ -314,6 +318,7 @@ public class Bosk<R extends Entity> {
 				@SuppressWarnings("unchecked")
 				R newRoot = (R) requireNonNull(dereferencer.without(oldRoot, target));
 				currentRoot = newRoot;
+				updateIndexes(target, oldRoot, newRoot);
 				if (LOGGER.isTraceEnabled()) {
 					LOGGER.trace("Deletion at {} changed root from {} to {}",
 						target,
@@ -327,6 +332,18 @@ public class Bosk<R extends Entity> {
 			}
 		}
 
+		private void updateIndexes(Reference<?> target, R oldRoot, R newRoot) {
+			for (CatalogIndex<?,?> index: indexes) {
+				try {
+					index.onGraft(target.path(), oldRoot, newRoot);
+				} catch (RuntimeException e) {
+					// The index's retained versions are still correct for their own catalogs,
+					// so a lookup in the new state will simply rebuild it.
+					LOGGER.error("Unable to update index \"{}\" for {}", index.name(), target, e);
+				}
+			}
+		}
+
 		private Dereferencer dereferencerFor(Reference<?> ref) {
 			// We could just pull it out of ref, if it's a ReferenceImpl, but we can't assume that
 			return compileVettedPath(ref.path());
@@ -477,6 +494,23 @@ public class Bosk<R extends Entity> {
 		return unmodifiableList(hooks);
 	}
 
+	/**
+	 * Declares a {@link CatalogIndex} that will be maintained incrementally
+	 * as updates are applied to this bosk.
+	 *
+	 * <p>
+	 * The <code>scope</code> reference can be parameterized, in which case
+	 * there is effectively a separate index for each matching catalog.
+	 *
+	 * @param keyFunction computes the key under which each catalog entry is indexed.
+	 * Must be a pure function of the entry, and must not return null.
+	 */
+	public <E extends Entity, K> CatalogIndex<E,K> registerIndex(String name, @NonNull Reference<Catalog<E>> scope, @NonNull Function<? super E, ? extends K> keyFunction) {
+		CatalogIndex<E,K> index = new CatalogIndex<>(name, requireNonNull(scope), requireNonNull(keyFunction), pathCompiler);
+		indexes.add(index);
+		return index;
+	}
+
 	@Value
 	public class HookRegistration<S> {
 		String name;
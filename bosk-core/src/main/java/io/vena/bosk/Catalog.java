@@ -11,6 +11,7 @@ import java.util.stream.Stream;
 import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import org.pcollections.OrderedPMap;
+import org.pcollections.PMap;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableCollection;
@@ -33,13 +34,18 @@ import static lombok.AccessLevel.PROTECTED;
  * Because a <code>Catalog</code> <em>contains</em> its entries, a {@link io.vena.bosk.Bosk.ReadContext}
  * is not required to access them.
  *
+ * <p>
+ * A very large catalog that rarely changes can be {@link #backedBy backed by}
+ * a {@link CatalogStore} that keeps its entries in a more compact form.
+ * Such a catalog behaves just like any other.
+ *
  * @author pdoyle
  *
  */
 @RequiredArgsConstructor(access=PROTECTED)
 @EqualsAndHashCode
 public final class Catalog<E extends Entity> implements Iterable<E>, EnumerableByIdentifier<E> {
-	private final OrderedPMap<Identifier, E> contents;
+	private final PMap<Identifier, E> contents;
 
 	public int size() { return contents.size(); }
 
@@ -91,7 +97,7 @@ public final class Catalog<E extends Entity> implements Iterable<E>, EnumerableB
 	}
 
 	public boolean containsID(Identifier key) {
-		return get(key) != null;
+		return contents.containsKey(requireNonNull(key));
 	}
 
 	public boolean containsAllIDs(Stream<Identifier> keys) {
@@ -149,6 +155,14 @@ public final class Catalog<E extends Entity> implements Iterable<E>, EnumerableB
 		return new Catalog<>(OrderedPMap.from(newValues));
 	}
 
+	/**
+	 * @return a {@link Catalog} containing the entries of <code>store</code>, in order.
+	 * Entries are obtained from the store as they are accessed.
+	 */
+	public static <TT extends Entity> Catalog<TT> backedBy(CatalogStore<TT> store) {
+		return new Catalog<>(CatalogStoreContents.of(store));
+	}
+
 	public Catalog<E> with(E entity) {
 		return new Catalog<>(contents.plus(entity.id(), entity));
 	}
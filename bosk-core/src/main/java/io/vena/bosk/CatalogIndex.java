@@ -0,0 +1,284 @@
+package io.vena.bosk;
+
+import io.vena.bosk.Bosk.NonexistentEntryException;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.pcollections.HashPMap;
+import org.pcollections.HashTreePMap;
+import org.pcollections.OrderedPSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A secondary index over the entries of a {@link Catalog}, mapping each key
+ * computed by a key function to the {@link Listing} of entries having that key.
+ * Create one using {@link Bosk#registerIndex}.
+ *
+ * <p>
+ * The index is maintained by the bosk as updates are applied, so that a lookup
+ * takes time proportional to the size of the result rather than the size of the catalog.
+ * An update to a single catalog entry costs O(log n) to maintain;
+ * a replacement of the whole catalog costs one identity comparison per entry,
+ * plus one key computation for each entry that actually changed.
+ *
+ * <p>
+ * Lookups are performed in a {@link Bosk.ReadContext} and are consistent with
+ * that context's snapshot. A few recent versions of the index are retained
+ * for long-running read contexts; a lookup in an older snapshot than that
+ * will rebuild the index for that snapshot, which costs O(n).
+ *
+ * <p>
+ * The <code>scope</code> may be parameterized, in which case a separate index
+ * is maintained for each matching catalog that has been {@link #lookup(Reference, Object) looked up}.
+ * Indexes are built lazily on the first lookup.
+ *
+ * <p>
+ * The key function must be a pure function of the entry. It must not return null.
+ * The order of the ids in the returned {@link Listing} is unspecified.
+ *
+ * @param <E> the type of catalog entry
+ * @param <K> the type of key used to look up entries
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class CatalogIndex<E extends Entity, K> {
+	@Getter private final String name;
+	@Getter private final Reference<Catalog<E>> scope;
+	private final Function<? super E, ? extends K> keyFunction;
+	private final PathCompiler pathCompiler;
+
+	/**
+	 * The retained versions of the index for each catalog, keyed by the catalog's (definite) path.
+	 * The first version is the most recent one.
+	 */
+	private final Map<Path, IndexState<E,K>[]> statesByPath = new ConcurrentHashMap<>();
+
+	/**
+	 * @return the {@link Listing} of the entries in the {@link #scope()} catalog
+	 * whose key equals <code>key</code>, or an empty listing if there are none
+	 * @throws IllegalStateException if {@link #scope()} is parameterized
+	 */
+	public Listing<E> lookup(K key) {
+		if (scope.path().numParameters() != 0) {
+			throw new IllegalStateException("Index \"" + name + "\" has parameterized scope " + scope + "; must specify which catalog to look up");
+		}
+		return lookup(scope, key);
+	}
+
+	/**
+	 * @param catalog must match {@link #scope()} and have no unbound parameters
+	 * @return the {@link Listing} of the entries in the <code>catalog</code>
+	 * whose key equals <code>key</code>, or an empty listing if there are none
+	 */
+	public Listing<E> lookup(Reference<Catalog<E>> catalog, K key) {
+		Path path = catalog.path();
+		if (path.numParameters() != 0) {
+			throw new IllegalArgumentException("Catalog reference must not be parameterized: " + catalog);
+		} else if (!scope.path().matches(path)) {
+			throw new IllegalArgumentException("Catalog " + catalog + " does not match scope " + scope + " of index \"" + name + "\"");
+		}
+		Catalog<E> currentCatalog = catalog.value();
+		IndexState<E,K> state = stateFor(path, currentCatalog);
+		OrderedPSet<Identifier> ids = state.idsByKey.get(requireNonNull(key));
+		if (ids == null) {
+			return Listing.empty(catalog);
+		} else {
+			return new Listing<>(CatalogReference.from(catalog), ids);
+		}
+	}
+
+	private IndexState<E,K> stateFor(Path path, Catalog<E> catalog) {
+		IndexState<E,K>[] states = statesByPath.get(path);
+		if (states != null) {
+			for (IndexState<E,K> candidate: states) {
+				if (candidate.catalog == catalog) { // Note object identity comparison
+					return candidate;
+				}
+			}
+		}
+		LOGGER.debug("Building index \"{}\" for {}", name, path);
+		IndexState<E,K> result = IndexState.<E,K>empty(Catalog.empty()).updatedTo(catalog, keyFunction);
+		// This is not the most recent state for this catalog (or else we'd have found it)
+		// so we retain it at the end where it will be the first to be discarded.
+		statesByPath.merge(path, newArray(result), (existing, ours) -> withOldest(existing, result));
+		return result;
+	}
+
+	/**
+	 * Called by {@link Bosk}'s local driver after every update, while holding
+	 * the lock that ensures updates happen one at a time.
+	 */
+	void onGraft(Path target, Object priorRoot, Object newRoot) {
+		Path scopePath = scope.path();
+		if (target.length() > scopePath.length()) {
+			// The target could be inside one catalog entry
+			Path catalogPath = target.truncatedTo(scopePath.length());
+			if (scopePath.matches(catalogPath)) {
+				IndexState<E,K>[] states = statesByPath.get(catalogPath);
+				if (states != null) {
+					Catalog<E> priorCatalog = catalogAt(catalogPath, priorRoot);
+					Catalog<E> newCatalog = catalogAt(catalogPath, newRoot);
+					IndexState<E,K> latest = states[0];
+					if (newCatalog == null) {
+						statesByPath.remove(catalogPath);
+					} else if (latest.catalog == priorCatalog) {
+						Identifier id = Identifier.from(target.segment(scopePath.length()));
+						retainLatest(catalogPath, latest.withEntry(id, newCatalog, keyFunction));
+					} else if (latest.catalog != newCatalog) {
+						// The latest state is for some other version of the catalog; for example,
+						// one that stateFor built for an older read context. Catch up from there.
+						retainLatest(catalogPath, latest.updatedTo(newCatalog, keyFunction));
+					}
+				}
+			}
+		} else {
+			// The target could be the catalog or one of its ancestors, in which case
+			// potentially many entries have changed.
+			Path targetPrefix = scopePath.truncatedTo(target.length());
+			if (targetPrefix.matches(target)) {
+				for (Map.Entry<Path, IndexState<E,K>[]> entry: statesByPath.entrySet()) {
+					Path catalogPath = entry.getKey();
+					if (target.isPrefixOf(catalogPath)) {
+						Catalog<E> newCatalog = catalogAt(catalogPath, newRoot);
+						IndexState<E,K> latest = entry.getValue()[0];
+						if (newCatalog == null) {
+							statesByPath.remove(catalogPath);
+						} else if (latest.catalog != newCatalog) {
+							retainLatest(catalogPath, latest.updatedTo(newCatalog, keyFunction));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void retainLatest(Path catalogPath, IndexState<E,K> state) {
+		statesByPath.merge(catalogPath, newArray(state), (existing, ours) -> withNewest(existing, state));
+	}
+
+	private Catalog<E> catalogAt(Path catalogPath, Object root) {
+		try {
+			@SuppressWarnings("unchecked")
+			Catalog<E> result = (Catalog<E>) pathCompiler.compiled(catalogPath).get(root, scope.boundBy(catalogPath));
+			return result;
+		} catch (NonexistentEntryException e) {
+			return null;
+		} catch (InvalidTypeException e) {
+			throw new AssertionError("Path matching a valid scope should compile: " + catalogPath, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Entity, K> IndexState<E,K>[] newArray(IndexState<E,K> state) {
+		return new IndexState[]{ state };
+	}
+
+	private static <E extends Entity, K> IndexState<E,K>[] withNewest(IndexState<E,K>[] existing, IndexState<E,K> newest) {
+		@SuppressWarnings("unchecked")
+		IndexState<E,K>[] result = new IndexState[Math.min(existing.length + 1, MAX_RETAINED_VERSIONS)];
+		result[0] = newest;
+		System.arraycopy(existing, 0, result, 1, result.length - 1);
+		return result;
+	}
+
+	private static <E extends Entity, K> IndexState<E,K>[] withOldest(IndexState<E,K>[] existing, IndexState<E,K> oldest) {
+		if (existing.length >= MAX_RETAINED_VERSIONS) {
+			return existing;
+		}
+		@SuppressWarnings("unchecked")
+		IndexState<E,K>[] result = new IndexState[existing.length + 1];
+		System.arraycopy(existing, 0, result, 0, existing.length);
+		result[existing.length] = oldest;
+		return result;
+	}
+
+	/**
+	 * The index contents corresponding to one particular version of a catalog.
+	 */
+	@RequiredArgsConstructor
+	private static final class IndexState<E extends Entity, K> {
+		final Catalog<E> catalog;
+		final HashPMap<K, OrderedPSet<Identifier>> idsByKey;
+
+		static <E extends Entity, K> IndexState<E,K> empty(Catalog<E> catalog) {
+			return new IndexState<>(catalog, HashTreePMap.empty());
+		}
+
+		/**
+		 * @return the state for <code>newCatalog</code>, which differs from {@link #catalog} at most in the entry with the given <code>id</code>.
+		 */
+		IndexState<E,K> withEntry(Identifier id, Catalog<E> newCatalog, Function<? super E, ? extends K> keyFunction) {
+			E oldEntry = catalog.get(id);
+			E newEntry = newCatalog.get(id);
+			if (oldEntry == newEntry) {
+				return new IndexState<>(newCatalog, idsByKey);
+			}
+			HashPMap<K, OrderedPSet<Identifier>> newIdsByKey = idsByKey;
+			if (oldEntry != null) {
+				newIdsByKey = without(newIdsByKey, keyOf(oldEntry, keyFunction), id);
+			}
+			if (newEntry != null) {
+				newIdsByKey = with(newIdsByKey, keyOf(newEntry, keyFunction), id);
+			}
+			return new IndexState<>(newCatalog, newIdsByKey);
+		}
+
+		/**
+		 * @return the state for <code>newCatalog</code>, computed by re-keying only those entries that differ from {@link #catalog}
+		 */
+		IndexState<E,K> updatedTo(Catalog<E> newCatalog, Function<? super E, ? extends K> keyFunction) {
+			HashPMap<K, OrderedPSet<Identifier>> newIdsByKey = idsByKey;
+			for (E oldEntry: catalog) {
+				Identifier id = oldEntry.id();
+				E newEntry = newCatalog.get(id);
+				if (newEntry != oldEntry) { // Note object identity comparison
+					newIdsByKey = without(newIdsByKey, keyOf(oldEntry, keyFunction), id);
+				}
+			}
+			for (E newEntry: newCatalog) {
+				Identifier id = newEntry.id();
+				if (catalog.get(id) != newEntry) {
+					newIdsByKey = with(newIdsByKey, keyOf(newEntry, keyFunction), id);
+				}
+			}
+			return new IndexState<>(newCatalog, newIdsByKey);
+		}
+
+		private static <E extends Entity, K> K keyOf(E entry, Function<? super E, ? extends K> keyFunction) {
+			return requireNonNull(keyFunction.apply(entry), "Index key function returned null");
+		}
+
+		private static <K> HashPMap<K, OrderedPSet<Identifier>> with(HashPMap<K, OrderedPSet<Identifier>> map, K key, Identifier id) {
+			OrderedPSet<Identifier> ids = map.get(key);
+			if (ids == null) {
+				return map.plus(key, OrderedPSet.singleton(id));
+			} else {
+				return map.plus(key, ids.plus(id));
+			}
+		}
+
+		private static <K> HashPMap<K, OrderedPSet<Identifier>> without(HashPMap<K, OrderedPSet<Identifier>> map, K key, Identifier id) {
+			OrderedPSet<Identifier> ids = map.get(key);
+			if (ids == null) {
+				return map;
+			}
+			OrderedPSet<Identifier> remaining = ids.minus(id);
+			if (remaining.isEmpty()) {
+				return map.minus(key);
+			} else {
+				return map.plus(key, remaining);
+			}
+		}
+	}
+
+	private static final int MAX_RETAINED_VERSIONS = 4;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CatalogIndex.class);
+}
@@ -0,0 +1,37 @@
+package io.vena.bosk;
+
+import java.util.Iterator;
+
+/**
+ * An alternative backing for a {@link Catalog}, for large catalogs that are
+ * rarely modified and would be expensive to hold as ordinary objects.
+ * Use {@link Catalog#backedBy} to create a catalog that reads from one.
+ *
+ * <p>
+ * A store is immutable: it must return the same entries, in the same order,
+ * every time. A catalog derived from a store-backed catalog using
+ * {@link Catalog#with} or {@link Catalog#without} records its modifications
+ * separately, leaving the store untouched.
+ *
+ * <p>
+ * Implementations may materialize entries on demand, but should
+ * return the same object for a given entry as long as that object is
+ * reachable, because bosk uses object identity to detect unchanged state.
+ *
+ * @param <E> the type of catalog entry
+ */
+public interface CatalogStore<E extends Entity> {
+	int size();
+
+	boolean containsID(Identifier id);
+
+	/**
+	 * @return the entry with the given <code>id</code>, or null if there is none
+	 */
+	E get(Identifier id);
+
+	/**
+	 * @return the ids of the entries in this store, in order
+	 */
+	Iterator<Identifier> idIterator();
+}
@@ -0,0 +1,188 @@
+package io.vena.bosk;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.pcollections.HashTreePMap;
+import org.pcollections.HashTreePSet;
+import org.pcollections.OrderedPMap;
+import org.pcollections.PMap;
+import org.pcollections.PSet;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The contents of a {@link Catalog} backed by a {@link CatalogStore}, plus
+ * a persistent overlay of modifications made since the store was created.
+ *
+ * <p>
+ * The iteration order matches that of {@link OrderedPMap}:
+ * entries replaced in the store keep their position;
+ * new entries, including ones previously removed from the store, go at the end.
+ *
+ * <p>
+ * The overlay is held on the heap, so a catalog that accumulates many modifications
+ * gradually loses the benefit of the store. At that point, it's time to build a new store.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class CatalogStoreContents<E extends Entity> extends AbstractMap<Identifier, E> implements PMap<Identifier, E> {
+	private final CatalogStore<E> store;
+	private final PMap<Identifier, E> replaced;
+	private final PSet<Identifier> removed;
+	private final OrderedPMap<Identifier, E> appended;
+	private final int size;
+
+	static <E extends Entity> CatalogStoreContents<E> of(CatalogStore<E> store) {
+		return new CatalogStoreContents<>(requireNonNull(store), HashTreePMap.empty(), HashTreePSet.empty(), OrderedPMap.empty(), store.size());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return appended.containsKey(key)
+			|| (key instanceof Identifier && isInStore((Identifier) key));
+	}
+
+	@Override
+	public E get(Object key) {
+		E result = appended.get(key);
+		if (result != null || !(key instanceof Identifier)) {
+			return result;
+		}
+		Identifier id = (Identifier) key;
+		if (removed.contains(id)) {
+			return null;
+		}
+		result = replaced.get(id);
+		if (result != null) {
+			return result;
+		}
+		return store.get(id);
+	}
+
+	@Override
+	public CatalogStoreContents<E> plus(Identifier key, E value) {
+		requireNonNull(value);
+		if (appended.containsKey(key)) {
+			return new CatalogStoreContents<>(store, replaced, removed, appended.plus(key, value), size);
+		} else if (isInStore(key)) {
+			return new CatalogStoreContents<>(store, replaced.plus(key, value), removed, appended, size);
+		} else {
+			return new CatalogStoreContents<>(store, replaced, removed, appended.plus(key, value), size + 1);
+		}
+	}
+
+	@Override
+	public CatalogStoreContents<E> plusAll(Map<? extends Identifier, ? extends E> map) {
+		CatalogStoreContents<E> result = this;
+		for (Entry<? extends Identifier, ? extends E> entry: map.entrySet()) {
+			result = result.plus(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public CatalogStoreContents<E> minus(Object key) {
+		if (appended.containsKey(key)) {
+			return new CatalogStoreContents<>(store, replaced, removed, appended.minus(key), size - 1);
+		} else if (key instanceof Identifier && isInStore((Identifier) key)) {
+			return new CatalogStoreContents<>(store, replaced.minus(key), removed.plus((Identifier) key), appended, size - 1);
+		} else {
+			return this;
+		}
+	}
+
+	@Override
+	public CatalogStoreContents<E> minusAll(Collection<?> keys) {
+		CatalogStoreContents<E> result = this;
+		for (Object key: keys) {
+			result = result.minus(key);
+		}
+		return result;
+	}
+
+	/**
+	 * Overridden so that iterating over the ids doesn't materialize the entries.
+	 */
+	@Override
+	public Set<Identifier> keySet() {
+		return new AbstractSet<Identifier>() {
+			@Override public int size() { return size; }
+			@Override public boolean contains(Object o) { return containsKey(o); }
+			@Override public Iterator<Identifier> iterator() { return new IdIterator(); }
+		};
+	}
+
+	@Override
+	public Set<Entry<Identifier, E>> entrySet() {
+		return new AbstractSet<Entry<Identifier, E>>() {
+			@Override public int size() { return size; }
+
+			@Override
+			public Iterator<Entry<Identifier, E>> iterator() {
+				Iterator<Identifier> ids = new IdIterator();
+				return new Iterator<Entry<Identifier, E>>() {
+					@Override public boolean hasNext() { return ids.hasNext(); }
+
+					@Override
+					public Entry<Identifier, E> next() {
+						Identifier id = ids.next();
+						return new SimpleImmutableEntry<>(id, get(id));
+					}
+				};
+			}
+		};
+	}
+
+	private boolean isInStore(Identifier id) {
+		return !removed.contains(id) && store.containsID(id);
+	}
+
+	/**
+	 * The store's ids, minus removed ones, followed by the appended ones.
+	 */
+	private final class IdIterator implements Iterator<Identifier> {
+		final Iterator<Identifier> storeIds = store.idIterator();
+		final Iterator<Identifier> appendedIds = appended.keySet().iterator();
+		Identifier next = null;
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				if (storeIds.hasNext()) {
+					Identifier candidate = storeIds.next();
+					if (!removed.contains(candidate)) {
+						next = candidate;
+					}
+				} else if (appendedIds.hasNext()) {
+					next = appendedIds.next();
+				} else {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Identifier next() {
+			if (hasNext()) {
+				Identifier result = next;
+				next = null;
+				return result;
+			} else {
+				throw new NoSuchElementException();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package io.vena.bosk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.DoubleStream;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An immutable {@link List} of <code>double</code> values that can be used in a {@link Bosk}.
+ *
+ * <p>
+ * Behaves like a <code>{@link ListValue}&lt;Double&gt;</code>, but stores its
+ * entries in a <code>double[]</code> rather than boxing each one, which makes
+ * a big difference for large numeric series. The {@link List} methods must
+ * still box their results; use {@link #getDouble} and {@link #doubleStream} to avoid that.
+ *
+ * <p>
+ * Like {@link ListValue}, this is a "pseudo-primitive value": the list is
+ * updated and deleted as a unit.
+ *
+ * @see IntListValue
+ * @see LongListValue
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DoubleListValue extends AbstractList<Double> implements RandomAccess {
+	private final double[] entries;
+
+	public static DoubleListValue empty() {
+		return EMPTY;
+	}
+
+	public static DoubleListValue of(double... entries) {
+		if (entries.length == 0) {
+			return empty();
+		} else {
+			return new DoubleListValue(Arrays.copyOf(entries, entries.length));
+		}
+	}
+
+	public static DoubleListValue from(Collection<Double> entries) {
+		if (entries.size() == 0) {
+			return empty();
+		} else {
+			double[] array = new double[entries.size()];
+			int i = 0;
+			for (Double entry: entries) {
+				array[i++] = entry;
+			}
+			return new DoubleListValue(array);
+		}
+	}
+
+	public static DoubleListValue from(DoubleStream entries) {
+		double[] array = entries.toArray();
+		if (array.length == 0) {
+			return empty();
+		} else {
+			return new DoubleListValue(array);
+		}
+	}
+
+	@Override
+	public int size() {
+		return entries.length;
+	}
+
+	@Override
+	public Double get(int index) {
+		return entries[index];
+	}
+
+	public double getDouble(int index) {
+		return entries[index];
+	}
+
+	public double[] toDoubleArray() {
+		return Arrays.copyOf(entries, entries.length);
+	}
+
+	public DoubleStream doubleStream() {
+		return Arrays.stream(entries);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(entries);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		} else if (o instanceof DoubleListValue) {
+			return Arrays.equals(entries, ((DoubleListValue) o).entries);
+		}
+
+		// Fall back on the canonical implementation
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		// Same answer as AbstractList.hashCode, because Arrays.hashCode uses Double.hashCode
+		return Arrays.hashCode(entries);
+	}
+
+	private static final DoubleListValue EMPTY = new DoubleListValue(new double[0]);
+
+}
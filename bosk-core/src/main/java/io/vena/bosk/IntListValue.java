@@ -0,0 +1,113 @@
+package io.vena.bosk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An immutable {@link List} of <code>int</code> values that can be used in a {@link Bosk}.
+ *
+ * <p>
+ * Behaves like a <code>{@link ListValue}&lt;Integer&gt;</code>, but stores its
+ * entries in an <code>int[]</code> rather than boxing each one, which makes
+ * a big difference for large numeric series. The {@link List} methods must
+ * still box their results; use {@link #getInt} and {@link #intStream} to avoid that.
+ *
+ * <p>
+ * Like {@link ListValue}, this is a "pseudo-primitive value": the list is
+ * updated and deleted as a unit.
+ *
+ * @see LongListValue
+ * @see DoubleListValue
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class IntListValue extends AbstractList<Integer> implements RandomAccess {
+	private final int[] entries;
+
+	public static IntListValue empty() {
+		return EMPTY;
+	}
+
+	public static IntListValue of(int... entries) {
+		if (entries.length == 0) {
+			return empty();
+		} else {
+			return new IntListValue(Arrays.copyOf(entries, entries.length));
+		}
+	}
+
+	public static IntListValue from(Collection<Integer> entries) {
+		if (entries.size() == 0) {
+			return empty();
+		} else {
+			int[] array = new int[entries.size()];
+			int i = 0;
+			for (Integer entry: entries) {
+				array[i++] = entry;
+			}
+			return new IntListValue(array);
+		}
+	}
+
+	public static IntListValue from(IntStream entries) {
+		int[] array = entries.toArray();
+		if (array.length == 0) {
+			return empty();
+		} else {
+			return new IntListValue(array);
+		}
+	}
+
+	@Override
+	public int size() {
+		return entries.length;
+	}
+
+	@Override
+	public Integer get(int index) {
+		return entries[index];
+	}
+
+	public int getInt(int index) {
+		return entries[index];
+	}
+
+	public int[] toIntArray() {
+		return Arrays.copyOf(entries, entries.length);
+	}
+
+	public IntStream intStream() {
+		return Arrays.stream(entries);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(entries);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		} else if (o instanceof IntListValue) {
+			return Arrays.equals(entries, ((IntListValue) o).entries);
+		}
+
+		// Fall back on the canonical implementation
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		// Same answer as AbstractList.hashCode, because Integer.hashCode is the identity
+		return Arrays.hashCode(entries);
+	}
+
+	private static final IntListValue EMPTY = new IntListValue(new int[0]);
+
+}
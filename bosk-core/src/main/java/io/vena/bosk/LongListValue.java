@@ -0,0 +1,113 @@
+package io.vena.bosk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.LongStream;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An immutable {@link List} of <code>long</code> values that can be used in a {@link Bosk}.
+ *
+ * <p>
+ * Behaves like a <code>{@link ListValue}&lt;Long&gt;</code>, but stores its
+ * entries in a <code>long[]</code> rather than boxing each one, which makes
+ * a big difference for large numeric series. The {@link List} methods must
+ * still box their results; use {@link #getLong} and {@link #longStream} to avoid that.
+ *
+ * <p>
+ * Like {@link ListValue}, this is a "pseudo-primitive value": the list is
+ * updated and deleted as a unit.
+ *
+ * @see IntListValue
+ * @see DoubleListValue
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LongListValue extends AbstractList<Long> implements RandomAccess {
+	private final long[] entries;
+
+	public static LongListValue empty() {
+		return EMPTY;
+	}
+
+	public static LongListValue of(long... entries) {
+		if (entries.length == 0) {
+			return empty();
+		} else {
+			return new LongListValue(Arrays.copyOf(entries, entries.length));
+		}
+	}
+
+	public static LongListValue from(Collection<Long> entries) {
+		if (entries.size() == 0) {
+			return empty();
+		} else {
+			long[] array = new long[entries.size()];
+			int i = 0;
+			for (Long entry: entries) {
+				array[i++] = entry;
+			}
+			return new LongListValue(array);
+		}
+	}
+
+	public static LongListValue from(LongStream entries) {
+		long[] array = entries.toArray();
+		if (array.length == 0) {
+			return empty();
+		} else {
+			return new LongListValue(array);
+		}
+	}
+
+	@Override
+	public int size() {
+		return entries.length;
+	}
+
+	@Override
+	public Long get(int index) {
+		return entries[index];
+	}
+
+	public long getLong(int index) {
+		return entries[index];
+	}
+
+	public long[] toLongArray() {
+		return Arrays.copyOf(entries, entries.length);
+	}
+
+	public LongStream longStream() {
+		return Arrays.stream(entries);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(entries);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		} else if (o instanceof LongListValue) {
+			return Arrays.equals(entries, ((LongListValue) o).entries);
+		}
+
+		// Fall back on the canonical implementation
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		// Same answer as AbstractList.hashCode, because Arrays.hashCode uses Long.hashCode
+		return Arrays.hashCode(entries);
+	}
+
+	private static final LongListValue EMPTY = new LongListValue(new long[0]);
+
+}
@@ -0,0 +1,215 @@
+package io.vena.bosk;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.Value;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caches values derived from bosk state, so that an expensive computation
+ * need not be repeated in every {@link Bosk.ReadContext}.
+ *
+ * <p>
+ * Bosk state objects are immutable, and an update leaves untouched objects
+ * in place, so the identity of a state object (say, a {@link Catalog} or a
+ * {@link StateTreeNode}) serves as a version number for everything beneath it.
+ * A derived value computed from a given object can therefore be reused for as
+ * long as that object remains in the bosk.
+ *
+ * <p>
+ * Entries are keyed by the derivation function and the <em>identity</em> of the
+ * input object, which is held weakly; once the input object becomes
+ * unreachable, its entries are discarded. Take care that derived values don't
+ * themselves refer to their input object, or it will never become unreachable.
+ * The derivation function is compared using {@link Object#equals}, so use the
+ * same function object (such as a constant or a method reference held in a field)
+ * each time; a new lambda object on every call would never hit the cache.
+ *
+ * <p>
+ * To bound memory usage, the number of entries is limited to a given maximum;
+ * beyond that, the oldest entries are evicted.
+ *
+ * <p>
+ * Derivation functions must be pure functions of their input, and must not return null.
+ */
+public final class Memoizer {
+	private final int maxEntries;
+	private final Map<Key, Object> entries = new ConcurrentHashMap<>();
+	private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final ReferenceQueue<Object> collectedInputs = new ReferenceQueue<>();
+
+	/**
+	 * Collected entries whose keys may still be in {@link #insertionOrder}.
+	 */
+	private final AtomicInteger collectedSinceCompaction = new AtomicInteger();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder collections = new LongAdder();
+
+	public Memoizer(int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @return <code>derivation.apply(input)</code>, possibly from a previous call with the same arguments
+	 */
+	public <I, V> V get(I input, Function<? super I, ? extends V> derivation) {
+		expungeCollectedEntries();
+		Key probe = new Key(requireNonNull(derivation), requireNonNull(input), null);
+		@SuppressWarnings("unchecked")
+		V existing = (V) entries.get(probe);
+		probe.clear();
+		if (existing != null) {
+			hits.increment();
+			return existing;
+		}
+
+		misses.increment();
+		V result = requireNonNull(derivation.apply(input), "Derivation function returned null");
+		Key key = new Key(derivation, input, collectedInputs);
+		@SuppressWarnings("unchecked")
+		V raced = (V) entries.putIfAbsent(key, result);
+		if (raced != null) {
+			// Another thread computed the same thing concurrently. Use theirs,
+			// so all callers agree on the identity of the derived value.
+			key.clear();
+			return raced;
+		}
+		insertionOrder.add(key);
+		if (size.incrementAndGet() > maxEntries) {
+			evictOldest();
+		}
+		return result;
+	}
+
+	/**
+	 * Discards all entries. Does not reset {@link #stats()}.
+	 */
+	public void clear() {
+		for (Key key = insertionOrder.poll(); key != null; key = insertionOrder.poll()) {
+			if (entries.remove(key) != null) {
+				size.decrementAndGet();
+				evictions.increment();
+			}
+		}
+	}
+
+	public Stats stats() {
+		return new Stats(
+			size.get(),
+			hits.sum(),
+			misses.sum(),
+			evictions.sum(),
+			collections.sum());
+	}
+
+	@Value
+	public static class Stats {
+		int size;
+		long hits;
+		long misses;
+		/**
+		 * Entries removed to stay within the maximum size, or by {@link #clear()}.
+		 */
+		long evictions;
+		/**
+		 * Entries removed because their input object was garbage-collected.
+		 */
+		long collections;
+
+		public double hitRate() {
+			long total = hits + misses;
+			return (total == 0)? 0.0 : (double)hits / total;
+		}
+	}
+
+	private void evictOldest() {
+		while (size.get() > maxEntries) {
+			Key oldest = insertionOrder.poll();
+			if (oldest == null) {
+				return;
+			}
+			if (entries.remove(oldest) != null) {
+				size.decrementAndGet();
+				evictions.increment();
+			}
+			oldest.clear();
+		}
+	}
+
+	private void expungeCollectedEntries() {
+		for (java.lang.ref.Reference<?> ref = collectedInputs.poll(); ref != null; ref = collectedInputs.poll()) {
+			Key key = (Key) ref;
+			if (entries.remove(key) != null) {
+				size.decrementAndGet();
+				collections.increment();
+				// Removing the key from insertionOrder right away would take linear time,
+				// so we leave it there and clean up periodically instead.
+				if (collectedSinceCompaction.incrementAndGet() >= maxEntries) {
+					compactInsertionOrder();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the keys of collected entries from {@link #insertionOrder},
+	 * so it holds at most about twice as many keys as there are entries.
+	 * Costs linear time, but happens only after <code>maxEntries</code> collections.
+	 */
+	private void compactInsertionOrder() {
+		if (collectedSinceCompaction.getAndSet(0) >= maxEntries) {
+			insertionOrder.removeIf(key -> key.get() == null && !entries.containsKey(key));
+		}
+	}
+
+	/**
+	 * Weakly references the input object, and compares it by identity.
+	 */
+	private static final class Key extends WeakReference<Object> {
+		final Function<?,?> derivation;
+		final int hash;
+
+		Key(Function<?,?> derivation, Object input, ReferenceQueue<Object> queue) {
+			super(input, queue);
+			this.derivation = derivation;
+			this.hash = 31 * derivation.hashCode() + System.identityHashCode(input);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (obj instanceof Key) {
+				Key other = (Key) obj;
+				Object input = this.get();
+				// Once the input is collected, a key is equal only to itself
+				return input != null
+					&& input == other.get()
+					&& derivation.equals(other.derivation);
+			} else {
+				return false;
+			}
+		}
+	}
+
+}
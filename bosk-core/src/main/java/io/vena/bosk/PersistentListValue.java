@@ -0,0 +1,162 @@
+package io.vena.bosk;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.pcollections.TreePVector;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An immutable {@link List} that can be used in a {@link Bosk}, with
+ * efficient non-destructive updates.
+ *
+ * <p>
+ * Like {@link ListValue}, this is a "pseudo-primitive value": there's no way
+ * to make a {@link Reference} to one of its entries, and it is updated and
+ * deleted as a unit. Unlike {@link ListValue}, which copies its whole array
+ * to make a modified version, this is backed by a balanced tree, so
+ * {@link #with}, {@link #append}, {@link #without} and {@link #subList}
+ * take O(log n) time and share most of their structure with the original.
+ * Reading individual entries is also O(log n), so prefer {@link ListValue}
+ * for lists that are rarely modified.
+ *
+ * <p>
+ * The entries in the list must be non-null valid Bosk datatypes.
+ *
+ * @see ListValue
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PersistentListValue<T> extends AbstractList<T> {
+	private final TreePVector<T> entries;
+
+	@SuppressWarnings({ "unchecked" })
+	public static <TT> PersistentListValue<TT> empty() {
+		return EMPTY;
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <TT> PersistentListValue<TT> of(TT... entries) {
+		return from(Arrays.asList(entries));
+	}
+
+	public static <TT> PersistentListValue<TT> from(Collection<TT> entries) {
+		if (entries.isEmpty()) {
+			return empty();
+		} else {
+			entries.forEach(e -> requireNonNull(e));
+			return new PersistentListValue<>(TreePVector.from(entries));
+		}
+	}
+
+	public static <TT> PersistentListValue<TT> from(Stream<TT> entries) {
+		return entries.collect(toPersistentListValue());
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public T get(int index) {
+		return entries.get(index);
+	}
+
+	/**
+	 * @return a list like this one, except with <code>value</code> at the given <code>index</code>
+	 * @throws IndexOutOfBoundsException if <code>index</code> is not in the range <code>[0, size())</code>
+	 */
+	public PersistentListValue<T> with(int index, T value) {
+		if (entries.get(index) == requireNonNull(value)) {
+			return this;
+		} else {
+			return new PersistentListValue<>(entries.with(index, value));
+		}
+	}
+
+	/**
+	 * @return a list like this one, except with <code>value</code> added at the end
+	 */
+	public PersistentListValue<T> append(T value) {
+		return new PersistentListValue<>(entries.plus(requireNonNull(value)));
+	}
+
+	/**
+	 * @return a list like this one, except with <code>values</code> added at the end
+	 */
+	public PersistentListValue<T> appendAll(Collection<? extends T> values) {
+		if (values.isEmpty()) {
+			return this;
+		} else {
+			values.forEach(e -> requireNonNull(e));
+			return new PersistentListValue<>(entries.plusAll(values));
+		}
+	}
+
+	/**
+	 * @return a list like this one, except with the entry at the given <code>index</code> removed,
+	 * and all subsequent entries shifted down by one position
+	 * @throws IndexOutOfBoundsException if <code>index</code> is not in the range <code>[0, size())</code>
+	 */
+	public PersistentListValue<T> without(int index) {
+		return new PersistentListValue<>(entries.minus(index));
+	}
+
+	/**
+	 * Unlike {@link AbstractList#subList}, the returned list is not a view
+	 * of this one; it's an independent {@link PersistentListValue} that shares structure with this one.
+	 */
+	@Override
+	public PersistentListValue<T> subList(int fromIndex, int toIndex) {
+		if (fromIndex == 0 && toIndex == entries.size()) {
+			return this;
+		} else if (fromIndex == toIndex) {
+			if (fromIndex < 0 || toIndex > entries.size()) {
+				throw new IndexOutOfBoundsException("Invalid range [" + fromIndex + ", " + toIndex + ") for size " + entries.size());
+			}
+			return empty();
+		} else {
+			return new PersistentListValue<>(entries.subList(fromIndex, toIndex));
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		} else if (o instanceof PersistentListValue) {
+			return entries.equals(((PersistentListValue<?>) o).entries);
+		}
+
+		// Fall back on the canonical implementation
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return entries.hashCode();
+	}
+
+	public static <TT>
+	Collector<TT, ?, PersistentListValue<TT>> toPersistentListValue() {
+		Function<List<TT>, PersistentListValue<TT>> finisher = PersistentListValue::from;
+		return Collector.of(
+				ArrayList::new,
+				List::add,
+				(left, right) -> { left.addAll(right); return left; },
+				finisher);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentListValue EMPTY = new PersistentListValue<>(TreePVector.empty());
+
+}
@@ -0,0 +1,154 @@
+package io.vena.bosk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maintains several copies of a {@link Bosk}'s state, each updated on its own thread,
+ * so that threads reading from different replicas aren't all reading the same objects.
+ * On machines with multiple memory nodes, this can keep each thread's reads local,
+ * provided the replica threads allocate their copies on the corresponding nodes
+ * (for example, with a NUMA-aware garbage collector and a <code>rootCopier</code>
+ * that builds a genuinely new object graph).
+ *
+ * <p>
+ * A {@link BoskHook} on the primary bosk's root sends each new state to every replica.
+ * Each replica applies only the most recent state it has been sent, so a slow replica
+ * skips intermediate states rather than falling further behind.
+ *
+ * <p>
+ * Reads from a replica are <em>eventually consistent</em> with the primary:
+ * a thread that has just submitted an update and then {@link BoskDriver#flush flushed}
+ * the primary bosk is not guaranteed to see that update in a replica.
+ * Such threads should use {@link Bosk#readContext()} instead.
+ */
+public final class ReadReplicas<R extends Entity> {
+	private final Bosk<R> primary;
+	private final UnaryOperator<R> rootCopier;
+	private final ToIntFunction<Thread> replicaSelector;
+	private final List<Replica<R>> replicas;
+
+	/**
+	 * Uses replicas that share objects with the primary bosk, and selects
+	 * a replica for each thread based on its {@link Thread#getId() ID}.
+	 */
+	public static <RR extends Entity> ReadReplicas<RR> of(Bosk<RR> primary, int numReplicas) {
+		return of(primary, numReplicas, UnaryOperator.identity(), byThreadID(numReplicas));
+	}
+
+	/**
+	 * @param rootCopier called on a replica's thread to produce that replica's copy of each new primary root
+	 * @param replicaSelector chooses the index of the replica to be used by a given thread.
+	 * Out-of-range indexes are reduced modulo <code>numReplicas</code>.
+	 */
+	public static <RR extends Entity> ReadReplicas<RR> of(Bosk<RR> primary, int numReplicas, UnaryOperator<RR> rootCopier, ToIntFunction<Thread> replicaSelector) {
+		if (numReplicas < 1) {
+			throw new IllegalArgumentException("numReplicas must be positive: " + numReplicas);
+		}
+		ReadReplicas<RR> result = new ReadReplicas<>(primary, numReplicas, rootCopier, replicaSelector);
+		primary.registerHook("readReplicas", primary.rootReference(), ref -> result.publish(ref.value()));
+		return result;
+	}
+
+	public static ToIntFunction<Thread> byThreadID(int numReplicas) {
+		return thread -> (int)(thread.getId() % numReplicas);
+	}
+
+	private ReadReplicas(Bosk<R> primary, int numReplicas, UnaryOperator<R> rootCopier, ToIntFunction<Thread> replicaSelector) {
+		this.primary = primary;
+		this.rootCopier = rootCopier;
+		this.replicaSelector = replicaSelector;
+		R initialRoot;
+		try (Bosk<R>.ReadContext context = primary.readContext()) {
+			initialRoot = primary.rootReference().value();
+		}
+		List<Replica<R>> replicas = new ArrayList<>(numReplicas);
+		for (int i = 0; i < numReplicas; i++) {
+			replicas.add(new Replica<>(rootCopier.apply(initialRoot), format("replica-%08x-%d", identityHashCode(this), i)));
+		}
+		this.replicas = unmodifiableList(replicas);
+	}
+
+	public int numReplicas() {
+		return replicas.size();
+	}
+
+	/**
+	 * Like {@link Bosk#readContext()}, except the state is taken from the replica
+	 * chosen for the current thread by the <code>replicaSelector</code>.
+	 * {@link Reference}s from the primary bosk can be used as usual within the returned context.
+	 *
+	 * <p>
+	 * Unlike {@link Bosk#readContext()}, if a context is already active on the current
+	 * thread, the returned context supersedes it until closed.
+	 */
+	public Bosk<R>.ReadContext readContext() {
+		return readContext(replicaSelector.applyAsInt(Thread.currentThread()));
+	}
+
+	public Bosk<R>.ReadContext readContext(int replicaIndex) {
+		return primary.new ReadContext(replicas.get(Math.floorMod(replicaIndex, replicas.size())).root);
+	}
+
+	/**
+	 * Stops the replica threads. The replicas retain their current state,
+	 * but no longer receive updates.
+	 * There's usually no reason to call this outside of tests.
+	 */
+	public void close() {
+		replicas.forEach(r -> r.executor.shutdown());
+	}
+
+	private void publish(R newRoot) {
+		for (Replica<R> replica: replicas) {
+			if (replica.incoming.getAndSet(newRoot) == null) {
+				try {
+					replica.executor.execute(() -> replica.apply(rootCopier));
+				} catch (RejectedExecutionException e) {
+					LOGGER.debug("Replica is closed; ignoring new root", e);
+				}
+			}
+		}
+	}
+
+	private static final class Replica<R extends Entity> {
+		final ExecutorService executor;
+		final AtomicReference<R> incoming = new AtomicReference<>();
+		volatile R root;
+
+		Replica(R initialRoot, String threadName) {
+			this.root = requireNonNull(initialRoot);
+			this.executor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, threadName);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		void apply(UnaryOperator<R> rootCopier) {
+			R newRoot = incoming.getAndSet(null);
+			if (newRoot != null) {
+				try {
+					root = requireNonNull(rootCopier.apply(newRoot));
+				} catch (RuntimeException e) {
+					LOGGER.error("Unable to copy new root; replica will not be updated", e);
+				}
+			}
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReadReplicas.class);
+}
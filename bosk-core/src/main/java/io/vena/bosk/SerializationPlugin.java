@@ -107,6 +107,26 @@ public abstract class SerializationPlugin {
 		}
 	}
 
+	/**
+	 * @return the scope in effect on the current thread, suitable for passing to
+	 * {@link #copiedDeserializationScope} on another thread.
+	 */
+	public final DeserializationScope currentDeserializationScope() {
+		return currentScope.get();
+	}
+
+	/**
+	 * Establishes a scope with the same path and bindings as <code>scope</code>,
+	 * which typically belongs to another thread. Used to deserialize parts of
+	 * an object in parallel.
+	 */
+	public final DeserializationScope copiedDeserializationScope(DeserializationScope scope) {
+		DeserializationScope outerScope = currentScope.get();
+		DeserializationScope newScope = new NestedDeserializationScope(outerScope, scope.path(), scope.bindingEnvironment());
+		currentScope.set(newScope);
+		return newScope;
+	}
+
 	private DeserializationScope outermostScope() {
 		return new OutermostDeserializationScope();
 	}
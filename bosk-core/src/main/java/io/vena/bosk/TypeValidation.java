@@ -77,9 +77,16 @@ public final class TypeValidation {
 				}
 			} else if (StateTreeNode.class.isAssignableFrom(theClass)) {
 				validateStateTreeNodeClass(theClass, alreadyValidated);
-			} else if (ListValue.class.isAssignableFrom(theClass) || MapValue.class.isAssignableFrom(theClass)) {
+			} else if (ListValue.class.isAssignableFrom(theClass) || PersistentListValue.class.isAssignableFrom(theClass) || MapValue.class.isAssignableFrom(theClass)) {
 				validateFieldsAreFinal(theClass);
-				Class<?> genericClass = ListValue.class.isAssignableFrom(theClass) ? ListValue.class : MapValue.class;
+				Class<?> genericClass;
+				if (ListValue.class.isAssignableFrom(theClass)) {
+					genericClass = ListValue.class;
+				} else if (PersistentListValue.class.isAssignableFrom(theClass)) {
+					genericClass = PersistentListValue.class;
+				} else {
+					genericClass = MapValue.class;
+				}
 				Type entryType = parameterType(theType, genericClass, 0);
 				Class<?> entryClass = rawClass(entryType);
 				// Exclude specific anti-patterns
@@ -271,6 +278,10 @@ public final class TypeValidation {
 		Catalog.class,
 		Listing.class,
 		SideTable.class,
+		IntListValue.class,
+		LongListValue.class,
+		DoubleListValue.class,
+		PersistentListValue.class,
 		// These ones can be subclassed; hard to REALLY trust them
 		Reference.class,
 		ListValue.class);
@@ -3,17 +3,21 @@ package io.vena.bosk.drivers;
 import io.vena.bosk.BoskDriver;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
 import io.vena.bosk.Reference;
 import io.vena.bosk.exceptions.InvalidTypeException;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 
-import static lombok.AccessLevel.PROTECTED;
-
 /**
  * Queues updates and submits them to a downstream driver when {@link #flush()}
  * is called.
@@ -26,17 +30,46 @@ import static lombok.AccessLevel.PROTECTED;
  * threads may be interleaved. (They are, of course, submitted downstream
  * in the order they were submitted to this driver.)
  *
+ * <p>
+ * In {@link #coalescingWritesTo coalescing} mode, updates whose effects would be
+ * overwritten by later buffered updates are discarded at {@link #flush()} time
+ * rather than being submitted downstream.
+ *
  * @author pdoyle
  */
-@RequiredArgsConstructor(access = PROTECTED)
 public class BufferingDriver<R extends Entity> implements BoskDriver<R> {
 	private final BoskDriver<R> downstream;
-	private final Deque<Consumer<BoskDriver<R>>> updateQueue = new ConcurrentLinkedDeque<>();
+	private final boolean coalescing;
+	private final Deque<BufferedUpdate<R>> updateQueue = new ConcurrentLinkedDeque<>();
+
+	protected BufferingDriver(BoskDriver<R> downstream) {
+		this(downstream, false);
+	}
+
+	protected BufferingDriver(BoskDriver<R> downstream, boolean coalescing) {
+		this.downstream = downstream;
+		this.coalescing = coalescing;
+	}
 
 	public static <RR extends Entity> BufferingDriver<RR> writingTo(BoskDriver<RR> downstream) {
 		return new BufferingDriver<>(downstream);
 	}
 
+	/**
+	 * Like {@link #writingTo}, except that on {@link #flush()}, a buffered
+	 * replacement or deletion is discarded if a later buffered replacement
+	 * or deletion targets the same node or one of its ancestors.
+	 * The surviving updates are submitted downstream in their original order.
+	 *
+	 * <p>
+	 * Conditional updates and initializations depend on the state left by
+	 * the updates before them, so those earlier updates are never discarded
+	 * on account of updates that come later.
+	 */
+	public static <RR extends Entity> BufferingDriver<RR> coalescingWritesTo(BoskDriver<RR> downstream) {
+		return new BufferingDriver<>(downstream, true);
+	}
+
 	@Override
 	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
 		return downstream.initialRoot(rootType);
@@ -44,35 +77,95 @@ public class BufferingDriver<R extends Entity> implements BoskDriver<R> {
 
 	@Override
 	public <T> void submitReplacement(Reference<T> target, T newValue) {
-		updateQueue.add(d -> d.submitReplacement(target, newValue));
+		updateQueue.add(new BufferedUpdate<>(target, true, d -> d.submitReplacement(target, newValue)));
 	}
 
 	@Override
 	public <T> void submitInitialization(Reference<T> target, T newValue) {
-		updateQueue.add(d -> d.submitInitialization(target, newValue));
+		updateQueue.add(new BufferedUpdate<>(target, false, d -> d.submitInitialization(target, newValue)));
 	}
 
 	@Override
 	public <T> void submitDeletion(Reference<T> target) {
-		updateQueue.add(d -> d.submitDeletion(target));
+		updateQueue.add(new BufferedUpdate<>(target, true, d -> d.submitDeletion(target)));
 	}
 
 	@Override
 	public void flush() throws InterruptedException, IOException {
-		for (Consumer<BoskDriver<R>> update = updateQueue.pollFirst(); update != null; update = updateQueue.pollFirst()) {
-			update.accept(downstream);
+		if (coalescing) {
+			List<BufferedUpdate<R>> updates = new ArrayList<>();
+			for (BufferedUpdate<R> update = updateQueue.pollFirst(); update != null; update = updateQueue.pollFirst()) {
+				updates.add(update);
+			}
+			for (BufferedUpdate<R> update: coalesced(updates)) {
+				update.action.accept(downstream);
+			}
+		} else {
+			for (BufferedUpdate<R> update = updateQueue.pollFirst(); update != null; update = updateQueue.pollFirst()) {
+				update.action.accept(downstream);
+			}
 		}
 		downstream.flush();
 	}
 
 	@Override
 	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
-		updateQueue.add(d -> d.submitConditionalReplacement(target, newValue, precondition, requiredValue));
+		updateQueue.add(new BufferedUpdate<>(target, false, d -> d.submitConditionalReplacement(target, newValue, precondition, requiredValue)));
 	}
 
 	@Override
 	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
-		updateQueue.add(d -> d.submitConditionalDeletion(target, precondition, requiredValue));
+		updateQueue.add(new BufferedUpdate<>(target, false, d -> d.submitConditionalDeletion(target, precondition, requiredValue)));
+	}
+
+	/**
+	 * Walks the updates backward, keeping track of the paths whose contents
+	 * are entirely determined by the updates seen so far.
+	 *
+	 * @return the updates that are not superseded, in their original order
+	 */
+	static <U extends BufferedUpdate<?>> Deque<U> coalesced(List<U> updates) {
+		Deque<U> result = new ArrayDeque<>(updates.size());
+		Set<Path> overwrittenPaths = new HashSet<>();
+		for (int i = updates.size() - 1; i >= 0; i--) {
+			U update = updates.get(i);
+			Path path = update.target.path();
+			if (isWithinAny(path, overwrittenPaths)) {
+				continue;
+			}
+			result.addFirst(update);
+			if (update.overwrites) {
+				overwrittenPaths.add(path);
+			} else {
+				// This update's effect depends on the state left by earlier
+				// updates, so none of those can be discarded.
+				overwrittenPaths.clear();
+			}
+		}
+		return result;
+	}
+
+	private static boolean isWithinAny(Path path, Set<Path> candidateAncestors) {
+		if (candidateAncestors.isEmpty()) {
+			return false;
+		}
+		for (int length = path.length(); length >= 0; length--) {
+			if (candidateAncestors.contains(path.truncatedTo(length))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param overwrites true if the update determines the state at <code>target</code>
+	 * regardless of what it was before
+	 */
+	@RequiredArgsConstructor
+	static class BufferedUpdate<R extends Entity> {
+		final Reference<?> target;
+		final boolean overwrites;
+		final Consumer<BoskDriver<R>> action;
 	}
 
 }
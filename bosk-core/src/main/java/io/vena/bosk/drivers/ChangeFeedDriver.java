@@ -0,0 +1,425 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Publishes each update, as it is submitted downstream, to any number of
+ * {@link Subscriber}s as an ordered stream of sequence-numbered {@link ChangeEvent}s.
+ *
+ * <p>
+ * Publishing an event just stores it in a bounded in-memory buffer; each
+ * subscription has its own thread that delivers events in batches, so
+ * subscribers don't delay the submitting thread. If the slowest subscriber falls
+ * {@link ChangeFeedDriverSettings#bufferCapacity() bufferCapacity} events behind,
+ * submitting threads wait for it to catch up.
+ *
+ * <p>
+ * The lock that assigns sequence numbers is not held while calling the downstream driver.
+ * Updates are still submitted downstream in sequence order: each submitting thread
+ * waits only for updates with earlier sequence numbers to be submitted.
+ *
+ * <p>
+ * A subscriber that throws from {@link Subscriber#deliver} is sent the same batch again
+ * after a delay, so each subscriber sees every event at least once, in order.
+ * After {@link ChangeFeedDriverSettings#maxDeliveryAttempts() maxDeliveryAttempts},
+ * the subscription {@link Subscription#isFailed() fails} and is closed.
+ * A subscription's {@link Subscription#nextSequence() position} can be used to resume
+ * from the same point with a new subscription, provided the events are still buffered.
+ *
+ * <p>
+ * The events describe updates as submitted downstream, not their outcome:
+ * for example, a conditional update whose precondition doesn't hold is still published.
+ * New values are the immutable objects that were submitted;
+ * subscribers that need them in serialized form can serialize them as they are delivered,
+ * off the submitting thread.
+ */
+public class ChangeFeedDriver<R extends Entity> implements BoskDriver<R> {
+	private final BoskDriver<R> downstream;
+	private final ChangeFeedDriverSettings settings;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition published = lock.newCondition();
+	private final Condition consumed = lock.newCondition();
+	private final Condition submitted = lock.newCondition();
+
+	// All guarded by lock
+	private final ChangeEvent[] buffer;
+	private long nextSequence = 1;
+	private long nextToSubmit = 1;
+	private final List<Subscription> subscriptions = new ArrayList<>();
+
+	public static <RR extends Entity> ChangeFeedDriver<RR> of(BoskDriver<RR> downstream, ChangeFeedDriverSettings settings) {
+		return new ChangeFeedDriver<>(downstream, settings);
+	}
+
+	protected ChangeFeedDriver(BoskDriver<R> downstream, ChangeFeedDriverSettings settings) {
+		if (settings.bufferCapacity() < 1) {
+			throw new IllegalArgumentException("bufferCapacity must be positive: " + settings.bufferCapacity());
+		} else if (settings.maxBatchSize() < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive: " + settings.maxBatchSize());
+		} else if (settings.retryDelayMS() < 0) {
+			throw new IllegalArgumentException("retryDelayMS must not be negative: " + settings.retryDelayMS());
+		} else if (settings.maxDeliveryAttempts() < 1) {
+			throw new IllegalArgumentException("maxDeliveryAttempts must be positive: " + settings.maxDeliveryAttempts());
+		}
+		this.downstream = downstream;
+		this.settings = settings;
+		this.buffer = new ChangeEvent[settings.bufferCapacity()];
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		return downstream.initialRoot(rootType);
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		submit(Operation.REPLACEMENT, target, newValue, null, null,
+			() -> downstream.submitReplacement(target, newValue));
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		submit(Operation.REPLACEMENT, target, newValue, precondition, requiredValue,
+			() -> downstream.submitConditionalReplacement(target, newValue, precondition, requiredValue));
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		submit(Operation.INITIALIZATION, target, newValue, null, null,
+			() -> downstream.submitInitialization(target, newValue));
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		submit(Operation.DELETION, target, null, null, null,
+			() -> downstream.submitDeletion(target));
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		submit(Operation.DELETION, target, null, precondition, requiredValue,
+			() -> downstream.submitConditionalDeletion(target, precondition, requiredValue));
+	}
+
+	/**
+	 * Publishes the event, then calls <code>submission</code> once every
+	 * earlier event has been submitted downstream, without holding {@link #lock}.
+	 */
+	private void submit(Operation operation, Reference<?> target, Object newValue, Reference<Identifier> precondition, Identifier requiredValue, Runnable submission) {
+		lock.lock();
+		try {
+			long sequence = publish(operation, target, newValue, precondition, requiredValue);
+			// Bounded by the downstream latency of earlier submitters, which always
+			// take their turn, so this needn't be interruptible. If it were, an interrupted
+			// thread would leave its turn untaken, and every later submitter would wait forever.
+			while (nextToSubmit != sequence) {
+				submitted.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+		try {
+			submission.run();
+		} finally {
+			lock.lock();
+			try {
+				nextToSubmit++;
+				submitted.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Flushes the downstream driver. Does not wait for subscribers.
+	 */
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		downstream.flush();
+	}
+
+	/**
+	 * @return a subscription that delivers events published from now on
+	 */
+	public Subscription subscribe(Subscriber subscriber) {
+		lock.lock();
+		try {
+			return subscribe(subscriber, nextSequence);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param fromSequence the sequence number of the first event to deliver;
+	 * typically the {@link Subscription#nextSequence() nextSequence} of an earlier subscription.
+	 * @throws IllegalArgumentException if events from <code>fromSequence</code> onward are
+	 * no longer buffered, or <code>fromSequence</code> is beyond the next event to be published.
+	 */
+	public Subscription subscribe(Subscriber subscriber, long fromSequence) {
+		lock.lock();
+		try {
+			if (fromSequence < oldestBufferedSequence()) {
+				throw new IllegalArgumentException("Events before " + oldestBufferedSequence() + " are no longer available; requested " + fromSequence);
+			} else if (fromSequence > nextSequence) {
+				throw new IllegalArgumentException("Event " + fromSequence + " has not yet been published; next is " + nextSequence);
+			}
+			Subscription result = new Subscription(subscriber, fromSequence);
+			subscriptions.add(result);
+			result.thread.start();
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the sequence number that will be assigned to the next event
+	 */
+	public long nextSequence() {
+		lock.lock();
+		try {
+			return nextSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@FunctionalInterface
+	public interface Subscriber {
+		/**
+		 * @param events one or more consecutive events, in sequence order
+		 * @throws Exception to have the same events delivered again after a delay
+		 */
+		void deliver(List<ChangeEvent> events) throws Exception;
+	}
+
+	public enum Operation {
+		REPLACEMENT,
+		INITIALIZATION,
+		DELETION,
+	}
+
+	@Value
+	public static class ChangeEvent {
+		long sequence;
+		Operation operation;
+		Reference<?> target;
+		/**
+		 * Null for deletions.
+		 */
+		Object newValue;
+		/**
+		 * Null unless the update was conditional.
+		 */
+		Reference<Identifier> precondition;
+		Identifier requiredValue;
+	}
+
+	public final class Subscription implements AutoCloseable {
+		private final Subscriber subscriber;
+		private final Thread thread;
+
+		// Guarded by lock
+		private long nextSequence;
+		private boolean isClosed = false;
+		private boolean isFailed = false;
+
+		private Subscription(Subscriber subscriber, long fromSequence) {
+			this.subscriber = subscriber;
+			this.nextSequence = fromSequence;
+			this.thread = new Thread(this::deliveryLoop, format("change-feed-%08x", identityHashCode(this)));
+			thread.setDaemon(true);
+		}
+
+		/**
+		 * @return the sequence number of the next event this subscription will deliver;
+		 * all earlier events have been delivered successfully.
+		 */
+		public long nextSequence() {
+			lock.lock();
+			try {
+				return nextSequence;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * @return true if this subscription was closed because the subscriber failed to accept
+		 * a batch of events after {@link ChangeFeedDriverSettings#maxDeliveryAttempts() maxDeliveryAttempts}.
+		 * The {@link #nextSequence()} is the first event of that batch.
+		 */
+		public boolean isFailed() {
+			lock.lock();
+			try {
+				return isFailed;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Stops delivering events. A batch already being delivered is allowed to finish.
+		 */
+		@Override
+		public void close() {
+			lock.lock();
+			try {
+				isClosed = true;
+				subscriptions.remove(this);
+				published.signalAll();
+				consumed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void deliveryLoop() {
+			LOGGER.debug("Starting");
+			try {
+				while (true) {
+					List<ChangeEvent> batch;
+					lock.lock();
+					try {
+						while (!isClosed && nextSequence >= ChangeFeedDriver.this.nextSequence) {
+							published.await();
+						}
+						if (isClosed) {
+							LOGGER.debug("Closed; exiting");
+							return;
+						}
+						int batchSize = (int) Math.min(settings.maxBatchSize(), ChangeFeedDriver.this.nextSequence - nextSequence);
+						List<ChangeEvent> events = new ArrayList<>(batchSize);
+						for (int i = 0; i < batchSize; i++) {
+							events.add(buffer[indexOf(nextSequence + i)]);
+						}
+						batch = unmodifiableList(events);
+					} finally {
+						lock.unlock();
+					}
+
+					if (!deliver(batch)) {
+						lock.lock();
+						try {
+							isFailed = true;
+						} finally {
+							lock.unlock();
+						}
+						close();
+						LOGGER.debug("Failed; exiting");
+						return;
+					}
+
+					lock.lock();
+					try {
+						nextSequence += batch.size();
+						consumed.signalAll();
+					} finally {
+						lock.unlock();
+					}
+				}
+			} catch (InterruptedException e) {
+				LOGGER.warn("Interrupted; exiting", e);
+			}
+		}
+
+		/**
+		 * @return false if the subscriber failed every attempt
+		 */
+		private boolean deliver(List<ChangeEvent> batch) throws InterruptedException {
+			for (int attempt = 1; ; attempt++) {
+				try {
+					subscriber.deliver(batch);
+					return true;
+				} catch (Exception e) {
+					if (attempt >= settings.maxDeliveryAttempts()) {
+						LOGGER.error("Subscriber {} failed to accept events {} to {} after {} attempts; closing subscription", subscriber, batch.get(0).sequence(), batch.get(batch.size() - 1).sequence(), attempt, e);
+						return false;
+					}
+					LOGGER.error("Subscriber {} failed to accept events {} to {}; will retry", subscriber, batch.get(0).sequence(), batch.get(batch.size() - 1).sequence(), e);
+					Thread.sleep(settings.retryDelayMS());
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Subscription{" +
+				"subscriber=" + subscriber +
+				'}';
+		}
+	}
+
+	/**
+	 * Called with the lock held.
+	 *
+	 * @return the sequence number of the new event
+	 * @throws IllegalStateException if interrupted while waiting for buffer space
+	 */
+	private long publish(Operation operation, Reference<?> target, Object newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		while (nextSequence - oldestUndeliveredSequence() >= buffer.length) {
+			try {
+				consumed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for subscribers to catch up", e);
+			}
+		}
+		long sequence = nextSequence;
+		buffer[indexOf(sequence)] = new ChangeEvent(sequence, operation, target, newValue, precondition, requiredValue);
+		nextSequence++;
+		published.signalAll();
+		return sequence;
+	}
+
+	/**
+	 * Called with the lock held.
+	 */
+	private long oldestUndeliveredSequence() {
+		long result = nextSequence;
+		for (Subscription s: subscriptions) {
+			result = Math.min(result, s.nextSequence);
+		}
+		return result;
+	}
+
+	/**
+	 * Called with the lock held.
+	 */
+	private long oldestBufferedSequence() {
+		return Math.max(1, nextSequence - buffer.length);
+	}
+
+	private int indexOf(long sequence) {
+		return (int) (sequence % buffer.length);
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeFeedDriver{" +
+			"downstream=" + downstream +
+			'}';
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedDriver.class);
+}
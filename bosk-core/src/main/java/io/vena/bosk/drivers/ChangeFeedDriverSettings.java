@@ -0,0 +1,34 @@
+package io.vena.bosk.drivers;
+
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+@Value
+@Builder
+public class ChangeFeedDriverSettings {
+	/**
+	 * The number of most recent events retained for delivery.
+	 * When the slowest subscriber falls this far behind,
+	 * submitting threads wait until it catches up.
+	 * This is also how far back a new subscription can start.
+	 */
+	@Default int bufferCapacity = 10_000;
+
+	/**
+	 * The maximum number of events delivered to a subscriber in one call.
+	 */
+	@Default int maxBatchSize = 1_000;
+
+	/**
+	 * How long to wait before re-delivering a batch that a subscriber failed to accept.
+	 */
+	@Default long retryDelayMS = 1_000;
+
+	/**
+	 * How many times to try delivering a batch before giving up on the subscriber.
+	 * A subscription that gives up is closed, so it no longer holds back submitting threads,
+	 * and its {@link ChangeFeedDriver.Subscription#nextSequence() nextSequence} is the first event it failed to accept.
+	 */
+	@Default int maxDeliveryAttempts = 10;
+}
@@ -0,0 +1,158 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.util.Collections.unmodifiableList;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Like {@link ForwardingDriver}, except the downstream drivers are called concurrently,
+ * each from its own thread, so a slow downstream driver doesn't delay the others.
+ * Each downstream driver still sees the updates in the order they were submitted.
+ *
+ * <p>
+ * {@link #flush()} flushes all downstream drivers in parallel after
+ * they have received all previously submitted updates, and returns when all have finished.
+ * If any of them throw, the first exception is rethrown with the others {@link Throwable#addSuppressed suppressed}.
+ *
+ * <p>
+ * Because updates are submitted downstream asynchronously, exceptions thrown by downstream
+ * drivers while submitting an update can't be reported to the caller; they are logged instead.
+ * Validation that must be reported synchronously should happen upstream of this driver.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class ConcurrentForwardingDriver<R extends Entity> implements BoskDriver<R> {
+	private final List<BoskDriver<R>> downstream;
+	private final List<ExecutorService> executors;
+
+	public static <RR extends Entity> ConcurrentForwardingDriver<RR> of(List<BoskDriver<RR>> downstream) {
+		List<ExecutorService> executors = new ArrayList<>(downstream.size());
+		for (int i = 0; i < downstream.size(); i++) {
+			String threadName = format("forwarding-%08x-%d", identityHashCode(downstream), i);
+			executors.add(Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, threadName);
+				thread.setDaemon(true);
+				return thread;
+			}));
+		}
+		return new ConcurrentForwardingDriver<>(unmodifiableList(new ArrayList<>(downstream)), unmodifiableList(executors));
+	}
+
+	/**
+	 * Same as {@link ForwardingDriver#initialRoot}. Called synchronously on the calling thread.
+	 */
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		return new ForwardingDriver<>(downstream).initialRoot(rootType);
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		forEachDownstream(target, d -> d.submitReplacement(target, newValue));
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		forEachDownstream(target, d -> d.submitConditionalReplacement(target, newValue, precondition, requiredValue));
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		forEachDownstream(target, d -> d.submitInitialization(target, newValue));
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		forEachDownstream(target, d -> d.submitDeletion(target));
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		forEachDownstream(target, d -> d.submitConditionalDeletion(target, precondition, requiredValue));
+	}
+
+	@Override
+	public void flush() throws InterruptedException, IOException {
+		List<Future<?>> flushes = new ArrayList<>(downstream.size());
+		for (int i = 0; i < downstream.size(); i++) {
+			BoskDriver<R> d = downstream.get(i);
+			flushes.add(executors.get(i).submit(() -> {
+				d.flush();
+				return null;
+			}));
+		}
+
+		Throwable firstFailure = null;
+		for (Future<?> flush: flushes) {
+			try {
+				flush.get();
+			} catch (ExecutionException e) {
+				if (firstFailure == null) {
+					firstFailure = e.getCause();
+				} else {
+					firstFailure.addSuppressed(e.getCause());
+				}
+			}
+		}
+
+		if (firstFailure instanceof IOException) {
+			throw (IOException) firstFailure;
+		} else if (firstFailure instanceof InterruptedException) {
+			throw (InterruptedException) firstFailure;
+		} else if (firstFailure instanceof RuntimeException) {
+			throw (RuntimeException) firstFailure;
+		} else if (firstFailure instanceof Error) {
+			throw (Error) firstFailure;
+		} else if (firstFailure != null) {
+			throw new IllegalStateException("Unexpected exception from downstream flush", firstFailure);
+		}
+	}
+
+	/**
+	 * Stops the threads after they finish any updates already submitted.
+	 * There's usually no reason to call this outside of tests.
+	 */
+	public void close() {
+		executors.forEach(ExecutorService::shutdown);
+	}
+
+	private void forEachDownstream(Reference<?> target, Consumer<BoskDriver<R>> action) {
+		for (int i = 0; i < downstream.size(); i++) {
+			BoskDriver<R> d = downstream.get(i);
+			executors.get(i).execute(() -> {
+				try {
+					action.accept(d);
+				} catch (RuntimeException e) {
+					LOGGER.error("Downstream driver {} failed to apply update to {}", d, target, e);
+				}
+			});
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentForwardingDriver{" +
+			"downstream=" + downstream +
+			'}';
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentForwardingDriver.class);
+}
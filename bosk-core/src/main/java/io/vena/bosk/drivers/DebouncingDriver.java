@@ -0,0 +1,267 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Holds back replacements and deletions for a short time so that, if the same
+ * path is updated repeatedly, only the latest update is submitted downstream.
+ * Optionally, also limits how often any one path can be updated downstream.
+ * This is intended for high-frequency writers, where submitting every
+ * intermediate value downstream would be wasteful.
+ *
+ * <p>
+ * Updates to different paths may be submitted downstream in a different order
+ * than they were submitted to this driver, but only when neither path is a prefix of the other,
+ * so the resulting state is the same.
+ * Other kinds of updates, and updates whose target overlaps a pending update,
+ * first cause all pending updates to be submitted downstream, thereby preserving
+ * the semantics of conditional updates and initializations.
+ *
+ * <p>
+ * {@link #flush()} submits all pending updates downstream immediately, and then flushes the downstream driver.
+ *
+ * <p>
+ * Exceptions thrown by the downstream driver while submitting a pending update
+ * can't be reported to the submitting thread, so they are logged.
+ * Validation that must be reported synchronously should happen upstream of this driver.
+ *
+ * @see DebouncingDriverSettings
+ */
+public class DebouncingDriver<R extends Entity> implements BoskDriver<R> {
+	private final BoskDriver<R> downstream;
+	private final PathCompiler pathCompiler;
+	private final long debounceWindowNanos;
+	private final Map<Path, Long> minIntervalNanosByTemplate;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Held while submitting updates downstream, to ensure that updates taken from
+	 * {@link #pending} are submitted in the order they were taken.
+	 */
+	private final ReentrantLock submitLock = new ReentrantLock();
+
+	// Guarded by "this"
+	private final Map<Path, PendingUpdate<R>> pending = new LinkedHashMap<>();
+	private final Map<Path, Long> nextAllowedNanosByPath = new HashMap<>();
+
+	public static <RR extends Entity> DriverFactory<RR> factory(DebouncingDriverSettings settings) {
+		return (b, d) -> new DebouncingDriver<>(b, d, settings);
+	}
+
+	protected DebouncingDriver(Bosk<R> bosk, BoskDriver<R> downstream, DebouncingDriverSettings settings) {
+		if (settings.debounceWindowMS() < 0) {
+			throw new IllegalArgumentException("debounceWindowMS must not be negative: " + settings.debounceWindowMS());
+		}
+		this.downstream = downstream;
+		this.pathCompiler = PathCompiler.withSourceType(bosk.rootReference().targetType());
+		this.debounceWindowNanos = MILLISECONDS.toNanos(settings.debounceWindowMS());
+		this.minIntervalNanosByTemplate = new HashMap<>();
+		settings.minIntervalMSByTemplate().forEach((template, intervalMS) -> {
+			if (intervalMS < 0) {
+				throw new IllegalArgumentException("Minimum interval for " + template + " must not be negative: " + intervalMS);
+			}
+			try {
+				minIntervalNanosByTemplate.put(pathCompiler.fullyParameterizedPathOf(template), MILLISECONDS.toNanos(intervalMS));
+			} catch (InvalidTypeException e) {
+				throw new IllegalArgumentException("Invalid path template: " + template, e);
+			}
+		});
+		String threadName = format("debounce-%08x", identityHashCode(this));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		return downstream.initialRoot(rootType);
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		debounce(target, d -> d.submitReplacement(target, newValue));
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		submitAfterPending(d -> d.submitConditionalReplacement(target, newValue, precondition, requiredValue));
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		submitAfterPending(d -> d.submitInitialization(target, newValue));
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		debounce(target, d -> d.submitDeletion(target));
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		submitAfterPending(d -> d.submitConditionalDeletion(target, precondition, requiredValue));
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		submitAfterPending(d -> {});
+		downstream.flush();
+	}
+
+	/**
+	 * Stops the background thread.
+	 * Updates that are still pending will be submitted by the next {@link #flush()}, if any.
+	 * There's usually no reason to call this outside of tests.
+	 */
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+	public synchronized int numPending() {
+		return pending.size();
+	}
+
+	private void debounce(Reference<?> target, Consumer<BoskDriver<R>> action) {
+		Path path = target.path();
+		long minIntervalNanos = minIntervalNanosFor(path);
+		synchronized (this) {
+			PendingUpdate<R> existing = pending.get(path);
+			if (existing != null) {
+				LOGGER.trace("Overwriting pending update to {}", target);
+				existing.action = action;
+				return;
+			}
+			boolean overlapsPending = pending.keySet().stream().anyMatch(p -> p.isPrefixOf(path) || path.isPrefixOf(p));
+			if (!overlapsPending) {
+				long now = System.nanoTime();
+				long deadline = now + debounceWindowNanos;
+				Long nextAllowed = nextAllowedNanosByPath.get(path);
+				if (nextAllowed != null && nextAllowed - deadline > 0) {
+					deadline = nextAllowed;
+				}
+				pending.put(path, new PendingUpdate<>(target, action, deadline, minIntervalNanos));
+				scheduler.schedule(this::submitDue, deadline - now, NANOSECONDS);
+				return;
+			}
+		}
+		LOGGER.debug("Update to {} overlaps a pending update", target);
+		submitAfterPending(action);
+	}
+
+	private void submitAfterPending(Consumer<BoskDriver<R>> action) {
+		submitLock.lock();
+		try {
+			List<PendingUpdate<R>> all;
+			synchronized (this) {
+				all = new ArrayList<>(pending.values());
+				pending.clear();
+			}
+			submitPending(all);
+			action.accept(downstream);
+		} finally {
+			submitLock.unlock();
+		}
+	}
+
+	private void submitDue() {
+		submitLock.lock();
+		try {
+			List<PendingUpdate<R>> due = new ArrayList<>();
+			synchronized (this) {
+				long now = System.nanoTime();
+				Iterator<PendingUpdate<R>> iter = pending.values().iterator();
+				while (iter.hasNext()) {
+					PendingUpdate<R> update = iter.next();
+					if (update.deadlineNanos - now <= 0) {
+						due.add(update);
+						iter.remove();
+					}
+				}
+				nextAllowedNanosByPath.values().removeIf(nextAllowed -> nextAllowed - now <= 0);
+			}
+			submitPending(due);
+		} finally {
+			submitLock.unlock();
+		}
+	}
+
+	private void submitPending(List<PendingUpdate<R>> updates) {
+		for (PendingUpdate<R> update: updates) {
+			Consumer<BoskDriver<R>> action;
+			synchronized (this) {
+				action = update.action;
+				if (update.minIntervalNanos > 0) {
+					nextAllowedNanosByPath.put(update.target.path(), System.nanoTime() + update.minIntervalNanos);
+				}
+			}
+			try {
+				action.accept(downstream);
+			} catch (RuntimeException e) {
+				LOGGER.error("Downstream driver failed to apply pending update to {}; skipping", update.target, e);
+			}
+		}
+	}
+
+	private long minIntervalNanosFor(Path path) {
+		if (minIntervalNanosByTemplate.isEmpty()) {
+			return 0;
+		}
+		try {
+			return minIntervalNanosByTemplate.getOrDefault(pathCompiler.fullyParameterizedPathOf(path), 0L);
+		} catch (InvalidTypeException e) {
+			throw new AssertionError("Reference paths are expected to be valid: " + path, e);
+		}
+	}
+
+	private static final class PendingUpdate<R extends Entity> {
+		final Reference<?> target;
+		final long deadlineNanos;
+		final long minIntervalNanos;
+		Consumer<BoskDriver<R>> action; // Guarded by the enclosing DebouncingDriver
+
+		PendingUpdate(Reference<?> target, Consumer<BoskDriver<R>> action, long deadlineNanos, long minIntervalNanos) {
+			this.target = target;
+			this.action = action;
+			this.deadlineNanos = deadlineNanos;
+			this.minIntervalNanos = minIntervalNanos;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DebouncingDriver{" +
+			"downstream=" + downstream +
+			'}';
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DebouncingDriver.class);
+}
@@ -0,0 +1,30 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.Path;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+import static java.util.Collections.emptyMap;
+
+@Value
+@Builder
+public class DebouncingDriverSettings {
+	/**
+	 * After a replacement or deletion arrives for a path that has no pending update,
+	 * how long to wait before submitting it downstream.
+	 * Any further replacements or deletions of the same path during that time
+	 * overwrite the pending one, so only the latest is submitted.
+	 */
+	@Default long debounceWindowMS = 100;
+
+	/**
+	 * Optional minimum time between successive downstream updates to any one path,
+	 * keyed by path template. Each key is a parameterized {@link Path};
+	 * parameter names don't matter, so <code>/metrics/-id-/value</code>
+	 * rate-limits every path that matches it, regardless of the <code>id</code>.
+	 * Paths with no template in this map are limited only by {@link #debounceWindowMS}.
+	 */
+	@Default Map<Path, Long> minIntervalMSByTemplate = emptyMap();
+}
@@ -5,22 +5,45 @@ import io.vena.bosk.BoskDriver;
 import io.vena.bosk.DriverFactory;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
 import io.vena.bosk.Reference;
 import io.vena.bosk.exceptions.InvalidTypeException;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.synchronizedMap;
 import static lombok.AccessLevel.PRIVATE;
 
 /**
  * Sends events to another {@link Bosk} of the same type.
+ *
+ * <p>
+ * The new values are sent to the mirror as-is, so the mirror's state shares
+ * its immutable objects with the original bosk rather than copying them.
+ * Only the {@link Reference}s are translated, and those translations are cached.
  */
 @RequiredArgsConstructor(access=PRIVATE)
 public class MirroringDriver<R extends Entity> implements BoskDriver<R> {
 	private final Bosk<R> mirror;
 
+	/**
+	 * Creating a reference involves type checking its path, which can be
+	 * costly compared with the rest of the work we do for each update.
+	 * The cache is bounded because there could be an unlimited variety of paths.
+	 */
+	private final Map<Path, Reference<?>> referenceCache = synchronizedMap(new LinkedHashMap<Path, Reference<?>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Reference<?>> eldest) {
+			return size() > REFERENCE_CACHE_SIZE;
+		}
+	});
+
 	public static <RR extends Entity> DriverFactory<RR> targeting(Bosk<RR> mirror) {
 		return (bosk, downstream) -> new ForwardingDriver<>(asList(
 			new MirroringDriver<>(mirror),
@@ -28,6 +51,44 @@ public class MirroringDriver<R extends Entity> implements BoskDriver<R> {
 		));
 	}
 
+	/**
+	 * Like {@link #targeting}, except the mirror and the downstream driver
+	 * are sent updates concurrently using a {@link ConcurrentForwardingDriver}.
+	 */
+	public static <RR extends Entity> DriverFactory<RR> targetingConcurrently(Bosk<RR> mirror) {
+		return (bosk, downstream) -> ConcurrentForwardingDriver.of(asList(
+			new MirroringDriver<>(mirror),
+			downstream
+		));
+	}
+
+	/**
+	 * Like {@link #targeting}, but for any number of mirrors.
+	 * Each mirror receives each update before the downstream driver does.
+	 */
+	public static <RR extends Entity> DriverFactory<RR> targetingAll(List<Bosk<RR>> mirrors) {
+		return (bosk, downstream) -> {
+			List<BoskDriver<RR>> drivers = new ArrayList<>(mirrors.size() + 1);
+			mirrors.forEach(m -> drivers.add(new MirroringDriver<>(m)));
+			drivers.add(downstream);
+			return new ForwardingDriver<>(drivers);
+		};
+	}
+
+	/**
+	 * Like {@link #targeting}, except updates are held back from the mirror
+	 * until {@link BoskDriver#flush() flush} is called, and are then sent as one batch,
+	 * {@link BufferingDriver#coalescingWritesTo coalesced} to skip updates that
+	 * are overwritten within the same batch.
+	 * The downstream driver still receives every update immediately.
+	 */
+	public static <RR extends Entity> DriverFactory<RR> targetingInBatches(Bosk<RR> mirror) {
+		return (bosk, downstream) -> new ForwardingDriver<>(asList(
+			BufferingDriver.coalescingWritesTo(new MirroringDriver<>(mirror)),
+			downstream
+		));
+	}
+
 	@Override
 	public R initialRoot(Type rootType) {
 		throw new UnsupportedOperationException(MirroringDriver.class.getSimpleName() + " cannot supply an initial root");
@@ -65,15 +126,23 @@ public class MirroringDriver<R extends Entity> implements BoskDriver<R> {
 
 	@SuppressWarnings("unchecked")
 	private <T> Reference<T> correspondingReference(Reference<T> original) {
-		try {
-			return (Reference<T>)mirror.reference(Object.class, original.path());
-		} catch (InvalidTypeException e) {
-			throw new AssertionError("References are expected to be compatible: " + original, e);
+		Path path = original.path();
+		Reference<?> result = referenceCache.get(path);
+		if (result == null) {
+			try {
+				result = mirror.reference(Object.class, path);
+			} catch (InvalidTypeException e) {
+				throw new AssertionError("References are expected to be compatible: " + original, e);
+			}
+			referenceCache.put(path, result);
 		}
+		return (Reference<T>) result;
 	}
 
 	@Override
 	public String toString() {
 		return "Mirroring to " + mirror;
 	}
+
+	private static final int REFERENCE_CACHE_SIZE = 10_000;
 }
@@ -0,0 +1,195 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Bosk.NonexistentEntryException;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.dereferencers.Dereferencer;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparingInt;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Sends each update to one of several downstream drivers, chosen according
+ * to the {@link Reference#path path} of the update's target.
+ * This allows different parts of the bosk state tree to be handled differently;
+ * for example, a high-churn subtree could be kept in memory while the rest
+ * of the state is persisted in a database.
+ *
+ * <p>
+ * Each <em>route</em> is a definite, non-empty path prefix associated with a {@link DriverFactory}.
+ * An update is sent to the route with the longest prefix of the update's target path,
+ * or to the <em>default route</em> if there is no such prefix.
+ * An update that would affect more than one route (because its target is a proper prefix
+ * of some route's path, or because its precondition belongs to a different route)
+ * is rejected with {@link IllegalArgumentException}.
+ *
+ * <p>
+ * {@link #initialRoot} is assembled by taking the default route's initial root
+ * and replacing each route's subtree with the corresponding subtree from that route's initial root.
+ * {@link #flush()} flushes every route.
+ *
+ * <p>
+ * Each route's driver is built using the same downstream driver,
+ * and so the state of all routes ends up in the same bosk.
+ * Each route's driver is expected to send downstream only those updates
+ * that affect its own part of the state tree.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class RoutingDriver<R extends Entity> implements BoskDriver<R> {
+	private final Bosk<R> bosk;
+	private final BoskDriver<R> defaultRoute;
+
+	/**
+	 * Longest prefix first, so the first match is the best match.
+	 */
+	private final List<Route<R>> routes;
+
+	/**
+	 * @param defaultRoute builds the driver for updates that don't match any of the <code>routes</code>
+	 * @param routes maps each path prefix to the factory for the driver that handles updates to that part of the tree
+	 * @throws IllegalArgumentException if any of the <code>routes</code> paths is empty or parameterized
+	 */
+	public static <RR extends Entity> DriverFactory<RR> factory(DriverFactory<RR> defaultRoute, Map<Path, DriverFactory<RR>> routes) {
+		Map<Path, DriverFactory<RR>> validRoutes = new LinkedHashMap<>(routes);
+		validRoutes.keySet().forEach(path -> {
+			if (path.isEmpty()) {
+				throw new IllegalArgumentException("Route path cannot be empty; use the default route instead");
+			} else if (path.numParameters() != 0) {
+				throw new IllegalArgumentException("Route path cannot be parameterized: " + path);
+			}
+		});
+		return (b, d) -> {
+			List<Route<RR>> builtRoutes = new ArrayList<>(validRoutes.size());
+			validRoutes.forEach((path, factory) -> builtRoutes.add(new Route<>(path, factory.build(b, d))));
+			builtRoutes.sort(comparingInt((Route<RR> r) -> r.prefix.length()).reversed());
+			return new RoutingDriver<>(b, defaultRoute.build(b, d), unmodifiableList(builtRoutes));
+		};
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		R result = defaultRoute.initialRoot(rootType);
+		PathCompiler pathCompiler = PathCompiler.withSourceType(rootType);
+
+		// Shortest prefix first, so that nested routes override their enclosing routes
+		for (int i = routes.size() - 1; i >= 0; i--) {
+			Route<R> route = routes.get(i);
+			R routeRoot = route.driver.initialRoot(rootType);
+			Reference<Object> ref = bosk.reference(Object.class, route.prefix);
+			Dereferencer dereferencer = pathCompiler.compiled(route.prefix);
+			result = graft(result, routeRoot, ref, dereferencer);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private R graft(R destination, R source, Reference<Object> ref, Dereferencer dereferencer) {
+		Object subtree;
+		try {
+			subtree = dereferencer.get(source, ref);
+		} catch (NonexistentEntryException e) {
+			LOGGER.debug("Route {} has no initial value; removing from initial root", ref);
+			try {
+				return (R) dereferencer.without(destination, ref);
+			} catch (NonexistentEntryException e2) {
+				return destination;
+			}
+		}
+		try {
+			return (R) dereferencer.with(destination, ref, subtree);
+		} catch (NonexistentEntryException e) {
+			throw new IllegalStateException("Initial root has no container for route " + ref, e);
+		}
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		routeFor(target).submitReplacement(target, newValue);
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		routeFor(target, precondition).submitConditionalReplacement(target, newValue, precondition, requiredValue);
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		routeFor(target).submitInitialization(target, newValue);
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		routeFor(target).submitDeletion(target);
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		routeFor(target, precondition).submitConditionalDeletion(target, precondition, requiredValue);
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		defaultRoute.flush();
+		for (Route<R> route: routes) {
+			route.driver.flush();
+		}
+	}
+
+	private BoskDriver<R> routeFor(Reference<?> target, Reference<Identifier> precondition) {
+		BoskDriver<R> result = routeFor(target);
+		if (routeFor(precondition) != result) {
+			throw new IllegalArgumentException("Precondition " + precondition + " is not in the same route as target " + target);
+		}
+		return result;
+	}
+
+	private BoskDriver<R> routeFor(Reference<?> target) {
+		Path path = target.path();
+		for (Route<R> route: routes) {
+			if (route.prefix.isPrefixOf(path)) {
+				return route.driver;
+			} else if (path.isPrefixOf(route.prefix)) {
+				throw new IllegalArgumentException("Update to " + target + " would span multiple routes, including " + route.prefix);
+			}
+		}
+		return defaultRoute;
+	}
+
+	@RequiredArgsConstructor
+	private static final class Route<R extends Entity> {
+		final Path prefix;
+		final BoskDriver<R> driver;
+
+		@Override
+		public String toString() {
+			return prefix + " -> " + driver;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RoutingDriver{" +
+			"defaultRoute=" + defaultRoute +
+			", routes=" + routes +
+			'}';
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RoutingDriver.class);
+}
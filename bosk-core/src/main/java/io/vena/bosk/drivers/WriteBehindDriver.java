@@ -0,0 +1,289 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.BufferingDriver.BufferedUpdate;
+import io.vena.bosk.drivers.WriteBehindDriverSettings.Backpressure;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+
+/**
+ * Queues updates and submits them to a downstream driver on a background thread,
+ * so that the submitting threads need not wait for a slow downstream driver.
+ *
+ * <p>
+ * Updates are submitted downstream in the order they were submitted to this driver.
+ * {@link #flush()} waits until all previously submitted updates have been
+ * submitted downstream, and then flushes the downstream driver.
+ *
+ * <p>
+ * Exceptions thrown by the downstream driver while submitting an update can't
+ * be reported to the submitting thread, so they are logged and the update is skipped.
+ * Validation that must be reported synchronously should happen upstream of this driver.
+ *
+ * @see WriteBehindDriverSettings
+ */
+public class WriteBehindDriver<R extends Entity> implements BoskDriver<R> {
+	private final BoskDriver<R> downstream;
+	private final WriteBehindDriverSettings settings;
+	private final Thread worker;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Condition drained = lock.newCondition();
+
+	// All guarded by lock
+	private Deque<QueuedUpdate<R>> queue = new ArrayDeque<>();
+	private long lastEnqueuedSequence = 0;
+	private long lastDrainedSequence = 0;
+	private int flushesWaiting = 0;
+	private boolean isClosed = false;
+	private long numApplied = 0;
+	private long numCoalesced = 0;
+	private long lastDrainLatencyNanos = 0;
+	private long maxDrainLatencyNanos = 0;
+
+	public static <RR extends Entity> DriverFactory<RR> factory(WriteBehindDriverSettings settings) {
+		return (b, d) -> new WriteBehindDriver<>(d, settings);
+	}
+
+	protected WriteBehindDriver(BoskDriver<R> downstream, WriteBehindDriverSettings settings) {
+		if (settings.queueCapacity() < 1) {
+			throw new IllegalArgumentException("queueCapacity must be positive: " + settings.queueCapacity());
+		} else if (settings.batchWindowMS() < 0) {
+			throw new IllegalArgumentException("batchWindowMS must not be negative: " + settings.batchWindowMS());
+		}
+		this.downstream = downstream;
+		this.settings = settings;
+		this.worker = new Thread(this::workerLoop, format("write-behind-%08x", identityHashCode(this)));
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		return downstream.initialRoot(rootType);
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		enqueue(target, true, d -> d.submitReplacement(target, newValue));
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		enqueue(target, false, d -> d.submitConditionalReplacement(target, newValue, precondition, requiredValue));
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		enqueue(target, false, d -> d.submitInitialization(target, newValue));
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		enqueue(target, true, d -> d.submitDeletion(target));
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		enqueue(target, false, d -> d.submitConditionalDeletion(target, precondition, requiredValue));
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		lock.lock();
+		try {
+			long target = lastEnqueuedSequence;
+			flushesWaiting++;
+			notEmpty.signalAll(); // Cut short any batch window
+			try {
+				while (lastDrainedSequence < target) {
+					drained.await();
+				}
+			} finally {
+				flushesWaiting--;
+			}
+		} finally {
+			lock.unlock();
+		}
+		downstream.flush();
+	}
+
+	/**
+	 * Stops the background thread once the queue has drained.
+	 * Subsequent updates are rejected.
+	 * There's usually no reason to call this outside of tests.
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			isClosed = true;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Metrics metrics() {
+		lock.lock();
+		try {
+			return new Metrics(queue.size(), numApplied, numCoalesced, lastDrainLatencyNanos, maxDrainLatencyNanos);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Value
+	public static class Metrics {
+		int queueDepth;
+		long updatesApplied;
+		/**
+		 * Updates discarded because later updates overwrote them.
+		 */
+		long updatesCoalesced;
+		/**
+		 * For the most recent batch, the time from when its oldest update was
+		 * submitted to this driver until the batch was submitted downstream.
+		 */
+		long lastDrainLatencyNanos;
+		long maxDrainLatencyNanos;
+	}
+
+	private void enqueue(Reference<?> target, boolean overwrites, Consumer<BoskDriver<R>> action) {
+		lock.lock();
+		try {
+			if (isClosed) {
+				throw new RejectedExecutionException("Driver is closed");
+			}
+			if (queue.size() >= settings.queueCapacity()) {
+				switch (settings.backpressure()) {
+					case FAIL:
+						throw new RejectedExecutionException("Write-behind queue is full: " + queue.size() + " updates");
+					case COALESCE:
+						coalesceQueue();
+						break;
+					default:
+						break;
+				}
+				while (queue.size() >= settings.queueCapacity()) {
+					notFull.awaitUninterruptibly();
+				}
+			}
+			queue.addLast(new QueuedUpdate<>(target, overwrites, action, ++lastEnqueuedSequence, System.nanoTime()));
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void coalesceQueue() {
+		int before = queue.size();
+		queue = BufferingDriver.coalesced(new ArrayList<>(queue));
+		numCoalesced += before - queue.size();
+		LOGGER.debug("Coalesced write-behind queue from {} to {} updates", before, queue.size());
+	}
+
+	private void workerLoop() {
+		LOGGER.debug("Starting");
+		try {
+			while (true) {
+				List<QueuedUpdate<R>> batch;
+				long batchEndSequence;
+				lock.lock();
+				try {
+					while (queue.isEmpty()) {
+						if (isClosed) {
+							LOGGER.debug("Closed; exiting");
+							return;
+						}
+						notEmpty.await();
+					}
+					awaitBatchWindow();
+					batch = new ArrayList<>(queue);
+					queue.clear();
+					batchEndSequence = batch.get(batch.size() - 1).sequence;
+					notFull.signalAll();
+				} finally {
+					lock.unlock();
+				}
+
+				long oldestEnqueueNanos = batch.get(0).enqueueNanos;
+				int batchSize = batch.size();
+				if (settings.backpressure() == Backpressure.COALESCE) {
+					batch = new ArrayList<>(BufferingDriver.coalesced(batch));
+				}
+				for (QueuedUpdate<R> update: batch) {
+					try {
+						update.action.accept(downstream);
+					} catch (RuntimeException e) {
+						LOGGER.error("Downstream driver failed to apply update to {}; skipping", update.target, e);
+					}
+				}
+				long latency = System.nanoTime() - oldestEnqueueNanos;
+
+				lock.lock();
+				try {
+					lastDrainedSequence = batchEndSequence;
+					numApplied += batch.size();
+					numCoalesced += batchSize - batch.size();
+					lastDrainLatencyNanos = latency;
+					maxDrainLatencyNanos = Math.max(maxDrainLatencyNanos, latency);
+					drained.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted; exiting", e);
+		}
+	}
+
+	/**
+	 * Gives more updates a chance to arrive, unless the queue is full, or someone is waiting for a flush.
+	 * Called with the lock held and the queue non-empty.
+	 */
+	private void awaitBatchWindow() throws InterruptedException {
+		long remainingNanos = TimeUnit.MILLISECONDS.toNanos(settings.batchWindowMS());
+		while (remainingNanos > 0
+			&& flushesWaiting == 0
+			&& !isClosed
+			&& queue.size() < settings.queueCapacity()
+		) {
+			remainingNanos = notEmpty.awaitNanos(remainingNanos);
+		}
+	}
+
+	private static final class QueuedUpdate<R extends Entity> extends BufferedUpdate<R> {
+		final long sequence;
+		final long enqueueNanos;
+
+		QueuedUpdate(Reference<?> target, boolean overwrites, Consumer<BoskDriver<R>> action, long sequence, long enqueueNanos) {
+			super(target, overwrites, action);
+			this.sequence = sequence;
+			this.enqueueNanos = enqueueNanos;
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindDriver.class);
+}
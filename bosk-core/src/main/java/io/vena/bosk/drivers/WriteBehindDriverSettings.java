@@ -0,0 +1,45 @@
+package io.vena.bosk.drivers;
+
+import java.util.concurrent.RejectedExecutionException;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+@Value
+@Builder
+public class WriteBehindDriverSettings {
+	/**
+	 * The maximum number of updates waiting to be submitted downstream.
+	 * When this is reached, the {@link #backpressure} policy applies.
+	 */
+	@Default int queueCapacity = 10_000;
+
+	/**
+	 * After an update arrives in an empty queue, how long to wait for more updates
+	 * before submitting them all downstream.
+	 * A {@link io.vena.bosk.BoskDriver#flush() flush} cuts the wait short.
+	 */
+	@Default long batchWindowMS = 0;
+
+	@Default Backpressure backpressure = Backpressure.BLOCK;
+
+	public enum Backpressure {
+		/**
+		 * The submitting thread waits until there is room in the queue.
+		 */
+		BLOCK,
+
+		/**
+		 * The update is rejected with a {@link RejectedExecutionException}.
+		 */
+		FAIL,
+
+		/**
+		 * Queued updates that would be overwritten by later queued updates are discarded,
+		 * as with {@link BufferingDriver#coalescingWritesTo}; if that doesn't
+		 * make room, the submitting thread waits as with {@link #BLOCK}.
+		 * Each batch is also coalesced before being submitted downstream.
+		 */
+		COALESCE,
+	}
+}
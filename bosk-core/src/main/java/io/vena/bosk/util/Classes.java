@@ -8,6 +8,7 @@ import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingReference;
 import io.vena.bosk.MapValue;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Reference;
 import io.vena.bosk.SideTable;
 import io.vena.bosk.SideTableReference;
@@ -65,6 +66,11 @@ public abstract class Classes {
 		return (Class)ListValue.class;
 	}
 
+	@SuppressWarnings({"unchecked","rawtypes","unused"})
+	public static <E> Class<PersistentListValue<E>> persistentListValue(Class<E> entryClass) {
+		return (Class)PersistentListValue.class;
+	}
+
 	@SuppressWarnings({"unchecked","rawtypes","unused"})
 	public static <V> Class<MapValue<V>> mapValue(Class<V> valueClass) {
 		return (Class)MapValue.class;
@@ -0,0 +1,187 @@
+package io.vena.bosk;
+
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.vena.bosk.AbstractBoskTest.TestEnum.NOT_SO_OK;
+import static io.vena.bosk.AbstractBoskTest.TestEnum.OK;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogIndexTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	CatalogReference<TestChild> anyChildren;
+	CatalogReference<TestChild> parentChildren;
+	CatalogIndex<TestChild, TestEnum> childrenByEnum;
+
+	final Identifier child1 = Identifier.from("child1");
+	final Identifier child2 = Identifier.from("child2");
+	final Identifier child3 = Identifier.from("child3");
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		bosk = setUpBosk(Bosk::simpleDriver);
+		anyChildren = bosk.catalogReference(TestChild.class, Path.parseParameterized("/entities/-entity-/children"));
+		parentChildren = bosk.catalogReference(TestChild.class, Path.parse("/entities/parent/children"));
+		childrenByEnum = bosk.registerIndex("childrenByEnum", anyChildren, TestChild::testEnum);
+	}
+
+	@Test
+	void initialState_correctResults() {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child1, child3);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK), child2);
+		}
+	}
+
+	@Test
+	void entryReplacement_updatesIndex() {
+		warmUp();
+		TestChild newChild2 = readChild(child2).withTestEnum(OK);
+		bosk.driver().submitReplacement(parentChildren.then(child2), newChild2);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child1, child2, child3);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK));
+		}
+	}
+
+	@Test
+	void fieldReplacement_updatesIndex() throws InvalidTypeException {
+		warmUp();
+		Reference<TestEnum> enumRef = parentChildren.then(child1).then(TestEnum.class, TestChild.Fields.testEnum);
+		bosk.driver().submitReplacement(enumRef, NOT_SO_OK);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child3);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK), child1, child2);
+		}
+	}
+
+	@Test
+	void entryDeletion_updatesIndex() {
+		warmUp();
+		bosk.driver().submitDeletion(parentChildren.then(child3));
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child1);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK), child2);
+		}
+	}
+
+	@Test
+	void catalogReplacement_updatesIndex() {
+		warmUp();
+		Identifier child4 = Identifier.from("child4");
+		Catalog<TestChild> newCatalog;
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			newCatalog = parentChildren.value()
+				.without(child1)
+				.with(new TestChild(child4, "child4", NOT_SO_OK, Catalog.empty()));
+		}
+		bosk.driver().submitReplacement(parentChildren, newCatalog);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child3);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK), child2, child4);
+		}
+	}
+
+	@Test
+	void ancestorReplacement_updatesIndex() throws InvalidTypeException {
+		warmUp();
+		TestEntity newParent;
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			TestEntity parent = bosk.rootReference().value().entities().get(Identifier.from("parent"));
+			newParent = parent.withChildren(Catalog.of(readChild(child2).withTestEnum(OK)));
+		}
+		bosk.driver().submitReplacement(bosk.rootReference().then(TestEntity.class, "entities", "parent"), newParent);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child2);
+			assertIds(childrenByEnum.lookup(parentChildren, NOT_SO_OK));
+		}
+	}
+
+	@Test
+	void olderReadContext_seesOlderIndex() {
+		warmUp();
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			bosk.driver().submitDeletion(parentChildren.then(child1));
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child1, child3);
+		}
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(childrenByEnum.lookup(parentChildren, OK), child3);
+		}
+	}
+
+	@Test
+	void firstBuiltForOlderReadContext_maintainedIncrementally() throws InvalidTypeException {
+		AtomicInteger keyComputations = new AtomicInteger(0);
+		CatalogIndex<TestChild, TestEnum> countingIndex = bosk.registerIndex("countingIndex", anyChildren, child -> {
+			keyComputations.incrementAndGet();
+			return child.testEnum();
+		});
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			bosk.driver().submitDeletion(parentChildren.then(child1));
+			// Builds the index for the catalog as it was before the deletion
+			assertIds(countingIndex.lookup(parentChildren, OK), child1, child3);
+		}
+		Reference<TestEnum> enumRef = parentChildren.then(child2).then(TestEnum.class, TestChild.Fields.testEnum);
+		bosk.driver().submitReplacement(enumRef, OK);
+
+		keyComputations.set(0);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertIds(countingIndex.lookup(parentChildren, OK), child2, child3);
+			assertIds(countingIndex.lookup(parentChildren, NOT_SO_OK));
+		}
+		assertEquals(0, keyComputations.get(), "Index should be up to date without a rebuild");
+	}
+
+	@Test
+	void parameterizedScope_requiresCatalog() {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertThrows(IllegalStateException.class, () -> childrenByEnum.lookup(OK));
+			assertThrows(IllegalArgumentException.class, () -> childrenByEnum.lookup(anyChildren, OK));
+		}
+	}
+
+	@Test
+	void unparameterizedScope_works() {
+		CatalogIndex<TestEntity, String> entitiesByString = bosk.registerIndex("entitiesByString", entitiesRef(), TestEntity::string);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertEquals(asList(Identifier.from("parent")), entitiesByString.lookup("parent").ids());
+			assertTrue(entitiesByString.lookup("nonexistent").isEmpty());
+		}
+	}
+
+	private CatalogReference<TestEntity> entitiesRef() {
+		try {
+			return bosk.catalogReference(TestEntity.class, Path.just(TestRoot.Fields.entities));
+		} catch (InvalidTypeException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Causes the index to be built, so subsequent tests exercise incremental maintenance.
+	 */
+	private void warmUp() {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			childrenByEnum.lookup(parentChildren, OK);
+		}
+	}
+
+	private TestChild readChild(Identifier id) {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return parentChildren.then(id).value();
+		}
+	}
+
+	private static void assertIds(Listing<TestChild> actual, Identifier... expected) {
+		Set<Identifier> actualIds = new HashSet<>(actual.ids());
+		assertEquals(new HashSet<>(asList(expected)), actualIds);
+	}
+
+}
@@ -338,6 +338,89 @@ class CatalogTest {
 		assertThrows(UnsupportedOperationException.class, () -> Catalog.empty().asCollection().retainAll(singletonList(wrongEntity)));
 	}
 
+	@ParameterizedTest
+	@MethodSource("distinctCases")
+	void backedBy_matchesCatalogOf(BasicEntity[] contents) {
+		Catalog<BasicEntity> expected = Catalog.of(contents);
+		Catalog<BasicEntity> actual = Catalog.backedBy(new ListCatalogStore<>(asList(contents)));
+		assertEquals(expected, actual);
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.ids(), actual.ids());
+		assertEquals(expected.stream().collect(toList()), actual.stream().collect(toList()));
+		for (BasicEntity x: contents) {
+			assertSame(x, actual.get(x.id));
+			assertTrue(actual.containsID(x.id));
+		}
+		assertNull(actual.get(wrongEntity.id));
+		assertFalse(actual.containsID(wrongEntity.id));
+	}
+
+	@Test
+	void backedBy_modificationsMatchCatalogOf() {
+		BasicEntity[] contents = new BasicEntity[]{
+			new BasicEntity(Identifier.from("a")),
+			new BasicEntity(Identifier.from("b")),
+			new BasicEntity(Identifier.from("c")),
+		};
+		BasicEntity newB = new ComplexEntity(Identifier.from("b"), "new b");
+		BasicEntity d = new BasicEntity(Identifier.from("d"));
+		Catalog<BasicEntity> expected = Catalog.of(contents);
+		Catalog<BasicEntity> actual = Catalog.backedBy(new ListCatalogStore<>(asList(contents)));
+
+		// Replacement in place
+		expected = expected.with(newB);
+		actual = actual.with(newB);
+		assertCatalogsMatch(expected, actual);
+
+		// Addition
+		expected = expected.with(d);
+		actual = actual.with(d);
+		assertCatalogsMatch(expected, actual);
+
+		// Removal, then re-addition of a stored entry
+		expected = expected.without(contents[0]);
+		actual = actual.without(contents[0]);
+		assertCatalogsMatch(expected, actual);
+		assertNull(actual.get(contents[0].id));
+		expected = expected.with(contents[0]);
+		actual = actual.with(contents[0]);
+		assertCatalogsMatch(expected, actual);
+
+		// Removal of added and nonexistent entries
+		expected = expected.without(d).without(wrongEntity);
+		actual = actual.without(d).without(wrongEntity);
+		assertCatalogsMatch(expected, actual);
+
+		expected = expected.withAll(Stream.of(d, contents[2]));
+		actual = actual.withAll(Stream.of(d, contents[2]));
+		assertCatalogsMatch(expected, actual);
+	}
+
+	private static void assertCatalogsMatch(Catalog<BasicEntity> expected, Catalog<BasicEntity> actual) {
+		assertEquals(expected, actual);
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.ids(), actual.ids());
+		assertEquals(expected.stream().collect(toList()), actual.stream().collect(toList()));
+	}
+
+	/**
+	 * Simplest possible {@link CatalogStore}, for testing the way {@link Catalog} uses it.
+	 */
+	private static final class ListCatalogStore<E extends Entity> implements CatalogStore<E> {
+		final List<E> entries;
+		final Map<Identifier, E> entriesById = new LinkedHashMap<>();
+
+		ListCatalogStore(List<E> entries) {
+			this.entries = entries;
+			entries.forEach(e -> entriesById.put(e.id(), e));
+		}
+
+		@Override public int size() { return entries.size(); }
+		@Override public boolean containsID(Identifier id) { return entriesById.containsKey(id); }
+		@Override public E get(Identifier id) { return entriesById.get(id); }
+		@Override public Iterator<Identifier> idIterator() { return entries.stream().map(Entity::id).iterator(); }
+	}
+
 	@Value
 	@NonFinal
 	private static class BasicEntity implements Entity {
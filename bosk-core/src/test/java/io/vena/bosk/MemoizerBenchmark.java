@@ -0,0 +1,87 @@
+package io.vena.bosk;
+
+import io.vena.bosk.AbstractBoskTest.StringListValueSubclass;
+import io.vena.bosk.AbstractBoskTest.TestEntity;
+import io.vena.bosk.AbstractBoskTest.TestRoot;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static io.vena.bosk.AbstractBoskTest.TestEnum.NOT_SO_OK;
+import static io.vena.bosk.AbstractBoskTest.TestEnum.OK;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+/**
+ * Each operation applies an update that doesn't touch the <code>entities</code> catalog,
+ * then computes an aggregate of that catalog in a fresh {@link Bosk.ReadContext}.
+ */
+@Fork(0)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MemoizerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		private Bosk<TestRoot> bosk;
+		private CatalogReference<TestEntity> entitiesRef;
+		private Reference<StringListValueSubclass> someStringsRef;
+		private final StringListValueSubclass[] alternatingStrings = {
+			new StringListValueSubclass("a"),
+			new StringListValueSubclass("b")
+		};
+		private int updateCount = 0;
+		private Memoizer memoizer;
+
+		@Setup(Level.Trial)
+		public void setup() throws InvalidTypeException {
+			bosk = new Bosk<TestRoot>(
+				"MemoizerBenchmarkBosk",
+				TestRoot.class,
+				AbstractBoskTest::initialRoot,
+				Bosk::simpleDriver
+			);
+			TestEntityBuilder teb = new TestEntityBuilder(bosk);
+			int initialSize = 10_000;
+			entitiesRef = bosk.catalogReference(TestEntity.class, Path.just(TestRoot.Fields.entities));
+			someStringsRef = bosk.reference(StringListValueSubclass.class, Path.just(TestRoot.Fields.someStrings));
+			bosk.driver().submitReplacement(entitiesRef, Catalog.of(IntStream.rangeClosed(1, initialSize).mapToObj(i ->
+				teb.blankEntity(Identifier.from("Entity_" + i), (i % 3 == 0)? NOT_SO_OK : OK))));
+			memoizer = new Memoizer(1000);
+		}
+
+		void unrelatedUpdate() {
+			bosk.driver().submitReplacement(someStringsRef, alternatingStrings[(updateCount++) & 1]);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Throughput)
+	public Object recomputeEachSnapshot(BenchmarkState state) {
+		state.unrelatedUpdate();
+		try (Bosk<TestRoot>.ReadContext context = state.bosk.readContext()) {
+			return COUNT_OK.apply(state.entitiesRef.value());
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Throughput)
+	public Object memoizeAcrossSnapshots(BenchmarkState state) {
+		state.unrelatedUpdate();
+		try (Bosk<TestRoot>.ReadContext context = state.bosk.readContext()) {
+			return state.memoizer.get(state.entitiesRef.value(), COUNT_OK);
+		}
+	}
+
+	private static final Function<Catalog<TestEntity>, Long> COUNT_OK = catalog ->
+		catalog.stream().filter(e -> e.testEnum() == OK).count();
+
+}
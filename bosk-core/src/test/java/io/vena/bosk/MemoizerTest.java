@@ -0,0 +1,143 @@
+package io.vena.bosk;
+
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.vena.bosk.AbstractBoskTest.TestEnum.NOT_SO_OK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MemoizerTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	CatalogReference<TestChild> parentChildren;
+	CatalogReference<TestEntity> entities;
+	AtomicInteger numComputations;
+	Function<Catalog<TestChild>, Long> countOK;
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		bosk = setUpBosk(Bosk::simpleDriver);
+		parentChildren = bosk.catalogReference(TestChild.class, Path.parse("/entities/parent/children"));
+		entities = bosk.catalogReference(TestEntity.class, Path.just(TestRoot.Fields.entities));
+		numComputations = new AtomicInteger();
+		countOK = catalog -> {
+			numComputations.incrementAndGet();
+			return catalog.stream().filter(c -> c.testEnum() == TestEnum.OK).count();
+		};
+	}
+
+	@Test
+	void sameNode_reusesValue() {
+		Memoizer memoizer = new Memoizer(100);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			Long first = memoizer.get(parentChildren.value(), countOK);
+			Long second = memoizer.get(parentChildren.value(), countOK);
+			assertEquals(2L, first);
+			assertSame(first, second);
+		}
+		assertEquals(1, numComputations.get());
+		assertEquals(new Memoizer.Stats(1, 1, 1, 0, 0), memoizer.stats());
+	}
+
+	@Test
+	void unrelatedUpdate_reusesValue() {
+		Memoizer memoizer = new Memoizer(100);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			memoizer.get(parentChildren.value(), countOK);
+		}
+		bosk.driver().submitReplacement(bosk.rootReference().then(TestEntity.class, "entities", "parent").then(String.class, TestEntity.Fields.string), "new string");
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertEquals(2L, memoizer.get(parentChildren.value(), countOK));
+		}
+		assertEquals(1, numComputations.get());
+		assertEquals(0.5, memoizer.stats().hitRate());
+	}
+
+	@Test
+	void replacedNode_recomputesValue() throws InvalidTypeException {
+		Memoizer memoizer = new Memoizer(100);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertEquals(2L, memoizer.get(parentChildren.value(), countOK));
+		}
+		Identifier child1 = Identifier.from("child1");
+		bosk.driver().submitReplacement(parentChildren.then(child1).then(TestEnum.class, TestChild.Fields.testEnum), NOT_SO_OK);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			assertEquals(1L, memoizer.get(parentChildren.value(), countOK));
+		}
+		assertEquals(2, numComputations.get());
+	}
+
+	@Test
+	void differentFunctions_separateEntries() {
+		Memoizer memoizer = new Memoizer(100);
+		Function<Catalog<TestChild>, Integer> size = Catalog::size;
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			Catalog<TestChild> catalog = parentChildren.value();
+			assertEquals(2L, memoizer.get(catalog, countOK));
+			assertEquals(3, memoizer.get(catalog, size));
+		}
+		assertEquals(2, memoizer.stats().size());
+	}
+
+	@Test
+	void exceedsCapacity_evictsOldest() {
+		Memoizer memoizer = new Memoizer(1);
+		Function<TestEntity, String> describe = e -> {
+			numComputations.incrementAndGet();
+			return e.id() + ":" + e.string();
+		};
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			Catalog<TestChild> children = parentChildren.value();
+			TestEntity parent = entities.value().get(Identifier.from("parent"));
+			memoizer.get(children, countOK);
+			memoizer.get(parent, describe);
+			assertEquals(1, memoizer.stats().evictions());
+			memoizer.get(parent, describe);
+			memoizer.get(children, countOK);
+		}
+		assertEquals(3, numComputations.get());
+		Memoizer.Stats stats = memoizer.stats();
+		assertEquals(1, stats.size());
+		assertEquals(2, stats.evictions());
+	}
+
+	@Test
+	void clear_discardsEntries() {
+		Memoizer memoizer = new Memoizer(100);
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			Long first = memoizer.get(parentChildren.value(), countOK);
+			memoizer.clear();
+			assertEquals(0, memoizer.stats().size());
+			Long second = memoizer.get(parentChildren.value(), countOK);
+			assertEquals(first, second);
+		}
+		assertEquals(2, numComputations.get());
+	}
+
+	@Test
+	void equalButDistinctNodes_separateEntries() {
+		Memoizer memoizer = new Memoizer(100);
+		Catalog<TestChild> first;
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			first = parentChildren.value();
+		}
+		Catalog<TestChild> second = Catalog.of(first.stream());
+		assertEquals(first, second);
+		memoizer.get(first, countOK);
+		memoizer.get(second, countOK);
+		assertEquals(2, numComputations.get());
+	}
+
+	@Test
+	void invalidArguments_throw() {
+		assertThrows(IllegalArgumentException.class, () -> new Memoizer(0));
+		Memoizer memoizer = new Memoizer(100);
+		assertThrows(NullPointerException.class, () -> memoizer.get(null, countOK));
+		assertThrows(NullPointerException.class, () -> memoizer.get("input", s -> null));
+	}
+
+}
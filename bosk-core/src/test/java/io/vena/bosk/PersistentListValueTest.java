@@ -0,0 +1,99 @@
+package io.vena.bosk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentListValueTest {
+
+	@Test
+	void of_behavesLikeList() {
+		List<String> expected = asList("a", "b", "c");
+		PersistentListValue<String> actual = PersistentListValue.of("a", "b", "c");
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertEquals(actual, ListValue.of("a", "b", "c"));
+		assertEquals(actual, PersistentListValue.from(Stream.of("a", "b", "c")));
+		assertThrows(IndexOutOfBoundsException.class, () -> actual.get(3));
+	}
+
+	@Test
+	void updates_matchArrayList() {
+		List<Integer> expected = new ArrayList<>();
+		PersistentListValue<Integer> actual = PersistentListValue.empty();
+		for (int i = 0; i < 1000; i++) {
+			expected.add(i);
+			actual = actual.append(i);
+		}
+		assertEquals(expected, actual);
+
+		for (int i = 0; i < expected.size(); i += 7) {
+			expected.set(i, -i);
+			actual = actual.with(i, -i);
+		}
+		assertEquals(expected, actual);
+
+		for (int i = expected.size() - 1; i >= 0; i -= 13) {
+			expected.remove(i);
+			actual = actual.without(i);
+		}
+		assertEquals(expected, actual);
+
+		List<Integer> more = IntStream.range(5000, 5100).boxed().collect(toList());
+		expected.addAll(more);
+		actual = actual.appendAll(more);
+		assertEquals(expected, actual);
+
+		assertEquals(expected.subList(10, 500), actual.subList(10, 500));
+	}
+
+	@Test
+	void updates_leaveOriginalUnchanged() {
+		PersistentListValue<String> original = PersistentListValue.of("a", "b", "c");
+		PersistentListValue<String> appended = original.append("d");
+		PersistentListValue<String> modified = original.with(1, "x");
+		PersistentListValue<String> removed = original.without(0);
+		assertEquals(asList("a", "b", "c"), original);
+		assertEquals(asList("a", "b", "c", "d"), appended);
+		assertEquals(asList("a", "x", "c"), modified);
+		assertEquals(asList("b", "c"), removed);
+		assertNotEquals(original, modified);
+	}
+
+	@Test
+	void trivialUpdates_returnSameInstance() {
+		String b = "b";
+		PersistentListValue<String> original = PersistentListValue.of("a", b, "c");
+		assertSame(original, original.with(1, b));
+		assertSame(original, original.appendAll(asList()));
+		assertSame(original, original.subList(0, 3));
+		assertSame(PersistentListValue.empty(), original.subList(1, 1));
+	}
+
+	@Test
+	void nullEntries_rejected() {
+		assertThrows(NullPointerException.class, () -> PersistentListValue.of("a", null));
+		assertThrows(NullPointerException.class, () -> PersistentListValue.of("a").append(null));
+		assertThrows(NullPointerException.class, () -> PersistentListValue.of("a").with(0, null));
+	}
+
+	@Test
+	void mutators_unsupported() {
+		PersistentListValue<String> list = PersistentListValue.of("a");
+		assertThrows(UnsupportedOperationException.class, () -> list.add("b"));
+		assertThrows(UnsupportedOperationException.class, () -> list.set(0, "b"));
+		assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+		assertThrows(UnsupportedOperationException.class, list::clear);
+	}
+
+}
@@ -0,0 +1,91 @@
+package io.vena.bosk;
+
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrimitiveListValueTest {
+
+	@Test
+	void intListValue_behavesLikeList() {
+		int[] contents = { 3, 1, 4, 1, 5 };
+		List<Integer> expected = IntStream.of(contents).boxed().collect(toList());
+		IntListValue actual = IntListValue.of(contents);
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		assertEquals(expected.toString(), actual.toString());
+		for (int i = 0; i < contents.length; i++) {
+			assertEquals(contents[i], actual.getInt(i));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> actual.getInt(contents.length));
+		assertEquals(actual, IntListValue.from(expected));
+		assertEquals(actual, IntListValue.from(IntStream.of(contents)));
+		assertNotEquals(actual, IntListValue.of(3, 1, 4));
+	}
+
+	@Test
+	void longListValue_behavesLikeList() {
+		long[] contents = { Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE };
+		List<Long> expected = LongStream.of(contents).boxed().collect(toList());
+		LongListValue actual = LongListValue.of(contents);
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		for (int i = 0; i < contents.length; i++) {
+			assertEquals(contents[i], actual.getLong(i));
+		}
+		assertEquals(actual, LongListValue.from(expected));
+		assertEquals(actual, LongListValue.from(LongStream.of(contents)));
+	}
+
+	@Test
+	void doubleListValue_behavesLikeList() {
+		double[] contents = { -0.0, 0.0, 1.5, Double.NaN, Double.POSITIVE_INFINITY };
+		List<Double> expected = DoubleStream.of(contents).boxed().collect(toList());
+		DoubleListValue actual = DoubleListValue.of(contents);
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+		for (int i = 0; i < contents.length; i++) {
+			assertEquals(contents[i], actual.getDouble(i));
+		}
+		assertEquals(actual, DoubleListValue.from(expected));
+		assertEquals(actual, DoubleListValue.from(DoubleStream.of(contents)));
+	}
+
+	@Test
+	void emptyLists_areShared() {
+		assertSame(IntListValue.empty(), IntListValue.of());
+		assertSame(LongListValue.empty(), LongListValue.from(asList()));
+		assertSame(DoubleListValue.empty(), DoubleListValue.from(DoubleStream.empty()));
+	}
+
+	@Test
+	void contents_areImmutable() {
+		int[] contents = { 1, 2, 3 };
+		IntListValue list = IntListValue.of(contents);
+		contents[0] = 100;
+		assertEquals(1, list.getInt(0));
+
+		int[] copy = list.toIntArray();
+		copy[1] = 200;
+		assertEquals(2, list.getInt(1));
+		assertArrayEquals(new int[]{ 1, 2, 3 }, list.toIntArray());
+
+		assertThrows(UnsupportedOperationException.class, () -> list.add(4));
+		assertThrows(UnsupportedOperationException.class, () -> list.set(0, 4));
+		assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+	}
+
+}
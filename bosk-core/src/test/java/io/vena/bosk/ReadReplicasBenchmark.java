@@ -0,0 +1,84 @@
+package io.vena.bosk;
+
+import io.vena.bosk.AbstractBoskTest.TestChild;
+import io.vena.bosk.AbstractBoskTest.TestEntity;
+import io.vena.bosk.AbstractBoskTest.TestEnum;
+import io.vena.bosk.AbstractBoskTest.TestRoot;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.function.UnaryOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+/**
+ * Many threads reading concurrently, as on a machine with several sockets.
+ * Run with <code>-XX:+UseNUMA</code> to give the replicas a chance to be allocated on different nodes.
+ */
+@Fork(0)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(32)
+public class ReadReplicasBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		@Param({"2"})
+		int numReplicas;
+
+		private Bosk<TestRoot> bosk;
+		private ReadReplicas<TestRoot> replicas;
+		private Reference<TestEnum> ref5Segments;
+
+		@Setup(Level.Trial)
+		public void setup() throws InvalidTypeException {
+			bosk = new Bosk<TestRoot>(
+				"ReadReplicasBenchmarkBosk",
+				TestRoot.class,
+				AbstractBoskTest::initialRoot,
+				Bosk::simpleDriver
+			);
+			// Rebuild the catalogs so each replica has its own copy of the path we read
+			UnaryOperator<TestRoot> copier = root -> root.withEntities(Catalog.of(root.entities().stream()
+				.map(e -> e.withChildren(Catalog.of(e.children().stream())))));
+			replicas = ReadReplicas.of(bosk, numReplicas, copier, ReadReplicas.byThreadID(numReplicas));
+			ref5Segments = bosk.reference(TestEnum.class, Path.of(
+				TestRoot.Fields.entities, "parent",
+				TestEntity.Fields.children, "child1",
+				TestChild.Fields.testEnum
+			));
+		}
+
+		@TearDown(Level.Trial)
+		public void closeReplicas() {
+			replicas.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Throughput)
+	public Object readPrimary(BenchmarkState state) {
+		try (Bosk<TestRoot>.ReadContext context = state.bosk.readContext()) {
+			return state.ref5Segments.value();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Throughput)
+	public Object readReplica(BenchmarkState state) {
+		try (Bosk<TestRoot>.ReadContext context = state.replicas.readContext()) {
+			return state.ref5Segments.value();
+		}
+	}
+
+}
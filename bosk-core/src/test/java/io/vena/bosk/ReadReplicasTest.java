@@ -0,0 +1,102 @@
+package io.vena.bosk;
+
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadReplicasTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	Reference<String> stringRef;
+	ReadReplicas<TestRoot> replicas;
+	final Set<String> copierThreadNames = ConcurrentHashMap.newKeySet();
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		bosk = setUpBosk(Bosk::simpleDriver);
+		stringRef = bosk.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+	}
+
+	@AfterEach
+	void closeReplicas() {
+		if (replicas != null) {
+			replicas.close();
+		}
+	}
+
+	@Test
+	void replicas_receiveUpdates() throws IOException, InterruptedException {
+		replicas = ReadReplicas.of(bosk, 3);
+		bosk.driver().submitReplacement(stringRef, "replicated");
+		bosk.driver().flush();
+		for (int i = 0; i < replicas.numReplicas(); i++) {
+			awaitReplicaValue(i, "replicated");
+		}
+	}
+
+	@Test
+	void rootCopier_runsOnReplicaThreads() throws IOException, InterruptedException {
+		UnaryOperator<TestRoot> copier = root -> {
+			copierThreadNames.add(Thread.currentThread().getName());
+			return root.withEntities(Catalog.of(root.entities().stream()));
+		};
+		replicas = ReadReplicas.of(bosk, 2, copier, thread -> 1);
+		copierThreadNames.clear(); // Initial copies are made by the caller
+
+		bosk.driver().submitReplacement(stringRef, "copied");
+		bosk.driver().flush();
+		awaitReplicaValue(0, "copied");
+		awaitReplicaValue(1, "copied");
+		assertEquals(2, copierThreadNames.size());
+		assertTrue(copierThreadNames.stream().allMatch(name -> name.startsWith("replica-")), "Copies should be made on replica threads: " + copierThreadNames);
+
+		try (
+			Bosk<TestRoot>.ReadContext primaryContext = bosk.readContext();
+			Bosk<TestRoot>.ReadContext replicaContext = replicas.readContext()
+		) {
+			assertEquals("copied", stringRef.value());
+			assertNotSame(primaryContext.snapshot.entities(), replicaContext.snapshot.entities());
+		}
+	}
+
+	@Test
+	void readContext_supersedesAndRestores() throws IOException, InterruptedException {
+		replicas = ReadReplicas.of(bosk, 1);
+		try (Bosk<TestRoot>.ReadContext primaryContext = bosk.readContext()) {
+			bosk.driver().submitReplacement(stringRef, "newer");
+			bosk.driver().flush();
+			awaitReplicaValue(0, "newer");
+			assertEquals("newer", readFromReplica(0));
+			assertSame(primaryContext.snapshot, bosk.rootReference().value());
+		}
+	}
+
+	@Test
+	void invalidNumReplicas_throws() {
+		assertThrows(IllegalArgumentException.class, () -> ReadReplicas.of(bosk, 0));
+	}
+
+	private void awaitReplicaValue(int replicaIndex, String expected) throws InterruptedException {
+		for (int i = 0; i < 1000 && !expected.equals(readFromReplica(replicaIndex)); i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, readFromReplica(replicaIndex));
+	}
+
+	private String readFromReplica(int replicaIndex) {
+		try (Bosk<TestRoot>.ReadContext context = replicas.readContext(replicaIndex)) {
+			return stringRef.value();
+		}
+	}
+
+}
@@ -73,6 +73,7 @@ class TypeValidationTest {
 			ListValueSubclassWithMutableField.class,
 			ListValueSubclassWithTwoConstructors.class,
 			ListValueSubclassWithWrongConstructor.class,
+			PersistentListValueOfEntity.class,
 			ReferenceToReference.class,
 			ReferenceWithMutableField.class,
 			SelfNonReference.class,
@@ -159,6 +160,11 @@ class TypeValidationTest {
 		ListValue<String> listValueOfStrings;
 		ListValue<ValueStruct> listValueOfStructs;
 		ListValueSubclass listValueSubclass;
+		IntListValue intListValue;
+		LongListValue longListValue;
+		DoubleListValue doubleListValue;
+		PersistentListValue<String> persistentListOfStrings;
+		PersistentListValue<ValueStruct> persistentListOfStructs;
 		ReferenceSubclass referenceSubclass;
 	}
 
@@ -589,6 +595,17 @@ class TypeValidationTest {
 		}
 	}
 
+	@Getter @FieldDefaults(level=AccessLevel.PRIVATE, makeFinal=true)
+	@RequiredArgsConstructor
+	public static final class PersistentListValueOfEntity implements Entity {
+		Identifier id;
+		PersistentListValue<SimpleTypes> badField;
+
+		public static void testException(InvalidTypeException e) {
+			assertThat(e.getMessage(), containsString("PersistentListValueOfEntity.badField"));
+		}
+	}
+
 	@Getter @FieldDefaults(level=AccessLevel.PRIVATE, makeFinal=true)
 	@RequiredArgsConstructor
 	public static final class ListValueOfOptional implements Entity {
@@ -0,0 +1,18 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.drivers.state.TestEntity;
+import org.junit.jupiter.api.BeforeEach;
+
+public class ChangeFeedDriverConformanceTest extends DriverConformanceTest {
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = (b, d) -> {
+			ChangeFeedDriver<TestEntity> result = ChangeFeedDriver.of(d, ChangeFeedDriverSettings.builder().bufferCapacity(2).build());
+			// Falls behind on purpose, so the conformance tests exercise backpressure
+			result.subscribe(events -> Thread.sleep(1));
+			return result;
+		};
+	}
+
+}
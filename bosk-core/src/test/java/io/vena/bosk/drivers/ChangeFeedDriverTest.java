@@ -0,0 +1,252 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.ChangeFeedDriver.ChangeEvent;
+import io.vena.bosk.drivers.ChangeFeedDriver.Operation;
+import io.vena.bosk.drivers.ChangeFeedDriver.Subscription;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedDriverTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	ChangeFeedDriver<TestRoot> driver;
+	Reference<TestChild> child1Ref;
+	Reference<String> child1StringRef;
+	final List<Subscription> subscriptions = new ArrayList<>();
+	final List<ChangeEvent> eventsSeen = new CopyOnWriteArrayList<>();
+
+	void setupBosk(ChangeFeedDriverSettings settings) throws InvalidTypeException {
+		bosk = setUpBosk((b, d) -> driver = ChangeFeedDriver.of(d, settings));
+		child1Ref = bosk.reference(TestChild.class, Path.parse("/entities/parent/children/child1"));
+		child1StringRef = child1Ref.then(String.class, "string");
+	}
+
+	@AfterEach
+	void closeSubscriptions() {
+		subscriptions.forEach(Subscription::close);
+	}
+
+	@Test
+	void updates_deliveredInOrder() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder().build());
+		Subscription subscription = subscribe(eventsSeen::addAll);
+		Reference<Identifier> child1IdRef = child1Ref.then(Identifier.class, "id");
+		driver.submitReplacement(child1StringRef, "replaced");
+		driver.submitConditionalReplacement(child1StringRef, "conditional", child1IdRef, Identifier.from("child1"));
+		driver.submitDeletion(child1Ref);
+		awaitEventsSeen(3);
+
+		assertEquals(asList(1L, 2L, 3L), sequencesOf(eventsSeen));
+		assertEquals(asList(Operation.REPLACEMENT, Operation.REPLACEMENT, Operation.DELETION), operationsOf(eventsSeen));
+		assertEquals("replaced", eventsSeen.get(0).newValue());
+		assertNull(eventsSeen.get(0).precondition());
+		assertEquals(child1IdRef, eventsSeen.get(1).precondition());
+		assertEquals(Identifier.from("child1"), eventsSeen.get(1).requiredValue());
+		assertEquals(child1Ref, eventsSeen.get(2).target());
+		assertNull(eventsSeen.get(2).newValue());
+		assertEquals(4, subscription.nextSequence());
+	}
+
+	@Test
+	void slowSubscriber_receivesBatches() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder().maxBatchSize(10).build());
+		CountDownLatch release = new CountDownLatch(1);
+		List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+		subscribe(events -> {
+			release.await();
+			batchSizes.add(events.size());
+			eventsSeen.addAll(events);
+		});
+		for (int i = 1; i <= 25; i++) {
+			driver.submitReplacement(child1StringRef, "value " + i);
+		}
+		release.countDown();
+		awaitEventsSeen(25);
+
+		assertTrue(batchSizes.size() < 25, "Events should be batched: " + batchSizes);
+		assertTrue(batchSizes.stream().allMatch(n -> n <= 10), "Batches should respect maxBatchSize: " + batchSizes);
+		assertEquals(25, sequencesOf(eventsSeen).stream().distinct().count());
+	}
+
+	@Test
+	void fullBuffer_blocksSubmitter() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder().bufferCapacity(2).build());
+		Semaphore permits = new Semaphore(0);
+		subscribe(events -> {
+			permits.acquire();
+			eventsSeen.addAll(events);
+		});
+		CountDownLatch submitted = new CountDownLatch(1);
+		Thread submitter = new Thread(() -> {
+			for (int i = 1; i <= 5; i++) {
+				driver.submitReplacement(child1StringRef, "value " + i);
+			}
+			submitted.countDown();
+		});
+		submitter.start();
+
+		assertFalse(submitted.await(100, MILLISECONDS), "Submitter should wait for the subscriber");
+		permits.release(5);
+		assertTrue(submitted.await(10, SECONDS));
+		awaitEventsSeen(5);
+		assertEquals(asList(1L, 2L, 3L, 4L, 5L), sequencesOf(eventsSeen));
+	}
+
+	@Test
+	void failedDelivery_retried() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder().retryDelayMS(1).build());
+		AtomicInteger failuresRemaining = new AtomicInteger(3);
+		subscribe(events -> {
+			if (failuresRemaining.getAndDecrement() > 0) {
+				throw new IllegalStateException("Simulated failure");
+			}
+			eventsSeen.addAll(events);
+		});
+		driver.submitReplacement(child1StringRef, "eventually");
+		awaitEventsSeen(1);
+		assertEquals("eventually", eventsSeen.get(0).newValue());
+	}
+
+	@Test
+	void failingSubscriber_doesNotBlockSubmitter() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder()
+			.bufferCapacity(2)
+			.retryDelayMS(1)
+			.maxDeliveryAttempts(3)
+			.build());
+		Subscription failing = subscribe(events -> {
+			throw new IllegalStateException("Simulated permanent failure");
+		});
+		CountDownLatch submitted = new CountDownLatch(1);
+		Thread submitter = new Thread(() -> {
+			for (int i = 1; i <= 10; i++) {
+				driver.submitReplacement(child1StringRef, "value " + i);
+			}
+			submitted.countDown();
+		});
+		submitter.start();
+
+		assertTrue(submitted.await(10, SECONDS), "Submitter should not wait forever for a failed subscriber");
+		assertTrue(failing.isFailed());
+		assertEquals(1, failing.nextSequence(), "Failed subscription should still point at the first undelivered event");
+	}
+
+	@Test
+	void slowDownstream_doesNotBlockSubscribe() throws InvalidTypeException, InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		bosk = setUpBosk((b, d) -> driver = ChangeFeedDriver.of(new ForwardingDriver<TestRoot>(singletonList(d)) {
+			@Override
+			public <T> void submitReplacement(Reference<T> target, T newValue) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				super.submitReplacement(target, newValue);
+			}
+		}, ChangeFeedDriverSettings.builder().build()));
+		child1Ref = bosk.reference(TestChild.class, Path.parse("/entities/parent/children/child1"));
+		child1StringRef = child1Ref.then(String.class, "string");
+
+		Thread submitter = new Thread(() -> driver.submitReplacement(child1StringRef, "slow"));
+		submitter.start();
+		try {
+			// The event is published before the downstream call, which is stuck,
+			// but the feed itself remains usable
+			subscribe(eventsSeen::addAll, 1);
+			awaitEventsSeen(1);
+			assertEquals(2, driver.nextSequence());
+		} finally {
+			release.countDown();
+		}
+		submitter.join(10_000);
+		assertFalse(submitter.isAlive());
+	}
+
+	@Test
+	void resumedSubscription_continuesFromCursor() throws InvalidTypeException, InterruptedException {
+		setupBosk(ChangeFeedDriverSettings.builder().build());
+		Subscription first = subscribe(eventsSeen::addAll);
+		driver.submitReplacement(child1StringRef, "first");
+		awaitEventsSeen(1);
+		first.close();
+		long cursor = first.nextSequence();
+
+		driver.submitReplacement(child1StringRef, "second");
+		driver.submitReplacement(child1StringRef, "third");
+		subscribe(eventsSeen::addAll, cursor);
+		awaitEventsSeen(3);
+		assertEquals(asList(1L, 2L, 3L), sequencesOf(eventsSeen));
+	}
+
+	@Test
+	void unavailableCursor_throws() throws InvalidTypeException {
+		setupBosk(ChangeFeedDriverSettings.builder().bufferCapacity(2).build());
+		for (int i = 1; i <= 5; i++) {
+			driver.submitReplacement(child1StringRef, "value " + i);
+		}
+		assertThrows(IllegalArgumentException.class, () -> driver.subscribe(eventsSeen::addAll, 1));
+		assertThrows(IllegalArgumentException.class, () -> driver.subscribe(eventsSeen::addAll, driver.nextSequence() + 1));
+	}
+
+	@Test
+	void invalidSettings_throws() {
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(ChangeFeedDriverSettings.builder().bufferCapacity(0).build()));
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(ChangeFeedDriverSettings.builder().maxBatchSize(0).build()));
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(ChangeFeedDriverSettings.builder().maxDeliveryAttempts(0).build()));
+	}
+
+	private Subscription subscribe(ChangeFeedDriver.Subscriber subscriber) {
+		return track(driver.subscribe(subscriber));
+	}
+
+	private Subscription subscribe(ChangeFeedDriver.Subscriber subscriber, long fromSequence) {
+		return track(driver.subscribe(subscriber, fromSequence));
+	}
+
+	private Subscription track(Subscription subscription) {
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	private void awaitEventsSeen(int count) throws InterruptedException {
+		for (int i = 0; i < 1000 && eventsSeen.size() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, eventsSeen.size());
+	}
+
+	private static List<Long> sequencesOf(List<ChangeEvent> events) {
+		List<Long> result = new ArrayList<>();
+		events.forEach(e -> result.add(e.sequence()));
+		return result;
+	}
+
+	private static List<Operation> operationsOf(List<ChangeEvent> events) {
+		List<Operation> result = new ArrayList<>();
+		events.forEach(e -> result.add(e.operation()));
+		return result;
+	}
+
+}
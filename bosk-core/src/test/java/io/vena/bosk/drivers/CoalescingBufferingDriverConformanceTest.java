@@ -0,0 +1,12 @@
+package io.vena.bosk.drivers;
+
+import org.junit.jupiter.api.BeforeEach;
+
+public class CoalescingBufferingDriverConformanceTest extends DriverConformanceTest {
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = (b,d)-> BufferingDriver.coalescingWritesTo(d);
+	}
+
+}
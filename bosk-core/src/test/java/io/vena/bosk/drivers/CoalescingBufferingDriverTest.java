@@ -0,0 +1,147 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoalescingBufferingDriverTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	BufferingDriver<TestRoot> driver;
+	List<String> submitted;
+	CatalogReference<TestChild> childrenRef;
+	Reference<TestChild> child1Ref;
+	Reference<String> child1StringRef;
+	Reference<String> child2StringRef;
+	Reference<Identifier> child1IdRef;
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		submitted = new ArrayList<>();
+		bosk = setUpBosk((b, d) -> driver = BufferingDriver.coalescingWritesTo(new RecordingDriver(d)));
+		childrenRef = bosk.catalogReference(TestChild.class, Path.parse("/entities/parent/children"));
+		child1Ref = childrenRef.then(Identifier.from("child1"));
+		child1StringRef = child1Ref.then(String.class, TestChild.Fields.string);
+		child2StringRef = childrenRef.then(Identifier.from("child2")).then(String.class, TestChild.Fields.string);
+		child1IdRef = child1Ref.then(Identifier.class, TestChild.Fields.id);
+	}
+
+	@Test
+	void repeatedReplacement_onlyLastSubmitted() throws IOException, InterruptedException {
+		for (int i = 0; i < 1000; i++) {
+			driver.submitReplacement(child1StringRef, "value " + i);
+		}
+		driver.flush();
+		assertEquals(singletonList("replace " + child1StringRef.path()), submitted);
+		assertEquals("value 999", readString(child1StringRef));
+	}
+
+	@Test
+	void ancestorReplacement_supersedesDescendants() throws IOException, InterruptedException {
+		TestChild newChild1 = readChild1().withString("new child1");
+		driver.submitReplacement(child1StringRef, "overwritten");
+		driver.submitReplacement(child2StringRef, "survives");
+		driver.submitReplacement(child1Ref, newChild1);
+		driver.flush();
+		assertEquals(asList(
+			"replace " + child2StringRef.path(),
+			"replace " + child1Ref.path()
+		), submitted);
+		assertEquals("new child1", readString(child1StringRef));
+		assertEquals("survives", readString(child2StringRef));
+	}
+
+	@Test
+	void deletion_supersedesEarlierUpdates() throws IOException, InterruptedException {
+		driver.submitReplacement(child1StringRef, "overwritten");
+		driver.submitDeletion(child1Ref);
+		driver.flush();
+		assertEquals(singletonList("delete " + child1Ref.path()), submitted);
+	}
+
+	@Test
+	void descendantReplacement_doesNotSupersedeAncestor() throws IOException, InterruptedException {
+		TestChild newChild1 = readChild1().withString("new child1");
+		driver.submitReplacement(child1Ref, newChild1);
+		driver.submitReplacement(child1StringRef, "final");
+		driver.flush();
+		assertEquals(asList(
+			"replace " + child1Ref.path(),
+			"replace " + child1StringRef.path()
+		), submitted);
+		assertEquals("final", readString(child1StringRef));
+	}
+
+	@Test
+	void conditionalUpdate_preservesEarlierUpdates() throws IOException, InterruptedException {
+		driver.submitReplacement(child1StringRef, "before");
+		driver.submitConditionalReplacement(child2StringRef, "conditional", child1IdRef, Identifier.from("child1"));
+		driver.submitReplacement(child1StringRef, "after");
+		driver.flush();
+		assertEquals(asList(
+			"replace " + child1StringRef.path(),
+			"conditional " + child2StringRef.path(),
+			"replace " + child1StringRef.path()
+		), submitted);
+		assertEquals("after", readString(child1StringRef));
+		assertEquals("conditional", readString(child2StringRef));
+	}
+
+	@Test
+	void supersededConditionalUpdate_discarded() throws IOException, InterruptedException {
+		driver.submitConditionalReplacement(child1StringRef, "conditional", child1IdRef, Identifier.from("child1"));
+		driver.submitReplacement(child1StringRef, "final");
+		driver.flush();
+		assertEquals(singletonList("replace " + child1StringRef.path()), submitted);
+	}
+
+	private TestChild readChild1() {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return child1Ref.value();
+		}
+	}
+
+	private String readString(Reference<String> ref) {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return ref.value();
+		}
+	}
+
+	private final class RecordingDriver extends ForwardingDriver<TestRoot> {
+		RecordingDriver(BoskDriver<TestRoot> downstream) {
+			super(singletonList(downstream));
+		}
+
+		@Override
+		public <T> void submitReplacement(Reference<T> target, T newValue) {
+			submitted.add("replace " + target.path());
+			super.submitReplacement(target, newValue);
+		}
+
+		@Override
+		public <T> void submitDeletion(Reference<T> target) {
+			submitted.add("delete " + target.path());
+			super.submitDeletion(target);
+		}
+
+		@Override
+		public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+			submitted.add("conditional " + target.path());
+			super.submitConditionalReplacement(target, newValue, precondition, requiredValue);
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package io.vena.bosk.drivers;
+
+import org.junit.jupiter.api.BeforeEach;
+
+import static java.util.Collections.singletonList;
+
+public class ConcurrentForwardingDriverConformanceTest extends DriverConformanceTest {
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = (b,d)-> ConcurrentForwardingDriver.of(singletonList(d));
+	}
+
+}
@@ -0,0 +1,124 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrentForwardingDriverTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	ConcurrentForwardingDriver<TestRoot> driver;
+	Reference<String> stringRef;
+
+	/**
+	 * Both downstream drivers must reach this barrier at the same time,
+	 * which can only happen if they're called concurrently.
+	 */
+	final CyclicBarrier barrier = new CyclicBarrier(2);
+	final List<String> valuesSeen = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		bosk = setUpBosk((b, d) -> driver = ConcurrentForwardingDriver.of(asList(
+			new RendezvousDriver(d),
+			new RendezvousDriver(d)
+		)));
+		stringRef = bosk.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+	}
+
+	@AfterEach
+	void closeDriver() {
+		driver.close();
+	}
+
+	@Test
+	void updates_reachAllDownstreamConcurrently() throws IOException, InterruptedException {
+		driver.submitReplacement(stringRef, "first");
+		driver.submitReplacement(stringRef, "second");
+		driver.flush();
+		assertEquals(asList("first", "first", "second", "second"), valuesSeen);
+		assertEquals("second", readString(bosk));
+	}
+
+	@Test
+	void mirroringDriver_works() throws InvalidTypeException, IOException, InterruptedException {
+		Bosk<TestRoot> mirror = setUpBosk(Bosk::simpleDriver);
+		Bosk<TestRoot> primary = setUpBosk(MirroringDriver.targetingConcurrently(mirror));
+		primary.driver().submitReplacement(primary.reference(String.class, stringRef.path()), "mirrored");
+		primary.driver().flush();
+		assertEquals("mirrored", readString(primary));
+		assertEquals("mirrored", readString(mirror));
+	}
+
+	@Test
+	void flushFailure_propagates() {
+		IOException failure = new IOException("Test failure");
+		ConcurrentForwardingDriver<TestRoot> failingDriver = ConcurrentForwardingDriver.of(singletonList(new ForwardingDriver<TestRoot>(singletonList(bosk.driver())) {
+			@Override
+			public void flush() throws IOException {
+				throw failure;
+			}
+		}));
+		try {
+			IOException actual = assertThrows(IOException.class, failingDriver::flush);
+			assertSame(failure, actual);
+		} finally {
+			failingDriver.close();
+		}
+	}
+
+	private String readString(Bosk<TestRoot> b) {
+		try (Bosk<TestRoot>.ReadContext context = b.readContext()) {
+			return b.reference(String.class, stringRef.path()).value();
+		} catch (InvalidTypeException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private final class RendezvousDriver extends ForwardingDriver<TestRoot> {
+		RendezvousDriver(BoskDriver<TestRoot> downstream) {
+			super(singletonList(downstream));
+		}
+
+		@Override
+		public <T> void submitReplacement(Reference<T> target, T newValue) {
+			rendezvous();
+			valuesSeen.add((String) newValue);
+			rendezvous();
+			super.submitReplacement(target, newValue);
+		}
+
+		@Override
+		public void flush() throws InterruptedException, IOException {
+			rendezvous();
+			super.flush();
+		}
+
+		private void rendezvous() {
+			try {
+				barrier.await(10, SECONDS);
+			} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+				throw new AssertionError("Downstream drivers were not called concurrently", e);
+			}
+		}
+	}
+
+}
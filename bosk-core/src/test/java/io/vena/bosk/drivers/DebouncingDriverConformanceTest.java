@@ -0,0 +1,12 @@
+package io.vena.bosk.drivers;
+
+import org.junit.jupiter.api.BeforeEach;
+
+public class DebouncingDriverConformanceTest extends DriverConformanceTest {
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = DebouncingDriver.factory(DebouncingDriverSettings.builder().build());
+	}
+
+}
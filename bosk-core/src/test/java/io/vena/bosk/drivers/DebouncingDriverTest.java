@@ -0,0 +1,167 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DebouncingDriverTest extends AbstractBoskTest {
+	static final long LONG_TIME_MS = 60_000;
+
+	Bosk<TestRoot> bosk;
+	DebouncingDriver<TestRoot> driver;
+	Reference<TestChild> child1Ref;
+	Reference<String> child1StringRef;
+	Reference<String> child2StringRef;
+	final List<String> updatesSeen = new CopyOnWriteArrayList<>();
+
+	void setupBosk(DebouncingDriverSettings settings) throws InvalidTypeException {
+		bosk = setUpBosk((b, d) -> driver = new DebouncingDriver<>(b, new RecordingDriver(d), settings));
+		child1Ref = bosk.reference(TestChild.class, Path.parse("/entities/parent/children/child1"));
+		child1StringRef = child1Ref.then(String.class, "string");
+		child2StringRef = bosk.reference(String.class, Path.parse("/entities/parent/children/child2/string"));
+	}
+
+	@AfterEach
+	void closeDriver() {
+		if (driver != null) {
+			driver.close();
+		}
+	}
+
+	@Test
+	void repeatedUpdates_onlyLatestSubmitted() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(DebouncingDriverSettings.builder().debounceWindowMS(LONG_TIME_MS).build());
+		for (int i = 1; i <= 100; i++) {
+			driver.submitReplacement(child1StringRef, "value " + i);
+		}
+		assertTrue(updatesSeen.isEmpty());
+		assertEquals(1, driver.numPending());
+
+		driver.flush();
+		assertEquals(singletonList("child1=value 100"), updatesSeen);
+		assertEquals("value 100", read(child1StringRef));
+	}
+
+	@Test
+	void windowElapses_updateSubmitted() throws InvalidTypeException, InterruptedException {
+		setupBosk(DebouncingDriverSettings.builder().debounceWindowMS(10).build());
+		driver.submitReplacement(child1StringRef, "eventually");
+		awaitUpdatesSeen(1);
+		assertEquals(singletonList("child1=eventually"), updatesSeen);
+		assertEquals("eventually", read(child1StringRef));
+	}
+
+	@Test
+	void conditionalUpdate_submitsPendingFirst() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(DebouncingDriverSettings.builder().debounceWindowMS(LONG_TIME_MS).build());
+		Reference<Identifier> child2IdRef = bosk.reference(Identifier.class, Path.parse("/entities/parent/children/child2/id"));
+		driver.submitReplacement(child1StringRef, "pending");
+		driver.submitConditionalReplacement(child2StringRef, "conditional", child2IdRef, Identifier.from("child2"));
+		assertEquals(asList("child1=pending", "child2=conditional"), updatesSeen);
+		assertEquals(0, driver.numPending());
+
+		driver.flush();
+		assertEquals("pending", read(child1StringRef));
+		assertEquals("conditional", read(child2StringRef));
+	}
+
+	@Test
+	void overlappingUpdate_preservesOrder() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(DebouncingDriverSettings.builder().debounceWindowMS(LONG_TIME_MS).build());
+		TestChild original;
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			original = child1Ref.value();
+		}
+		driver.submitReplacement(child1StringRef, "overwritten");
+		driver.submitReplacement(child1Ref, original.withString("whole child"));
+		assertEquals(asList("child1=overwritten", "child1=whole child"), updatesSeen);
+
+		driver.flush();
+		assertEquals("whole child", read(child1StringRef));
+	}
+
+	@Test
+	void rateLimit_delaysSubsequentUpdates() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(DebouncingDriverSettings.builder()
+			.debounceWindowMS(0)
+			.minIntervalMSByTemplate(singletonMap(Path.parseParameterized("/entities/-entity-/children/-child-/string"), LONG_TIME_MS))
+			.build());
+		driver.submitReplacement(child1StringRef, "first");
+		awaitUpdatesSeen(1);
+
+		driver.submitReplacement(child1StringRef, "second");
+		driver.submitReplacement(child1StringRef, "third");
+		driver.submitReplacement(child2StringRef, "other path");
+		awaitUpdatesSeen(2);
+		assertEquals(asList("child1=first", "child2=other path"), updatesSeen);
+		assertEquals(1, driver.numPending());
+
+		driver.flush();
+		assertEquals(asList("child1=first", "child2=other path", "child1=third"), updatesSeen);
+		assertEquals("third", read(child1StringRef));
+	}
+
+	@Test
+	void invalidSettings_throws() {
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(DebouncingDriverSettings.builder().debounceWindowMS(-1).build()));
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(DebouncingDriverSettings.builder()
+			.minIntervalMSByTemplate(singletonMap(Path.parse("/nonexistent"), 1L))
+			.build()));
+	}
+
+	private void awaitUpdatesSeen(int count) throws InterruptedException {
+		for (int i = 0; i < 1000 && updatesSeen.size() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(updatesSeen.size() >= count, "Expected at least " + count + " updates; saw " + updatesSeen);
+	}
+
+	private String read(Reference<String> ref) {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return ref.value();
+		}
+	}
+
+	private final class RecordingDriver extends ForwardingDriver<TestRoot> {
+		RecordingDriver(BoskDriver<TestRoot> downstream) {
+			super(singletonList(downstream));
+		}
+
+		@Override
+		public <T> void submitReplacement(Reference<T> target, T newValue) {
+			record(target, newValue);
+			super.submitReplacement(target, newValue);
+		}
+
+		@Override
+		public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+			record(target, newValue);
+			super.submitConditionalReplacement(target, newValue, precondition, requiredValue);
+		}
+
+		private void record(Reference<?> target, Object newValue) {
+			if (newValue instanceof TestChild) {
+				updatesSeen.add(target.path().lastSegment() + "=" + ((TestChild) newValue).string());
+			} else {
+				updatesSeen.add(target.path().truncatedBy(1).lastSegment() + "=" + newValue);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MirroringDriverTest extends AbstractBoskTest {
+	static final Path CHILD1_PATH = Path.parse("/entities/parent/children/child1");
+
+	Bosk<TestRoot> mirror1;
+	Bosk<TestRoot> mirror2;
+
+	@BeforeEach
+	void setupMirrors() {
+		mirror1 = setUpBosk(Bosk::simpleDriver);
+		mirror2 = setUpBosk(Bosk::simpleDriver);
+	}
+
+	@Test
+	void targetingAll_updatesEveryMirror() throws InvalidTypeException, IOException, InterruptedException {
+		Bosk<TestRoot> primary = setUpBosk(MirroringDriver.targetingAll(asList(mirror1, mirror2)));
+		Reference<String> stringRef = primary.reference(String.class, CHILD1_PATH.then("string"));
+		for (int i = 1; i <= 3; i++) {
+			primary.driver().submitReplacement(stringRef, "value " + i);
+		}
+		primary.driver().flush();
+		assertEquals("value 3", readString(primary));
+		assertEquals("value 3", readString(mirror1));
+		assertEquals("value 3", readString(mirror2));
+	}
+
+	@Test
+	void targetingInBatches_updatesMirrorOnFlush() throws InvalidTypeException, IOException, InterruptedException {
+		Bosk<TestRoot> primary = setUpBosk(MirroringDriver.targetingInBatches(mirror1));
+		String originalValue = readString(mirror1);
+		primary.driver().submitReplacement(primary.reference(String.class, CHILD1_PATH.then("string")), "batched");
+		assertEquals("batched", readString(primary));
+		assertEquals(originalValue, readString(mirror1));
+
+		primary.driver().flush();
+		assertEquals("batched", readString(mirror1));
+	}
+
+	@Test
+	void mirroredValues_areShared() throws InvalidTypeException, IOException, InterruptedException {
+		Bosk<TestRoot> primary = setUpBosk(MirroringDriver.targeting(mirror1));
+		Reference<TestChild> childRef = primary.reference(TestChild.class, CHILD1_PATH);
+		TestChild newChild;
+		try (Bosk<TestRoot>.ReadContext context = primary.readContext()) {
+			newChild = childRef.value().withString("shared");
+		}
+		primary.driver().submitReplacement(childRef, newChild);
+		primary.driver().flush();
+		try (Bosk<TestRoot>.ReadContext context = mirror1.readContext()) {
+			assertSame(newChild, mirror1.reference(TestChild.class, CHILD1_PATH).value());
+		}
+	}
+
+	private static String readString(Bosk<TestRoot> b) throws InvalidTypeException {
+		Reference<String> ref = b.reference(String.class, CHILD1_PATH.then("string"));
+		try (Bosk<TestRoot>.ReadContext context = b.readContext()) {
+			return ref.value();
+		}
+	}
+
+}
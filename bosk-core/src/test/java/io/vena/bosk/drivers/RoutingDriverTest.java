@@ -0,0 +1,180 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingDriverTest extends AbstractBoskTest {
+	static final Path CHILD1_PATH = Path.parse("/entities/parent/children/child1");
+	static final Path CHILD1_STRING_PATH = CHILD1_PATH.then("string");
+	static final Path CHILD2_STRING_PATH = Path.parse("/entities/parent/children/child2/string");
+
+	Bosk<TestRoot> bosk;
+	RecordingDriver defaultDriver;
+	RecordingDriver child1Driver;
+	TestRoot child1InitialRoot;
+
+	@BeforeEach
+	void setup() throws InvalidTypeException, IOException, InterruptedException {
+		// A root that differs from the default only in child1's string
+		Bosk<TestRoot> other = setUpBosk(Bosk::simpleDriver);
+		other.driver().submitReplacement(other.reference(String.class, CHILD1_STRING_PATH), "from child1 route");
+		other.driver().flush();
+		try (Bosk<TestRoot>.ReadContext context = other.readContext()) {
+			child1InitialRoot = other.rootReference().value();
+		}
+
+		bosk = setUpBosk(RoutingDriver.factory(
+			(b, d) -> defaultDriver = new RecordingDriver(d, null),
+			singletonMap(CHILD1_PATH, (b, d) -> child1Driver = new RecordingDriver(d, child1InitialRoot))
+		));
+	}
+
+	@Test
+	void initialRoot_assembledFromRoutes() throws InvalidTypeException {
+		assertEquals("from child1 route", readString(CHILD1_STRING_PATH));
+		assertEquals(readString(other(), CHILD2_STRING_PATH), readString(CHILD2_STRING_PATH));
+	}
+
+	@Test
+	void updates_sentToMatchingRoute() throws InvalidTypeException, IOException, InterruptedException {
+		bosk.driver().submitReplacement(bosk.reference(String.class, CHILD1_STRING_PATH), "child1 update");
+		bosk.driver().submitReplacement(bosk.reference(String.class, CHILD2_STRING_PATH), "child2 update");
+		bosk.driver().flush();
+
+		assertEquals(singletonList(CHILD1_STRING_PATH), child1Driver.pathsSeen);
+		assertEquals(singletonList(CHILD2_STRING_PATH), defaultDriver.pathsSeen);
+		assertEquals("child1 update", readString(CHILD1_STRING_PATH));
+		assertEquals("child2 update", readString(CHILD2_STRING_PATH));
+	}
+
+	@Test
+	void nestedRoutes_longestPrefixWins() throws InvalidTypeException {
+		Path parentPath = Path.parse("/entities/parent");
+		Map<Path, DriverFactory<TestRoot>> routes = new LinkedHashMap<>();
+		routes.put(parentPath, (b, d) -> defaultDriver = new RecordingDriver(d, null));
+		routes.put(CHILD1_PATH, (b, d) -> child1Driver = new RecordingDriver(d, null));
+		bosk = setUpBosk(RoutingDriver.factory(Bosk::simpleDriver, routes));
+
+		bosk.driver().submitReplacement(bosk.reference(String.class, CHILD1_STRING_PATH), "child1 update");
+		bosk.driver().submitReplacement(bosk.reference(String.class, CHILD2_STRING_PATH), "child2 update");
+		assertEquals(singletonList(CHILD1_STRING_PATH), child1Driver.pathsSeen);
+		assertEquals(singletonList(CHILD2_STRING_PATH), defaultDriver.pathsSeen);
+	}
+
+	@Test
+	void spanningUpdate_throws() {
+		assertThrows(IllegalArgumentException.class, () ->
+			bosk.driver().submitReplacement(bosk.rootReference(), child1InitialRoot));
+		assertThrows(IllegalArgumentException.class, () ->
+			bosk.driver().submitDeletion(bosk.reference(TestEntity.class, Path.parse("/entities/parent"))));
+		assertTrue(child1Driver.pathsSeen.isEmpty());
+		assertTrue(defaultDriver.pathsSeen.isEmpty());
+	}
+
+	@Test
+	void preconditionInOtherRoute_throws() throws InvalidTypeException {
+		Reference<String> target = bosk.reference(String.class, CHILD1_STRING_PATH);
+		Reference<Identifier> precondition = bosk.reference(Identifier.class, Path.parse("/entities/parent/children/child2/id"));
+		assertThrows(IllegalArgumentException.class, () ->
+			bosk.driver().submitConditionalReplacement(target, "nope", precondition, Identifier.from("child2")));
+		assertTrue(child1Driver.pathsSeen.isEmpty());
+	}
+
+	@Test
+	void flush_flushesAllRoutes() throws IOException, InterruptedException {
+		bosk.driver().flush();
+		assertEquals(1, defaultDriver.flushCount);
+		assertEquals(1, child1Driver.flushCount);
+	}
+
+	@Test
+	void invalidRoutes_throw() {
+		assertThrows(IllegalArgumentException.class, () ->
+			RoutingDriver.factory(Bosk::simpleDriver, singletonMap(Path.empty(), Bosk::simpleDriver)));
+		assertThrows(IllegalArgumentException.class, () ->
+			RoutingDriver.factory(Bosk::simpleDriver, singletonMap(Path.parseParameterized("/entities/-entity-"), Bosk::simpleDriver)));
+	}
+
+	private Bosk<TestRoot> other() {
+		return setUpBosk(Bosk::simpleDriver);
+	}
+
+	private String readString(Path path) throws InvalidTypeException {
+		return readString(bosk, path);
+	}
+
+	private static String readString(Bosk<TestRoot> b, Path path) throws InvalidTypeException {
+		Reference<String> ref = b.reference(String.class, path);
+		try (Bosk<TestRoot>.ReadContext context = b.readContext()) {
+			return ref.value();
+		}
+	}
+
+	/**
+	 * Records the target of each update, and optionally supplies its own initial root.
+	 */
+	private static final class RecordingDriver extends ForwardingDriver<TestRoot> {
+		final TestRoot initialRoot;
+		final List<Path> pathsSeen = new CopyOnWriteArrayList<>();
+		int flushCount = 0;
+
+		RecordingDriver(BoskDriver<TestRoot> downstream, TestRoot initialRoot) {
+			super(singletonList(downstream));
+			this.initialRoot = initialRoot;
+		}
+
+		@Override
+		public TestRoot initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+			if (initialRoot == null) {
+				return super.initialRoot(rootType);
+			} else {
+				return initialRoot;
+			}
+		}
+
+		@Override
+		public <T> void submitReplacement(Reference<T> target, T newValue) {
+			pathsSeen.add(target.path());
+			super.submitReplacement(target, newValue);
+		}
+
+		@Override
+		public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+			pathsSeen.add(target.path());
+			super.submitConditionalReplacement(target, newValue, precondition, requiredValue);
+		}
+
+		@Override
+		public <T> void submitDeletion(Reference<T> target) {
+			pathsSeen.add(target.path());
+			super.submitDeletion(target);
+		}
+
+		@Override
+		public void flush() throws IOException, InterruptedException {
+			flushCount++;
+			super.flush();
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package io.vena.bosk.drivers;
+
+import org.junit.jupiter.api.BeforeEach;
+
+public class WriteBehindDriverConformanceTest extends DriverConformanceTest {
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = WriteBehindDriver.factory(WriteBehindDriverSettings.builder()
+			.queueCapacity(4)
+			.batchWindowMS(5)
+			.build());
+	}
+
+}
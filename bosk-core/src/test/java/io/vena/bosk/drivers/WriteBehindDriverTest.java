@@ -0,0 +1,135 @@
+package io.vena.bosk.drivers;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.WriteBehindDriverSettings.Backpressure;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBehindDriverTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	WriteBehindDriver<TestRoot> driver;
+	Reference<String> stringRef;
+	final List<String> valuesSeen = new CopyOnWriteArrayList<>();
+	final Semaphore gate = new Semaphore(Integer.MAX_VALUE);
+	final CountDownLatch downstreamEntered = new CountDownLatch(1);
+
+	void setupBosk(WriteBehindDriverSettings settings) throws InvalidTypeException {
+		bosk = setUpBosk((b, d) -> driver = new WriteBehindDriver<>(new GatedDriver(d), settings));
+		stringRef = bosk.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+	}
+
+	@AfterEach
+	void closeDriver() {
+		gate.release(Integer.MAX_VALUE / 2);
+		if (driver != null) {
+			driver.close();
+		}
+	}
+
+	@Test
+	void flush_waitsForQueueToDrain() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(WriteBehindDriverSettings.builder().queueCapacity(10).batchWindowMS(1000).build());
+		for (int i = 1; i <= 100; i++) {
+			driver.submitReplacement(stringRef, "value " + i);
+		}
+		driver.flush();
+		assertEquals("value 100", readString());
+		assertEquals(100, valuesSeen.size());
+		WriteBehindDriver.Metrics metrics = driver.metrics();
+		assertEquals(0, metrics.queueDepth());
+		assertEquals(100, metrics.updatesApplied());
+		assertEquals(0, metrics.updatesCoalesced());
+	}
+
+	@Test
+	void fail_rejectsWhenFull() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(WriteBehindDriverSettings.builder().queueCapacity(1).backpressure(Backpressure.FAIL).build());
+		blockDownstreamWhileProcessing("first");
+		driver.submitReplacement(stringRef, "second");
+		assertEquals(1, driver.metrics().queueDepth());
+		assertThrows(RejectedExecutionException.class, () -> driver.submitReplacement(stringRef, "third"));
+
+		gate.release(Integer.MAX_VALUE / 2);
+		driver.flush();
+		assertEquals(asList("first", "second"), valuesSeen);
+		assertEquals("second", readString());
+	}
+
+	@Test
+	void coalesce_discardsSupersededUpdates() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(WriteBehindDriverSettings.builder().queueCapacity(2).backpressure(Backpressure.COALESCE).build());
+		blockDownstreamWhileProcessing("first");
+		driver.submitReplacement(stringRef, "second");
+		driver.submitReplacement(stringRef, "third");
+		driver.submitReplacement(stringRef, "fourth"); // Queue is full; should coalesce rather than block
+
+		gate.release(Integer.MAX_VALUE / 2);
+		driver.flush();
+		assertEquals(asList("first", "fourth"), valuesSeen);
+		assertEquals("fourth", readString());
+		assertEquals(2, driver.metrics().updatesCoalesced());
+	}
+
+	@Test
+	void closed_rejectsUpdates() throws InvalidTypeException, IOException, InterruptedException {
+		setupBosk(WriteBehindDriverSettings.builder().build());
+		driver.submitReplacement(stringRef, "before close");
+		driver.close();
+		assertThrows(RejectedExecutionException.class, () -> driver.submitReplacement(stringRef, "after close"));
+		driver.flush();
+		assertEquals(singletonList("before close"), valuesSeen);
+	}
+
+	@Test
+	void invalidSettings_throws() {
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(WriteBehindDriverSettings.builder().queueCapacity(0).build()));
+		assertThrows(IllegalArgumentException.class, () -> setupBosk(WriteBehindDriverSettings.builder().batchWindowMS(-1).build()));
+	}
+
+	/**
+	 * Submits an update and waits until the background thread is stuck processing it.
+	 */
+	private void blockDownstreamWhileProcessing(String value) throws InterruptedException {
+		gate.drainPermits();
+		driver.submitReplacement(stringRef, value);
+		downstreamEntered.await();
+		assertEquals(0, driver.metrics().queueDepth());
+	}
+
+	private String readString() {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return stringRef.value();
+		}
+	}
+
+	private final class GatedDriver extends ForwardingDriver<TestRoot> {
+		GatedDriver(BoskDriver<TestRoot> downstream) {
+			super(singletonList(downstream));
+		}
+
+		@Override
+		public <T> void submitReplacement(Reference<T> target, T newValue) {
+			downstreamEntered.countDown();
+			gate.acquireUninterruptibly();
+			valuesSeen.add((String) newValue);
+			super.submitReplacement(target, newValue);
+		}
+	}
+
+}
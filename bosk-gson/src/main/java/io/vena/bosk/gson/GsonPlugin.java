@@ -9,13 +9,17 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import io.vena.bosk.Bosk;
 import io.vena.bosk.Catalog;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
 import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingEntry;
+import io.vena.bosk.LongListValue;
 import io.vena.bosk.MapValue;
 import io.vena.bosk.Path;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Phantom;
 import io.vena.bosk.Reference;
 import io.vena.bosk.ReferenceUtils;
@@ -40,6 +44,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import lombok.Value;
 
 import static io.vena.bosk.ListingEntry.LISTING_ENTRY;
@@ -95,8 +102,16 @@ public final class GsonPlugin extends SerializationPlugin {
 					throw new IllegalArgumentException("Cannot serialize a Phantom on its own; only as a field of another object");
 				} else if (ListValue.class.isAssignableFrom(theClass)) {
 					return listValueAdapter(gson, typeToken);
+				} else if (PersistentListValue.class.isAssignableFrom(theClass)) {
+					return persistentListValueAdapter(gson, typeToken);
 				} else if (MapValue.class.isAssignableFrom(theClass)) {
 					return mapValueAdapter(gson, typeToken);
+				} else if (IntListValue.class.isAssignableFrom(theClass)) {
+					return intListValueAdapter();
+				} else if (LongListValue.class.isAssignableFrom(theClass)) {
+					return longListValueAdapter();
+				} else if (DoubleListValue.class.isAssignableFrom(theClass)) {
+					return doubleListValueAdapter();
 				} else {
 					return null;
 				}
@@ -128,6 +143,23 @@ public final class GsonPlugin extends SerializationPlugin {
 		};
 	}
 
+	private <V> TypeAdapter<PersistentListValue<V>> persistentListValueAdapter(Gson gson, TypeToken<PersistentListValue<V>> typeToken) {
+		@SuppressWarnings("unchecked")
+		TypeToken<List<V>> listTypeToken = (TypeToken<List<V>>) TypeToken.getParameterized(List.class, parameterType(typeToken.getType(), PersistentListValue.class, 0));
+		TypeAdapter<List<V>> listAdapter = gson.getAdapter(listTypeToken);
+		return new TypeAdapter<PersistentListValue<V>>() {
+			@Override
+			public void write(JsonWriter out, PersistentListValue<V> value) throws IOException {
+				listAdapter.write(out, value);
+			}
+
+			@Override
+			public PersistentListValue<V> read(JsonReader in) throws IOException {
+				return PersistentListValue.from(listAdapter.read(in));
+			}
+		};
+	}
+
 	private <V> TypeAdapter<MapValue<V>> mapValueAdapter(Gson gson, TypeToken<MapValue<V>> typeToken) {
 		@SuppressWarnings("unchecked")
 		TypeToken<V> valueTypeToken = (TypeToken<V>) TypeToken.get(parameterType(typeToken.getType(), MapValue.class, 0));
@@ -161,6 +193,78 @@ public final class GsonPlugin extends SerializationPlugin {
 		};
 	}
 
+	private static TypeAdapter<IntListValue> intListValueAdapter() {
+		return new TypeAdapter<IntListValue>() {
+			@Override
+			public void write(JsonWriter out, IntListValue value) throws IOException {
+				out.beginArray();
+				for (int i = 0; i < value.size(); i++) {
+					out.value(value.getInt(i));
+				}
+				out.endArray();
+			}
+
+			@Override
+			public IntListValue read(JsonReader in) throws IOException {
+				IntStream.Builder entries = IntStream.builder();
+				in.beginArray();
+				while (in.hasNext()) {
+					entries.add(in.nextInt());
+				}
+				in.endArray();
+				return IntListValue.from(entries.build());
+			}
+		};
+	}
+
+	private static TypeAdapter<LongListValue> longListValueAdapter() {
+		return new TypeAdapter<LongListValue>() {
+			@Override
+			public void write(JsonWriter out, LongListValue value) throws IOException {
+				out.beginArray();
+				for (int i = 0; i < value.size(); i++) {
+					out.value(value.getLong(i));
+				}
+				out.endArray();
+			}
+
+			@Override
+			public LongListValue read(JsonReader in) throws IOException {
+				LongStream.Builder entries = LongStream.builder();
+				in.beginArray();
+				while (in.hasNext()) {
+					entries.add(in.nextLong());
+				}
+				in.endArray();
+				return LongListValue.from(entries.build());
+			}
+		};
+	}
+
+	private static TypeAdapter<DoubleListValue> doubleListValueAdapter() {
+		return new TypeAdapter<DoubleListValue>() {
+			@Override
+			public void write(JsonWriter out, DoubleListValue value) throws IOException {
+				out.beginArray();
+				for (int i = 0; i < value.size(); i++) {
+					out.value(value.getDouble(i));
+				}
+				out.endArray();
+			}
+
+			@Override
+			public DoubleListValue read(JsonReader in) throws IOException {
+				DoubleStream.Builder entries = DoubleStream.builder();
+				in.beginArray();
+				while (in.hasNext()) {
+					entries.add(in.nextDouble());
+				}
+				in.endArray();
+				return DoubleListValue.from(entries.build());
+			}
+		};
+	}
+
 	private TypeAdapter<Reference<?>> referenceAdapter(Bosk<?> bosk) {
 		return new TypeAdapter<Reference<?>>() {
 			@Override
@@ -11,11 +11,15 @@ import io.vena.bosk.Bosk;
 import io.vena.bosk.Bosk.ReadContext;
 import io.vena.bosk.Catalog;
 import io.vena.bosk.CatalogReference;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
 import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingEntry;
+import io.vena.bosk.LongListValue;
 import io.vena.bosk.Path;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Reference;
 import io.vena.bosk.ReflectiveEntity;
 import io.vena.bosk.SerializationPlugin.DeserializationScope;
@@ -262,6 +266,28 @@ class GsonPluginTest extends AbstractBoskTest {
 		return Arguments.of(asList(entries), TypeToken.getParameterized(ListValue.class, entryType));
 	}
 
+	@Test
+	void testPersistentListValue() {
+		PersistentListValue<String> list = PersistentListValue.of("first", "second");
+		Type type = TypeToken.getParameterized(PersistentListValue.class, String.class).getType();
+		String json = boskGson.toJson(list, type);
+		assertEquals(plainGson.toJson(new ArrayList<>(list)), json);
+		assertEquals(list, boskGson.fromJson(json, type));
+	}
+
+	@Test
+	void testPrimitiveListValues() {
+		IntListValue ints = IntListValue.of(1, -2, Integer.MAX_VALUE);
+		LongListValue longs = LongListValue.of(1, -2, Long.MAX_VALUE);
+		DoubleListValue doubles = DoubleListValue.of(1.5, -2.0, 1e100);
+		assertEquals(plainGson.toJson(new ArrayList<>(ints)), boskGson.toJson(ints));
+		assertEquals(plainGson.toJson(new ArrayList<>(longs)), boskGson.toJson(longs));
+		assertEquals(plainGson.toJson(new ArrayList<>(doubles)), boskGson.toJson(doubles));
+		assertEquals(ints, boskGson.fromJson(boskGson.toJson(ints), IntListValue.class));
+		assertEquals(longs, boskGson.fromJson(boskGson.toJson(longs), LongListValue.class));
+		assertEquals(doubles, boskGson.fromJson(boskGson.toJson(doubles), DoubleListValue.class));
+	}
+
 	/**
 	 * Exercise the type-parameter handling a bit
 	 */
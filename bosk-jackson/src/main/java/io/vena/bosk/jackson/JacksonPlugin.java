@@ -25,13 +25,17 @@ import com.fasterxml.jackson.databind.type.MapType;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import io.vena.bosk.Bosk;
 import io.vena.bosk.Catalog;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
 import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingEntry;
+import io.vena.bosk.LongListValue;
 import io.vena.bosk.MapValue;
 import io.vena.bosk.Path;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Phantom;
 import io.vena.bosk.Reference;
 import io.vena.bosk.ReflectiveEntity;
@@ -56,6 +60,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import lombok.Value;
 
 import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
@@ -128,8 +135,16 @@ public final class JacksonPlugin extends SerializationPlugin {
 				throw new IllegalArgumentException("Cannot serialize a Phantom on its own; only as a field of another object");
 			} else if (ListValue.class.isAssignableFrom(theClass)) {
 				return listValueSerDes(type, beanDesc, bosk).serializer(config);
+			} else if (PersistentListValue.class.isAssignableFrom(theClass)) {
+				return persistentListValueSerDes(type, beanDesc, bosk).serializer(config);
 			} else if (MapValue.class.isAssignableFrom(theClass)) {
 				return mapValueSerDes(type, beanDesc, bosk).serializer(config);
+			} else if (IntListValue.class.isAssignableFrom(theClass)) {
+				return intListValueSerDes().serializer(config);
+			} else if (LongListValue.class.isAssignableFrom(theClass)) {
+				return longListValueSerDes().serializer(config);
+			} else if (DoubleListValue.class.isAssignableFrom(theClass)) {
+				return doubleListValueSerDes().serializer(config);
 			} else {
 				return null;
 			}
@@ -182,8 +197,16 @@ public final class JacksonPlugin extends SerializationPlugin {
 				throw new IllegalArgumentException("Cannot serialize a Phantom on its own; only as a field of another object");
 			} else if (ListValue.class.isAssignableFrom(theClass)) {
 				return listValueSerDes(type, beanDesc, bosk).deserializer(config);
+			} else if (PersistentListValue.class.isAssignableFrom(theClass)) {
+				return persistentListValueSerDes(type, beanDesc, bosk).deserializer(config);
 			} else if (MapValue.class.isAssignableFrom(theClass)) {
 				return mapValueSerDes(type, beanDesc, bosk).deserializer(config);
+			} else if (IntListValue.class.isAssignableFrom(theClass)) {
+				return intListValueSerDes().deserializer(config);
+			} else if (LongListValue.class.isAssignableFrom(theClass)) {
+				return longListValueSerDes().deserializer(config);
+			} else if (DoubleListValue.class.isAssignableFrom(theClass)) {
+				return doubleListValueSerDes().deserializer(config);
 			} else {
 				return null;
 			}
@@ -252,6 +275,36 @@ public final class JacksonPlugin extends SerializationPlugin {
 		};
 	}
 
+	private <V> SerDes<PersistentListValue<V>> persistentListValueSerDes(JavaType type, BeanDescription beanDesc, Bosk<?> bosk) {
+		JavaType listType = TypeFactory.defaultInstance().constructCollectionType(List.class, javaParameterType(type, PersistentListValue.class, 0));
+		return new SerDes<PersistentListValue<V>>() {
+			@Override
+			public JsonSerializer<PersistentListValue<V>> serializer(SerializationConfig serializationConfig) {
+				return new JsonSerializer<PersistentListValue<V>>() {
+					@Override
+					public void serialize(PersistentListValue<V> value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+						serializers.findValueSerializer(listType, null)
+							.serialize(value, gen, serializers);
+					}
+				};
+			}
+
+			@Override
+			public JsonDeserializer<PersistentListValue<V>> deserializer(DeserializationConfig deserializationConfig) {
+				return new BoskDeserializer<PersistentListValue<V>>() {
+					@Override
+					@SuppressWarnings({"unchecked"})
+					public PersistentListValue<V> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+						List<V> entries = (List<V>) ctxt
+							.findContextualValueDeserializer(listType, null)
+							.deserialize(p, ctxt);
+						return PersistentListValue.from(entries);
+					}
+				};
+			}
+		};
+	}
+
 	private <V> SerDes<MapValue<V>> mapValueSerDes(JavaType type, BeanDescription beanDesc, Bosk<?> bosk) {
 		JavaType valueType = mapValueValueType(type);
 		return new SerDes<MapValue<V>>() {
@@ -297,6 +350,108 @@ public final class JacksonPlugin extends SerializationPlugin {
 		};
 	}
 
+	private static SerDes<IntListValue> intListValueSerDes() {
+		return new SerDes<IntListValue>() {
+			@Override
+			public JsonSerializer<IntListValue> serializer(SerializationConfig config) {
+				return new JsonSerializer<IntListValue>() {
+					@Override
+					public void serialize(IntListValue value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+						gen.writeStartArray();
+						for (int i = 0; i < value.size(); i++) {
+							gen.writeNumber(value.getInt(i));
+						}
+						gen.writeEndArray();
+					}
+				};
+			}
+
+			@Override
+			public JsonDeserializer<IntListValue> deserializer(DeserializationConfig config) {
+				return new BoskDeserializer<IntListValue>() {
+					@Override
+					public IntListValue deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+						IntStream.Builder entries = IntStream.builder();
+						expect(START_ARRAY, p);
+						while (p.nextToken() != END_ARRAY) {
+							entries.add(p.getIntValue());
+						}
+						expect(END_ARRAY, p);
+						return IntListValue.from(entries.build());
+					}
+				};
+			}
+		};
+	}
+
+	private static SerDes<LongListValue> longListValueSerDes() {
+		return new SerDes<LongListValue>() {
+			@Override
+			public JsonSerializer<LongListValue> serializer(SerializationConfig config) {
+				return new JsonSerializer<LongListValue>() {
+					@Override
+					public void serialize(LongListValue value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+						gen.writeStartArray();
+						for (int i = 0; i < value.size(); i++) {
+							gen.writeNumber(value.getLong(i));
+						}
+						gen.writeEndArray();
+					}
+				};
+			}
+
+			@Override
+			public JsonDeserializer<LongListValue> deserializer(DeserializationConfig config) {
+				return new BoskDeserializer<LongListValue>() {
+					@Override
+					public LongListValue deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+						LongStream.Builder entries = LongStream.builder();
+						expect(START_ARRAY, p);
+						while (p.nextToken() != END_ARRAY) {
+							entries.add(p.getLongValue());
+						}
+						expect(END_ARRAY, p);
+						return LongListValue.from(entries.build());
+					}
+				};
+			}
+		};
+	}
+
+	private static SerDes<DoubleListValue> doubleListValueSerDes() {
+		return new SerDes<DoubleListValue>() {
+			@Override
+			public JsonSerializer<DoubleListValue> serializer(SerializationConfig config) {
+				return new JsonSerializer<DoubleListValue>() {
+					@Override
+					public void serialize(DoubleListValue value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+						gen.writeStartArray();
+						for (int i = 0; i < value.size(); i++) {
+							gen.writeNumber(value.getDouble(i));
+						}
+						gen.writeEndArray();
+					}
+				};
+			}
+
+			@Override
+			public JsonDeserializer<DoubleListValue> deserializer(DeserializationConfig config) {
+				return new BoskDeserializer<DoubleListValue>() {
+					@Override
+					public DoubleListValue deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+						DoubleStream.Builder entries = DoubleStream.builder();
+						expect(START_ARRAY, p);
+						while (p.nextToken() != END_ARRAY) {
+							entries.add(p.getDoubleValue());
+						}
+						expect(END_ARRAY, p);
+						return DoubleListValue.from(entries.build());
+					}
+				};
+			}
+		};
+	}
+
 	private SerDes<Reference<?>> referenceSerDes(JavaType type, BeanDescription beanDesc, Bosk<?> bosk) {
 		return new SerDes<Reference<?>>() {
 			@Override
@@ -12,11 +12,15 @@ import io.vena.bosk.Bosk;
 import io.vena.bosk.Bosk.ReadContext;
 import io.vena.bosk.Catalog;
 import io.vena.bosk.CatalogReference;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
 import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingEntry;
+import io.vena.bosk.LongListValue;
 import io.vena.bosk.Path;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Reference;
 import io.vena.bosk.ReflectiveEntity;
 import io.vena.bosk.SerializationPlugin.DeserializationScope;
@@ -261,6 +265,28 @@ class JacksonPluginTest extends AbstractBoskTest {
 		return Arguments.of(asList(entries), TypeFactory.defaultInstance().constructParametricType(ListValue.class, entryJavaType));
 	}
 
+	@Test
+	void testPersistentListValue() throws JsonProcessingException {
+		PersistentListValue<String> list = PersistentListValue.of("first", "second");
+		JavaType type = TypeFactory.defaultInstance().constructParametricType(PersistentListValue.class, String.class);
+		String json = boskMapper.writerFor(type).writeValueAsString(list);
+		assertEquals(plainMapper.writeValueAsString(new ArrayList<>(list)), json);
+		assertEquals(list, boskMapper.readerFor(type).readValue(json));
+	}
+
+	@Test
+	void testPrimitiveListValues() throws JsonProcessingException {
+		IntListValue ints = IntListValue.of(1, -2, Integer.MAX_VALUE);
+		LongListValue longs = LongListValue.of(1, -2, Long.MAX_VALUE);
+		DoubleListValue doubles = DoubleListValue.of(1.5, -2.0, 1e100);
+		assertEquals(plainMapper.writeValueAsString(new ArrayList<>(ints)), boskMapper.writeValueAsString(ints));
+		assertEquals(plainMapper.writeValueAsString(new ArrayList<>(longs)), boskMapper.writeValueAsString(longs));
+		assertEquals(plainMapper.writeValueAsString(new ArrayList<>(doubles)), boskMapper.writeValueAsString(doubles));
+		assertEquals(ints, boskMapper.readerFor(IntListValue.class).readValue(boskMapper.writeValueAsString(ints)));
+		assertEquals(longs, boskMapper.readerFor(LongListValue.class).readValue(boskMapper.writeValueAsString(longs)));
+		assertEquals(doubles, boskMapper.readerFor(DoubleListValue.class).readValue(boskMapper.writeValueAsString(doubles)));
+	}
+
 	/**
 	 * Exercise the type-parameter handling a bit
 	 */
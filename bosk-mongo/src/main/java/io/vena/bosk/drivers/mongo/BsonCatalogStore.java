@@ -0,0 +1,370 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Catalog;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.CatalogStore;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.SerializationPlugin.DeserializationScope;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodecProvider;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.ValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link CatalogStore} that holds its entries in BSON form outside the Java heap,
+ * either in direct {@link ByteBuffer}s or in a memory-mapped file.
+ * Wrap one in a {@link Catalog} using {@link Catalog#backedBy}.
+ *
+ * <p>
+ * Entries are encoded using {@link BsonPlugin}, and are decoded on demand.
+ * A decoded entry is cached for as long as it remains reachable, so repeated
+ * lookups of an entry in use return the same object. Aside from that cache,
+ * the heap cost is a few bytes per entry, for the offset and hash tables.
+ *
+ * <p>
+ * Because the entries are decoded in the context of the catalog's location in the bosk,
+ * a store must be built for a particular {@link CatalogReference}, and the
+ * resulting catalog should be used only at that location.
+ */
+public final class BsonCatalogStore<E extends Entity> implements CatalogStore<E> {
+	private final CatalogReference<E> location;
+	private final BsonPlugin bsonPlugin;
+	private final Codec<E> entryCodec;
+	private final ByteBuffer[] segments;
+
+	/**
+	 * The position of each entry, in order: the segment number in the high 32 bits,
+	 * and the offset within that segment in the low 32 bits.
+	 */
+	private final long[] positions;
+
+	/**
+	 * Open-addressing hash table of entry numbers, offset by one so that zero indicates an empty slot.
+	 */
+	private final int[] hashTable;
+
+	private final Map<Integer, CachedEntry<E>> decodedEntries = new ConcurrentHashMap<>();
+	private final ReferenceQueue<E> collectedEntries = new ReferenceQueue<>();
+
+	/**
+	 * @param entries in the desired order. Must have distinct ids.
+	 * @param location must not be parameterized
+	 * @return a store holding the given entries in direct {@link ByteBuffer}s
+	 */
+	public static <E extends Entity> BsonCatalogStore<E> offHeap(Iterable<? extends E> entries, CatalogReference<E> location, Bosk<?> bosk, BsonPlugin bsonPlugin) {
+		try {
+			return build(entries, location, bosk, bsonPlugin, DEFAULT_SEGMENT_SIZE, BsonCatalogStore::directBuffer);
+		} catch (IOException e) {
+			throw new AssertionError("Direct buffers don't do I/O", e);
+		}
+	}
+
+	/**
+	 * @param entries in the desired order. Must have distinct ids.
+	 * @param location must not be parameterized
+	 * @param file will be overwritten with the encoded entries, and then mapped into memory.
+	 * The caller is responsible for deleting it once the store is no longer in use.
+	 * @return a store holding the given entries in the memory-mapped <code>file</code>
+	 */
+	public static <E extends Entity> BsonCatalogStore<E> memoryMapped(Iterable<? extends E> entries, CatalogReference<E> location, Bosk<?> bosk, BsonPlugin bsonPlugin, File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			return build(entries, location, bosk, bsonPlugin, DEFAULT_SEGMENT_SIZE, staged -> mappedBuffer(channel, staged));
+		}
+	}
+
+	static <E extends Entity> BsonCatalogStore<E> build(Iterable<? extends E> entries, CatalogReference<E> location, Bosk<?> bosk, BsonPlugin bsonPlugin, int segmentSize, SegmentAllocator allocator) throws IOException {
+		if (location.path().numParameters() != 0) {
+			throw new IllegalArgumentException("Location must not be parameterized: " + location);
+		}
+		CodecRegistry registry = CodecRegistries.fromProviders(bsonPlugin.codecProviderFor(bosk), new ValueCodecProvider(), new DocumentCodecProvider());
+		Codec<E> entryCodec = bsonPlugin.getCodec(location.entryClass(), location.entryClass(), registry, bosk);
+
+		List<ByteBuffer> segments = new ArrayList<>();
+		long[] positions = new long[16];
+		int numEntries = 0;
+		ByteBuffer staging = ByteBuffer.allocate(segmentSize).order(ByteOrder.LITTLE_ENDIAN);
+		BasicOutputBuffer documentBuffer = new BasicOutputBuffer();
+		for (E entry: entries) {
+			byte[] idBytes = entry.id().toString().getBytes(UTF_8);
+			documentBuffer.truncateToPosition(0);
+			try (BsonBinaryWriter writer = new BsonBinaryWriter(documentBuffer)) {
+				entryCodec.encode(writer, entry, EncoderContext.builder().build());
+			}
+			int entrySize = Integer.BYTES + idBytes.length + documentBuffer.getPosition();
+			if (entrySize > staging.remaining()) {
+				if (staging.position() != 0) {
+					staging.flip();
+					segments.add(allocator.seal(staging));
+					staging.clear();
+				}
+				if (entrySize > staging.capacity()) {
+					// Oversized entry gets its own segment
+					staging = ByteBuffer.allocate(entrySize).order(ByteOrder.LITTLE_ENDIAN);
+				}
+			}
+			if (numEntries == positions.length) {
+				positions = Arrays.copyOf(positions, 2 * numEntries);
+			}
+			positions[numEntries++] = ((long) segments.size() << 32) | staging.position();
+			staging.putInt(idBytes.length);
+			staging.put(idBytes);
+			staging.put(documentBuffer.getInternalBuffer(), 0, documentBuffer.getPosition());
+		}
+		if (staging.position() != 0) {
+			staging.flip();
+			segments.add(allocator.seal(staging));
+		}
+
+		BsonCatalogStore<E> result = new BsonCatalogStore<>(
+			location,
+			bsonPlugin,
+			entryCodec,
+			segments.toArray(new ByteBuffer[0]),
+			Arrays.copyOf(positions, numEntries),
+			new int[tableSizeFor(numEntries)]);
+		result.populateHashTable();
+		return result;
+	}
+
+	private BsonCatalogStore(CatalogReference<E> location, BsonPlugin bsonPlugin, Codec<E> entryCodec, ByteBuffer[] segments, long[] positions, int[] hashTable) {
+		this.location = location;
+		this.bsonPlugin = bsonPlugin;
+		this.entryCodec = entryCodec;
+		this.segments = segments;
+		this.positions = positions;
+		this.hashTable = hashTable;
+	}
+
+	@Override
+	public int size() {
+		return positions.length;
+	}
+
+	@Override
+	public boolean containsID(Identifier id) {
+		return indexOf(id) >= 0;
+	}
+
+	@Override
+	public E get(Identifier id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			return null;
+		}
+		expungeCollectedEntries();
+		while (true) {
+			CachedEntry<E> cached = decodedEntries.get(index);
+			if (cached != null) {
+				E existing = cached.get();
+				if (existing != null) {
+					return existing;
+				}
+			}
+			E decoded = decode(index, id);
+			CachedEntry<E> winner = decodedEntries.merge(index, new CachedEntry<>(index, decoded, collectedEntries),
+				(old, candidate) -> (old.get() == null)? candidate : old);
+			E result = winner.get();
+			if (result != null) {
+				return result;
+			}
+			// The winner was collected before we could grab it; try again.
+		}
+	}
+
+	@Override
+	public Iterator<Identifier> idIterator() {
+		return new Iterator<Identifier>() {
+			int nextIndex = 0;
+
+			@Override
+			public boolean hasNext() {
+				return nextIndex < positions.length;
+			}
+
+			@Override
+			public Identifier next() {
+				if (hasNext()) {
+					return Identifier.from(new String(idBytesAt(nextIndex++), UTF_8));
+				} else {
+					throw new NoSuchElementException();
+				}
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(" + location + ", " + positions.length + " entries in " + segments.length + " segments)";
+	}
+
+	private E decode(int index, Identifier id) {
+		ByteBuffer segment = segments[segmentOf(positions[index])];
+		int idLength = segment.getInt(offsetOf(positions[index]));
+		int documentOffset = offsetOf(positions[index]) + Integer.BYTES + idLength;
+		int documentLength = segment.getInt(documentOffset);
+		ByteBuffer document = segment.duplicate();
+		document.limit(documentOffset + documentLength).position(documentOffset);
+		try (
+			@SuppressWarnings("unused") DeserializationScope scope = bsonPlugin.newDeserializationScope(location.path().then(id.toString()));
+			BsonBinaryReader reader = new BsonBinaryReader(document.slice().order(ByteOrder.LITTLE_ENDIAN))
+		) {
+			return entryCodec.decode(reader, DecoderContext.builder().build());
+		}
+	}
+
+	private void expungeCollectedEntries() {
+		for (java.lang.ref.Reference<? extends E> ref = collectedEntries.poll(); ref != null; ref = collectedEntries.poll()) {
+			CachedEntry<?> entry = (CachedEntry<?>) ref;
+			decodedEntries.remove(entry.index, entry);
+		}
+	}
+
+	//
+	// Hash table
+	//
+
+	private void populateHashTable() {
+		int mask = hashTable.length - 1;
+		for (int index = 0; index < positions.length; index++) {
+			byte[] idBytes = idBytesAt(index);
+			for (int slot = hash(idBytes) & mask; ; slot = (slot + 1) & mask) {
+				int occupant = hashTable[slot] - 1;
+				if (occupant < 0) {
+					hashTable[slot] = index + 1;
+					break;
+				} else if (Arrays.equals(idBytes, idBytesAt(occupant))) {
+					throw new IllegalArgumentException("Multiple entities with id " + new String(idBytes, UTF_8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the entry number having the given <code>id</code>, or -1 if there is none
+	 */
+	private int indexOf(Identifier id) {
+		byte[] idBytes = requireNonNull(id).toString().getBytes(UTF_8);
+		int mask = hashTable.length - 1;
+		for (int slot = hash(idBytes) & mask; ; slot = (slot + 1) & mask) {
+			int candidate = hashTable[slot] - 1;
+			if (candidate < 0) {
+				return -1;
+			} else if (idMatches(candidate, idBytes)) {
+				return candidate;
+			}
+		}
+	}
+
+	private boolean idMatches(int index, byte[] idBytes) {
+		ByteBuffer segment = segments[segmentOf(positions[index])];
+		int offset = offsetOf(positions[index]);
+		if (segment.getInt(offset) != idBytes.length) {
+			return false;
+		}
+		offset += Integer.BYTES;
+		for (int i = 0; i < idBytes.length; i++) {
+			if (segment.get(offset + i) != idBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private byte[] idBytesAt(int index) {
+		ByteBuffer segment = segments[segmentOf(positions[index])];
+		int offset = offsetOf(positions[index]);
+		byte[] result = new byte[segment.getInt(offset)];
+		ByteBuffer idBuffer = segment.duplicate();
+		idBuffer.position(offset + Integer.BYTES);
+		idBuffer.get(result);
+		return result;
+	}
+
+	private static int hash(byte[] bytes) {
+		int h = Arrays.hashCode(bytes);
+		// Spread the high bits downward, since we use only the low bits
+		return h ^ (h >>> 16);
+	}
+
+	private static int tableSizeFor(int numEntries) {
+		// Keep the load factor at or below one half
+		return Math.max(2, Integer.highestOneBit(Math.max(1, numEntries) * 2 - 1) << 1);
+	}
+
+	private static int segmentOf(long position) {
+		return (int) (position >>> 32);
+	}
+
+	private static int offsetOf(long position) {
+		return (int) position;
+	}
+
+	//
+	// Segment allocation
+	//
+
+	interface SegmentAllocator {
+		/**
+		 * @param staged the segment contents, between its position and limit
+		 * @return a read-only buffer with the same contents, in little-endian byte order
+		 */
+		ByteBuffer seal(ByteBuffer staged) throws IOException;
+	}
+
+	static ByteBuffer directBuffer(ByteBuffer staged) {
+		ByteBuffer result = ByteBuffer.allocateDirect(staged.remaining());
+		result.put(staged);
+		result.flip();
+		return result.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer mappedBuffer(FileChannel channel, ByteBuffer staged) throws IOException {
+		long start = channel.size();
+		int length = staged.remaining();
+		while (staged.hasRemaining()) {
+			channel.write(staged, start + (length - staged.remaining()));
+		}
+		// The mapping remains valid after the channel is closed
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static final class CachedEntry<E> extends WeakReference<E> {
+		final int index;
+
+		CachedEntry(int index, E entry, ReferenceQueue<E> queue) {
+			super(entry, queue);
+			this.index = index;
+		}
+	}
+
+	static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+}
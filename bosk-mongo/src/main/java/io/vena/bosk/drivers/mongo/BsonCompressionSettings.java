@@ -0,0 +1,49 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.ListValue;
+import io.vena.bosk.MapValue;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Controls whether {@link BsonPlugin} stores large values as compressed binary.
+ *
+ * <p>
+ * A compressed value is stored as a BSON binary field holding the Deflate-compressed
+ * BSON encoding of the value. Decoding accepts either form regardless of these settings,
+ * so compression can be turned on or off without migrating existing data.
+ *
+ * <p>
+ * Compressed values are opaque to MongoDB, so they can't be queried or updated piecemeal.
+ * For that reason, only value types can be compressed, not types whose contents can be
+ * the target of a {@link io.vena.bosk.Reference Reference}, like
+ * {@link io.vena.bosk.StateTreeNode StateTreeNode}, {@link io.vena.bosk.Catalog Catalog},
+ * {@link io.vena.bosk.Listing Listing}, and {@link io.vena.bosk.SideTable SideTable}.
+ */
+@Value
+@Builder
+public class BsonCompressionSettings {
+	@Default boolean enabled = false;
+
+	/**
+	 * Values whose class is assignable to any of these are candidates for compression.
+	 */
+	@Default Set<Class<?>> compressedClasses = unmodifiableSet(new HashSet<>(asList(ListValue.class, MapValue.class)));
+
+	/**
+	 * Values whose uncompressed encoding is smaller than this are stored uncompressed.
+	 */
+	@Default int thresholdBytes = 16 * 1024;
+
+	/**
+	 * @see Deflater#setLevel
+	 */
+	@Default int level = Deflater.BEST_SPEED;
+}
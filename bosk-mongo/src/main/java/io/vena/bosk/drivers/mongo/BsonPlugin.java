@@ -2,13 +2,17 @@ package io.vena.bosk.drivers.mongo;
 
 import io.vena.bosk.Bosk;
 import io.vena.bosk.Catalog;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
 import io.vena.bosk.ListValue;
 import io.vena.bosk.Listing;
 import io.vena.bosk.ListingEntry;
+import io.vena.bosk.LongListValue;
 import io.vena.bosk.MapValue;
 import io.vena.bosk.Path;
+import io.vena.bosk.PersistentListValue;
 import io.vena.bosk.Phantom;
 import io.vena.bosk.Reference;
 import io.vena.bosk.SerializationPlugin;
@@ -16,6 +20,7 @@ import io.vena.bosk.SideTable;
 import io.vena.bosk.StateTreeNode;
 import io.vena.bosk.exceptions.InvalidTypeException;
 import io.vena.bosk.exceptions.UnexpectedPathException;
+import java.io.ByteArrayOutputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Array;
@@ -24,6 +29,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -35,16 +41,30 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonBinaryWriter;
 import org.bson.BsonReader;
 import org.bson.BsonType;
 import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.EncoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
 import org.bson.codecs.ValueCodecProvider;
 import org.bson.codecs.configuration.CodecProvider;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,11 +85,29 @@ import static java.lang.invoke.MethodHandles.permuteArguments;
 import static java.lang.invoke.MethodType.methodType;
 import static java.util.Collections.synchronizedSet;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 public final class BsonPlugin extends SerializationPlugin {
 	private final ValueCodecProvider valueCodecProvider = new ValueCodecProvider();
 	private final Map<Type, Codec<?>> memoizedCodecs = new ConcurrentHashMap<>();
+	private final BsonCompressionSettings compression;
+
+	public BsonPlugin() {
+		this(BsonCompressionSettings.builder().build());
+	}
+
+	public BsonPlugin(BsonCompressionSettings compression) {
+		for (Class<?> c: compression.compressedClasses()) {
+			if (!isCompressible(c)) {
+				throw new IllegalArgumentException("Cannot compress " + c.getSimpleName() + " because it could contain the target of a Reference");
+			}
+		}
+		if (compression.thresholdBytes() < 0) {
+			throw new IllegalArgumentException("thresholdBytes cannot be negative: " + compression.thresholdBytes());
+		}
+		this.compression = compression;
+	}
 
 	private static MethodHandle computeFactoryHandle(Constructor<?> constructor) throws AssertionError {
 		MethodHandle ctorHandle;
@@ -121,6 +159,12 @@ public final class BsonPlugin extends SerializationPlugin {
 		if (result == null) {
 			result = computeCodec(targetType, targetClass, registry, bosk);
 			if (result != null) {
+				if (isCompressed(targetClass)) {
+					result = compressingCodec(result);
+				} else if (isCompressible(targetClass)) {
+					// Another writer, or this one with different settings, could have compressed it
+					result = decompressingCodec(result);
+				}
 				memoizedCodecs.putIfAbsent(targetType, result);
 			}
 		}
@@ -165,8 +209,16 @@ public final class BsonPlugin extends SerializationPlugin {
 			return sideTableCodec(targetType, targetClass, registry, bosk);
 		} else if (ListValue.class.isAssignableFrom(targetClass)) {
 			return listValueCodec(targetType, targetClass, registry, bosk);
+		} else if (PersistentListValue.class.isAssignableFrom(targetClass)) {
+			return persistentListValueCodec(targetType, targetClass, registry, bosk);
 		} else if (MapValue.class.isAssignableFrom(targetClass)) {
 			return mapValueCodec(targetType, targetClass, registry, bosk);
+		} else if (IntListValue.class.isAssignableFrom(targetClass)) {
+			return intListValueCodec();
+		} else if (LongListValue.class.isAssignableFrom(targetClass)) {
+			return longListValueCodec();
+		} else if (DoubleListValue.class.isAssignableFrom(targetClass)) {
+			return doubleListValueCodec();
 		} else if (Optional.class.isAssignableFrom(targetClass)) {
 			// Optional.empty() can't be serialized on its own because the field name itself must also be omitted
 			throw new IllegalArgumentException("Cannot serialize an Optional on its own; only as a field of another object");
@@ -181,6 +233,149 @@ public final class BsonPlugin extends SerializationPlugin {
 		}
 	}
 
+	private boolean isCompressed(Class<?> targetClass) {
+		if (compression.enabled()) {
+			for (Class<?> c: compression.compressedClasses()) {
+				if (c.isAssignableFrom(targetClass)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return false if the value could contain the target of a Reference,
+	 * in which case no {@link BsonCompressionSettings} can compress it
+	 */
+	private static boolean isCompressible(Class<?> targetClass) {
+		for (Class<?> forbidden: UNCOMPRESSIBLE_CLASSES) {
+			if (forbidden.isAssignableFrom(targetClass) || targetClass.isAssignableFrom(forbidden)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes values whose encoding reaches {@link BsonCompressionSettings#thresholdBytes() thresholdBytes}
+	 * as binary containing the compressed encoding, provided that actually makes them smaller.
+	 * Reads either form.
+	 *
+	 * <p>
+	 * To find out how large a value is, we must encode it; small values are
+	 * then encoded a second time, straight into the destination writer.
+	 */
+	private <T> Codec<T> compressingCodec(Codec<T> plainCodec) {
+		return new Codec<T>() {
+			@Override public Class<T> getEncoderClass() { return plainCodec.getEncoderClass(); }
+
+			@Override
+			public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+				byte[] encoded = encodeWrapped(plainCodec, value, encoderContext);
+				if (encoded.length >= compression.thresholdBytes()) {
+					byte[] compressed = deflate(encoded, compression.level());
+					if (compressed.length < encoded.length) {
+						writer.writeBinaryData(new BsonBinary(COMPRESSED_SUBTYPE, compressed));
+						return;
+					}
+				}
+				plainCodec.encode(writer, value, encoderContext);
+			}
+
+			@Override
+			public T decode(BsonReader reader, DecoderContext decoderContext) {
+				return decodeEitherForm(plainCodec, reader, decoderContext);
+			}
+		};
+	}
+
+	/**
+	 * Writes values uncompressed, regardless of the settings, but reads either form.
+	 */
+	private static <T> Codec<T> decompressingCodec(Codec<T> plainCodec) {
+		return new Codec<T>() {
+			@Override public Class<T> getEncoderClass() { return plainCodec.getEncoderClass(); }
+
+			@Override
+			public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+				plainCodec.encode(writer, value, encoderContext);
+			}
+
+			@Override
+			public T decode(BsonReader reader, DecoderContext decoderContext) {
+				return decodeEitherForm(plainCodec, reader, decoderContext);
+			}
+		};
+	}
+
+	private static <T> T decodeEitherForm(Codec<T> plainCodec, BsonReader reader, DecoderContext decoderContext) {
+		if (reader.getCurrentBsonType() == BsonType.BINARY && reader.peekBinarySubType() == COMPRESSED_SUBTYPE) {
+			byte[] encoded = inflate(reader.readBinaryData().getData());
+			try (BsonBinaryReader compressedReader = new BsonBinaryReader(ByteBuffer.wrap(encoded))) {
+				compressedReader.readStartDocument();
+				compressedReader.readName(WRAPPER_FIELD);
+				T result = plainCodec.decode(compressedReader, decoderContext);
+				compressedReader.readEndDocument();
+				return result;
+			}
+		} else {
+			return plainCodec.decode(reader, decoderContext);
+		}
+	}
+
+	/**
+	 * @return the BSON document <code>{"v": value}</code>, since
+	 * a {@link BsonBinaryWriter} can't write a value on its own.
+	 */
+	private static <T> byte[] encodeWrapped(Codec<T> codec, T value, EncoderContext encoderContext) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			writer.writeStartDocument();
+			writer.writeName(WRAPPER_FIELD);
+			codec.encode(writer, value, encoderContext);
+			writer.writeEndDocument();
+		}
+		return buffer.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] input, int level) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(input);
+			deflater.finish();
+			ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4);
+			byte[] chunk = new byte[8192];
+			while (!deflater.finished()) {
+				output.write(chunk, 0, deflater.deflate(chunk));
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(byte[] input) {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(input);
+			ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+			byte[] chunk = new byte[8192];
+			while (!inflater.finished()) {
+				int length = inflater.inflate(chunk);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new BsonFormatException("Truncated compressed value");
+				}
+				output.write(chunk, 0, length);
+			}
+			return output.toByteArray();
+		} catch (DataFormatException e) {
+			throw new BsonFormatException("Corrupt compressed value", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
 	/**
 	 * Generic classes whose Codecs don't need their type parameters.
 	 */
@@ -378,6 +573,125 @@ public final class BsonPlugin extends SerializationPlugin {
 	}
 
 
+	private <V> Codec<PersistentListValue<V>> persistentListValueCodec(Type listValueType, Class<PersistentListValue<V>> targetClass, CodecRegistry registry, Bosk<?> bosk) {
+		Type entryType = parameterType(listValueType, PersistentListValue.class, 0);
+		@SuppressWarnings("unchecked")
+		Class<V> entryClass = (Class<V>) rawClass(entryType);
+		Codec<V> entryCodec = getCodec(entryType, entryClass, registry, bosk);
+		return new Codec<PersistentListValue<V>>() {
+
+			@Override
+			public Class<PersistentListValue<V>> getEncoderClass() {
+				return targetClass;
+			}
+
+			@Override
+			public void encode(BsonWriter writer, PersistentListValue<V> value, EncoderContext encoderContext) {
+				writer.writeStartArray();
+				for (V entry: value) {
+					entryCodec.encode(writer, entry, encoderContext);
+				}
+				writer.writeEndArray();
+			}
+
+			@Override
+			public PersistentListValue<V> decode(BsonReader reader, DecoderContext decoderContext) {
+				List<V> entries = new ArrayList<>();
+				reader.readStartArray();
+				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					entries.add(entryCodec.decode(reader, decoderContext));
+				}
+				reader.readEndArray();
+				return PersistentListValue.from(entries);
+			}
+
+		};
+	}
+
+	/*
+	 * The primitive list values are written as ordinary BSON arrays of the corresponding
+	 * BSON numeric type, so the database contents remain readable and queryable;
+	 * they just skip the boxing and the per-entry codec dispatch.
+	 */
+
+	private static Codec<IntListValue> intListValueCodec() {
+		return new Codec<IntListValue>() {
+			@Override public Class<IntListValue> getEncoderClass() { return IntListValue.class; }
+
+			@Override
+			public void encode(BsonWriter writer, IntListValue value, EncoderContext encoderContext) {
+				writer.writeStartArray();
+				for (int i = 0; i < value.size(); i++) {
+					writer.writeInt32(value.getInt(i));
+				}
+				writer.writeEndArray();
+			}
+
+			@Override
+			public IntListValue decode(BsonReader reader, DecoderContext decoderContext) {
+				IntStream.Builder entries = IntStream.builder();
+				reader.readStartArray();
+				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					entries.add(reader.readInt32());
+				}
+				reader.readEndArray();
+				return IntListValue.from(entries.build());
+			}
+		};
+	}
+
+	private static Codec<LongListValue> longListValueCodec() {
+		return new Codec<LongListValue>() {
+			@Override public Class<LongListValue> getEncoderClass() { return LongListValue.class; }
+
+			@Override
+			public void encode(BsonWriter writer, LongListValue value, EncoderContext encoderContext) {
+				writer.writeStartArray();
+				for (int i = 0; i < value.size(); i++) {
+					writer.writeInt64(value.getLong(i));
+				}
+				writer.writeEndArray();
+			}
+
+			@Override
+			public LongListValue decode(BsonReader reader, DecoderContext decoderContext) {
+				LongStream.Builder entries = LongStream.builder();
+				reader.readStartArray();
+				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					entries.add(reader.readInt64());
+				}
+				reader.readEndArray();
+				return LongListValue.from(entries.build());
+			}
+		};
+	}
+
+	private static Codec<DoubleListValue> doubleListValueCodec() {
+		return new Codec<DoubleListValue>() {
+			@Override public Class<DoubleListValue> getEncoderClass() { return DoubleListValue.class; }
+
+			@Override
+			public void encode(BsonWriter writer, DoubleListValue value, EncoderContext encoderContext) {
+				writer.writeStartArray();
+				for (int i = 0; i < value.size(); i++) {
+					writer.writeDouble(value.getDouble(i));
+				}
+				writer.writeEndArray();
+			}
+
+			@Override
+			public DoubleListValue decode(BsonReader reader, DecoderContext decoderContext) {
+				DoubleStream.Builder entries = DoubleStream.builder();
+				reader.readStartArray();
+				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					entries.add(reader.readDouble());
+				}
+				reader.readEndArray();
+				return DoubleListValue.from(entries.build());
+			}
+		};
+	}
+
 	private static <R extends Entity> Codec<Reference<?>> referenceCodec(Bosk<R> bosk) {
 		return new Codec<Reference<?>>() {
 			@Override @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -459,25 +773,23 @@ public final class BsonPlugin extends SerializationPlugin {
 
 			@Override
 			public Catalog<E> decode(BsonReader reader, DecoderContext decoderContext) {
-				reader.readStartDocument();
-
-				List<E> entries = new ArrayList<>();
-				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
-					String fieldName = undottedFieldNameSegment(reader.readName());
-					Identifier entryId = Identifier.from(fieldName);
-					E entry;
-					try (@SuppressWarnings("unused") DeserializationScope s = innerDeserializationScope(fieldName)) {
-						entry = entryCodec.decode(reader, decoderContext);
-					}
-					if (entryId.equals(entry.id())) {
-						entries.add(entry);
-					} else {
-						throw new BsonFormatException("Catalog entry ID mismatch: " + entryId + " vs " + entry.id());
+				List<E> entries;
+				if (reader instanceof BsonBinaryReader && !ForkJoinTask.inForkJoinPool()) {
+					entries = decodeEntriesInParallel(reader, decoderContext);
+				} else {
+					entries = new ArrayList<>();
+					reader.readStartDocument();
+					while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+						String fieldName = undottedFieldNameSegment(reader.readName());
+						E entry;
+						try (@SuppressWarnings("unused") DeserializationScope s = innerDeserializationScope(fieldName)) {
+							entry = entryCodec.decode(reader, decoderContext);
+						}
+						entries.add(checkedEntry(fieldName, entry));
 					}
+					reader.readEndDocument();
 				}
 
-				reader.readEndDocument();
-
 				Catalog<E> result =  Catalog.of(entries);
 				if (result.size() > entries.size()) {
 					throw new BsonFormatException("Duplicate entry IDs in catalog");
@@ -485,6 +797,46 @@ public final class BsonPlugin extends SerializationPlugin {
 				return result;
 			}
 
+			/**
+			 * When reading from raw BSON bytes, each entry can be split off cheaply and
+			 * decoded independently, so we decode them in parallel on the common fork-join pool.
+			 * Catalogs nested inside the entries are decoded sequentially by whichever
+			 * pool thread is decoding the enclosing entry.
+			 */
+			private List<E> decodeEntriesInParallel(BsonReader reader, DecoderContext decoderContext) {
+				List<String> fieldNames = new ArrayList<>();
+				List<RawBsonDocument> rawEntries = new ArrayList<>();
+				reader.readStartDocument();
+				while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+					fieldNames.add(undottedFieldNameSegment(reader.readName()));
+					rawEntries.add(RAW_DOCUMENT_CODEC.decode(reader, decoderContext));
+				}
+				reader.readEndDocument();
+
+				DeserializationScope catalogScope = currentDeserializationScope();
+				return IntStream.range(0, rawEntries.size()).parallel().mapToObj(i -> {
+					String fieldName = fieldNames.get(i);
+					E entry;
+					try (
+						@SuppressWarnings("unused") DeserializationScope s1 = copiedDeserializationScope(catalogScope);
+						@SuppressWarnings("unused") DeserializationScope s2 = innerDeserializationScope(fieldName);
+						BsonReader entryReader = rawEntries.get(i).asBsonReader()
+					) {
+						entry = entryCodec.decode(entryReader, decoderContext);
+					}
+					return checkedEntry(fieldName, entry);
+				}).collect(toList());
+			}
+
+			private E checkedEntry(String fieldName, E entry) {
+				Identifier entryId = Identifier.from(fieldName);
+				if (entryId.equals(entry.id())) {
+					return entry;
+				} else {
+					throw new BsonFormatException("Catalog entry ID mismatch: " + entryId + " vs " + entry.id());
+				}
+			}
+
 			private MethodHandle catalogWriterHandle(Class<? extends Entity> entryClass, CodecRegistry codecRegistry, Bosk<R> bosk) {
 				// Curry in the codec suppliers
 				return collectArguments(
@@ -723,6 +1075,11 @@ public final class BsonPlugin extends SerializationPlugin {
 	private static void writeNothing(Object node, BsonWriter writer, EncoderContext context) {}
 
 	private static final Set<String> ALREADY_WARNED = synchronizedSet(new HashSet<>());
+	private static final RawBsonDocumentCodec RAW_DOCUMENT_CODEC = new RawBsonDocumentCodec();
+	private static final byte COMPRESSED_SUBTYPE = BsonBinarySubType.USER_DEFINED.getValue();
+	private static final String WRAPPER_FIELD = "v";
+	private static final List<Class<?>> UNCOMPRESSIBLE_CLASSES = Arrays.asList(
+		StateTreeNode.class, Catalog.class, Listing.class, SideTable.class);
 	private static final Logger LOGGER = LoggerFactory.getLogger(BsonPlugin.class);
 
 	private static final Lookup LOOKUP = lookup();
@@ -0,0 +1,36 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.lang.Nullable;
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+/**
+ * Where a {@link SingleDocumentMongoChangeStreamReceiver} gets its change stream events.
+ * Normally, that's its own change stream on the collection, but it could be a share of
+ * a change stream serving many receivers; see {@link MongoHub}.
+ */
+interface ChangeStreamSource {
+	/**
+	 * @param resumeToken if non-null, the returned cursor should start after the event with this token.
+	 * Sources that take care of resuming by themselves can ignore this.
+	 * @throws IllegalStateException if the source has been closed, so no cursor can ever be opened
+	 */
+	MongoCursor<ChangeStreamDocument<Document>> open(@Nullable BsonDocument resumeToken);
+
+	/**
+	 * @return a source that opens a change stream on <code>collection</code> each time it's asked
+	 */
+	static ChangeStreamSource watching(MongoCollection<Document> collection) {
+		return resumeToken -> {
+			ChangeStreamIterable<Document> iterable = collection.watch();
+			if (resumeToken != null) {
+				iterable = iterable.resumeAfter(resumeToken);
+			}
+			return iterable.iterator();
+		};
+	}
+}
@@ -0,0 +1,128 @@
+package io.vena.bosk.drivers.mongo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import org.bson.ByteBuf;
+import org.bson.io.OutputBuffer;
+
+/**
+ * A {@link org.bson.io.BsonOutput BsonOutput} that streams to a {@link FileChannel}
+ * through a small fixed-size buffer, so that encoding a large document
+ * doesn't require holding the whole encoding in memory.
+ *
+ * <p>
+ * BSON writers go back and fill in each document's length once the document is finished.
+ * If that position has already been written to the channel, it is patched with a positional write.
+ *
+ * <p>
+ * I/O errors are thrown as {@link UncheckedIOException}, because the
+ * {@link OutputBuffer} methods can't throw {@link IOException}.
+ */
+final class ChannelBsonOutput extends OutputBuffer {
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final long startPosition;
+
+	/**
+	 * The position within the output of the first byte in {@link #buffer}.
+	 */
+	private int bufferStart = 0;
+
+	/**
+	 * Writes start at the channel's current position.
+	 */
+	ChannelBsonOutput(FileChannel channel, int bufferSize) throws IOException {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.startPosition = channel.position();
+	}
+
+	/**
+	 * Writes any buffered bytes to the channel.
+	 */
+	@Override
+	public void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bufferStart += buffer.limit();
+		buffer.clear();
+	}
+
+	@Override
+	public void writeBytes(byte[] bytes, int offset, int length) {
+		while (length > 0) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int chunk = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, chunk);
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	@Override
+	public void writeByte(int value) {
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) value);
+	}
+
+	@Override
+	protected void write(int position, int value) {
+		if (position >= bufferStart) {
+			buffer.put(position - bufferStart, (byte) value);
+		} else {
+			ByteBuffer single = ByteBuffer.wrap(new byte[]{ (byte) value });
+			try {
+				channel.write(single, startPosition + position);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public int getPosition() {
+		return bufferStart + buffer.position();
+	}
+
+	@Override
+	public int getSize() {
+		return getPosition();
+	}
+
+	@Override
+	public void truncateToPosition(int newPosition) {
+		if (newPosition < bufferStart || newPosition > getPosition()) {
+			throw new UnsupportedOperationException("Can't truncate to " + newPosition + "; already written up to " + bufferStart);
+		}
+		buffer.position(newPosition - bufferStart);
+	}
+
+	@Override
+	public int pipe(OutputStream out) {
+		throw new UnsupportedOperationException("Output has been written to a file channel");
+	}
+
+	@Override
+	public List<ByteBuf> getByteBuffers() {
+		throw new UnsupportedOperationException("Output has been written to a file channel");
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+}
@@ -0,0 +1,247 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Catalog;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Listing;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.SideTable;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.drivers.mongo.Formatter.DocumentFields;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.vena.bosk.drivers.mongo.Formatter.dottedFieldNameSegment;
+import static io.vena.bosk.drivers.mongo.Formatter.undottedFieldNameSegment;
+
+/**
+ * Does the same translations as {@link Formatter#dottedFieldNameOf} and
+ * {@link Formatter#referenceTo}, but much faster.
+ *
+ * <p>
+ * Those methods work out the structure of the state tree one segment at a time,
+ * using reflection, on every call. But everything they need to know depends only
+ * on the {@link PathCompiler#fullyParameterizedPathOf path template}, so we work it
+ * out once per template, and keep the results in a trie of {@link Node}s
+ * mirroring the state tree. After that, a translation is a walk down the trie
+ * with one hash lookup per segment.
+ *
+ * <p>
+ * Each bosk has a finite variety of path templates, so the trie has a bounded size.
+ */
+final class DottedFieldNameTranslator {
+	private final PathCompiler pathCompiler;
+	private final Node rootNode;
+
+	DottedFieldNameTranslator(Reference<?> rootRef) {
+		this.pathCompiler = PathCompiler.withSourceType(rootRef.targetType());
+		this.rootNode = new Node(rootRef);
+	}
+
+	/**
+	 * @see Formatter#dottedFieldNameOf(Reference, Reference)
+	 */
+	<T> String dottedFieldNameOf(Reference<T> ref, Reference<?> startingRef) {
+		return String.join(".", dottedFieldNameSegments(ref, ref.path().length(), startingRef));
+	}
+
+	/**
+	 * Equivalent to <code>dottedFieldNameOf(Formatter.enclosingReference(ref), startingRef)</code>.
+	 */
+	<T> String enclosingDottedFieldNameOf(Reference<T> ref, Reference<?> startingRef) {
+		assert !ref.path().isEmpty();
+		return String.join(".", dottedFieldNameSegments(ref, ref.path().length() - 1, startingRef));
+	}
+
+	/**
+	 * @see Formatter#dottedFieldNameSegments(Reference, Reference)
+	 */
+	<T> ArrayList<String> dottedFieldNameSegments(Reference<T> ref, Reference<?> startingRef) {
+		return dottedFieldNameSegments(ref, ref.path().length(), startingRef);
+	}
+
+	/**
+	 * @param length how many segments of <code>ref</code>'s path to translate
+	 */
+	private ArrayList<String> dottedFieldNameSegments(Reference<?> ref, int length, Reference<?> startingRef) {
+		assert startingRef.path().isPrefixOf(ref.path()): "'" + ref + "' must be under '" + startingRef + "'";
+		int startingLength = startingRef.path().length();
+		ArrayList<String> segments = new ArrayList<>(1 + 2 * (length - startingLength));
+		segments.add(DocumentFields.state.name());
+		Node node = rootNode;
+		int index = 0;
+		for (String segment: ref.path()) {
+			if (index >= length) {
+				break;
+			}
+			Node child = validChild(node, segment, ref);
+			if (index >= startingLength) {
+				if (node.containerField != null) {
+					segments.add(node.containerField);
+				}
+				segments.add(child.isEntry? dottedFieldNameSegment(segment) : child.dottedName);
+			}
+			node = child;
+			index++;
+		}
+		return segments;
+	}
+
+	/**
+	 * @see Formatter#referenceTo(String, Reference)
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Reference<T> referenceTo(String dottedName, Reference<?> startingRef) throws InvalidTypeException {
+		List<Identifier> ids = new ArrayList<>();
+		Node node = rootNode;
+		for (String segment: startingRef.path()) {
+			node = validChild(node, segment, startingRef);
+			if (node.isEntry) {
+				ids.add(Identifier.from(segment));
+			}
+		}
+
+		DottedNameParser parser = new DottedNameParser(dottedName);
+		parser.skipField(node, DocumentFields.state.name()); // The entire Bosk state is in this field
+		while (parser.hasNext()) {
+			if (node.containerField != null) {
+				parser.skipField(node, node.containerField);
+			}
+			if (parser.hasNext()) {
+				String segment = undottedFieldNameSegment(parser.next());
+				node = node.child(segment);
+				if (node.isEntry) {
+					ids.add(Identifier.from(segment));
+				}
+			}
+		}
+
+		if (ids.isEmpty()) {
+			return (Reference<T>) node.templateRef;
+		} else {
+			return (Reference<T>) node.templateRef.boundBy(node.templateRef.path().parametersFrom(ids));
+		}
+	}
+
+	/**
+	 * For segments of a {@link Reference}'s path, which are known to be valid,
+	 * so this can't throw. Eat the InvalidTypeException.
+	 */
+	private static Node validChild(Node node, String segment, Reference<?> ref) {
+		try {
+			return node.child(segment);
+		} catch (InvalidTypeException e) {
+			throw new AssertionError("Reference path must be valid: '" + ref + "'", e);
+		}
+	}
+
+	/**
+	 * Everything we need to know about one path template.
+	 */
+	private final class Node {
+		final Reference<?> templateRef;
+
+		/**
+		 * True if the last segment of {@link #templateRef} is a parameter.
+		 */
+		final boolean isEntry;
+
+		/**
+		 * For non-entries, the last segment, already in the form used by MongoDB.
+		 */
+		final String dottedName;
+
+		/**
+		 * The extra field name that appears between this object and its entries, if any.
+		 */
+		final String containerField;
+
+		/**
+		 * If true, all children are entries, and they share {@link #entryChild}.
+		 * Otherwise, the children are fields, in {@link #fieldChildren}.
+		 */
+		final boolean hasEntries;
+		volatile Node entryChild;
+		final Map<String, Node> fieldChildren = new ConcurrentHashMap<>();
+
+		Node(Reference<?> templateRef) {
+			this.templateRef = templateRef;
+			Path path = templateRef.path();
+			this.isEntry = !path.isEmpty() && Path.isParameterSegment(path.lastSegment());
+			this.dottedName = (path.isEmpty() || isEntry)? null : dottedFieldNameSegment(path.lastSegment());
+			Class<?> targetClass = templateRef.targetClass();
+			if (Listing.class.isAssignableFrom(targetClass)) {
+				this.containerField = "ids";
+			} else if (SideTable.class.isAssignableFrom(targetClass)) {
+				this.containerField = "valuesById";
+			} else {
+				this.containerField = null;
+			}
+			this.hasEntries = containerField != null || Catalog.class.isAssignableFrom(targetClass);
+		}
+
+		Node child(String segment) throws InvalidTypeException {
+			if (hasEntries) {
+				Node result = entryChild;
+				if (result == null) {
+					// Benign race: two threads could both compute equivalent Nodes
+					result = newChild(segment);
+					entryChild = result;
+				}
+				return result;
+			} else {
+				Node result = fieldChildren.get(segment);
+				if (result == null) {
+					Node newNode = newChild(segment);
+					Node existing = fieldChildren.putIfAbsent(segment, newNode);
+					result = (existing == null)? newNode : existing;
+				}
+				return result;
+			}
+		}
+
+		private Node newChild(String segment) throws InvalidTypeException {
+			Path template = pathCompiler.fullyParameterizedPathOf(templateRef.path().then(segment));
+			return new Node(templateRef.then(Object.class, template.lastSegment()));
+		}
+	}
+
+	/**
+	 * Splits a dotted name into segments without using a regex.
+	 */
+	private static final class DottedNameParser {
+		private final String dottedName;
+		private int position = 0;
+
+		DottedNameParser(String dottedName) {
+			this.dottedName = dottedName;
+		}
+
+		boolean hasNext() {
+			return position <= dottedName.length();
+		}
+
+		String next() {
+			int end = dottedName.indexOf('.', position);
+			if (end == -1) {
+				end = dottedName.length();
+			}
+			String result = dottedName.substring(position, end);
+			position = end + 1;
+			return result;
+		}
+
+		void skipField(Node node, String expectedName) {
+			if (!hasNext()) {
+				throw new IllegalStateException("Expected '" + expectedName + "' for " + node.templateRef.targetClass().getSimpleName() + "; encountered end of dotted field name");
+			}
+			String actualName = next();
+			if (!expectedName.equals(actualName)) {
+				throw new IllegalStateException("Expected '" + expectedName + "' for " + node.templateRef.targetClass().getSimpleName() + "; was: " + actualName);
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ import org.bson.BsonDocumentWriter;
 import org.bson.BsonInt64;
 import org.bson.BsonReader;
 import org.bson.BsonValue;
+import org.bson.BsonWriter;
 import org.bson.Document;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
@@ -43,11 +44,13 @@ final class Formatter {
 	private final CodecRegistry simpleCodecs;
 	private final Function<Type, Codec<?>> preferredBoskCodecs;
 	private final Function<Reference<?>, SerializationPlugin.DeserializationScope> deserializationScopeFunction;
+	private final DottedFieldNameTranslator fieldNames;
 
 	Formatter(Bosk<?> bosk, BsonPlugin bsonPlugin) {
 		this.simpleCodecs = CodecRegistries.fromProviders(bsonPlugin.codecProviderFor(bosk), new ValueCodecProvider(), new DocumentCodecProvider());
 		this.preferredBoskCodecs = type -> bsonPlugin.getCodec(type, rawClass(type), simpleCodecs, bosk);
 		this.deserializationScopeFunction = bsonPlugin::newDeserializationScope;
+		this.fieldNames = new DottedFieldNameTranslator(bosk.rootReference());
 	}
 
 	/**
@@ -90,6 +93,14 @@ final class Formatter {
 	// Helpers to translate Bosk <-> MongoDB
 	//
 
+	/**
+	 * @return a faster alternative to the static {@link #dottedFieldNameOf} and {@link #referenceTo}
+	 * methods, for use on performance-sensitive paths.
+	 */
+	DottedFieldNameTranslator fieldNames() {
+		return fieldNames;
+	}
+
 	Codec<?> codecFor(Type type) {
 		// BsonPlugin gives better codecs than CodecRegistry, because BsonPlugin is aware of generics,
 		// so we always try that first. The CodecSupplier protocol uses "null" to indicate that another
@@ -150,6 +161,33 @@ final class Formatter {
 		}
 	}
 
+	/**
+	 * Like {@link #object2bsonValue}, but writes directly to <code>writer</code>,
+	 * which must be positioned where a value is expected.
+	 *
+	 * @see #readValue(BsonReader, Reference)
+	 */
+	@SuppressWarnings("unchecked")
+	<T> void writeValue(BsonWriter writer, T object, Type type) {
+		rawClass(type).cast(object);
+		Codec<T> objectCodec = (Codec<T>) codecFor(type);
+		objectCodec.encode(writer, object, EncoderContext.builder().build());
+	}
+
+	/**
+	 * Like {@link #bsonValue2object}, but reads directly from <code>reader</code>,
+	 * which must be positioned at a value.
+	 *
+	 * @see #writeValue(BsonWriter, Object, Type)
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T readValue(BsonReader reader, Reference<T> target) {
+		Codec<T> objectCodec = (Codec<T>) codecFor(target.targetType());
+		try (@SuppressWarnings("unused") BsonPlugin.DeserializationScope scope = deserializationScopeFunction.apply(target)) {
+			return objectCodec.decode(reader, DecoderContext.builder().build());
+		}
+	}
+
 	/**
 	 * @return MongoDB field name corresponding to the given Reference
 	 * @see #referenceTo(String, Reference)
@@ -0,0 +1,455 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Bosk.NonexistentEntryException;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.dereferencers.Dereferencer;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Records each update in a local, append-only, memory-mapped journal before
+ * submitting it downstream, and periodically writes a snapshot of the bosk state.
+ * On startup, {@link #initialRoot} rebuilds the state from the latest snapshot plus
+ * the journal entries that follow it, which is typically much faster than
+ * loading the state from elsewhere.
+ *
+ * <p>
+ * Values are encoded using {@link BsonPlugin}, the same way {@link MongoDriver} encodes them.
+ * Replaying the journal applies updates the same way the bosk itself would:
+ * updates whose enclosing object doesn't exist, and conditional updates
+ * whose precondition doesn't hold, have no effect.
+ *
+ * <p>
+ * When a journal is found, the downstream driver's {@link BoskDriver#initialRoot initialRoot}
+ * is not called, so the downstream driver's state must be entirely determined by
+ * the updates submitted through this driver. The bosk's local driver, or
+ * an in-memory partition of a {@link io.vena.bosk.drivers.RoutingDriver RoutingDriver},
+ * are suitable. When there is no journal, the downstream driver supplies
+ * the initial root as usual, and it becomes the first snapshot.
+ *
+ * <p>
+ * The journal is written to the operating system's page cache on every update, so it
+ * survives a crash of the JVM; {@link #flush()} also forces it to the storage device.
+ */
+public class JournalingDriver<R extends Entity> implements BoskDriver<R> {
+	private final Bosk<R> bosk;
+	private final BoskDriver<R> downstream;
+	private final File directory;
+	private final JournalingDriverSettings settings;
+	private final BsonPlugin bsonPlugin;
+	private final Formatter formatter;
+	private final ExecutorService snapshotExecutor;
+	private volatile PathCompiler pathCompiler;
+
+	// Guarded by "this"
+	private FileChannel journalChannel;
+	private MappedByteBuffer journal;
+	private long lastSequence = 0;
+	private int updatesSinceSnapshot = 0;
+	private boolean snapshotInProgress = false;
+
+	/**
+	 * @param directory holds the journal and snapshot files. Created if it doesn't exist.
+	 * Only one bosk at a time may use a given directory.
+	 */
+	public static <RR extends Entity> DriverFactory<RR> factory(File directory, BsonPlugin bsonPlugin, JournalingDriverSettings settings) {
+		return (b, d) -> new JournalingDriver<>(b, d, directory, bsonPlugin, settings);
+	}
+
+	protected JournalingDriver(Bosk<R> bosk, BoskDriver<R> downstream, File directory, BsonPlugin bsonPlugin, JournalingDriverSettings settings) {
+		if (settings.snapshotIntervalUpdates() < 1) {
+			throw new IllegalArgumentException("snapshotIntervalUpdates must be positive: " + settings.snapshotIntervalUpdates());
+		} else if (settings.journalFileSizeBytes() < 1024) {
+			throw new IllegalArgumentException("journalFileSizeBytes is unreasonably small: " + settings.journalFileSizeBytes());
+		}
+		this.bosk = bosk;
+		this.downstream = downstream;
+		this.directory = directory;
+		this.settings = settings;
+		this.bsonPlugin = bsonPlugin;
+		this.formatter = new Formatter(bosk, bsonPlugin);
+		String threadName = format("journal-snapshot-%08x", identityHashCode(this));
+		this.snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public synchronized R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create journal directory " + directory);
+		}
+		pathCompiler = PathCompiler.withSourceType(rootType);
+		SnapshotFile.Snapshot<R> current;
+		if (filesWithPrefix(SNAPSHOT_PREFIX).length == 0) {
+			LOGGER.debug("No snapshot in {}; delegating downstream", directory);
+			current = new SnapshotFile.Snapshot<>(downstream.initialRoot(rootType), 0);
+			writeSnapshot(current);
+		} else {
+			SnapshotFile.Snapshot<R> latest = readLatestSnapshot();
+			current = replayJournal(latest, Long.MAX_VALUE);
+			LOGGER.debug("Replayed journal records after snapshot {} through {}", latest.revision(), current.revision());
+		}
+		lastSequence = current.revision();
+		startJournalFile(settings.journalFileSizeBytes());
+		return current.root();
+	}
+
+	@Override
+	public synchronized <T> void submitReplacement(Reference<T> target, T newValue) {
+		BsonDocument record = newRecord(REPLACE, target);
+		record.put(VALUE_FIELD, formatter.object2bsonValue(newValue, target.targetType()));
+		append(record);
+		downstream.submitReplacement(target, newValue);
+	}
+
+	@Override
+	public synchronized <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		BsonDocument record = newRecord(REPLACE, target, precondition, requiredValue);
+		record.put(VALUE_FIELD, formatter.object2bsonValue(newValue, target.targetType()));
+		append(record);
+		downstream.submitConditionalReplacement(target, newValue, precondition, requiredValue);
+	}
+
+	@Override
+	public synchronized <T> void submitInitialization(Reference<T> target, T newValue) {
+		BsonDocument record = newRecord(INITIALIZE, target);
+		record.put(VALUE_FIELD, formatter.object2bsonValue(newValue, target.targetType()));
+		append(record);
+		downstream.submitInitialization(target, newValue);
+	}
+
+	@Override
+	public synchronized <T> void submitDeletion(Reference<T> target) {
+		append(newRecord(DELETE, target));
+		downstream.submitDeletion(target);
+	}
+
+	@Override
+	public synchronized <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		append(newRecord(DELETE, target, precondition, requiredValue));
+		downstream.submitConditionalDeletion(target, precondition, requiredValue);
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		synchronized (this) {
+			if (journal != null) {
+				journal.force();
+			}
+		}
+		downstream.flush();
+	}
+
+	/**
+	 * Waits for any snapshot in progress, and then closes the journal.
+	 * Subsequent updates will fail.
+	 * There's usually no reason to call this outside of tests.
+	 */
+	public void close() throws IOException, InterruptedException {
+		snapshotExecutor.shutdown();
+		snapshotExecutor.awaitTermination(60, SECONDS);
+		synchronized (this) {
+			if (journal != null) {
+				journal.force();
+				journal = null;
+				journalChannel.close();
+			}
+		}
+	}
+
+	//
+	// Journal
+	//
+
+	private BsonDocument newRecord(String operation, Reference<?> target) {
+		return new BsonDocument()
+			.append(OPERATION_FIELD, new BsonString(operation))
+			.append(PATH_FIELD, new BsonString(target.path().urlEncoded()));
+	}
+
+	private BsonDocument newRecord(String operation, Reference<?> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		return newRecord(operation, target)
+			.append(PRECONDITION_FIELD, new BsonString(precondition.path().urlEncoded()))
+			.append(REQUIRED_VALUE_FIELD, new BsonString(requiredValue.toString()));
+	}
+
+	private void append(BsonDocument record) {
+		if (journal == null) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		record.put(SEQUENCE_FIELD, new BsonInt64(lastSequence + 1));
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			DOCUMENT_CODEC.encode(writer, record, EncoderContext.builder().build());
+		}
+		int length = buffer.getPosition();
+		// Leave room for a zero length afterward, marking the end of the journal
+		int required = length + 2 * Integer.BYTES;
+		try {
+			if (journal.remaining() < required) {
+				startJournalFile(Math.max(required, settings.journalFileSizeBytes()));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to start new journal file", e);
+		}
+
+		// Write the length last, so a partially written record looks like the end of the journal
+		int start = journal.position();
+		journal.position(start + Integer.BYTES);
+		journal.put(buffer.getInternalBuffer(), 0, length);
+		journal.putInt(start, length);
+		lastSequence++;
+
+		if (++updatesSinceSnapshot >= settings.snapshotIntervalUpdates() && !snapshotInProgress) {
+			snapshotInProgress = true;
+			updatesSinceSnapshot = 0;
+			snapshotExecutor.execute(this::takeSnapshot);
+		}
+	}
+
+	/**
+	 * Journal files are named for the sequence number of their first record,
+	 * so those written after a given snapshot never sort before it.
+	 */
+	private void startJournalFile(int size) throws IOException {
+		if (journal != null) {
+			journal.force();
+			journalChannel.close();
+		}
+		File file = new File(directory, fileName(JOURNAL_PREFIX, lastSequence + 1));
+		LOGGER.debug("Starting journal file {}", file);
+		journalChannel = FileChannel.open(file.toPath(), CREATE, TRUNCATE_EXISTING, READ, WRITE);
+		journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		journal.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the state after applying, to the given snapshot, the journal records that
+	 * follow it, up to and including <code>throughSequence</code>; and the sequence number
+	 * of the last record applied.
+	 */
+	private SnapshotFile.Snapshot<R> replayJournal(SnapshotFile.Snapshot<R> snapshot, long throughSequence) throws IOException, InvalidTypeException {
+		R result = snapshot.root();
+		long lastReplayed = snapshot.revision();
+		for (File file: filesWithPrefix(JOURNAL_PREFIX)) {
+			if (sequenceOf(file, JOURNAL_PREFIX) > throughSequence) {
+				// This and all later files start after throughSequence
+				break;
+			}
+			ByteBuffer records;
+			try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+				records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			while (records.remaining() >= Integer.BYTES) {
+				int length = records.getInt();
+				if (length <= 0 || length > records.remaining()) {
+					break;
+				}
+				byte[] bytes = new byte[length];
+				records.get(bytes);
+				BsonDocument record = new RawBsonDocument(bytes);
+				long sequence = record.getInt64(SEQUENCE_FIELD).getValue();
+				if (sequence > throughSequence) {
+					break;
+				} else if (sequence > lastReplayed) {
+					result = replay(result, record);
+					lastReplayed = sequence;
+				}
+			}
+		}
+		return new SnapshotFile.Snapshot<>(result, lastReplayed);
+	}
+
+	@SuppressWarnings("unchecked")
+	private R replay(R root, BsonDocument record) throws InvalidTypeException {
+		Reference<Object> target = bosk.reference(Object.class, Path.parse(record.getString(PATH_FIELD).getValue()));
+		Dereferencer dereferencer = pathCompiler.compiled(target.path());
+		try {
+			if (record.containsKey(PRECONDITION_FIELD)) {
+				Reference<Identifier> precondition = bosk.reference(Identifier.class, Path.parse(record.getString(PRECONDITION_FIELD).getValue()));
+				Identifier requiredValue = Identifier.from(record.getString(REQUIRED_VALUE_FIELD).getValue());
+				if (!requiredValue.equals(pathCompiler.compiled(precondition.path()).get(root, precondition))) {
+					return root;
+				}
+			}
+			String operation = record.getString(OPERATION_FIELD).getValue();
+			switch (operation) {
+				case REPLACE:
+					return (R) dereferencer.with(root, target, formatter.bsonValue2object(record.get(VALUE_FIELD), target));
+				case INITIALIZE:
+					try {
+						dereferencer.get(root, target);
+						return root;
+					} catch (NonexistentEntryException e) {
+						return (R) dereferencer.with(root, target, formatter.bsonValue2object(record.get(VALUE_FIELD), target));
+					}
+				case DELETE:
+					return (R) dereferencer.without(root, target);
+				default:
+					throw new IllegalStateException("Unknown journal operation \"" + operation + "\"");
+			}
+		} catch (NonexistentEntryException e) {
+			// Same as the bosk itself: the update has no effect
+			return root;
+		}
+	}
+
+	//
+	// Snapshots
+	//
+
+	/**
+	 * Computes the new snapshot by replaying the journal onto the previous one,
+	 * rather than reading the bosk's current state, so the snapshot holds exactly the
+	 * effects of the records up to its sequence number, regardless of how far
+	 * the downstream driver has gotten. A snapshot that included the effects of later
+	 * records would be wrong: replaying those records again on restart is not
+	 * generally harmless, because conditional updates could then see the wrong state.
+	 *
+	 * <p>
+	 * The previous snapshot is read back from its file rather than kept in memory,
+	 * so the decoded state is held only while the new snapshot is being written.
+	 */
+	private void takeSnapshot() {
+		try {
+			long sequence;
+			synchronized (this) {
+				sequence = lastSequence;
+				// Closes the journal file containing the last record we need
+				startJournalFile(settings.journalFileSizeBytes());
+			}
+			writeSnapshot(replayJournal(readLatestSnapshot(), sequence));
+			deleteFilesBefore(sequence);
+		} catch (IOException | InvalidTypeException | RuntimeException e) {
+			LOGGER.error("Unable to write snapshot; journal will continue to grow", e);
+		} finally {
+			synchronized (this) {
+				snapshotInProgress = false;
+			}
+		}
+	}
+
+	private SnapshotFile.Snapshot<R> readLatestSnapshot() throws IOException {
+		File[] snapshots = filesWithPrefix(SNAPSHOT_PREFIX);
+		return new SnapshotFile<>(snapshots[snapshots.length - 1], bosk, bsonPlugin).read();
+	}
+
+	/**
+	 * The snapshot's revision is the sequence number of the last journal record it includes.
+	 */
+	private void writeSnapshot(SnapshotFile.Snapshot<R> snapshot) throws IOException {
+		new SnapshotFile<>(new File(directory, fileName(SNAPSHOT_PREFIX, snapshot.revision())), bosk, bsonPlugin)
+			.write(snapshot.root(), snapshot.revision());
+	}
+
+	/**
+	 * Deletes snapshots older than the given sequence number, along with
+	 * journal files containing only records that are in the snapshot.
+	 */
+	private void deleteFilesBefore(long snapshotSequence) {
+		List<File> obsolete = new ArrayList<>();
+		for (File snapshot: filesWithPrefix(SNAPSHOT_PREFIX)) {
+			if (sequenceOf(snapshot, SNAPSHOT_PREFIX) < snapshotSequence) {
+				obsolete.add(snapshot);
+			}
+		}
+		File[] journals = filesWithPrefix(JOURNAL_PREFIX);
+		for (int i = 0; i + 1 < journals.length; i++) {
+			// Journal i ends where journal i+1 begins
+			if (sequenceOf(journals[i + 1], JOURNAL_PREFIX) <= snapshotSequence + 1) {
+				obsolete.add(journals[i]);
+			}
+		}
+		for (File file: obsolete) {
+			if (!file.delete()) {
+				LOGGER.warn("Unable to delete obsolete file {}", file);
+			}
+		}
+	}
+
+	/**
+	 * @return files in sequence order
+	 */
+	private File[] filesWithPrefix(String prefix) {
+		File[] result = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(SUFFIX));
+		if (result == null) {
+			return new File[0];
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	private static String fileName(String prefix, long sequence) {
+		return format("%s%020d%s", prefix, sequence, SUFFIX);
+	}
+
+	private static long sequenceOf(File file, String prefix) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+	}
+
+	@Override
+	public String toString() {
+		return "JournalingDriver{" +
+			"directory=" + directory +
+			", downstream=" + downstream +
+			'}';
+	}
+
+	private static final String JOURNAL_PREFIX = "journal-";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SUFFIX = ".bson";
+
+	private static final String SEQUENCE_FIELD = "seq";
+	private static final String OPERATION_FIELD = "op";
+	private static final String PATH_FIELD = "path";
+	private static final String VALUE_FIELD = "value";
+	private static final String PRECONDITION_FIELD = "precondition";
+	private static final String REQUIRED_VALUE_FIELD = "requiredValue";
+
+	private static final String REPLACE = "replace";
+	private static final String INITIALIZE = "initialize";
+	private static final String DELETE = "delete";
+
+	private static final BsonDocumentCodec DOCUMENT_CODEC = new BsonDocumentCodec();
+	private static final Logger LOGGER = LoggerFactory.getLogger(JournalingDriver.class);
+}
@@ -0,0 +1,21 @@
+package io.vena.bosk.drivers.mongo;
+
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+@Value
+@Builder
+public class JournalingDriverSettings {
+	/**
+	 * After this many updates have been journaled, a snapshot of the bosk state
+	 * is written in the background, and the journal files it supersedes are deleted.
+	 */
+	@Default int snapshotIntervalUpdates = 100_000;
+
+	/**
+	 * Size of each memory-mapped journal file. When one fills up, another is started.
+	 * An update too large to fit in a file of this size gets a larger file of its own.
+	 */
+	@Default int journalFileSizeBytes = 64 * 1024 * 1024;
+}
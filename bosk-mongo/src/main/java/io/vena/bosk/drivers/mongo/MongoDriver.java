@@ -5,6 +5,10 @@ import io.vena.bosk.Bosk;
 import io.vena.bosk.BoskDriver;
 import io.vena.bosk.DriverFactory;
 import io.vena.bosk.Entity;
+import io.vena.bosk.Path;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public interface MongoDriver<R extends Entity> extends BoskDriver<R> {
 	/**
@@ -25,6 +29,26 @@ public interface MongoDriver<R extends Entity> extends BoskDriver<R> {
 	 */
 	void refurbish();
 
+	/**
+	 * Like {@link #refurbish()}, but a piece at a time, for databases too large
+	 * to rewrite comfortably in one transaction.
+	 *
+	 * <p>
+	 * Re-serializes the state and compares it, chunk by chunk, against what's stored,
+	 * where a chunk is an entry of a {@link io.vena.bosk.Catalog Catalog}
+	 * or a field of a {@link io.vena.bosk.StateTreeNode StateTreeNode}
+	 * that isn't itself a Catalog or StateTreeNode.
+	 * Only chunks whose serialized form has changed are written, in small updates.
+	 * Each update is conditional on the chunk still having its stored value,
+	 * so a concurrent update of the same chunk takes precedence.
+	 *
+	 * <p>
+	 * This default implementation simply calls {@link #refurbish()}.
+	 */
+	default void refurbishIncrementally(RefurbishSettings refurbishSettings) throws InterruptedException {
+		refurbish();
+	}
+
 	/**
 	 * Frees up resources used by this driver and leaves it unusable.
 	 *
@@ -34,6 +58,26 @@ public interface MongoDriver<R extends Entity> extends BoskDriver<R> {
 	 */
 	void close();
 
+	/**
+	 * Like {@link #flush()}, but returns immediately.
+	 *
+	 * <p>
+	 * This default implementation simply calls {@link #flush()} on a thread from the common pool.
+	 * Implementations may do better; see {@link MongoDriverSettings.FlushMode#REVISION_FIELD_COALESCED}.
+	 *
+	 * @return a future that completes when the flush is done, or completes exceptionally
+	 * with the exception that {@link #flush()} would have thrown.
+	 */
+	default CompletableFuture<Void> flushAsync() {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				flush();
+			} catch (IOException | InterruptedException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
 	static <RR extends Entity> MongoDriverFactory<RR> factory(
 		MongoClientSettings clientSettings,
 		MongoDriverSettings driverSettings,
@@ -42,6 +86,39 @@ public interface MongoDriver<R extends Entity> extends BoskDriver<R> {
 		return (b, d) -> new SingleDocumentMongoDriver<>(b, clientSettings, driverSettings, bsonPlugin, d);
 	}
 
+	/**
+	 * Like {@link #factory}, but rather than storing the entire bosk state in one document,
+	 * stores each entry of the {@link io.vena.bosk.Catalog Catalog} at <code>partitionPath</code>
+	 * in its own document, so the state is not subject to MongoDB's document size limit
+	 * as long as each entry, and everything outside the catalog, fits in a document.
+	 *
+	 * @param partitionPath must refer to a Catalog and must not be parameterized
+	 */
+	static <RR extends Entity> MongoDriverFactory<RR> partitionedFactory(
+		MongoClientSettings clientSettings,
+		MongoDriverSettings driverSettings,
+		BsonPlugin bsonPlugin,
+		Path partitionPath
+	) {
+		return (b, d) -> new PartitionedMongoDriver<>(b, clientSettings, driverSettings, bsonPlugin, partitionPath, d);
+	}
+
+	/**
+	 * Like {@link #factory}, but built on the MongoDB reactive streams driver,
+	 * so that updates, change stream processing, and {@link #flushAsync()}
+	 * don't tie up any threads while waiting for the database.
+	 *
+	 * <p>
+	 * Uses the same database layout as {@link #factory}.
+	 */
+	static <RR extends Entity> MongoDriverFactory<RR> reactiveFactory(
+		MongoClientSettings clientSettings,
+		MongoDriverSettings driverSettings,
+		BsonPlugin bsonPlugin
+	) {
+		return (b, d) -> new ReactiveMongoDriver<>(b, clientSettings, driverSettings, bsonPlugin, d);
+	}
+
 	interface MongoDriverFactory<RR extends Entity> extends DriverFactory<RR> {
 		@Override MongoDriver<RR> build(Bosk<RR> bosk, BoskDriver<RR> downstream);
 	}
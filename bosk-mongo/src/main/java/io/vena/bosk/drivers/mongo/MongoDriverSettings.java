@@ -13,8 +13,47 @@ public class MongoDriverSettings {
 
 	@Default long flushTimeoutMS = 30_000;
 	@Default FlushMode flushMode = FlushMode.ECHO;
+
+	/**
+	 * For {@link MongoDriver#partitionedFactory partitioned} drivers, the maximum number of
+	 * cursors used in parallel to read the partition documents during {@link BoskDriver#initialRoot}.
+	 */
+	@Default int initialLoadParallelism = 4;
+
+	/**
+	 * The number of threads used to decode the fields of a change stream event in parallel.
+	 * Decoded updates are still applied downstream one at a time, in order.
+	 */
+	@Default int eventDecodeParallelism = 4;
+
+	@Default Pipelining pipelining = Pipelining.builder().build();
 	@Default Testing testing = Testing.builder().build();
 
+	/**
+	 * Controls whether updates are written to the database one at a time, synchronously,
+	 * or queued and written in batches by a background thread.
+	 * When pipelining is enabled, the submit methods return once the update is queued,
+	 * and {@link BoskDriver#flush() flush} waits for queued updates to be written.
+	 * Not yet supported by {@link MongoDriver#partitionedFactory partitioned} drivers,
+	 * which always write synchronously.
+	 */
+	@Value
+	@Builder
+	public static class Pipelining {
+		@Default boolean enabled = false;
+
+		/**
+		 * The maximum number of updates written in one round trip.
+		 */
+		@Default int maxBatchSize = 500;
+
+		/**
+		 * How long to wait for more updates to arrive before writing a batch
+		 * smaller than {@link #maxBatchSize}.
+		 */
+		@Default long lingerMS = 2;
+	}
+
 	@Value
 	@Builder
 	static class Testing {
@@ -52,5 +91,22 @@ public class MongoDriverSettings {
 		 * and runs as quickly as a single database read.
 		 */
 		REVISION_FIELD_ONLY,
+
+		/**
+		 * <strong>Experimental</strong>
+		 *
+		 * <p>
+		 * Like {@link #REVISION_FIELD_ONLY}, but concurrent flushes share revision reads:
+		 * a flush joins the next read that hasn't started yet, so any number of concurrent
+		 * flushes cause only one read at a time, with at most one more queued behind it.
+		 * Flushes waiting for a revision are not parked on a lock; they're waiting on
+		 * futures that the event processing thread completes as revisions arrive.
+		 * This is also the mode in which {@link MongoDriver#flushAsync()} doesn't tie up a thread.
+		 *
+		 * <p>
+		 * Not yet supported by {@link MongoDriver#partitionedFactory partitioned} drivers,
+		 * which treat it as {@link #REVISION_FIELD_ONLY}.
+		 */
+		REVISION_FIELD_COALESCED,
 	}
 }
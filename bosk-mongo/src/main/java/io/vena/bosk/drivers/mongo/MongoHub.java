@@ -0,0 +1,317 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.lang.Nullable;
+import io.vena.bosk.Entity;
+import io.vena.bosk.drivers.mongo.MongoDriver.MongoDriverFactory;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Filters.eq;
+import static io.vena.bosk.drivers.mongo.SingleDocumentMongoDriver.COLLECTION_NAME;
+import static java.lang.String.format;
+import static java.lang.System.identityHashCode;
+import static java.util.Collections.singletonList;
+
+/**
+ * Lets many bosks share one {@link MongoClient} and one change stream.
+ *
+ * <p>
+ * Each driver from {@link MongoDriver#factory} has its own client, with its own
+ * connection pool, and its own change stream. That's fine for a handful of bosks,
+ * but a process with hundreds of them would have hundreds of each.
+ * Drivers from {@link #factory} instead share the hub's client, and get their
+ * change stream events from a single cluster-wide change stream that the hub
+ * demultiplexes by {@link MongoNamespace namespace}, so the server only has
+ * one change stream to serve, no matter how many bosks there are.
+ *
+ * <p>
+ * Events are queued separately for each driver, so a bosk that's slow to
+ * process its events doesn't hold up the others.
+ * Each queue has a fixed capacity; a driver that falls further behind than
+ * that is cut loose from the hub's change stream, and resumes from its last
+ * processed event on a change stream of its own.
+ * Otherwise, the hub takes care of resuming its change stream after errors,
+ * so the drivers never need to.
+ *
+ * <p>
+ * Closing a driver doesn't close the hub; closing the hub renders all its drivers unusable.
+ */
+public final class MongoHub implements Closeable {
+	private final MongoClientSettings clientSettings;
+	private final MongoClient mongoClient;
+	private final Map<MongoNamespace, List<SharedCursor>> cursorsByNamespace = new ConcurrentHashMap<>();
+	private final Thread eventThread;
+	private final AtomicBoolean isClosed = new AtomicBoolean(false);
+	private final String identityString = format("%08x", identityHashCode(this));
+
+	private volatile MongoCursor<ChangeStreamDocument<Document>> eventCursor;
+	private volatile BsonDocument lastResumeToken = null;
+
+	private MongoHub(MongoClientSettings clientSettings) {
+		this.clientSettings = clientSettings;
+		this.mongoClient = MongoClients.create(clientSettings);
+		// Open the cursor before returning, so drivers see every event that happens after they subscribe
+		this.eventCursor = openCursor();
+		this.eventThread = new Thread(this::eventLoop, "mongo-hub-" + identityString);
+		eventThread.setDaemon(true);
+		eventThread.start();
+	}
+
+	public static MongoHub create(MongoClientSettings clientSettings) {
+		return new MongoHub(clientSettings);
+	}
+
+	/**
+	 * Like {@link MongoDriver#factory}, but the drivers share this hub's client and change stream.
+	 */
+	public <RR extends Entity> MongoDriverFactory<RR> factory(MongoDriverSettings driverSettings, BsonPlugin bsonPlugin) {
+		return (b, d) -> new SingleDocumentMongoDriver<>(b, clientSettings, driverSettings, bsonPlugin, d, this);
+	}
+
+	MongoClient client() {
+		if (isClosed.get()) {
+			throw new IllegalStateException("MongoHub " + identityString + " is closed");
+		}
+		return mongoClient;
+	}
+
+	/**
+	 * @return a source whose cursors receive this hub's events for the given namespace.
+	 * The hub resumes its own change stream, so a shared cursor only fails if it
+	 * {@link SharedCursor#overflow() overflows}. Hence, when given a resume token,
+	 * the source assumes the receiver fell behind, and opens a change stream of its own.
+	 */
+	ChangeStreamSource changeStreamSource(MongoNamespace namespace) {
+		return resumeToken -> {
+			if (isClosed.get()) {
+				throw new IllegalStateException("MongoHub " + identityString + " is closed");
+			}
+			if (resumeToken != null) {
+				LOGGER.debug("Opening separate cursor on {} resuming after {}", namespace, resumeToken);
+				return mongoClient
+					.getDatabase(namespace.getDatabaseName())
+					.getCollection(namespace.getCollectionName())
+					.watch()
+					.resumeAfter(resumeToken)
+					.iterator();
+			}
+			SharedCursor result = new SharedCursor(namespace);
+			cursorsByNamespace.computeIfAbsent(namespace, n -> new CopyOnWriteArrayList<>()).add(result);
+			LOGGER.debug("Opened shared cursor on {} for hub {}", namespace, identityString);
+			return result;
+		};
+	}
+
+	@Override
+	public void close() {
+		if (isClosed.compareAndSet(false, true)) {
+			LOGGER.debug("Closing hub {}", identityString);
+			try {
+				eventCursor.close();
+				eventThread.interrupt();
+				cursorsByNamespace.values().forEach(cursors -> cursors.forEach(SharedCursor::close));
+			} finally {
+				mongoClient.close();
+			}
+		}
+	}
+
+	private MongoCursor<ChangeStreamDocument<Document>> openCursor() {
+		// The drivers only care about one collection name, so let the server do the filtering
+		ChangeStreamIterable<Document> iterable = mongoClient.watch(singletonList(match(eq("ns.coll", COLLECTION_NAME))));
+		BsonDocument resumeToken = lastResumeToken;
+		if (resumeToken != null) {
+			iterable = iterable.resumeAfter(resumeToken);
+		}
+		return iterable.iterator();
+	}
+
+	private void eventLoop() {
+		try {
+			while (!isClosed.get()) {
+				ChangeStreamDocument<Document> event;
+				try {
+					event = eventCursor.next();
+				} catch (MongoException e) {
+					if (isClosed.get()) {
+						LOGGER.trace("Hub is closed. Exiting event loop", e);
+						break;
+					} else {
+						LOGGER.warn("Lost change stream cursor; reconnecting", e);
+						reconnectCursor();
+						continue;
+					}
+				}
+				dispatch(event);
+				lastResumeToken = event.getResumeToken();
+			}
+		} catch (Throwable e) {
+			LOGGER.error("Fatal error on MongoHub event thread", e);
+			throw e;
+		} finally {
+			LOGGER.debug("Terminating MongoHub event thread");
+		}
+	}
+
+	private void dispatch(ChangeStreamDocument<Document> event) {
+		MongoNamespace namespace = event.getNamespace();
+		if (namespace == null) {
+			LOGGER.debug("Ignoring event with no namespace: {}", event);
+			return;
+		}
+		List<SharedCursor> cursors = cursorsByNamespace.get(namespace);
+		if (cursors == null) {
+			LOGGER.trace("No cursors for {}", namespace);
+			return;
+		}
+		for (SharedCursor cursor: cursors) {
+			if (!cursor.events.offer(event)) {
+				cursor.overflow();
+			}
+		}
+	}
+
+	private void reconnectCursor() {
+		try {
+			eventCursor.close();
+		} catch (Exception e) {
+			LOGGER.warn("Unable to close event stream cursor", e);
+		}
+		if (lastResumeToken == null) {
+			LOGGER.error("No resume token available. Reconnecting cursor from current location. Some update events could be missed.");
+		} else {
+			LOGGER.debug("Attempting to reconnect cursor with resume token {}", lastResumeToken);
+		}
+		eventCursor = openCursor();
+		LOGGER.debug("Finished reconnecting");
+	}
+
+	/**
+	 * One receiver's share of the hub's change stream.
+	 * Behaves like a change stream cursor, which is all the receiver needs.
+	 */
+	private final class SharedCursor implements MongoCursor<ChangeStreamDocument<Document>> {
+		final MongoNamespace namespace;
+		final BlockingQueue<ChangeStreamDocument<Document>> events = new LinkedBlockingQueue<>(MAX_QUEUED_EVENTS);
+		volatile boolean isOpen = true;
+		volatile boolean overflowed = false;
+
+		/**
+		 * The thread, if any, blocked in {@link #next()}, so {@link #close()} can wake it.
+		 */
+		volatile Thread waitingThread = null;
+
+		SharedCursor(MongoNamespace namespace) {
+			this.namespace = namespace;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return isOpen;
+		}
+
+		@Override
+		public ChangeStreamDocument<Document> next() {
+			waitingThread = Thread.currentThread();
+			try {
+				// Checked after setting waitingThread, so a concurrent close either sees
+				// waitingThread and interrupts us, or has already cleared isOpen
+				if (!isOpen) {
+					throw closedException();
+				}
+				return events.take();
+			} catch (InterruptedException e) {
+				if (!isOpen) {
+					throw closedException();
+				}
+				// Same as the driver's own cursors
+				throw new MongoInterruptedException("Interrupted while awaiting change stream event", e);
+			} finally {
+				waitingThread = null;
+			}
+		}
+
+		private MongoException closedException() {
+			if (overflowed) {
+				return new MongoException("Shared cursor fell more than " + MAX_QUEUED_EVENTS + " events behind");
+			} else {
+				return new MongoException("Shared cursor is closed");
+			}
+		}
+
+		/**
+		 * Called by the hub's event thread when {@link #events} is full.
+		 * Stops queueing events, discards those already queued, and causes
+		 * {@link #next()} to throw, so the receiver reconnects using its resume token.
+		 */
+		void overflow() {
+			LOGGER.warn("Receiver on {} fell more than {} events behind hub {}; it will get a change stream of its own", namespace, MAX_QUEUED_EVENTS, identityString);
+			overflowed = true;
+			close();
+			events.clear();
+		}
+
+		@Nullable
+		@Override
+		public ChangeStreamDocument<Document> tryNext() {
+			return events.poll();
+		}
+
+		@Override
+		public void close() {
+			isOpen = false;
+			List<SharedCursor> cursors = cursorsByNamespace.get(namespace);
+			if (cursors != null) {
+				cursors.remove(this);
+			}
+			Thread waiter = waitingThread;
+			if (waiter != null && waiter != Thread.currentThread()) {
+				waiter.interrupt();
+			}
+		}
+
+		@Nullable
+		@Override
+		public ServerCursor getServerCursor() {
+			return null;
+		}
+
+		/**
+		 * @return the address of the server serving the hub's change stream
+		 */
+		@Override
+		public ServerAddress getServerAddress() {
+			return eventCursor.getServerAddress();
+		}
+	}
+
+	/**
+	 * The most events that can be queued for one receiver before it's
+	 * {@link SharedCursor#overflow() cut loose}.
+	 */
+	static final int MAX_QUEUED_EVENTS = 10_000;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MongoHub.class);
+}
@@ -7,6 +7,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import org.bson.BsonDocument;
 
 /**
@@ -46,6 +47,17 @@ interface MongoReceiver<R extends Entity> extends Closeable {
 	 */
 	void awaitLatestRevision() throws InterruptedException, IOException;
 
+	/**
+	 * Asynchronous version of {@link #awaitLatestRevision()}.
+	 * The revision number is read from the database at some point after this method is called.
+	 *
+	 * @return a future that completes when we've processed the change event corresponding to
+	 * the <code>revision</code> field in the database, or completes exceptionally
+	 * with {@link io.vena.bosk.exceptions.FlushFailureException FlushFailureException}
+	 * if that doesn't happen within {@link MongoDriverSettings#flushTimeoutMS() flushTimeoutMS}.
+	 */
+	CompletableFuture<Void> latestRevisionAsync();
+
 	/**
 	 * Causes <code>listener.add(resumeToken)</code> to be called at a future time
 	 * when a change stream event arrives that sets the <code>echo</code> field to the given value.
@@ -0,0 +1,429 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.mongodb.lang.Nullable;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.mongo.Formatter.DocumentFields;
+import io.vena.bosk.exceptions.FlushFailureException;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import io.vena.bosk.exceptions.NotYetImplementedException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
+import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ZERO;
+import static io.vena.bosk.drivers.mongo.PartitionedMongoDriver.ENTRY_DOCUMENT_ID_PREFIX;
+import static io.vena.bosk.drivers.mongo.PartitionedMongoDriver.ROOT_DOCUMENT_ID;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.identityHashCode;
+import static java.lang.Thread.currentThread;
+import static java.util.Collections.newSetFromMap;
+
+/**
+ * Implementation of {@link MongoReceiver} for {@link PartitionedMongoDriver},
+ * using a MongoDB change stream cursor on the collection containing all the documents.
+ *
+ * <p>
+ * Field names in the root document are relative to the bosk root;
+ * those in an entry document are relative to the entry.
+ * Inserting or deleting an entry document corresponds to replacing or deleting the entry.
+ */
+final class PartitionedMongoChangeStreamReceiver<R extends Entity> implements MongoReceiver<R> {
+	private final Formatter formatter;
+	private final BoskDriver<R> downstream;
+	private final Reference<R> rootRef;
+	private final CatalogReference<?> partitionRef;
+	private final MongoDriverSettings settings;
+
+	private final ExecutorService ex = Executors.newFixedThreadPool(1);
+	private final ConcurrentHashMap<String, BlockingQueue<BsonDocument>> echoListeners = new ConcurrentHashMap<>();
+	private final MongoCollection<Document> collection;
+
+	private final String identityString = format("%08x", identityHashCode(this));
+
+	private volatile MongoCursor<ChangeStreamDocument<Document>> eventCursor;
+	private volatile BsonDocument lastProcessedResumeToken = null;
+	private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+	/**
+	 * The root document's revision, which {@link PartitionedMongoDriver} bumps
+	 * along with every write to any document.
+	 *
+	 * <p>
+	 * Guarded by {@link #revisionLock}, which is notified whenever a revision is processed.
+	 */
+	private long lastProcessedRevision = REVISION_ZERO.longValue();
+	private final Object revisionLock = new Object();
+
+	PartitionedMongoChangeStreamReceiver(BoskDriver<R> downstream, Reference<R> rootRef, CatalogReference<?> partitionRef, MongoCollection<Document> collection, Formatter formatter, MongoDriverSettings settings) {
+		this.downstream = downstream;
+		this.rootRef = rootRef;
+		this.partitionRef = partitionRef;
+		this.formatter = formatter;
+		this.settings = settings;
+
+		this.collection = collection;
+		eventCursor = collection.watch().iterator();
+		LOGGER.debug(
+			"Initiate event processing loop for pmcsr-{}: collection=\"{}\"",
+			identityString,
+			collection.getNamespace().getCollectionName());
+		ex.submit(this::eventProcessingLoop);
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		return downstream.initialRoot(rootType);
+	}
+
+	/**
+	 * Waits until we've processed the current revision of the root document,
+	 * and therefore every write to any document that preceded it.
+	 */
+	@Override
+	public void awaitLatestRevision() throws InterruptedException, IOException {
+		long requiredRevision = readRevisionNumber();
+		long deadline = currentTimeMillis() + settings.flushTimeoutMS();
+		synchronized (revisionLock) {
+			while (lastProcessedRevision < requiredRevision) {
+				long remainingMS = deadline - currentTimeMillis();
+				if (remainingMS <= 0) {
+					LOGGER.debug("| Flush timeout on pmcsr-{} awaiting revision {}", identityString, requiredRevision);
+					throw new FlushFailureException("Flush timeout on after " + settings.flushTimeoutMS() + "ms on receiver " + identityString + " awaiting revision " + requiredRevision);
+				}
+				LOGGER.debug("| Waiting for revision {}", requiredRevision);
+				revisionLock.wait(remainingMS);
+			}
+		}
+	}
+
+	/**
+	 * Not truly asynchronous: ties up a thread from the common pool running {@link #awaitLatestRevision()}.
+	 */
+	@Override
+	public CompletableFuture<Void> latestRevisionAsync() {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				awaitLatestRevision();
+			} catch (IOException | InterruptedException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * @return the root document's revision number as per the database,
+	 * or {@link Formatter#REVISION_ZERO REVISION_ZERO} if it has none
+	 */
+	private long readRevisionNumber() {
+		Document doc = collection
+			.find(new BsonDocument("_id", ROOT_DOCUMENT_ID))
+			.projection(fields(include(revision.name())))
+			.first();
+		Long revisionNumber = (doc == null)? null : doc.get(revision.name(), Long.class);
+		return (revisionNumber == null)? REVISION_ZERO.longValue() : revisionNumber;
+	}
+
+	private void recordRevision(long revisionNumber) {
+		LOGGER.debug("| Revision {}", revisionNumber);
+		synchronized (revisionLock) {
+			lastProcessedRevision = revisionNumber;
+			revisionLock.notifyAll();
+		}
+	}
+
+	@Override
+	public void flushDownstream() throws InterruptedException, IOException {
+		LOGGER.debug("| Downstream flush");
+		downstream.flush();
+	}
+
+	@Override
+	public void putEchoListener(String echoToken, BlockingQueue<BsonDocument> listener) {
+		Object existing = echoListeners.put(echoToken, listener);
+		if (existing != null) {
+			throw new IllegalStateException("Cannot have two listeners for the same echo token");
+		}
+	}
+
+	@Override
+	public BlockingQueue<BsonDocument> removeEchoListener(String echoToken) {
+		return echoListeners.remove(echoToken);
+	}
+
+	//
+	// Change stream event processing from MongoDB
+	//
+
+	private void eventProcessingLoop() {
+		String oldName = currentThread().getName();
+		currentThread().setName("pmcsr-" + identityString);
+		try {
+			while (!ex.isShutdown()) {
+				ChangeStreamDocument<Document> event;
+				try {
+					if (settings.testing().eventDelayMS() > 0) {
+						LOGGER.debug("- Sleeping");
+						try {
+							Thread.sleep(settings.testing().eventDelayMS());
+						} catch (InterruptedException e) {
+							LOGGER.debug("| Interrupted");
+						}
+					}
+					LOGGER.debug("- Awaiting event");
+					event = eventCursor.next();
+				} catch (MongoException e) {
+					if (isClosed.get()) {
+						LOGGER.trace("Receiver is closed. Exiting event processing loop", e);
+						break;
+					} else {
+						LOGGER.warn("Lost change stream cursor; reconnecting", e);
+						reconnectCursor();
+						continue;
+					}
+				}
+				try {
+					processEvent(event);
+				} catch (Throwable e) {
+					LOGGER.error("Unable to process event: " + event, e);
+				}
+			}
+		} catch (Throwable e) {
+			LOGGER.error("Fatal error on MongoDB event processing thread", e);
+			throw e;
+		} finally {
+			LOGGER.debug("Terminating MongoDB event processing thread");
+			currentThread().setName(oldName);
+		}
+	}
+
+	private void reconnectCursor() {
+		try {
+			eventCursor.close();
+		} catch (Exception e) {
+			LOGGER.warn("Unable to close event stream cursor", e);
+		}
+		ChangeStreamIterable<Document> iterable = collection.watch();
+		if (lastProcessedResumeToken == null) {
+			LOGGER.error("No resume token available. Reconnecting cursor from current location. Some update events could be missed.");
+		} else {
+			LOGGER.debug("Attempting to reconnect cursor with resume token {}", lastProcessedResumeToken);
+			iterable = iterable.resumeAfter(lastProcessedResumeToken);
+		}
+		eventCursor = iterable.iterator();
+		LOGGER.debug("Finished reconnecting");
+	}
+
+	/**
+	 * Attempts a clean shutdown on a best-effort basis.
+	 *
+	 * @see SingleDocumentMongoChangeStreamReceiver#close()
+	 */
+	@Override
+	public void close() {
+		if (isClosed.compareAndSet(false, true)) {
+			LOGGER.debug("Closing {}", identityString);
+			try {
+				eventCursor.close();
+				ex.shutdownNow();
+			} catch (Throwable t) {
+				LOGGER.error("Exception attempting to close {}", identityString, t);
+			}
+		} else {
+			LOGGER.debug("Already closed: {}", identityString);
+		}
+	}
+
+	private void processEvent(ChangeStreamDocument<Document> event) {
+		LOGGER.debug("# EVENT: {}", event);
+		BsonDocument documentKey = event.getDocumentKey();
+		BsonValue id = (documentKey == null)? null : documentKey.get("_id");
+		if (id == null || !id.isString()) {
+			LOGGER.debug("| Not a bosk document - IGNORE");
+		} else if (id.equals(ROOT_DOCUMENT_ID)) {
+			processRootDocumentEvent(event);
+		} else if (id.asString().getValue().startsWith(ENTRY_DOCUMENT_ID_PREFIX)) {
+			processEntryDocumentEvent(event, id.asString());
+		} else {
+			LOGGER.debug("| Unrecognized document {} - IGNORE", id);
+		}
+		lastProcessedResumeToken = event.getResumeToken();
+	}
+
+	private void processRootDocumentEvent(ChangeStreamDocument<Document> event) {
+		switch (event.getOperationType()) {
+			case INSERT: case REPLACE:
+				// As with SingleDocumentMongoChangeStreamReceiver, the driver never does these
+				// except during initialization, which is followed by an UPDATE.
+				LOGGER.debug("| Replace root document - IGNORE");
+				break;
+			case UPDATE:
+				UpdateDescription updateDescription = event.getUpdateDescription();
+				if (updateDescription != null) {
+					replaceUpdatedFields(updateDescription.getUpdatedFields(), rootRef);
+					deleteRemovedFields(updateDescription.getRemovedFields(), rootRef);
+					notifyIfEcho(updateDescription.getUpdatedFields(), event.getResumeToken());
+					bumpLastProcessedRevision(updateDescription.getUpdatedFields());
+				}
+				break;
+			default:
+				throw new NotYetImplementedException("Unknown change stream event: " + event);
+		}
+	}
+
+	private void processEntryDocumentEvent(ChangeStreamDocument<Document> event, BsonString documentID) {
+		Identifier entryID = Identifier.from(documentID.getValue().substring(ENTRY_DOCUMENT_ID_PREFIX.length()));
+		Reference<Object> entryRef = entryReference(entryID);
+		switch (event.getOperationType()) {
+			case INSERT: case REPLACE:
+				// getFullDocument is reliable for INSERT and REPLACE operations:
+				//   https://docs.mongodb.com/v4.0/reference/change-events/#change-stream-output
+				Document fullDocument = event.getFullDocument();
+				Document entryState = (fullDocument == null)? null : fullDocument.get(DocumentFields.state.name(), Document.class);
+				if (entryState == null) {
+					LOGGER.warn("| Entry document {} has no state - IGNORE", documentID);
+				} else {
+					LOGGER.debug("| Replace {}", entryRef);
+					downstream.submitReplacement(entryRef, formatter.document2object(entryState, entryRef));
+				}
+				break;
+			case UPDATE:
+				UpdateDescription updateDescription = event.getUpdateDescription();
+				if (updateDescription != null) {
+					replaceUpdatedFields(updateDescription.getUpdatedFields(), entryRef);
+					deleteRemovedFields(updateDescription.getRemovedFields(), entryRef);
+				}
+				break;
+			case DELETE:
+				LOGGER.debug("| Delete {}", entryRef);
+				downstream.submitDeletion(entryRef);
+				break;
+			default:
+				throw new NotYetImplementedException("Unknown change stream event: " + event);
+		}
+	}
+
+	private Reference<Object> entryReference(Identifier entryID) {
+		try {
+			return partitionRef.then(Object.class, entryID.toString());
+		} catch (InvalidTypeException e) {
+			throw new AssertionError("Catalog entry reference must be valid: " + partitionRef + "/" + entryID, e);
+		}
+	}
+
+	private void bumpLastProcessedRevision(@Nullable BsonDocument updatedFields) {
+		if (updatedFields != null) {
+			BsonInt64 newValue = updatedFields.getInt64(revision.name(), null);
+			if (newValue == null) {
+				LOGGER.warn("| No revision field");
+			} else {
+				recordRevision(newValue.longValue());
+			}
+		}
+	}
+
+	/**
+	 * Call <code>downstream.{@link BoskDriver#submitReplacement submitReplacement}</code>
+	 * for each updated field.
+	 *
+	 * @param documentRef the object stored in the document's state field
+	 */
+	private void replaceUpdatedFields(@Nullable BsonDocument updatedFields, Reference<?> documentRef) {
+		if (updatedFields != null) {
+			for (Map.Entry<String, BsonValue> entry : updatedFields.entrySet()) {
+				String dottedName = entry.getKey();
+				if (dottedName.startsWith(DocumentFields.state.name())) {
+					Reference<Object> ref;
+					try {
+						ref = formatter.fieldNames().referenceTo(dottedName, documentRef);
+					} catch (InvalidTypeException e) {
+						logNonexistentField(dottedName, e);
+						continue;
+					}
+					LOGGER.debug("| Replace {}", ref);
+					Object replacement = formatter.bsonValue2object(entry.getValue(), ref);
+					downstream.submitReplacement(ref, replacement);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Call <code>downstream.{@link BoskDriver#submitDeletion submitDeletion}</code>
+	 * for each removed field.
+	 *
+	 * @param documentRef the object stored in the document's state field
+	 */
+	private void deleteRemovedFields(@Nullable List<String> removedFields, Reference<?> documentRef) {
+		if (removedFields != null) {
+			for (String dottedName : removedFields) {
+				if (dottedName.startsWith(DocumentFields.state.name())) {
+					Reference<Object> ref;
+					try {
+						ref = formatter.fieldNames().referenceTo(dottedName, documentRef);
+					} catch (InvalidTypeException e) {
+						logNonexistentField(dottedName, e);
+						continue;
+					}
+					LOGGER.debug("| Delete {}", ref);
+					downstream.submitDeletion(ref);
+				}
+			}
+		}
+	}
+
+	private void notifyIfEcho(@Nullable BsonDocument updatedFields, BsonDocument resumeToken) {
+		if (updatedFields != null) {
+			BsonValue newValue = updatedFields.get(DocumentFields.echo.name());
+			if (newValue != null) {
+				String echoToken = newValue.asString().getValue();
+				BlockingQueue<BsonDocument> listener = removeEchoListener(echoToken);
+				if (listener != null) {
+					LOGGER.debug("| Echo {}: {}", echoToken, resumeToken);
+					listener.add(resumeToken);
+				}
+			}
+		}
+	}
+
+	private void logNonexistentField(String dottedName, InvalidTypeException e) {
+		LOGGER.trace("Nonexistent field {}",  dottedName, e);
+		if (LOGGER.isWarnEnabled() && ALREADY_WARNED.add(dottedName)) {
+			LOGGER.warn("Ignoring updates of nonexistent field {}", dottedName);
+		}
+	}
+
+	private static final Set<String> ALREADY_WARNED = newSetFromMap(new ConcurrentHashMap<>());
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedMongoChangeStreamReceiver.class);
+
+}
@@ -0,0 +1,942 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.lang.Nullable;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Catalog;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.dereferencers.Dereferencer;
+import io.vena.bosk.dereferencers.PathCompiler;
+import io.vena.bosk.drivers.mongo.MongoDriverSettings.FlushMode;
+import io.vena.bosk.exceptions.FlushFailureException;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import io.vena.bosk.exceptions.NonexistentEntryException;
+import io.vena.bosk.exceptions.NotYetImplementedException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.Value;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.echo;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.path;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.state;
+import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ONE;
+import static io.vena.bosk.drivers.mongo.Formatter.undottedFieldNameSegment;
+import static io.vena.bosk.drivers.mongo.SingleDocumentMongoDriver.COLLECTION_NAME;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.bson.BsonBoolean.FALSE;
+
+/**
+ * Like {@link SingleDocumentMongoDriver}, but stores each entry of one designated
+ * <em>partition</em> {@link Catalog} in a document of its own.
+ * The rest of the state goes in the <em>root document</em>, where the partition
+ * catalog always appears empty.
+ *
+ * <p>
+ * Updates within a catalog entry touch only that entry's document.
+ * Updates that span documents (conditional updates whose precondition is in another document,
+ * and updates to the partition catalog itself or any of its ancestors) are performed in a transaction.
+ * Other bosks see the effects of such a transaction as a sequence of updates:
+ * for example, replacing the partition catalog appears as a replacement with
+ * an empty catalog, followed by a replacement of each entry.
+ *
+ * <p>
+ * {@link #initialRoot} reads the entry documents using several cursors in parallel.
+ * The order of the partition catalog's entries is stored in each entry document's
+ * {@link #ORDER_FIELD} field, and the root document's {@link #NEXT_ORDER_FIELD}
+ * is a counter that puts each newly added entry at the end.
+ * Replacing the whole catalog renumbers the entries.
+ * Entry documents written before this field existed come first, in order of their IDs.
+ *
+ * <p>
+ * {@link MongoDriverSettings.FlushMode#REVISION_FIELD_COALESCED REVISION_FIELD_COALESCED}
+ * is not yet supported, and is treated as
+ * {@link MongoDriverSettings.FlushMode#REVISION_FIELD_ONLY REVISION_FIELD_ONLY}.
+ *
+ * <p>
+ * All documents are in the same collection, and so share one change stream,
+ * which is what allows {@link #flush()} to work the same way it does for {@link SingleDocumentMongoDriver}.
+ * Each document has its own revision number, but every write also bumps the root document's
+ * revision in the same transaction, so a flush need only read that one revision.
+ * This means concurrent updates of different entries conflict on the root document,
+ * and are serialized by retrying their transactions.
+ * A given database must be used by either partitioned or single-document drivers, not both.
+ */
+final class PartitionedMongoDriver<R extends Entity> implements MongoDriver<R> {
+	private final String description;
+	private final MongoDriverSettings settings;
+	private final Formatter formatter;
+	private final DottedFieldNameTranslator fieldNames;
+	private final MongoReceiver<R> receiver;
+	private final MongoClient mongoClient;
+	private final MongoCollection<Document> collection;
+	private final Reference<R> rootRef;
+	private final CatalogReference<?> partitionRef;
+	private final Dereferencer partitionDereferencer;
+	private final String echoPrefix;
+	private final AtomicLong echoCounter = new AtomicLong(1_000_000_000_000L); // Start with a big number so the length doesn't change often
+
+	static final BsonString ROOT_DOCUMENT_ID = new BsonString("boskDocument");
+
+	/**
+	 * Entry documents have an <code>_id</code> consisting of this prefix followed by the entry ID.
+	 */
+	static final String ENTRY_DOCUMENT_ID_PREFIX = ROOT_DOCUMENT_ID.getValue() + "|";
+
+	/**
+	 * In an entry document, the position of the entry within the partition catalog.
+	 * Entries are ordered by this field, and then by document ID.
+	 */
+	static final String ORDER_FIELD = "order";
+
+	/**
+	 * In the root document, the {@link #ORDER_FIELD} value to use for the next entry
+	 * added to the partition catalog.
+	 */
+	static final String NEXT_ORDER_FIELD = "nextOrder";
+
+	PartitionedMongoDriver(Bosk<R> bosk, MongoClientSettings clientSettings, MongoDriverSettings driverSettings, BsonPlugin bsonPlugin, Path partitionPath, BoskDriver<R> downstream) {
+		validateMongoClientSettings(clientSettings);
+		if (driverSettings.initialLoadParallelism() < 1) {
+			throw new IllegalArgumentException("initialLoadParallelism must be positive: " + driverSettings.initialLoadParallelism());
+		}
+		this.description = PartitionedMongoDriver.class.getSimpleName() + "(" + partitionPath + "): " + driverSettings;
+		this.settings = driverSettings;
+		this.rootRef = bosk.rootReference();
+		this.partitionRef = partitionReference(bosk, partitionPath);
+		try {
+			this.partitionDereferencer = PathCompiler.withSourceType(rootRef.targetType()).compiled(partitionPath);
+		} catch (InvalidTypeException e) {
+			throw new IllegalArgumentException("Invalid partition path: " + partitionPath, e);
+		}
+		this.mongoClient = MongoClients.create(clientSettings);
+		this.formatter = new Formatter(bosk, bsonPlugin);
+		this.fieldNames = formatter.fieldNames();
+		this.collection = mongoClient
+			.getDatabase(driverSettings.database())
+			.getCollection(COLLECTION_NAME);
+		this.receiver = new PartitionedMongoChangeStreamReceiver<>(downstream, rootRef, partitionRef, collection, formatter, settings);
+		this.echoPrefix = bosk.instanceID().toString();
+		if (driverSettings.flushMode() == FlushMode.REVISION_FIELD_COALESCED) {
+			LOGGER.warn("{} does not yet support flush mode {}; using {} instead",
+				PartitionedMongoDriver.class.getSimpleName(), FlushMode.REVISION_FIELD_COALESCED, FlushMode.REVISION_FIELD_ONLY);
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static CatalogReference<?> partitionReference(Bosk<?> bosk, Path partitionPath) {
+		if (partitionPath.isEmpty() || partitionPath.numParameters() != 0) {
+			throw new IllegalArgumentException("Partition path must be nonempty and unparameterized: " + partitionPath);
+		}
+		Reference<Catalog> ref;
+		try {
+			ref = bosk.reference(Catalog.class, partitionPath);
+		} catch (InvalidTypeException e) {
+			throw new IllegalArgumentException("Partition path must refer to a Catalog: " + partitionPath, e);
+		}
+		return CatalogReference.from((Reference) ref);
+	}
+
+	private void validateMongoClientSettings(MongoClientSettings clientSettings) {
+		// Same requirements as SingleDocumentMongoDriver, for the same reasons
+		if (clientSettings.getReadConcern() != ReadConcern.MAJORITY) {
+			throw new IllegalArgumentException("MongoDriver requires MongoClientSettings to specify ReadConcern.MAJORITY");
+		}
+		if (clientSettings.getWriteConcern() != WriteConcern.MAJORITY) {
+			throw new IllegalArgumentException("MongoDriver requires MongoClientSettings to specify WriteConcern.MAJORITY");
+		}
+	}
+
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		LOGGER.debug("+ initialRoot");
+
+		// See SingleDocumentMongoDriver.initialRoot for an explanation of the calls to bumpRevision()
+		bumpRevision();
+
+		try (MongoCursor<Document> cursor = collection.find(rootDocumentFilter()).limit(1).cursor()) {
+			Document newDocument = cursor.next();
+			Document newState = newDocument.get(state.name(), Document.class);
+			if (newState == null) {
+				LOGGER.debug("| No existing state; delegating downstream");
+			} else {
+				LOGGER.debug("| From database: {}", newState);
+				bumpRevision();
+				R root = formatter.document2object(newState, rootRef);
+				return withEntries(root, loadEntries(partitionRef));
+			}
+		} catch (NoSuchElementException e) {
+			LOGGER.debug("| No root document; delegating downstream");
+		}
+
+		R root = receiver.initialRoot(rootType);
+		inTransaction(session -> writeDocuments(session, root, false));
+		bumpRevision();
+		return root;
+	}
+
+	private void bumpRevision() {
+		doUpdate(null, updateDoc(), rootDocumentFilter(), NO_UPSERT);
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		LOGGER.debug("+ submitReplacement({})", target);
+		if (spansDocuments(target)) {
+			inTransaction(session -> writeSpanning(session, target, newValue, new BsonDocument()));
+		} else {
+			inDocumentOf(locationOf(target), session -> writeReplacement(session, target, newValue, new BsonDocument()));
+		}
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		LOGGER.debug("+ submitConditionalReplacement({}, {} = {})", target, precondition, requiredValue);
+		if (spansDocuments(target) || !locationOf(target).isSameDocumentAs(locationOf(precondition))) {
+			inTransaction(session -> {
+				if (touchIfMatches(session, precondition, requiredValue)) {
+					if (spansDocuments(target)) {
+						writeSpanning(session, target, newValue, new BsonDocument());
+					} else {
+						writeReplacement(session, target, newValue, new BsonDocument());
+					}
+				}
+			});
+		} else {
+			inDocumentOf(locationOf(target), session -> writeReplacement(session, target, newValue, explicitPrecondition(precondition, requiredValue)));
+		}
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		LOGGER.debug("+ submitInitialization({})", target);
+		if (spansDocuments(target)) {
+			BsonDocument notExists = new BsonDocument(fieldNames.dottedFieldNameOf(target, rootRef), new BsonDocument("$exists", FALSE));
+			inTransaction(session -> writeSpanning(session, target, newValue, notExists));
+			return;
+		}
+		Location location = locationOf(target);
+		if (location.isWholeDocument()) {
+			BsonDocument fields = entryDocument(location, formatter.object2bsonValue(newValue, target.targetType()));
+			inTransaction(session -> {
+				if (collection.find(session, location.filter()).projection(ID_ONLY).first() == null) {
+					// A new entry goes at the end of the catalog
+					fields.put(ORDER_FIELD, nextEntryOrder(session));
+					logInitialization(doUpdate(session, new BsonDocument("$setOnInsert", fields), location.filter(), UPSERT));
+				} else {
+					logInitialization(false);
+				}
+			});
+		} else {
+			BsonDocument filter = standardPreconditions(location);
+			filter.put(location.fieldName(), new BsonDocument("$exists", FALSE));
+			inDocumentOf(location, session -> logInitialization(doUpdate(session, replacementDoc(location, target, newValue), filter, NO_UPSERT)));
+		}
+	}
+
+	private static void logInitialization(boolean changed) {
+		if (changed) {
+			LOGGER.debug("| Object initialized");
+		} else {
+			LOGGER.debug("| No update");
+		}
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		LOGGER.debug("+ submitDeletion({})", target);
+		if (target.path().isEmpty()) {
+			throw new IllegalArgumentException("Can't delete the root of the bosk");
+		} else if (spansDocuments(target)) {
+			inTransaction(session -> deleteSpanning(session, target));
+		} else {
+			inDocumentOf(locationOf(target), session -> writeDeletion(session, target, new BsonDocument()));
+		}
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		LOGGER.debug("+ submitConditionalDeletion({}, {} = {})", target, precondition, requiredValue);
+		if (target.path().isEmpty()) {
+			throw new IllegalArgumentException("Can't delete the root of the bosk");
+		} else if (spansDocuments(target) || !locationOf(target).isSameDocumentAs(locationOf(precondition))) {
+			inTransaction(session -> {
+				if (touchIfMatches(session, precondition, requiredValue)) {
+					if (spansDocuments(target)) {
+						deleteSpanning(session, target);
+					} else {
+						writeDeletion(session, target, new BsonDocument());
+					}
+				}
+			});
+		} else {
+			inDocumentOf(locationOf(target), session -> writeDeletion(session, target, explicitPrecondition(precondition, requiredValue)));
+		}
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		LOGGER.debug("+ flush");
+		switch (settings.flushMode()) {
+			case REVISION_FIELD_ONLY:
+			case REVISION_FIELD_COALESCED: // Not yet supported; no coalescing. Warned in the constructor.
+				receiver.awaitLatestRevision();
+				break;
+			default:
+				LOGGER.warn("Unrecognized flush mode {}; defaulting to ECHO", settings.flushMode());
+				// fall through
+			case ECHO:
+				performEcho();
+				break;
+		}
+		receiver.flushDownstream();
+	}
+
+	@Override
+	public void close() {
+		try {
+			receiver.close();
+		} finally {
+			mongoClient.close();
+		}
+	}
+
+	@Override
+	public void refurbish() {
+		inTransaction(session -> {
+			Document stateFromDB;
+			try (MongoCursor<Document> cursor = collection.find(session, rootDocumentFilter()).limit(1).cursor()) {
+				stateFromDB = cursor.next().get(state.name(), Document.class);
+			} catch (NoSuchElementException e) {
+				LOGGER.debug("No document to refurbish", e);
+				return;
+			}
+			if (stateFromDB == null) {
+				LOGGER.debug("No state to refurbish");
+				return;
+			}
+
+			// Round trip via state tree nodes. This also renumbers the entries' order fields.
+			R root = withEntries(formatter.document2object(stateFromDB, rootRef), Catalog.of(readEntries(session, partitionRef, entryDocumentsFilter())));
+			writeDocuments(session, root, true);
+		});
+	}
+
+	//
+	// Document layout
+	//
+
+	/**
+	 * Identifies the document containing a given reference,
+	 * and the field within that document.
+	 */
+	@Value
+	private static class Location {
+		BsonString documentID;
+		/**
+		 * Refers to the object stored in the document's {@link Formatter.DocumentFields#state state} field.
+		 */
+		Reference<?> documentRef;
+		Reference<?> target;
+		/**
+		 * The dotted name of <code>target</code> relative to <code>documentRef</code>.
+		 */
+		String fieldName;
+
+		BsonDocument filter() {
+			return new BsonDocument("_id", documentID);
+		}
+
+		boolean isWholeDocument() {
+			return target.path().length() == documentRef.path().length();
+		}
+
+		boolean isSameDocumentAs(Location other) {
+			return documentID.equals(other.documentID);
+		}
+	}
+
+	/**
+	 * @return true if <code>target</code> is the partition catalog or one of its ancestors,
+	 * meaning an update to <code>target</code> can affect multiple documents
+	 */
+	private boolean spansDocuments(Reference<?> target) {
+		return target.path().isPrefixOf(partitionRef.path());
+	}
+
+	private Location locationOf(Reference<?> target) {
+		Path targetPath = target.path();
+		Path partitionPath = partitionRef.path();
+		if (partitionPath.length() < targetPath.length() && partitionPath.isPrefixOf(targetPath)) {
+			Identifier entryID = Identifier.from(targetPath.segment(partitionPath.length()));
+			Reference<?> documentRef = partitionRef.then(entryID);
+			return new Location(entryDocumentID(entryID), documentRef, target, fieldNames.dottedFieldNameOf(target, documentRef));
+		} else {
+			return new Location(ROOT_DOCUMENT_ID, rootRef, target, fieldNames.dottedFieldNameOf(target, rootRef));
+		}
+	}
+
+	static BsonString entryDocumentID(Identifier entryID) {
+		return new BsonString(ENTRY_DOCUMENT_ID_PREFIX + entryID);
+	}
+
+	private static BsonDocument rootDocumentFilter() {
+		return new BsonDocument("_id", ROOT_DOCUMENT_ID);
+	}
+
+	/**
+	 * Every entry document ID starts with {@link #ENTRY_DOCUMENT_ID_PREFIX},
+	 * whose last character is <code>|</code>; and the next character after
+	 * that is <code>}</code>.
+	 */
+	private static BsonDocument entryDocumentsFilter() {
+		return new BsonDocument("_id", new BsonDocument()
+			.append("$gt", new BsonString(ENTRY_DOCUMENT_ID_PREFIX))
+			.append("$lt", new BsonString(ROOT_DOCUMENT_ID.getValue() + "}")));
+	}
+
+	/**
+	 * Splits <code>bsonValue</code>, the serialized form of the object at <code>target</code>,
+	 * which must be a proper ancestor of the partition catalog,
+	 * into the part that belongs in the root document and the partition catalog entries.
+	 *
+	 * @return the serialized partition catalog, which has been replaced by
+	 * an empty catalog in <code>bsonValue</code>;
+	 * or null if <code>bsonValue</code> has no partition catalog, as when
+	 * it's inside an absent {@link java.util.Optional}.
+	 */
+	private @Nullable BsonDocument detachPartition(BsonValue bsonValue, Reference<?> target) {
+		List<String> segments = fieldNames.dottedFieldNameSegments(partitionRef, target);
+		segments.remove(0); // "state"
+		BsonDocument enclosing = bsonValue.asDocument();
+		for (String segment: segments.subList(0, segments.size() - 1)) {
+			BsonValue next = enclosing.get(segment);
+			if (next == null) {
+				return null;
+			}
+			enclosing = next.asDocument();
+		}
+		String lastSegment = segments.get(segments.size() - 1);
+		BsonValue result = enclosing.get(lastSegment);
+		if (result == null) {
+			return null;
+		}
+		enclosing.put(lastSegment, new BsonDocument());
+		return result.asDocument();
+	}
+
+	/**
+	 * @return the fields of an entry document, except <code>_id</code>, which is supplied by the filter
+	 */
+	private BsonDocument entryDocument(Location location, BsonValue entryState) {
+		return new BsonDocument(path.name(), new BsonString(location.documentRef().path().urlEncoded()))
+			.append(state.name(), entryState)
+			.append(revision.name(), REVISION_ONE);
+	}
+
+	//
+	// Writes
+	//
+
+	private <T> void writeReplacement(@Nullable ClientSession session, Reference<T> target, T newValue, BsonDocument extraPreconditions) {
+		Location location = locationOf(target);
+		BsonDocument filter = standardPreconditions(location);
+		filter.putAll(extraPreconditions);
+		BsonDocument update = replacementDoc(location, target, newValue);
+		// An entry document that doesn't exist can be created, unless there are preconditions
+		// in the document itself, in which case it must already exist.
+		if (location.isWholeDocument() && extraPreconditions.isEmpty()) {
+			if (!doUpdate(session, update, filter, NO_UPSERT)) {
+				// A new entry goes at the end of the catalog. Allocating its order in the same
+				// transaction as the insert means concurrent inserts are ordered the same way
+				// in the database as in the change stream.
+				insertEntryDocument(session, update, filter);
+			}
+		} else {
+			doUpdate(session, update, filter, NO_UPSERT);
+		}
+	}
+
+	private void insertEntryDocument(ClientSession session, BsonDocument update, BsonDocument filter) {
+		BsonDocument withOrder = update.clone()
+			.append("$setOnInsert", new BsonDocument(ORDER_FIELD, nextEntryOrder(session)));
+		doUpdate(session, withOrder, filter, UPSERT);
+	}
+
+	/**
+	 * Increments the root document's {@link #NEXT_ORDER_FIELD}.
+	 * Because this writes to the root document, concurrent transactions that
+	 * add entries conflict, and so are serialized.
+	 *
+	 * @return the value before incrementing
+	 */
+	private BsonInt64 nextEntryOrder(ClientSession session) {
+		BsonDocument update = new BsonDocument("$inc", new BsonDocument(revision.name(), REVISION_ONE)
+			.append(NEXT_ORDER_FIELD, new BsonInt64(1)));
+		LOGGER.debug("| Update: {}", update);
+		Document before = collection.findOneAndUpdate(session, rootDocumentFilter(), update, new FindOneAndUpdateOptions()
+			.projection(new BsonDocument(NEXT_ORDER_FIELD, new BsonInt32(1)))
+			.returnDocument(ReturnDocument.BEFORE));
+		Long result = (before == null)? null : before.get(NEXT_ORDER_FIELD, Long.class);
+		LOGGER.debug("| Next entry order: {}", result);
+		return new BsonInt64((result == null)? 0 : result);
+	}
+
+	private <T> void writeDeletion(@Nullable ClientSession session, Reference<T> target, BsonDocument extraPreconditions) {
+		Location location = locationOf(target);
+		BsonDocument filter = standardPreconditions(location);
+		filter.putAll(extraPreconditions);
+		if (location.isWholeDocument()) {
+			LOGGER.debug("| Delete document {}", location.documentID());
+			doDelete(session, filter);
+		} else {
+			LOGGER.debug("| Unset field {}", location.fieldName());
+			doUpdate(session,
+				updateDoc().append("$unset", new BsonDocument(location.fieldName(), new BsonNull())), // Value is ignored
+				filter, NO_UPSERT);
+		}
+	}
+
+	/**
+	 * Replaces <code>target</code>, which {@link #spansDocuments spans documents},
+	 * by updating the root document and then making the entry documents match.
+	 * Must be called in a transaction.
+	 */
+	private <T> void writeSpanning(ClientSession session, Reference<T> target, T newValue, BsonDocument extraPreconditions) {
+		BsonValue value = formatter.object2bsonValue(newValue, target.targetType());
+		BsonDocument entries;
+		if (target.path().equals(partitionRef.path())) {
+			entries = value.asDocument();
+			value = new BsonDocument();
+		} else {
+			entries = detachPartition(value, target);
+		}
+		Location location = locationOf(target);
+		BsonDocument filter = standardPreconditions(location);
+		filter.putAll(extraPreconditions);
+		BsonDocument fields = new BsonDocument(location.fieldName(), value);
+		if (entries != null) {
+			fields.put(NEXT_ORDER_FIELD, new BsonInt64(entries.size()));
+		}
+		BsonDocument update = updateDoc().append("$set", fields);
+		if (doUpdate(session, update, filter, NO_UPSERT)) {
+			replaceEntryDocuments(session, entries, true);
+		} else {
+			LOGGER.debug("| Root document not updated; leaving entry documents alone");
+		}
+	}
+
+	private <T> void deleteSpanning(ClientSession session, Reference<T> target) {
+		Location location = locationOf(target);
+		BsonDocument update = updateDoc().append("$unset", new BsonDocument(location.fieldName(), new BsonNull())); // Value is ignored
+		if (doUpdate(session, update, standardPreconditions(location), NO_UPSERT)) {
+			doDelete(session, entryDocumentsFilter());
+		}
+	}
+
+	/**
+	 * Writes a document for each of the given <code>entries</code>,
+	 * numbering their {@link #ORDER_FIELD} from zero.
+	 *
+	 * @param entries the serialized partition catalog; null means empty
+	 * @param overwrite if true, existing entry documents are overwritten, and those
+	 * not among <code>entries</code> are deleted; if false, existing entry documents are left alone
+	 */
+	private void replaceEntryDocuments(ClientSession session, @Nullable BsonDocument entries, boolean overwrite) {
+		Set<BsonString> newIDs = new HashSet<>();
+		if (entries != null) {
+			long order = 0;
+			for (Map.Entry<String, BsonValue> entry: entries.entrySet()) {
+				Identifier entryID = Identifier.from(undottedFieldNameSegment(entry.getKey()));
+				Location location = locationOf(partitionRef.then(entryID));
+				newIDs.add(location.documentID());
+				BsonDocument fields = entryDocument(location, entry.getValue());
+				fields.put(ORDER_FIELD, new BsonInt64(order++));
+				BsonDocument update;
+				if (overwrite) {
+					// Bump the revision rather than resetting it
+					fields.remove(revision.name());
+					update = updateDoc().append("$set", fields);
+				} else {
+					update = new BsonDocument("$setOnInsert", fields);
+				}
+				doUpdate(session, update, location.filter(), UPSERT);
+			}
+		}
+		if (!overwrite) {
+			return;
+		}
+
+		BsonArray obsoleteIDs = new BsonArray();
+		try (MongoCursor<Document> cursor = collection.find(session, entryDocumentsFilter()).projection(ID_ONLY).cursor()) {
+			while (cursor.hasNext()) {
+				BsonString id = new BsonString(cursor.next().getString("_id"));
+				if (!newIDs.contains(id)) {
+					obsoleteIDs.add(id);
+				}
+			}
+		}
+		if (!obsoleteIDs.isEmpty()) {
+			LOGGER.debug("| Delete {} obsolete entry documents", obsoleteIDs.size());
+			doDelete(session, new BsonDocument("_id", new BsonDocument("$in", obsoleteIDs)));
+		}
+	}
+
+	/**
+	 * Writes <code>root</code> to the root document and entry documents.
+	 *
+	 * @param overwrite if false, only documents that don't already exist are written
+	 */
+	private void writeDocuments(ClientSession session, R root, boolean overwrite) {
+		BsonValue rootState = formatter.object2bsonValue(root, rootRef.targetType());
+		BsonDocument entries = detachPartition(rootState, rootRef);
+
+		BsonDocument fieldValues = new BsonDocument(path.name(), new BsonString("/"));
+		fieldValues.put(state.name(), rootState);
+		fieldValues.put(echo.name(), new BsonString(uniqueEchoToken()));
+		fieldValues.put(NEXT_ORDER_FIELD, new BsonInt64((entries == null)? 0 : entries.size()));
+		BsonDocument update;
+		if (overwrite) {
+			update = updateDoc().append("$set", fieldValues);
+		} else {
+			fieldValues.put(revision.name(), REVISION_ONE);
+			update = new BsonDocument("$setOnInsert", fieldValues);
+		}
+		LOGGER.debug("** Root document upsert");
+		doUpdate(session, update, rootDocumentFilter(), UPSERT);
+		replaceEntryDocuments(session, entries, overwrite);
+	}
+
+	/**
+	 * Bumps the revision of the document containing <code>precondition</code> if
+	 * the precondition holds. Within a transaction, this guarantees that the precondition
+	 * still holds when the transaction commits, because a concurrent change to that
+	 * document would be a write conflict.
+	 *
+	 * @return true if the precondition holds
+	 */
+	private boolean touchIfMatches(ClientSession session, Reference<Identifier> precondition, Identifier requiredValue) {
+		Location location = locationOf(precondition);
+		BsonDocument filter = location.filter();
+		filter.putAll(explicitPrecondition(precondition, requiredValue));
+		boolean result = doUpdate(session, updateDoc(), filter, NO_UPSERT);
+		LOGGER.debug("| Precondition {} = {}: {}", precondition, requiredValue, result);
+		return result;
+	}
+
+	private BsonDocument standardPreconditions(Location location) {
+		BsonDocument filter = location.filter();
+		if (!location.isWholeDocument()) {
+			String enclosingObjectKey = fieldNames.enclosingDottedFieldNameOf(location.target(), location.documentRef());
+			BsonDocument condition = new BsonDocument("$type", new BsonString("object"));
+			filter.put(enclosingObjectKey, condition);
+			LOGGER.debug("| Precondition: {} {}", enclosingObjectKey, condition);
+		}
+		return filter;
+	}
+
+	private BsonDocument explicitPrecondition(Reference<Identifier> preconditionRef, Identifier requiredValue) {
+		BsonDocument precondition = new BsonDocument("$eq", new BsonString(requiredValue.toString()));
+		return new BsonDocument(locationOf(preconditionRef).fieldName(), precondition);
+	}
+
+	private <T> BsonDocument replacementDoc(Location location, Reference<T> target, T newValue) {
+		String key = location.fieldName();
+		BsonValue value = formatter.object2bsonValue(newValue, target.targetType());
+		LOGGER.debug("| Set field {} in {}: {}", key, location.documentID(), value);
+		BsonDocument fields = new BsonDocument(key, value);
+		if (location.isWholeDocument() && !location.documentID().equals(ROOT_DOCUMENT_ID)) {
+			fields.put(path.name(), new BsonString(location.documentRef().path().urlEncoded()));
+		}
+		return updateDoc().append("$set", fields);
+	}
+
+	private BsonDocument updateDoc() {
+		return new BsonDocument("$inc", new BsonDocument(revision.name(), REVISION_ONE));
+	}
+
+	/**
+	 * @return true if something changed
+	 */
+	private boolean doUpdate(@Nullable ClientSession session, BsonDocument updateDoc, BsonDocument filter, UpdateOptions options) {
+		LOGGER.debug("| Update: {}", updateDoc);
+		if (settings.testing().eventDelayMS() < 0) {
+			LOGGER.debug("| Sleeping");
+			try {
+				Thread.sleep(-settings.testing().eventDelayMS());
+			} catch (InterruptedException e) {
+				LOGGER.debug("| Interrupted");
+			}
+		}
+		LOGGER.debug("| Filter: {}", filter);
+		UpdateResult result;
+		if (session == null) {
+			result = collection.updateOne(filter, updateDoc, options);
+		} else {
+			result = collection.updateOne(session, filter, updateDoc, options);
+		}
+		LOGGER.debug("| Update result: {}", result);
+		if (result.wasAcknowledged()) {
+			return result.getMatchedCount() >= 1 || result.getUpsertedId() != null;
+		} else {
+			LOGGER.error("Mongo write was not acknowledged.\n\tFilter: {}\n\tUpdate: {}\n\tResult: {}", filter, updateDoc, result);
+			throw new NotYetImplementedException("Mongo write was not acknowledged");
+		}
+	}
+
+	private void doDelete(@Nullable ClientSession session, BsonDocument filter) {
+		LOGGER.debug("| Delete: {}", filter);
+		if (session == null) {
+			collection.deleteMany(filter);
+		} else {
+			collection.deleteMany(session, filter);
+		}
+	}
+
+	/**
+	 * Runs <code>body</code> in a transaction that ends by bumping the root document's revision,
+	 * so that {@link MongoReceiver#awaitLatestRevision} can wait for the root document alone.
+	 * The change stream delivers a transaction's events in order, so once the receiver
+	 * has seen that revision, it has seen everything else the transaction did.
+	 */
+	private void inTransaction(Consumer<ClientSession> body) {
+		try (ClientSession session = mongoClient.startSession(SESSION_OPTIONS)) {
+			// withTransaction retries on write conflicts, which is how touchIfMatches ensures atomicity
+			session.withTransaction(() -> {
+				body.accept(session);
+				doUpdate(session, updateDoc(), rootDocumentFilter(), NO_UPSERT);
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Writes to the root document bump its revision anyway, and so need no transaction.
+	 *
+	 * @param body is passed a null session if <code>location</code> is in the root document
+	 */
+	private void inDocumentOf(Location location, Consumer<ClientSession> body) {
+		if (location.documentID().equals(ROOT_DOCUMENT_ID)) {
+			body.accept(null);
+		} else {
+			inTransaction(body);
+		}
+	}
+
+	//
+	// Reads
+	//
+
+	@SuppressWarnings("unchecked")
+	private <E extends Entity> R withEntries(R root, Catalog<E> entries) {
+		try {
+			return (R) partitionDereferencer.with(root, partitionRef, entries);
+		} catch (NonexistentEntryException e) {
+			if (entries.isEmpty()) {
+				LOGGER.debug("| No partition catalog at {}", partitionRef);
+				return root;
+			} else {
+				throw new IllegalStateException("Entry documents exist but the partition catalog's container does not: " + partitionRef, e);
+			}
+		}
+	}
+
+	/**
+	 * Reads all entry documents, splitting them among up to
+	 * {@link MongoDriverSettings#initialLoadParallelism()} cursors.
+	 */
+	private <E extends Entity> Catalog<E> loadEntries(CatalogReference<E> catalogRef) throws InterruptedException {
+		List<Document> keys = new ArrayList<>();
+		try (MongoCursor<Document> cursor = collection.find(entryDocumentsFilter()).projection(ORDER_AND_ID).cursor()) {
+			while (cursor.hasNext()) {
+				keys.add(cursor.next());
+			}
+		}
+		// Same order as readEntries, so the chunks can simply be concatenated
+		keys.sort(Comparator
+			.comparing((Document d) -> d.get(ORDER_FIELD, Long.class), nullsFirst(naturalOrder()))
+			.thenComparing(d -> d.getString("_id")));
+		List<BsonString> ids = new ArrayList<>(keys.size());
+		for (Document key: keys) {
+			ids.add(new BsonString(key.getString("_id")));
+		}
+		LOGGER.debug("| Loading {} entry documents", ids.size());
+		if (ids.isEmpty()) {
+			return Catalog.empty();
+		}
+
+		int numCursors = min(settings.initialLoadParallelism(), ids.size());
+		int chunkSize = (ids.size() + numCursors - 1) / numCursors;
+		List<Callable<List<E>>> tasks = new ArrayList<>();
+		for (int start = 0; start < ids.size(); start += chunkSize) {
+			BsonArray chunk = new BsonArray(ids.subList(start, min(ids.size(), start + chunkSize)));
+			BsonDocument filter = new BsonDocument("_id", new BsonDocument("$in", chunk));
+			tasks.add(() -> readEntries(null, catalogRef, filter));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numCursors);
+		try {
+			List<E> result = new ArrayList<>(ids.size());
+			for (Future<List<E>> future: executor.invokeAll(tasks)) {
+				try {
+					result.addAll(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					} else {
+						throw new IllegalStateException("Unable to load entry documents", e.getCause());
+					}
+				}
+			}
+			return Catalog.of(result);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the entries whose documents match <code>filter</code>, in catalog order:
+	 * by {@link #ORDER_FIELD}, with those lacking one first, and then by document ID.
+	 */
+	private <E extends Entity> List<E> readEntries(@Nullable ClientSession session, CatalogReference<E> catalogRef, BsonDocument filter) {
+		List<OrderedEntry<E>> found = new ArrayList<>();
+		FindIterable<Document> documents = (session == null)? collection.find(filter) : collection.find(session, filter);
+		// Sorting by _id uses the index, rather than sorting whole documents in memory on the server;
+		// then a stable sort by order field leaves ties in order of their IDs.
+		try (MongoCursor<Document> cursor = documents.sort(ID_ASCENDING).cursor()) {
+			while (cursor.hasNext()) {
+				Document document = cursor.next();
+				String documentID = document.getString("_id");
+				Identifier entryID = Identifier.from(documentID.substring(ENTRY_DOCUMENT_ID_PREFIX.length()));
+				Document entryState = document.get(state.name(), Document.class);
+				if (entryState == null) {
+					LOGGER.warn("Entry document {} has no state; ignoring", documentID);
+				} else {
+					E entry = formatter.document2object(entryState, catalogRef.then(entryID));
+					found.add(new OrderedEntry<>(document.get(ORDER_FIELD, Long.class), entry));
+				}
+			}
+		}
+		found.sort(Comparator.comparing(OrderedEntry::order, nullsFirst(naturalOrder())));
+		List<E> result = new ArrayList<>(found.size());
+		for (OrderedEntry<E> orderedEntry: found) {
+			result.add(orderedEntry.entry());
+		}
+		return result;
+	}
+
+	@Value
+	private static class OrderedEntry<E> {
+		Long order;
+		E entry;
+	}
+
+	//
+	// Echo helper logic
+	//
+
+	private String uniqueEchoToken() {
+		return format("%s_%012d", echoPrefix, echoCounter.addAndGet(1L));
+	}
+
+	/**
+	 * Same as {@link SingleDocumentMongoDriver}'s echo, using the root document.
+	 * The change stream covers all the documents, so this waits for
+	 * prior updates to entry documents too.
+	 *
+	 * @throws MongoException if something goes wrong with MongoDB
+	 */
+	private void performEcho() throws InterruptedException, FlushFailureException {
+		String echoToken = uniqueEchoToken();
+		BlockingQueue<BsonDocument> listener = new ArrayBlockingQueue<>(1);
+		try {
+			receiver.putEchoListener(echoToken, listener);
+			BsonDocument updateDoc = updateDoc().append("$set", new BsonDocument(
+				echo.name(),
+				new BsonString(echoToken)
+			));
+			LOGGER.debug("| Update: {}", updateDoc);
+			UpdateResult result = collection.updateOne(rootDocumentFilter(), updateDoc);
+			if (result.getModifiedCount() == 0) {
+				LOGGER.debug("Document does not exist; echo succeeds trivially. Response: {}", result);
+				return;
+			}
+			LOGGER.debug("| Waiting");
+			if (listener.poll(settings.flushTimeoutMS(), MILLISECONDS) == null) {
+				throw new FlushFailureException("No flush response after " + settings.flushTimeoutMS() + "ms");
+			}
+		} finally {
+			receiver.removeEchoListener(echoToken);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+	private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+	private static final UpdateOptions NO_UPSERT = new UpdateOptions();
+	private static final BsonDocument ID_ONLY = new BsonDocument("_id", new BsonInt32(1));
+	private static final BsonDocument ORDER_AND_ID = new BsonDocument(ORDER_FIELD, new BsonInt32(1)).append("_id", new BsonInt32(1));
+	private static final BsonDocument ID_ASCENDING = new BsonDocument("_id", new BsonInt32(1));
+	private static final ClientSessionOptions SESSION_OPTIONS = ClientSessionOptions.builder()
+		.causallyConsistent(true)
+		.defaultTransactionOptions(TransactionOptions.builder()
+			.writeConcern(WriteConcern.MAJORITY)
+			.readConcern(ReadConcern.MAJORITY)
+			.build())
+		.build();
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedMongoDriver.class);
+}
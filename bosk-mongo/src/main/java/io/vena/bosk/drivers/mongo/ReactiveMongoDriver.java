@@ -0,0 +1,839 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.lang.Nullable;
+import com.mongodb.reactivestreams.client.ChangeStreamPublisher;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Entity;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.mongo.Formatter.DocumentFields;
+import io.vena.bosk.exceptions.FlushFailureException;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import io.vena.bosk.exceptions.NotYetImplementedException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.echo;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.path;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
+import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.state;
+import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ONE;
+import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ZERO;
+import static io.vena.bosk.drivers.mongo.SingleDocumentMongoDriver.COLLECTION_NAME;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.identityHashCode;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.bson.BsonBoolean.FALSE;
+
+/**
+ * A {@link MongoDriver} with the same database layout as {@link SingleDocumentMongoDriver},
+ * built on the MongoDB reactive streams driver so that it doesn't need any threads of its own.
+ *
+ * <ul><li>
+ *     Updates are encoded on the submitting thread and written asynchronously, one at a time,
+ *     in the order they were submitted. The submit methods return without waiting for the write.
+ * </li><li>
+ *     Change stream events are received via a subscription that requests one event at a time,
+ *     and requests the next only once the previous one has been submitted downstream,
+ *     so a slow downstream driver applies backpressure all the way to the database.
+ * </li><li>
+ *     {@link #flushAsync()} is a chain of futures that doesn't block any thread;
+ *     {@link #flush()} just waits for it.
+ * </li></ul>
+ *
+ * <p>
+ * {@link MongoDriverSettings#pipelining() Pipelining} settings are ignored.
+ * {@link MongoDriverSettings.FlushMode#REVISION_FIELD_COALESCED REVISION_FIELD_COALESCED}
+ * is treated as {@link MongoDriverSettings.FlushMode#REVISION_FIELD_ONLY REVISION_FIELD_ONLY}.
+ */
+final class ReactiveMongoDriver<R extends Entity> implements MongoDriver<R> {
+	private final String description;
+	private final MongoDriverSettings settings;
+	private final BoskDriver<R> downstream;
+	private final Formatter formatter;
+	private final DottedFieldNameTranslator fieldNames;
+	private final MongoClient mongoClient;
+	private final MongoCollection<Document> collection;
+	private final BsonString documentID = new BsonString("boskDocument");
+	private final Reference<R> rootRef;
+	private final String echoPrefix;
+	private final AtomicLong echoCounter = new AtomicLong(1_000_000_000_000L);
+	private final String identityString = format("%08x", identityHashCode(this));
+
+	// Writes
+	private final Object writeLock = new Object();
+	private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null); // Guarded by writeLock
+	private final AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+
+	// Change stream
+	private final AtomicBoolean isClosed = new AtomicBoolean(false);
+	private volatile Subscription eventSubscription;
+	private volatile BsonDocument lastProcessedResumeToken = null;
+	private volatile BsonInt64 lastProcessedRevision = null;
+	private final ConcurrentSkipListMap<RevisionWaiter, CompletableFuture<Void>> revisionFutures = new ConcurrentSkipListMap<>();
+	private final AtomicLong revisionWaiterCounter = new AtomicLong(0);
+	private final ConcurrentHashMap<String, CompletableFuture<Void>> echoFutures = new ConcurrentHashMap<>();
+
+	ReactiveMongoDriver(Bosk<R> bosk, MongoClientSettings clientSettings, MongoDriverSettings driverSettings, BsonPlugin bsonPlugin, BoskDriver<R> downstream) {
+		validateMongoClientSettings(clientSettings);
+		this.description = ReactiveMongoDriver.class.getSimpleName() + ": " + driverSettings;
+		this.settings = driverSettings;
+		this.downstream = downstream;
+		this.mongoClient = MongoClients.create(clientSettings);
+		this.formatter = new Formatter(bosk, bsonPlugin);
+		this.fieldNames = formatter.fieldNames();
+		this.collection = mongoClient
+			.getDatabase(driverSettings.database())
+			.getCollection(COLLECTION_NAME);
+		this.echoPrefix = bosk.instanceID().toString();
+		this.rootRef = bosk.rootReference();
+		subscribeToChangeStream();
+	}
+
+	private void validateMongoClientSettings(MongoClientSettings clientSettings) {
+		// Same requirements as SingleDocumentMongoDriver
+		if (clientSettings.getReadConcern() != ReadConcern.MAJORITY) {
+			throw new IllegalArgumentException("MongoDriver requires MongoClientSettings to specify ReadConcern.MAJORITY");
+		}
+		if (clientSettings.getWriteConcern() != WriteConcern.MAJORITY) {
+			throw new IllegalArgumentException("MongoDriver requires MongoClientSettings to specify WriteConcern.MAJORITY");
+		}
+	}
+
+	/**
+	 * Blocks the calling thread. This happens only once, during initialization.
+	 *
+	 * <p>
+	 * Unlike a cursor from the synchronous driver, a change stream subscription gives no sign
+	 * of when it has actually started, so before relying on events, we
+	 * {@link #confirmSubscription() confirm} that the subscription is live.
+	 * That way, we know every subsequent update will be received.
+	 */
+	@Override
+	public R initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+		LOGGER.debug("+ initialRoot");
+		if (confirmSubscription()) {
+			Document newDocument = await(first(collection.find(documentFilter()).limit(1)));
+			Document newState = (newDocument == null)? null : newDocument.get(state.name(), Document.class);
+			if (newState == null) {
+				LOGGER.debug("| No existing state; delegating downstream");
+			} else {
+				LOGGER.debug("| From database: {}", newState);
+				return formatter.document2object(newState, rootRef);
+			}
+		} else {
+			LOGGER.debug("| No tenant document; delegating downstream");
+		}
+
+		R root = downstream.initialRoot(rootType);
+		await(ensureDocumentExists(formatter.object2bsonValue(root, rootType)));
+		if (!confirmSubscription()) {
+			throw new FlushFailureException("Document " + documentID + " was deleted during initialization");
+		}
+		return root;
+	}
+
+	/**
+	 * Bumps the revision and waits to see the resulting event. If it doesn't arrive soon,
+	 * the subscription may not have been live yet when we bumped it, so we try again,
+	 * for up to {@link MongoDriverSettings#flushTimeoutMS() flushTimeoutMS}.
+	 *
+	 * @return false if there's no document, in which case the subscription is not confirmed
+	 */
+	private boolean confirmSubscription() throws IOException, InterruptedException {
+		long deadline = currentTimeMillis() + settings.flushTimeoutMS();
+		while (true) {
+			if (!await(bumpRevision())) {
+				return false;
+			}
+			CompletableFuture<Void> revisionReceived = latestRevision();
+			try {
+				revisionReceived.get(min(SUBSCRIPTION_RETRY_MS, max(1, deadline - currentTimeMillis())), MILLISECONDS);
+				LOGGER.debug("| Change stream subscription confirmed");
+				return true;
+			} catch (TimeoutException e) {
+				revisionReceived.cancel(false);
+				if (currentTimeMillis() >= deadline) {
+					throw new FlushFailureException("Change stream subscription not confirmed after " + settings.flushTimeoutMS() + "ms", e);
+				}
+				LOGGER.debug("| No event yet; bumping revision again");
+			} catch (ExecutionException e) {
+				throw unwrapped(e);
+			}
+		}
+	}
+
+	@Override
+	public <T> void submitReplacement(Reference<T> target, T newValue) {
+		LOGGER.debug("+ submitReplacement({})", target);
+		submitUpdate(replacementDoc(target, newValue), standardPreconditions(target));
+	}
+
+	@Override
+	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
+		LOGGER.debug("+ submitConditionalReplacement({}, {} = {})", target, precondition, requiredValue);
+		submitUpdate(
+			replacementDoc(target, newValue),
+			explicitPreconditions(target, precondition, requiredValue));
+	}
+
+	@Override
+	public <T> void submitInitialization(Reference<T> target, T newValue) {
+		LOGGER.debug("+ submitInitialization({})", target);
+		BsonDocument filter = standardPreconditions(target);
+		filter.put(fieldNames.dottedFieldNameOf(target, rootRef), new BsonDocument("$exists", FALSE));
+		submitUpdate(replacementDoc(target, newValue), filter);
+	}
+
+	@Override
+	public <T> void submitDeletion(Reference<T> target) {
+		LOGGER.debug("+ submitDeletion({})", target);
+		if (target.path().isEmpty()) {
+			throw new IllegalArgumentException("Can't delete the root of the bosk");
+		} else {
+			submitUpdate(deletionDoc(target), standardPreconditions(target));
+		}
+	}
+
+	@Override
+	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
+		LOGGER.debug("+ submitConditionalDeletion({}, {} = {})", target, precondition, requiredValue);
+		submitUpdate(
+			deletionDoc(target),
+			explicitPreconditions(target, precondition, requiredValue));
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		LOGGER.debug("+ flush");
+		await(flushAsync());
+	}
+
+	/**
+	 * Waits for all updates submitted so far to be written; then, depending on
+	 * {@link MongoDriverSettings#flushMode() flushMode}, waits for an echo or for the latest revision;
+	 * then flushes the downstream driver.
+	 * None of this blocks any thread, except that the downstream flush runs on the common pool.
+	 */
+	@Override
+	public CompletableFuture<Void> flushAsync() {
+		CompletableFuture<Void> writesDone;
+		synchronized (writeLock) {
+			writesDone = lastWrite;
+		}
+		CompletableFuture<Void> result = writesDone
+			.thenRun(() -> {
+				Throwable failure = writeFailure.getAndSet(null);
+				if (failure != null) {
+					throw new CompletionException(new FlushFailureException("Unable to write pending updates", failure));
+				}
+			})
+			.thenCompose(x -> {
+				switch (settings.flushMode()) {
+					case REVISION_FIELD_ONLY:
+					case REVISION_FIELD_COALESCED:
+						// Time out the waiter itself, so it doesn't linger in revisionFutures
+						return withTimeout(latestRevision());
+					default:
+						LOGGER.warn("Unrecognized flush mode {}; defaulting to ECHO", settings.flushMode());
+						// fall through
+					case ECHO:
+						return echo();
+				}
+			})
+			.thenRunAsync(() -> {
+				try {
+					LOGGER.debug("| Downstream flush");
+					downstream.flush();
+				} catch (IOException | InterruptedException e) {
+					throw new CompletionException(e);
+				}
+			});
+		return withTimeout(result);
+	}
+
+	/**
+	 * Does the same thing as {@link SingleDocumentMongoDriver#refurbish()}, in a transaction.
+	 */
+	@Override
+	public void refurbish() {
+		CompletableFuture<Void> writesDone;
+		synchronized (writeLock) {
+			writesDone = lastWrite;
+		}
+		try {
+			writesDone
+				.thenCompose(x -> first(mongoClient.startSession(SESSION_OPTIONS)))
+				.thenCompose(this::refurbishInTransaction)
+				.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to refurbish", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during refurbish", e);
+		}
+	}
+
+	/**
+	 * Commits the transaction if everything succeeds; otherwise aborts it.
+	 * Either way, closes the session.
+	 */
+	private CompletableFuture<Void> refurbishInTransaction(ClientSession session) {
+		session.startTransaction();
+		return refurbishDocument(session)
+			.thenCompose(x -> first(session.commitTransaction()))
+			.handle((x, failure) -> failure)
+			.thenCompose(failure -> {
+				CompletableFuture<Void> aborted = session.hasActiveTransaction()
+					? first(session.abortTransaction())
+					: CompletableFuture.<Void>completedFuture(null);
+				return aborted.<Void>handle((x, abortFailure) -> {
+					if (abortFailure != null) {
+						LOGGER.warn("Unable to abort refurbish transaction", abortFailure);
+					}
+					session.close();
+					if (failure != null) {
+						throw (failure instanceof CompletionException)? (CompletionException) failure : new CompletionException(failure);
+					}
+					return null;
+				});
+			});
+	}
+
+	private CompletableFuture<Void> refurbishDocument(ClientSession session) {
+		return first(collection.find(session, documentFilter()).limit(1)).thenCompose(documentFromDB -> {
+			Document stateFromDB = (documentFromDB == null)? null : documentFromDB.get(state.name(), Document.class);
+			if (stateFromDB == null) {
+				LOGGER.debug("No state to refurbish");
+				return CompletableFuture.<Void>completedFuture(null);
+			}
+
+			// Round trip via state tree nodes
+			R root = formatter.document2object(stateFromDB, rootRef);
+			BsonValue initialState = formatter.object2bsonValue(root, rootRef.targetType());
+
+			// As in SingleDocumentMongoDriver: start with a blank document so subsequent changes
+			// become update events; set all the fields we set on initialization; then set the
+			// revision number to its highest value ever, so all bosks receive an update event for it.
+			long newRevision = 1 + documentFromDB.get(revision.name(), REVISION_ZERO.longValue());
+			return first(collection.replaceOne(session, documentFilter(), new Document()))
+				.thenCompose(x -> first(collection.updateOne(session, documentFilter(), new BsonDocument("$set", initialFields(initialState)))))
+				.thenCompose(x -> first(collection.updateOne(session, documentFilter(), new BsonDocument("$set", new BsonDocument(revision.name(), new BsonInt64(newRevision))))))
+				.thenRun(() -> LOGGER.debug("| Refurbished at revision {}", newRevision));
+		});
+	}
+
+	@Override
+	public void close() {
+		if (isClosed.compareAndSet(false, true)) {
+			LOGGER.debug("Closing {}", identityString);
+			try {
+				Subscription subscription = eventSubscription;
+				if (subscription != null) {
+					subscription.cancel();
+				}
+				FlushFailureException closed = new FlushFailureException("Driver " + identityString + " is closed");
+				revisionFutures.values().forEach(f -> f.completeExceptionally(closed));
+				echoFutures.values().forEach(f -> f.completeExceptionally(closed));
+			} finally {
+				mongoClient.close();
+			}
+		}
+	}
+
+	//
+	// Writes
+	//
+
+	/**
+	 * Chains the update after the previous one, so they're written in submission order.
+	 * A failed update is remembered and reported by the next flush; it doesn't stop subsequent updates.
+	 */
+	private void submitUpdate(BsonDocument updateDoc, BsonDocument filter) {
+		LOGGER.debug("| Update: {}", updateDoc);
+		LOGGER.debug("| Filter: {}", filter);
+		synchronized (writeLock) {
+			lastWrite = lastWrite
+				.thenCompose(x -> first(collection.updateOne(filter, updateDoc)))
+				.handle((result, e) -> {
+					if (e != null) {
+						LOGGER.error("Unable to write update.\n\tFilter: {}\n\tUpdate: {}", filter, updateDoc, e);
+						writeFailure.compareAndSet(null, e);
+					} else if (!result.wasAcknowledged()) {
+						LOGGER.error("Mongo write was not acknowledged.\n\tFilter: {}\n\tUpdate: {}\n\tResult: {}", filter, updateDoc, result);
+						writeFailure.compareAndSet(null, new IllegalStateException("Mongo write was not acknowledged"));
+					} else {
+						LOGGER.debug("| Update result: {}", result);
+					}
+					return null;
+				});
+		}
+	}
+
+	/**
+	 * @return future true if the document exists
+	 */
+	private CompletableFuture<Boolean> bumpRevision() {
+		return first(collection.updateOne(documentFilter(), updateDoc()))
+			.thenApply(result -> result.getMatchedCount() >= 1);
+	}
+
+	private CompletableFuture<UpdateResult> ensureDocumentExists(BsonValue initialState) {
+		LOGGER.debug("** Initial tenant upsert for {}", documentID);
+		return first(collection.updateOne(documentFilter(), new BsonDocument("$setOnInsert", initialFields(initialState)), new UpdateOptions().upsert(true)));
+	}
+
+	/**
+	 * @return the fields, other than <code>_id</code>, of a newly initialized document
+	 */
+	private BsonDocument initialFields(BsonValue initialState) {
+		BsonDocument fieldValues = new BsonDocument();
+		fieldValues.put(path.name(), new BsonString("/"));
+		fieldValues.put(state.name(), initialState);
+		fieldValues.put(echo.name(), new BsonString(uniqueEchoToken()));
+		fieldValues.put(revision.name(), REVISION_ONE);
+		return fieldValues;
+	}
+
+	private BsonDocument documentFilter() {
+		return new BsonDocument("_id", documentID);
+	}
+
+	private <T> BsonDocument standardPreconditions(Reference<T> target) {
+		BsonDocument filter = documentFilter();
+		if (!target.path().isEmpty()) {
+			String enclosingObjectKey = fieldNames.enclosingDottedFieldNameOf(target, rootRef);
+			BsonDocument condition = new BsonDocument("$type", new BsonString("object"));
+			filter.put(enclosingObjectKey, condition);
+			LOGGER.debug("| Precondition: {} {}", enclosingObjectKey, condition);
+		}
+		return filter;
+	}
+
+	private <T> BsonDocument explicitPreconditions(Reference<T> target, Reference<Identifier> preconditionRef, Identifier requiredValue) {
+		BsonDocument filter = standardPreconditions(target);
+		BsonDocument precondition = new BsonDocument("$eq", new BsonString(requiredValue.toString()));
+		filter.put(fieldNames.dottedFieldNameOf(preconditionRef, rootRef), precondition);
+		return filter;
+	}
+
+	private <T> BsonDocument replacementDoc(Reference<T> target, T newValue) {
+		String key = fieldNames.dottedFieldNameOf(target, rootRef);
+		BsonValue value = formatter.object2bsonValue(newValue, target.targetType());
+		LOGGER.debug("| Set field {}: {}", key, value);
+		return updateDoc()
+			.append("$set", new BsonDocument(key, value));
+	}
+
+	private <T> BsonDocument deletionDoc(Reference<T> target) {
+		String key = fieldNames.dottedFieldNameOf(target, rootRef);
+		LOGGER.debug("| Unset field {}", key);
+		return updateDoc().append("$unset", new BsonDocument(key, new BsonNull())); // Value is ignored
+	}
+
+	private BsonDocument updateDoc() {
+		return new BsonDocument("$inc", new BsonDocument(revision.name(), REVISION_ONE));
+	}
+
+	//
+	// Flush
+	//
+
+	private String uniqueEchoToken() {
+		return format("%s_%012d", echoPrefix, echoCounter.addAndGet(1L));
+	}
+
+	/**
+	 * @see SingleDocumentMongoDriver#flush()
+	 */
+	private CompletableFuture<Void> echo() {
+		String echoToken = uniqueEchoToken();
+		CompletableFuture<Void> echoReceived = new CompletableFuture<>();
+		echoFutures.put(echoToken, echoReceived);
+		BsonDocument updateDoc = updateDoc().append("$set", new BsonDocument(
+			echo.name(),
+			new BsonString(echoToken)
+		));
+		LOGGER.debug("| Update: {}", updateDoc);
+		return first(collection.updateOne(documentFilter(), updateDoc))
+			.thenCompose(result -> {
+				if (result.getModifiedCount() == 0) {
+					LOGGER.debug("Document does not exist; echo succeeds trivially. Response: {}", result);
+					return CompletableFuture.completedFuture(null);
+				} else {
+					return echoReceived;
+				}
+			})
+			.whenComplete((v, e) -> echoFutures.remove(echoToken));
+	}
+
+	/**
+	 * The returned future is the one registered in {@link #revisionFutures},
+	 * so if the caller cancels it or times it out, it is removed from there.
+	 */
+	private CompletableFuture<Void> latestRevision() {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		long serialNumber = revisionWaiterCounter.incrementAndGet();
+		first(collection.find(documentFilter()).limit(1).projection(fields(include(revision.name()))))
+			.whenComplete((doc, e) -> {
+				if (e == null) {
+					Long revisionNumber = (doc == null)? null : doc.get(revision.name(), Long.class);
+					// A missing document or revision field means we're ok to wait for any revision at all
+					BsonInt64 requiredRevision = (revisionNumber == null)? REVISION_ZERO : new BsonInt64(revisionNumber);
+					awaitRevision(new RevisionWaiter(requiredRevision, serialNumber), result);
+				} else {
+					result.completeExceptionally(e);
+				}
+			});
+		return result;
+	}
+
+	private void awaitRevision(RevisionWaiter waiter, CompletableFuture<Void> result) {
+		BsonInt64 actualRevision = lastProcessedRevision;
+		if (actualRevision != null && actualRevision.compareTo(waiter.revision()) >= 0) {
+			result.complete(null);
+			return;
+		}
+		LOGGER.debug("| Waiting for {}", waiter.revision());
+		revisionFutures.put(waiter, result);
+
+		// However it completes, including by timing out (perhaps already),
+		// it no longer needs to be in the map
+		result.whenComplete((v, e) -> revisionFutures.remove(waiter, result));
+
+		// Race: re-check in case the revision arrived while we were registering
+		completeRevisionFutures();
+	}
+
+	/**
+	 * @see SingleDocumentMongoChangeStreamReceiver
+	 */
+	private void completeRevisionFutures() {
+		BsonInt64 lastProcessedRevision = this.lastProcessedRevision;
+		if (lastProcessedRevision == null) {
+			return;
+		}
+		Map.Entry<RevisionWaiter, CompletableFuture<Void>> entry;
+		while ((entry = revisionFutures.firstEntry()) != null && entry.getKey().revision().compareTo(lastProcessedRevision) <= 0) {
+			if (revisionFutures.remove(entry.getKey(), entry.getValue())) {
+				entry.getValue().complete(null);
+			}
+		}
+	}
+
+	private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+		ScheduledFuture<?> timeout = TIMEOUTS.schedule(() -> {
+			if (future.completeExceptionally(new FlushFailureException("No flush response after " + settings.flushTimeoutMS() + "ms"))) {
+				LOGGER.debug("| Flush timeout on {}", identityString);
+			}
+		}, settings.flushTimeoutMS(), MILLISECONDS);
+		future.whenComplete((v, e) -> timeout.cancel(false));
+		return future;
+	}
+
+	/**
+	 * Waits for <code>future</code> for up to {@link MongoDriverSettings#flushTimeoutMS() flushTimeoutMS},
+	 * unwrapping its exceptions.
+	 */
+	private <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get(settings.flushTimeoutMS(), MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new FlushFailureException("No response after " + settings.flushTimeoutMS() + "ms", e);
+		} catch (ExecutionException e) {
+			throw unwrapped(e);
+		}
+	}
+
+	/**
+	 * @return the cause of <code>e</code> if it can be thrown as-is; otherwise, a {@link FlushFailureException}
+	 * @throws IOException if that's the cause
+	 */
+	private static RuntimeException unwrapped(ExecutionException e) throws IOException {
+		Throwable cause = e.getCause();
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		} else {
+			return new FlushFailureException(cause);
+		}
+	}
+
+	//
+	// Change stream event processing from MongoDB
+	//
+
+	private void subscribeToChangeStream() {
+		ChangeStreamPublisher<Document> publisher = collection.watch();
+		BsonDocument resumeToken = lastProcessedResumeToken;
+		if (resumeToken != null) {
+			LOGGER.debug("Subscribing with resume token {}", resumeToken);
+			publisher = publisher.resumeAfter(resumeToken);
+		}
+		publisher.subscribe(new ChangeStreamSubscriber());
+	}
+
+	/**
+	 * Requests one event at a time, so events arrive no faster than we can
+	 * submit them downstream.
+	 */
+	private final class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument<Document>> {
+		private Subscription subscription;
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription = s;
+			eventSubscription = s;
+			if (isClosed.get()) {
+				s.cancel();
+			} else {
+				s.request(1);
+			}
+		}
+
+		@Override
+		public void onNext(ChangeStreamDocument<Document> event) {
+			try {
+				processEvent(event);
+			} catch (Throwable e) {
+				LOGGER.error("Unable to process event: " + event, e);
+				// Keep going, as SingleDocumentMongoChangeStreamReceiver does
+			}
+			if (!isClosed.get()) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			if (isClosed.get()) {
+				LOGGER.trace("Driver is closed; ignoring change stream error", t);
+			} else {
+				LOGGER.warn("Lost change stream subscription; resubscribing", t);
+				resubscribeLater();
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (!isClosed.get()) {
+				LOGGER.warn("Change stream ended; resubscribing");
+				resubscribeLater();
+			}
+		}
+
+		private void resubscribeLater() {
+			if (lastProcessedResumeToken == null) {
+				LOGGER.error("No resume token available. Resubscribing from current location. Some update events could be missed.");
+			}
+			TIMEOUTS.schedule(() -> {
+				if (!isClosed.get()) {
+					subscribeToChangeStream();
+				}
+			}, RESUBSCRIBE_DELAY_MS, MILLISECONDS);
+		}
+	}
+
+	private void processEvent(ChangeStreamDocument<Document> event) {
+		LOGGER.debug("# EVENT: {}", event);
+		switch (event.getOperationType()) {
+			case INSERT: case REPLACE:
+				LOGGER.debug("| Replace document - IGNORE");
+				break;
+			case UPDATE:
+				UpdateDescription updateDescription = event.getUpdateDescription();
+				if (updateDescription != null) {
+					BsonDocument updatedFields = updateDescription.getUpdatedFields();
+					replaceUpdatedFields(updatedFields);
+					deleteRemovedFields(updateDescription.getRemovedFields());
+					notifyIfEcho(updatedFields);
+					bumpLastProcessedRevision(updatedFields);
+				}
+				break;
+			default:
+				throw new NotYetImplementedException("Unknown change stream event: " + event);
+		}
+		lastProcessedResumeToken = event.getResumeToken();
+	}
+
+	private void replaceUpdatedFields(@Nullable BsonDocument updatedFields) {
+		if (updatedFields != null) {
+			for (Map.Entry<String, BsonValue> entry : updatedFields.entrySet()) {
+				String dottedName = entry.getKey();
+				if (dottedName.startsWith(DocumentFields.state.name())) {
+					Reference<Object> ref;
+					try {
+						ref = fieldNames.referenceTo(dottedName, rootRef);
+					} catch (InvalidTypeException e) {
+						logNonexistentField(dottedName, e);
+						continue;
+					}
+					LOGGER.debug("| Replace {}", ref);
+					downstream.submitReplacement(ref, formatter.bsonValue2object(entry.getValue(), ref));
+				}
+			}
+		}
+	}
+
+	private void deleteRemovedFields(@Nullable List<String> removedFields) {
+		if (removedFields != null) {
+			for (String dottedName : removedFields) {
+				if (dottedName.startsWith(DocumentFields.state.name())) {
+					Reference<Object> ref;
+					try {
+						ref = fieldNames.referenceTo(dottedName, rootRef);
+					} catch (InvalidTypeException e) {
+						logNonexistentField(dottedName, e);
+						continue;
+					}
+					LOGGER.debug("| Delete {}", ref);
+					downstream.submitDeletion(ref);
+				}
+			}
+		}
+	}
+
+	private void notifyIfEcho(@Nullable BsonDocument updatedFields) {
+		if (updatedFields != null) {
+			BsonValue newValue = updatedFields.get(echo.name());
+			if (newValue != null) {
+				CompletableFuture<Void> listener = echoFutures.remove(newValue.asString().getValue());
+				if (listener != null) {
+					LOGGER.debug("| Echo {}", newValue);
+					listener.complete(null);
+				}
+			}
+		}
+	}
+
+	private void bumpLastProcessedRevision(@Nullable BsonDocument updatedFields) {
+		if (updatedFields != null) {
+			BsonInt64 newValue = updatedFields.getInt64(revision.name(), null);
+			if (newValue == null) {
+				LOGGER.warn("| No revision field");
+			} else {
+				LOGGER.debug("| Revision {}", newValue);
+				lastProcessedRevision = newValue;
+				completeRevisionFutures();
+			}
+		}
+	}
+
+	private void logNonexistentField(String dottedName, InvalidTypeException e) {
+		LOGGER.trace("Nonexistent field {}",  dottedName, e);
+		if (LOGGER.isWarnEnabled() && ALREADY_WARNED.add(dottedName)) {
+			LOGGER.warn("Ignoring updates of nonexistent field {}", dottedName);
+		}
+	}
+
+	/**
+	 * Subscribes to <code>publisher</code>, which is expected to produce at most one item.
+	 *
+	 * @return future for the item, or for null if there isn't one
+	 */
+	private static <T> CompletableFuture<T> first(Publisher<T> publisher) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		publisher.subscribe(new Subscriber<T>() {
+			@Override
+			public void onSubscribe(Subscription s) {
+				s.request(1);
+			}
+
+			@Override
+			public void onNext(T t) {
+				result.complete(t);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				result.completeExceptionally(t);
+			}
+
+			@Override
+			public void onComplete() {
+				result.complete(null);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+	private static final long RESUBSCRIBE_DELAY_MS = 1_000;
+	private static final long SUBSCRIPTION_RETRY_MS = 1_000;
+
+	private static final ClientSessionOptions SESSION_OPTIONS = ClientSessionOptions.builder()
+		.causallyConsistent(true)
+		.defaultTransactionOptions(TransactionOptions.builder()
+			.writeConcern(WriteConcern.MAJORITY)
+			.readConcern(ReadConcern.MAJORITY)
+			.build())
+		.build();
+
+	/**
+	 * Shared by all instances, so that having many drivers doesn't mean having many threads.
+	 * Only ever runs short tasks.
+	 */
+	private static final ScheduledThreadPoolExecutor TIMEOUTS;
+
+	static {
+		TIMEOUTS = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "reactive-mongo-timeouts");
+			thread.setDaemon(true);
+			return thread;
+		});
+		TIMEOUTS.setRemoveOnCancelPolicy(true);
+	}
+
+	private static final Set<String> ALREADY_WARNED = newSetFromMap(new ConcurrentHashMap<>());
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveMongoDriver.class);
+}
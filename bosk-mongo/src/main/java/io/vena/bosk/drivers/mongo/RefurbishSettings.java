@@ -0,0 +1,36 @@
+package io.vena.bosk.drivers.mongo;
+
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Value;
+
+/**
+ * Controls {@link MongoDriver#refurbishIncrementally}.
+ */
+@Value
+@Builder
+public class RefurbishSettings {
+	/**
+	 * The maximum number of chunks rewritten in one round trip.
+	 */
+	@Default int batchSize = 100;
+
+	/**
+	 * How long to wait between batches, to limit the load on the database
+	 * and on the bosks processing the resulting change events.
+	 */
+	@Default long pauseMS = 0;
+
+	@Default ProgressListener progressListener = (chunksWritten, totalChunks) -> { };
+
+	public interface ProgressListener {
+		/**
+		 * Called after each batch.
+		 *
+		 * @param chunksWritten the number of changed chunks processed so far,
+		 * including any that were skipped because they had been changed concurrently
+		 * @param totalChunks the number of chunks whose encoding has changed
+		 */
+		void progress(int chunksWritten, int totalChunks);
+	}
+}
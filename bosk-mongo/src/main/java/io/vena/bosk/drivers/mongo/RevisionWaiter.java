@@ -0,0 +1,25 @@
+package io.vena.bosk.drivers.mongo;
+
+import lombok.Value;
+import org.bson.BsonInt64;
+
+/**
+ * Identifies one caller waiting for a given {@link Formatter.DocumentFields#revision revision}.
+ * Each caller gets its own entry in a sorted map of waiters, so its entry can be removed
+ * on timeout without affecting other callers waiting for the same revision.
+ */
+@Value
+class RevisionWaiter implements Comparable<RevisionWaiter> {
+	BsonInt64 revision;
+	long serialNumber;
+
+	@Override
+	public int compareTo(RevisionWaiter other) {
+		int result = revision.compareTo(other.revision);
+		if (result == 0) {
+			return Long.compare(serialNumber, other.serialNumber);
+		} else {
+			return result;
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package io.vena.bosk.drivers.mongo;
 
 import com.mongodb.MongoException;
-import com.mongodb.client.ChangeStreamIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
@@ -16,18 +15,29 @@ import io.vena.bosk.exceptions.InvalidTypeException;
 import io.vena.bosk.exceptions.NotYetImplementedException;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.Value;
 import org.bson.BsonDocument;
 import org.bson.BsonInt64;
 import org.bson.BsonString;
@@ -40,10 +50,10 @@ import static com.mongodb.client.model.Projections.fields;
 import static com.mongodb.client.model.Projections.include;
 import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
 import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ZERO;
-import static io.vena.bosk.drivers.mongo.Formatter.referenceTo;
 import static java.lang.String.format;
 import static java.lang.System.identityHashCode;
 import static java.lang.Thread.currentThread;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.newSetFromMap;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -58,10 +68,18 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 	private final Reference<R> rootRef;
 	private final MongoDriverSettings settings;
 
-	private final ExecutorService ex = Executors.newFixedThreadPool(1);
+	private final ExecutorService ex = Executors.newFixedThreadPool(2);
+	private final ExecutorService decodeEx;
+	private final BlockingQueue<DecodedEvent> decodedEvents = new ArrayBlockingQueue<>(DECODED_EVENT_QUEUE_CAPACITY);
 	private final ConcurrentHashMap<String, BlockingQueue<BsonDocument>> echoListeners = new ConcurrentHashMap<>();
 	private final Map<BsonInt64, Runnable> updateListeners = new TreeMap<>();
+	private final ConcurrentSkipListMap<RevisionWaiter, CompletableFuture<Void>> revisionFutures = new ConcurrentSkipListMap<>();
+	private final AtomicLong revisionWaiterCounter = new AtomicLong(0);
+	private final AtomicReference<CompletableFuture<BsonInt64>> nextRevisionRead = new AtomicReference<>();
+	private final ExecutorService revisionReader;
+	private final ScheduledThreadPoolExecutor revisionTimeouts;
 	private final MongoCollection<Document> collection;
+	private final ChangeStreamSource changeStreamSource;
 
 	private final String identityString = format("%08x", identityHashCode(this));
 
@@ -71,13 +89,40 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 	private final AtomicBoolean isClosed = new AtomicBoolean(false);
 
 	SingleDocumentMongoChangeStreamReceiver(BoskDriver<R> downstream, Reference<R> rootRef, MongoCollection<Document> collection, Formatter formatter, MongoDriverSettings settings) {
+		this(downstream, rootRef, collection, ChangeStreamSource.watching(collection), formatter, settings);
+	}
+
+	SingleDocumentMongoChangeStreamReceiver(BoskDriver<R> downstream, Reference<R> rootRef, MongoCollection<Document> collection, ChangeStreamSource changeStreamSource, Formatter formatter, MongoDriverSettings settings) {
 		this.downstream = downstream;
 		this.rootRef = rootRef;
 		this.formatter = formatter;
 		this.settings = settings;
+		if (settings.eventDecodeParallelism() < 1) {
+			throw new IllegalArgumentException("eventDecodeParallelism must be positive: " + settings.eventDecodeParallelism());
+		}
+		this.decodeEx = Executors.newFixedThreadPool(settings.eventDecodeParallelism(), r -> {
+			Thread thread = new Thread(r, "mcsr-decode-" + identityString);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.revisionReader = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "mcsr-revision-" + identityString);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// Separate from revisionReader, so a slow read doesn't delay timeouts
+		this.revisionTimeouts = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "mcsr-timeout-" + identityString);
+			thread.setDaemon(true);
+			return thread;
+		});
+		revisionTimeouts.setRemoveOnCancelPolicy(true);
 
 		this.collection = collection;
-		eventCursor = collection.watch().iterator();
+		this.changeStreamSource = changeStreamSource;
+		eventCursor = changeStreamSource.open(null);
 		LOGGER.debug(
 			"Initiate event processing loop for mcsr-{}: collection=\"{}\"",
 			identityString,
@@ -89,6 +134,7 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 				new Exception("Stack trace"));
 		}
 		ex.submit(this::eventProcessingLoop);
+		ex.submit(this::eventApplicationLoop);
 	}
 
 	@Override
@@ -133,6 +179,101 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 		}
 	}
 
+	@Override
+	public CompletableFuture<Void> latestRevisionAsync() {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		long serialNumber = revisionWaiterCounter.incrementAndGet();
+		sharedRevisionRead().whenComplete((requiredRevision, e) -> {
+			if (e == null) {
+				awaitRevision(new RevisionWaiter(requiredRevision, serialNumber), result);
+			} else {
+				result.completeExceptionally(e);
+			}
+		});
+		ScheduledFuture<?> timeout = revisionTimeouts.schedule(() -> {
+			if (result.completeExceptionally(new FlushFailureException("Flush timeout on after " + settings.flushTimeoutMS() + "ms on receiver " + identityString))) {
+				LOGGER.debug("| Flush timeout on mcsr-{}", identityString);
+			}
+		}, settings.flushTimeoutMS(), MILLISECONDS);
+		result.whenComplete((v, e) -> timeout.cancel(false));
+		return result;
+	}
+
+	/**
+	 * Joins the next revision read that hasn't started yet, scheduling one if necessary.
+	 * A read that's already in progress could return a revision that predates the caller's
+	 * updates, so it must not be shared with new callers.
+	 */
+	private CompletableFuture<BsonInt64> sharedRevisionRead() {
+		while (true) {
+			CompletableFuture<BsonInt64> existing = nextRevisionRead.get();
+			if (existing != null) {
+				return existing;
+			}
+			CompletableFuture<BsonInt64> newRead = new CompletableFuture<>();
+			if (nextRevisionRead.compareAndSet(null, newRead)) {
+				revisionReader.execute(this::performRevisionRead);
+				return newRead;
+			}
+		}
+	}
+
+	/**
+	 * Runs on {@link #revisionReader}.
+	 */
+	private void performRevisionRead() {
+		CompletableFuture<BsonInt64> read = nextRevisionRead.getAndSet(null);
+		if (read != null) {
+			// From here on, new callers will wait for the next read
+			try {
+				BsonInt64 revision = readRevisionNumber();
+				LOGGER.debug("| Shared revision read: {}", revision);
+				read.complete(revision);
+			} catch (Throwable e) {
+				read.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Arranges for <code>result</code> to be completed once {@link #lastProcessedRevision}
+	 * reaches the waiter's revision.
+	 */
+	private void awaitRevision(RevisionWaiter waiter, CompletableFuture<Void> result) {
+		BsonInt64 actualRevision = lastProcessedRevision;
+		if (actualRevision != null && actualRevision.compareTo(waiter.revision()) >= 0) {
+			result.complete(null);
+			return;
+		}
+		revisionFutures.put(waiter, result);
+
+		// However it completes, including by timing out (perhaps already),
+		// it no longer needs to be in the map
+		result.whenComplete((v, e) -> revisionFutures.remove(waiter, result));
+
+		// Race: re-check in case the revision arrived while we were registering
+		completeRevisionFutures();
+	}
+
+	/**
+	 * Completes any {@link #revisionFutures} waiting for a revision that
+	 * has already been processed according to {@link #lastProcessedRevision}.
+	 */
+	private void completeRevisionFutures() {
+		BsonInt64 lastProcessedRevision = this.lastProcessedRevision;
+		if (lastProcessedRevision == null) {
+			return;
+		}
+		Map.Entry<RevisionWaiter, CompletableFuture<Void>> entry;
+		while ((entry = revisionFutures.firstEntry()) != null && entry.getKey().revision().compareTo(lastProcessedRevision) <= 0) {
+			// Conditional remove: a future that's been removed is never completed by anyone else
+			// (except its timeout), and a new one can only be added by awaitRevision, which re-checks afterward.
+			if (revisionFutures.remove(entry.getKey(), entry.getValue())) {
+				entry.getValue().complete(null);
+			}
+		}
+	}
+
 	/**
 	 * @return Non-null revision number as per the database.
 	 * If the database contains no revision number, returns {@link Formatter#REVISION_ZERO}.
@@ -169,11 +310,17 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 		if (updatedFields != null) {
 			BsonInt64 newValue = updatedFields.getInt64(revision.name(), null);
 			if (newValue == null) {
-				LOGGER.warn("| No revision field");
+				if (settings.pipelining().enabled()) {
+					// Only the last operation of each pipelined batch increments the revision
+					LOGGER.debug("| No revision field");
+				} else {
+					LOGGER.warn("| No revision field");
+				}
 			} else {
 				LOGGER.debug("| Revision {}", newValue);
 				lastProcessedRevision = newValue;
 				runUpdateListeners();
+				completeRevisionFutures();
 			}
 		}
 	}
@@ -236,6 +383,13 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 	//
 	// Change stream event processing from MongoDB
 	//
+	// Processing is split across two threads so that decoding of one event
+	// overlaps with application of the previous one:
+	// - eventProcessingLoop reads each event from the cursor and decodes it,
+	//   farming out the individual fields to decodeEx, and
+	// - eventApplicationLoop submits the decoded updates downstream in order,
+	//   and only then reports the event as processed.
+	//
 
 	private void eventProcessingLoop() {
 		String oldName = currentThread().getName();
@@ -260,12 +414,21 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 						break;
 					} else {
 						LOGGER.warn("Lost change stream cursor; reconnecting", e);
-						reconnectCursor();
+						try {
+							reconnectCursor();
+						} catch (IllegalStateException closed) {
+							LOGGER.error("Change stream source is closed. Exiting event processing loop", closed);
+							break;
+						}
 						continue;
 					}
 				}
 				try {
-					processEvent(event);
+					decodedEvents.put(decodeEvent(event));
+					lastProcessedResumeToken = event.getResumeToken();
+				} catch (InterruptedException e) {
+					LOGGER.debug("Interrupted while enqueueing event; exiting event processing loop", e);
+					break;
 				} catch (Throwable e) {
 					LOGGER.error("Unable to process event: " + event, e);
 					// TODO: How to handle this? For now, just keep soldiering on
@@ -280,20 +443,42 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 		}
 	}
 
+	private void eventApplicationLoop() {
+		String oldName = currentThread().getName();
+		currentThread().setName("mcsr-apply-" + identityString);
+		try {
+			while (!ex.isShutdown()) {
+				DecodedEvent event;
+				try {
+					event = decodedEvents.take();
+				} catch (InterruptedException e) {
+					LOGGER.trace("Interrupted. Exiting event application loop", e);
+					break;
+				}
+				try {
+					applyEvent(event);
+				} catch (Throwable e) {
+					LOGGER.error("Unable to apply event with resume token " + event.resumeToken(), e);
+				}
+			}
+		} finally {
+			LOGGER.debug("Terminating MongoDB event application thread");
+			currentThread().setName(oldName);
+		}
+	}
+
 	private void reconnectCursor() {
 		try {
 			eventCursor.close();
 		} catch (Exception e) {
 			LOGGER.warn("Unable to close event stream cursor", e);
 		}
-		ChangeStreamIterable<Document> iterable = collection.watch();
 		if (lastProcessedResumeToken == null) {
 			LOGGER.error("No resume token available. Reconnecting cursor from current location. Some update events could be missed.");
 		} else {
 			LOGGER.debug("Attempting to reconnect cursor with resume token {}", lastProcessedResumeToken);
-			iterable = iterable.resumeAfter(lastProcessedResumeToken);
 		}
-		eventCursor = iterable.iterator();
+		eventCursor = changeStreamSource.open(lastProcessedResumeToken);
 		LOGGER.debug("Finished reconnecting");
 	}
 
@@ -311,6 +496,15 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 			try {
 				eventCursor.close();
 				ex.shutdownNow();
+				decodeEx.shutdownNow();
+				revisionReader.shutdownNow();
+				revisionTimeouts.shutdownNow();
+				FlushFailureException closed = new FlushFailureException("Receiver " + identityString + " is closed");
+				revisionFutures.values().forEach(f -> f.completeExceptionally(closed));
+				CompletableFuture<BsonInt64> pendingRead = nextRevisionRead.getAndSet(null);
+				if (pendingRead != null) {
+					pendingRead.completeExceptionally(closed);
+				}
 				/*
 				NOTE: The logic below was added to try to play nice with JUnit, but
 				it seems to add about a second to the execution of every test case
@@ -338,7 +532,10 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 		}
 	}
 
-	private void processEvent(ChangeStreamDocument<Document> event) {
+	/**
+	 * Runs on the event processing thread.
+	 */
+	private DecodedEvent decodeEvent(ChangeStreamDocument<Document> event) throws InterruptedException {
 		LOGGER.debug("# EVENT: {}", event);
 		switch (event.getOperationType()) {
 			case INSERT: case REPLACE:// Both of these represent replacing the whole document
@@ -347,68 +544,125 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 				LOGGER.debug("| Replace document - IGNORE");
 				//driver.submitReplacement(rootRef, document2object(event.getFullDocument().get(DocumentFields.root), rootRef));
 				// TODO
-				break;
+				return new DecodedEvent(emptyList(), emptyList(), null, event.getResumeToken());
 			case UPDATE:
 				UpdateDescription updateDescription = event.getUpdateDescription();
-				if (updateDescription != null) {
-					replaceUpdatedFields(updateDescription.getUpdatedFields());
-					deleteRemovedFields(updateDescription.getRemovedFields());
-					notifyIfEcho(updateDescription.getUpdatedFields(), event.getResumeToken());
-
-					// Now that we've done everything else, we can report that we've processed the event
-					bumpLastProcessedRevision(updateDescription.getUpdatedFields());
+				if (updateDescription == null) {
+					return new DecodedEvent(emptyList(), emptyList(), null, event.getResumeToken());
+				} else {
+					return new DecodedEvent(
+						decodeUpdatedFields(updateDescription.getUpdatedFields()),
+						removedFieldReferences(updateDescription.getRemovedFields()),
+						updateDescription.getUpdatedFields(),
+						event.getResumeToken());
 				}
-				break;
 			default:
 				throw new NotYetImplementedException("Unknown change stream event: " + event);
 		}
-		lastProcessedResumeToken = event.getResumeToken();
 	}
 
 	/**
-	 * Call <code>downstream.{@link BoskDriver#submitReplacement submitReplacement}</code>
-	 * for each updated field.
+	 * Runs on the event application thread.
 	 */
-	private void replaceUpdatedFields(@Nullable BsonDocument updatedFields) {
-		if (updatedFields != null) {
-			for (Map.Entry<String, BsonValue> entry : updatedFields.entrySet()) {
-				String dottedName = entry.getKey();
-				if (dottedName.startsWith(DocumentFields.state.name())) {
-					Reference<Object> ref;
-					try {
-						ref = referenceTo(dottedName, rootRef);
-					} catch (InvalidTypeException e) {
-						logNonexistentField(dottedName, e);
-						continue;
-					}
-					LOGGER.debug("| Replace {}", ref);
-					Object replacement = formatter.bsonValue2object(entry.getValue(), ref);
-					downstream.submitReplacement(ref, replacement);
-				}
-			}
+	private void applyEvent(DecodedEvent event) {
+		for (Replacement replacement: event.replacements()) {
+			LOGGER.debug("| Replace {}", replacement.target());
+			downstream.submitReplacement(replacement.target(), replacement.newValue());
+		}
+		for (Reference<Object> target: event.deletions()) {
+			LOGGER.debug("| Delete {}", target);
+			downstream.submitDeletion(target);
 		}
+		notifyIfEcho(event.updatedFields(), event.resumeToken());
+
+		// Now that we've done everything else, we can report that we've processed the event
+		bumpLastProcessedRevision(event.updatedFields());
 	}
 
 	/**
-	 * Call <code>downstream.{@link BoskDriver#submitDeletion submitDeletion}</code>
-	 * for each removed field.
+	 * Decodes the new value of each updated field, in parallel when there's more than one.
+	 *
+	 * @return the replacements to submit downstream, in the same order as the fields
 	 */
-	private void deleteRemovedFields(@Nullable List<String> removedFields) {
-		if (removedFields != null) {
-			for (String dottedName : removedFields) {
-				if (dottedName.startsWith(DocumentFields.state.name())) {
-					Reference<Object> ref;
-					try {
-						ref = referenceTo(dottedName, rootRef);
-					} catch (InvalidTypeException e) {
-						logNonexistentField(dottedName, e);
-						continue;
+	private List<Replacement> decodeUpdatedFields(@Nullable BsonDocument updatedFields) throws InterruptedException {
+		if (updatedFields == null) {
+			return emptyList();
+		}
+		List<Reference<Object>> targets = new ArrayList<>();
+		List<BsonValue> values = new ArrayList<>();
+		for (Map.Entry<String, BsonValue> entry : updatedFields.entrySet()) {
+			String dottedName = entry.getKey();
+			if (dottedName.startsWith(DocumentFields.state.name())) {
+				try {
+					targets.add(formatter.fieldNames().referenceTo(dottedName, rootRef));
+				} catch (InvalidTypeException e) {
+					logNonexistentField(dottedName, e);
+					continue;
+				}
+				values.add(entry.getValue());
+			}
+		}
+
+		List<Replacement> result = new ArrayList<>(targets.size());
+		if (targets.size() <= 1) {
+			for (int i = 0; i < targets.size(); i++) {
+				result.add(new Replacement(targets.get(i), formatter.bsonValue2object(values.get(i), targets.get(i))));
+			}
+		} else {
+			List<Future<Object>> futures = new ArrayList<>(targets.size());
+			for (int i = 0; i < targets.size(); i++) {
+				Reference<Object> target = targets.get(i);
+				BsonValue value = values.get(i);
+				futures.add(decodeEx.submit(() -> formatter.bsonValue2object(value, target)));
+			}
+			for (int i = 0; i < targets.size(); i++) {
+				try {
+					result.add(new Replacement(targets.get(i), futures.get(i).get()));
+				} catch (ExecutionException e) {
+					futures.forEach(f -> f.cancel(true));
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					} else {
+						throw new IllegalStateException("Unexpected exception decoding " + targets.get(i), cause);
 					}
-					LOGGER.debug("| Delete {}", ref);
-					downstream.submitDeletion(ref);
 				}
 			}
 		}
+		return result;
+	}
+
+	private List<Reference<Object>> removedFieldReferences(@Nullable List<String> removedFields) {
+		if (removedFields == null) {
+			return emptyList();
+		}
+		List<Reference<Object>> result = new ArrayList<>();
+		for (String dottedName : removedFields) {
+			if (dottedName.startsWith(DocumentFields.state.name())) {
+				try {
+					result.add(formatter.fieldNames().referenceTo(dottedName, rootRef));
+				} catch (InvalidTypeException e) {
+					logNonexistentField(dottedName, e);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Value
+	private static class DecodedEvent {
+		List<Replacement> replacements;
+		List<Reference<Object>> deletions;
+		@Nullable BsonDocument updatedFields;
+		BsonDocument resumeToken;
+	}
+
+	@Value
+	private static class Replacement {
+		Reference<Object> target;
+		Object newValue;
 	}
 
 	private void notifyIfEcho(@Nullable BsonDocument updatedFields, BsonDocument resumeToken) {
@@ -432,6 +686,11 @@ final class SingleDocumentMongoChangeStreamReceiver<R extends Entity> implements
 		}
 	}
 
+	/**
+	 * How many decoded events may wait to be applied downstream
+	 * before the event processing thread stops reading more.
+	 */
+	private static final int DECODED_EVENT_QUEUE_CAPACITY = 16;
 	private static final Set<String> ALREADY_WARNED = newSetFromMap(new ConcurrentHashMap<>());
 	private static final BsonDocument DOCUMENT_FILTER = new BsonDocument("_id", new BsonString("boskDocument"));
 
@@ -8,34 +8,52 @@ import com.mongodb.MongoWriteException;
 import com.mongodb.ReadConcern;
 import com.mongodb.TransactionOptions;
 import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.UpdateResult;
+import com.mongodb.lang.Nullable;
 import io.vena.bosk.Bosk;
 import io.vena.bosk.BoskDriver;
+import io.vena.bosk.Catalog;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
 import io.vena.bosk.Reference;
+import io.vena.bosk.StateTreeNode;
 import io.vena.bosk.exceptions.FlushFailureException;
 import io.vena.bosk.exceptions.InvalidTypeException;
 import io.vena.bosk.exceptions.NotYetImplementedException;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.Value;
+import org.bson.BsonBinaryWriter;
 import org.bson.BsonDocument;
 import org.bson.BsonInt64;
 import org.bson.BsonNull;
+import org.bson.BsonReader;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.io.BasicOutputBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,39 +64,76 @@ import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
 import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.state;
 import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ONE;
 import static io.vena.bosk.drivers.mongo.Formatter.REVISION_ZERO;
-import static io.vena.bosk.drivers.mongo.Formatter.dottedFieldNameOf;
-import static io.vena.bosk.drivers.mongo.Formatter.enclosingReference;
+import static io.vena.bosk.drivers.mongo.MongoDriverSettings.FlushMode.REVISION_FIELD_COALESCED;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.identityHashCode;
+import static java.lang.System.nanoTime;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.bson.BsonBoolean.FALSE;
 
 final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R> {
 	private final String description;
 	private final MongoDriverSettings settings;
 	private final Formatter formatter;
+	private final DottedFieldNameTranslator fieldNames;
 	private final MongoReceiver<R> receiver;
 	private final MongoClient mongoClient;
+	private final MongoHub hub; // Null if mongoClient is our own
 	private final MongoCollection<Document> collection;
 	private final BsonString documentID;
 	private final Reference<R> rootRef;
 	private final String echoPrefix;
 	private final AtomicLong echoCounter = new AtomicLong(1_000_000_000_000L); // Start with a big number so the length doesn't change often
 
+	// Pipelining. All null if pipelining is disabled.
+	private final BlockingQueue<PendingUpdate> pipeline;
+	private final Thread pipelineThread;
+	private final PipelineProgress pipelineProgress;
+
 	static final String COLLECTION_NAME = "boskCollection";
 
 	SingleDocumentMongoDriver(Bosk<R> bosk, MongoClientSettings clientSettings, MongoDriverSettings driverSettings, BsonPlugin bsonPlugin, BoskDriver<R> downstream) {
+		this(bosk, clientSettings, driverSettings, bsonPlugin, downstream, null);
+	}
+
+	/**
+	 * @param hub if non-null, supplies the {@link MongoClient} and the change stream,
+	 * which are shared with other drivers. Otherwise, this driver creates its own.
+	 */
+	SingleDocumentMongoDriver(Bosk<R> bosk, MongoClientSettings clientSettings, MongoDriverSettings driverSettings, BsonPlugin bsonPlugin, BoskDriver<R> downstream, @Nullable MongoHub hub) {
 		validateMongoClientSettings(clientSettings);
 		this.description = SingleDocumentMongoDriver.class.getSimpleName() + ": " + driverSettings;
 		this.settings = driverSettings;
-		this.mongoClient = MongoClients.create(clientSettings);
+		this.hub = hub;
+		this.mongoClient = (hub == null)? MongoClients.create(clientSettings) : hub.client();
 		this.formatter = new Formatter(bosk, bsonPlugin);
+		this.fieldNames = formatter.fieldNames();
 		this.collection = mongoClient
 			.getDatabase(driverSettings.database())
 			.getCollection(COLLECTION_NAME);
-		this.receiver = new SingleDocumentMongoChangeStreamReceiver<>(downstream, bosk.rootReference(), collection, formatter, settings);
+		ChangeStreamSource changeStreamSource = (hub == null)
+			? ChangeStreamSource.watching(collection)
+			: hub.changeStreamSource(collection.getNamespace());
+		this.receiver = new SingleDocumentMongoChangeStreamReceiver<>(downstream, bosk.rootReference(), collection, changeStreamSource, formatter, settings);
 		this.echoPrefix = bosk.instanceID().toString();
 		this.documentID = new BsonString("boskDocument");
 		this.rootRef = bosk.rootReference();
+		if (driverSettings.pipelining().enabled()) {
+			if (driverSettings.pipelining().maxBatchSize() < 1) {
+				throw new IllegalArgumentException("maxBatchSize must be positive: " + driverSettings.pipelining().maxBatchSize());
+			}
+			this.pipeline = new LinkedBlockingQueue<>();
+			this.pipelineProgress = new PipelineProgress();
+			this.pipelineThread = new Thread(this::pipelineLoop, format("mongo-pipeline-%08x", identityHashCode(this)));
+			pipelineThread.setDaemon(true);
+			pipelineThread.start();
+		} else {
+			this.pipeline = null;
+			this.pipelineProgress = null;
+			this.pipelineThread = null;
+		}
 	}
 
 	private void validateMongoClientSettings(MongoClientSettings clientSettings) {
@@ -106,15 +161,25 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 
 		bumpRevision();
 
-		try (MongoCursor<Document> cursor = collection.find(documentFilter()).limit(1).cursor()) {
-			Document newDocument = cursor.next();
-			Document newState = newDocument.get(state.name(), Document.class);
+		// Read the document as raw bytes and decode straight from those, rather than
+		// building an intermediate Document tree. This also lets BsonPlugin decode
+		// catalog entries in parallel.
+		try (MongoCursor<RawBsonDocument> cursor = collection
+			.withDocumentClass(RawBsonDocument.class)
+			.find(documentFilter()).limit(1)
+			.cursor()
+		) {
+			RawBsonDocument newDocument = cursor.next();
+			BsonValue newState = newDocument.get(state.name());
 			if (newState == null) {
 				LOGGER.debug("| No existing state; delegating downstream");
 			} else {
-				LOGGER.debug("| From database: {}", newState);
+				RawBsonDocument rawState = (RawBsonDocument) newState.asDocument();
+				LOGGER.debug("| From database: {} bytes", rawState.getByteBuffer().remaining());
 				bumpRevision();
-				return formatter.document2object(newState, rootRef);
+				try (BsonReader reader = rawState.asBsonReader()) {
+					return formatter.readValue(reader, rootRef);
+				}
 			}
 		} catch (NoSuchElementException e) {
 			LOGGER.debug("| No tenant document; delegating downstream");
@@ -133,15 +198,17 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 	@Override
 	public <T> void submitReplacement(Reference<T> target, T newValue) {
 		LOGGER.debug("+ submitReplacement({})", target);
-		doUpdate(replacementDoc(target, newValue), standardPreconditions(target));
+		submitUpdate(replacementDoc(target, newValue), standardPreconditions(target));
 	}
 
 	@Override
 	public <T> void submitInitialization(Reference<T> target, T newValue) {
 		LOGGER.debug("+ submitInitialization({})", target);
 		BsonDocument filter = standardPreconditions(target);
-		filter.put(dottedFieldNameOf(target, rootRef), new BsonDocument("$exists", FALSE));
-		if (doUpdate(replacementDoc(target, newValue), filter)) {
+		filter.put(fieldNames.dottedFieldNameOf(target, rootRef), new BsonDocument("$exists", FALSE));
+		if (pipeline != null) {
+			enqueue(replacementDoc(target, newValue), filter);
+		} else if (doUpdate(replacementDoc(target, newValue), filter)) {
 			LOGGER.debug("| Object initialized");
 		} else {
 			LOGGER.debug("| No update");
@@ -154,17 +221,21 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 		if (target.path().isEmpty()) {
 			throw new IllegalArgumentException("Can't delete the root of the bosk");
 		} else {
-			doUpdate(deletionDoc(target), standardPreconditions(target));
+			submitUpdate(deletionDoc(target), standardPreconditions(target));
 		}
 	}
 
 	@Override
 	public void flush() throws IOException, InterruptedException {
 		LOGGER.debug("+ flush");
+		awaitPipeline();
 		switch (settings.flushMode()) {
 			case REVISION_FIELD_ONLY:
 				receiver.awaitLatestRevision();
 				break;
+			case REVISION_FIELD_COALESCED:
+				awaitRevisionFuture(receiver.latestRevisionAsync());
+				break;
 			default:
 				LOGGER.warn("Unrecognized flush mode {}; defaulting to ECHO", settings.flushMode());
 				// fall through
@@ -175,10 +246,45 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 		receiver.flushDownstream();
 	}
 
+	/**
+	 * In {@link MongoDriverSettings.FlushMode#REVISION_FIELD_COALESCED REVISION_FIELD_COALESCED} mode
+	 * without pipelining, this doesn't tie up any thread while waiting for the revision to arrive.
+	 * Otherwise, it falls back to calling {@link #flush()} on another thread.
+	 */
+	@Override
+	public CompletableFuture<Void> flushAsync() {
+		if (settings.flushMode() != REVISION_FIELD_COALESCED || pipeline != null) {
+			return MongoDriver.super.flushAsync();
+		}
+		LOGGER.debug("+ flushAsync");
+		return receiver.latestRevisionAsync().thenRunAsync(() -> {
+			try {
+				receiver.flushDownstream();
+			} catch (IOException | InterruptedException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	private static void awaitRevisionFuture(CompletableFuture<Void> future) throws IOException, InterruptedException {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new FlushFailureException(cause);
+			}
+		}
+	}
+
 	@Override
 	public <T> void submitConditionalReplacement(Reference<T> target, T newValue, Reference<Identifier> precondition, Identifier requiredValue) {
 		LOGGER.debug("+ submitConditionalReplacement({}, {} = {})", target, precondition, requiredValue);
-		doUpdate(
+		submitUpdate(
 			replacementDoc(target, newValue),
 			explicitPreconditions(target, precondition, requiredValue));
 	}
@@ -186,22 +292,32 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 	@Override
 	public <T> void submitConditionalDeletion(Reference<T> target, Reference<Identifier> precondition, Identifier requiredValue) {
 		LOGGER.debug("+ submitConditionalDeletion({}, {} = {})", target, precondition, requiredValue);
-		doUpdate(
+		submitUpdate(
 			deletionDoc(target),
 			explicitPreconditions(target, precondition, requiredValue));
 	}
 
 	@Override
 	public void close() {
+		if (pipelineThread != null) {
+			pipelineThread.interrupt();
+		}
 		try {
 			receiver.close();
 		} finally {
-			mongoClient.close();
+			if (hub == null) {
+				mongoClient.close();
+			}
 		}
 	}
 
 	@Override
 	public void refurbish() {
+		try {
+			awaitPipeline();
+		} catch (InterruptedException | FlushFailureException e) {
+			throw new IllegalStateException("Unable to write pending updates before refurbish", e);
+		}
 		ClientSessionOptions sessionOptions = ClientSessionOptions.builder()
 			.causallyConsistent(true)
 			.defaultTransactionOptions(TransactionOptions.builder()
@@ -256,6 +372,134 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 		}
 	}
 
+	@Override
+	public void refurbishIncrementally(RefurbishSettings refurbishSettings) throws InterruptedException {
+		if (refurbishSettings.batchSize() < 1) {
+			throw new IllegalArgumentException("batchSize must be positive: " + refurbishSettings.batchSize());
+		}
+		try {
+			awaitPipeline();
+		} catch (FlushFailureException e) {
+			throw new IllegalStateException("Unable to write pending updates before refurbish", e);
+		}
+
+		// Work from raw bytes throughout. Chunks of either document are just
+		// slices of the underlying buffers, so nothing gets decoded into
+		// a Document tree, and comparisons are byte-by-byte.
+		RawBsonDocument storedState;
+		try (MongoCursor<RawBsonDocument> cursor = collection
+			.withDocumentClass(RawBsonDocument.class)
+			.find(documentFilter()).limit(1)
+			.cursor()
+		) {
+			BsonValue stateValue = cursor.next().get(state.name());
+			if (stateValue == null) {
+				LOGGER.debug("No state to refurbish");
+				return;
+			}
+			storedState = (RawBsonDocument) stateValue.asDocument();
+		} catch (NoSuchElementException e) {
+			LOGGER.debug("No document to refurbish", e);
+			return;
+		}
+
+		// Round trip via state tree nodes
+		R root;
+		try (BsonReader reader = storedState.asBsonReader()) {
+			root = formatter.readValue(reader, rootRef);
+		}
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			writer.writeStartDocument();
+			writer.writeName(state.name());
+			formatter.writeValue(writer, root, rootRef.targetType());
+			writer.writeEndDocument();
+		}
+		BsonValue freshState = new RawBsonDocument(buffer.toByteArray()).get(state.name());
+
+		List<UpdateOneModel<Document>> chunkUpdates = new ArrayList<>();
+		addRefurbishUpdates(rootRef, state.name(), storedState, freshState, chunkUpdates);
+		LOGGER.debug("Refurbish: {} chunks have changed", chunkUpdates.size());
+
+		int numWritten = 0;
+		for (int start = 0; start < chunkUpdates.size(); start += refurbishSettings.batchSize()) {
+			if (start > 0 && refurbishSettings.pauseMS() > 0) {
+				Thread.sleep(refurbishSettings.pauseMS());
+			}
+			List<UpdateOneModel<Document>> batch = chunkUpdates.subList(start, Math.min(start + refurbishSettings.batchSize(), chunkUpdates.size()));
+			BulkWriteResult result = collection.bulkWrite(batch, new BulkWriteOptions().ordered(true));
+			if (result.getMatchedCount() < batch.size()) {
+				LOGGER.debug("| Skipped {} chunks that were updated concurrently", batch.size() - result.getMatchedCount());
+			}
+			numWritten += batch.size();
+			refurbishSettings.progressListener().progress(numWritten, chunkUpdates.size());
+		}
+
+		// Restore the metadata fields refurbish() would have set. The $inc of the revision
+		// field makes sure all bosks receive a change stream update event, even if no chunks changed.
+		doUpdate(
+			updateDoc().append("$set", new BsonDocument(path.name(), new BsonString("/"))),
+			documentFilter());
+	}
+
+	/**
+	 * Compares <code>stored</code> and <code>fresh</code>, which are the serialized forms of
+	 * the object at <code>ref</code>, and adds an update for each chunk that differs.
+	 *
+	 * @param stored null if the database has no value at <code>dottedName</code>
+	 */
+	private void addRefurbishUpdates(Reference<?> ref, String dottedName, @Nullable BsonValue stored, BsonValue fresh, List<UpdateOneModel<Document>> updates) {
+		if (stored != null && sameBytes(stored, fresh)) {
+			return;
+		}
+		Class<?> targetClass = ref.targetClass();
+		boolean isSplittable = StateTreeNode.class.isAssignableFrom(targetClass) || Catalog.class.isAssignableFrom(targetClass);
+		if (isSplittable && stored != null && stored.isDocument() && fresh.isDocument()) {
+			BsonDocument storedDoc = stored.asDocument();
+			BsonDocument freshDoc = fresh.asDocument();
+			for (Map.Entry<String, BsonValue> entry: freshDoc.entrySet()) {
+				String childName = dottedName + "." + entry.getKey();
+				Reference<Object> childRef;
+				try {
+					childRef = fieldNames.referenceTo(childName, rootRef);
+				} catch (InvalidTypeException e) {
+					LOGGER.debug("| Can't split {}; rewriting it whole", dottedName, e);
+					updates.add(refurbishUpdate(dottedName, stored, "$set", fresh));
+					return;
+				}
+				addRefurbishUpdates(childRef, childName, storedDoc.get(entry.getKey()), entry.getValue(), updates);
+			}
+			for (Map.Entry<String, BsonValue> entry: storedDoc.entrySet()) {
+				if (!freshDoc.containsKey(entry.getKey())) {
+					String childName = dottedName + "." + entry.getKey();
+					LOGGER.debug("| Refurbish: unset {}", childName);
+					updates.add(refurbishUpdate(childName, entry.getValue(), "$unset", new BsonNull()));
+				}
+			}
+		} else {
+			LOGGER.debug("| Refurbish: set {}", dottedName);
+			updates.add(refurbishUpdate(dottedName, stored, "$set", fresh));
+		}
+	}
+
+	/**
+	 * @return an update that applies <code>operator</code> to the field at <code>dottedName</code>
+	 * only if it still has the value <code>expected</code>, or is still absent if <code>expected</code> is null.
+	 */
+	private UpdateOneModel<Document> refurbishUpdate(String dottedName, @Nullable BsonValue expected, String operator, BsonValue value) {
+		BsonDocument filter = documentFilter();
+		filter.put(dottedName, (expected == null)? new BsonDocument("$exists", FALSE) : new BsonDocument("$eq", expected));
+		return new UpdateOneModel<>(filter, updateDoc().append(operator, new BsonDocument(dottedName, value)));
+	}
+
+	private static boolean sameBytes(BsonValue a, BsonValue b) {
+		if (a instanceof RawBsonDocument && b instanceof RawBsonDocument) {
+			return ((RawBsonDocument) a).getByteBuffer().asNIO().equals(((RawBsonDocument) b).getByteBuffer().asNIO());
+		} else {
+			return a.equals(b);
+		}
+	}
+
 	//
 	// MongoDB helpers
 	//
@@ -267,7 +511,7 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 	private <T> BsonDocument standardPreconditions(Reference<T> target) {
 		BsonDocument filter = documentFilter();
 		if (!target.path().isEmpty()) {
-			String enclosingObjectKey = dottedFieldNameOf(enclosingReference(target), rootRef);
+			String enclosingObjectKey = fieldNames.enclosingDottedFieldNameOf(target, rootRef);
 			BsonDocument condition = new BsonDocument("$type", new BsonString("object"));
 			filter.put(enclosingObjectKey, condition);
 			LOGGER.debug("| Precondition: {} {}", enclosingObjectKey, condition);
@@ -278,12 +522,12 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 	private <T> BsonDocument explicitPreconditions(Reference<T> target, Reference<Identifier> preconditionRef, Identifier requiredValue) {
 		BsonDocument filter = standardPreconditions(target);
 		BsonDocument precondition = new BsonDocument("$eq", new BsonString(requiredValue.toString()));
-		filter.put(dottedFieldNameOf(preconditionRef, rootRef), precondition);
+		filter.put(fieldNames.dottedFieldNameOf(preconditionRef, rootRef), precondition);
 		return filter;
 	}
 
 	private <T> BsonDocument replacementDoc(Reference<T> target, T newValue) {
-		String key = dottedFieldNameOf(target, rootRef);
+		String key = fieldNames.dottedFieldNameOf(target, rootRef);
 		BsonValue value = formatter.object2bsonValue(newValue, target.targetType());
 		LOGGER.debug("| Set field {}: {}", key, value);
 		return updateDoc()
@@ -291,7 +535,7 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 	}
 
 	private <T> BsonDocument deletionDoc(Reference<T> target) {
-		String key = dottedFieldNameOf(target, rootRef);
+		String key = fieldNames.dottedFieldNameOf(target, rootRef);
 		LOGGER.debug("| Unset field {}", key);
 		return updateDoc().append("$unset", new BsonDocument(key, new BsonNull())); // Value is ignored
 	}
@@ -339,6 +583,14 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 		return fieldValues;
 	}
 
+	private void submitUpdate(BsonDocument updateDoc, BsonDocument filter) {
+		if (pipeline == null) {
+			doUpdate(updateDoc, filter);
+		} else {
+			enqueue(updateDoc, filter);
+		}
+	}
+
 	/**
 	 * @return true if something changed
 	 */
@@ -364,6 +616,204 @@ final class SingleDocumentMongoDriver<R extends Entity> implements MongoDriver<R
 		}
 	}
 
+	//
+	// Pipelining
+	//
+
+	/**
+	 * An update waiting to be written by {@link #pipelineLoop}.
+	 * The <code>$inc</code> of the revision field is omitted, because each batch
+	 * gets just one.
+	 */
+	@Value
+	private static class PendingUpdate {
+		BsonDocument updateDoc;
+		BsonDocument filter;
+	}
+
+	private static final class PipelineProgress {
+		// All guarded by this
+		long numEnqueued = 0;
+		long numWritten = 0;
+		MongoException failure = null;
+	}
+
+	private void enqueue(BsonDocument updateDoc, BsonDocument filter) {
+		BsonDocument withoutRevision = updateDoc.clone();
+		withoutRevision.remove("$inc");
+		synchronized (pipelineProgress) {
+			pipelineProgress.numEnqueued++;
+			pipeline.add(new PendingUpdate(withoutRevision, filter));
+		}
+	}
+
+	/**
+	 * Waits until every update enqueued so far has been written.
+	 *
+	 * @throws FlushFailureException if any of them failed, or if they are not written within
+	 * {@link MongoDriverSettings#flushTimeoutMS() flushTimeoutMS}
+	 */
+	private void awaitPipeline() throws InterruptedException, FlushFailureException {
+		if (pipelineProgress == null) {
+			return;
+		}
+		long deadline = currentTimeMillis() + settings.flushTimeoutMS();
+		synchronized (pipelineProgress) {
+			long target = pipelineProgress.numEnqueued;
+			while (pipelineProgress.numWritten < target) {
+				long remainingMS = deadline - currentTimeMillis();
+				if (remainingMS <= 0) {
+					throw new FlushFailureException("Pending updates not written after " + settings.flushTimeoutMS() + "ms");
+				}
+				pipelineProgress.wait(remainingMS);
+			}
+			MongoException failure = pipelineProgress.failure;
+			if (failure != null) {
+				pipelineProgress.failure = null;
+				throw new FlushFailureException("Unable to write pending updates", failure);
+			}
+		}
+	}
+
+	private void pipelineLoop() {
+		LOGGER.debug("Starting pipeline");
+		MongoDriverSettings.Pipelining pipelining = settings.pipelining();
+		try {
+			while (true) {
+				List<PendingUpdate> batch = new ArrayList<>();
+				batch.add(pipeline.take());
+				long deadline = nanoTime() + MILLISECONDS.toNanos(pipelining.lingerMS());
+				while (batch.size() < pipelining.maxBatchSize()) {
+					PendingUpdate next = pipeline.poll(deadline - nanoTime(), NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				writeBatch(batch);
+			}
+		} catch (InterruptedException e) {
+			LOGGER.debug("Pipeline interrupted; exiting");
+		}
+	}
+
+	/**
+	 * Writes the given updates in a single ordered <code>bulkWrite</code>.
+	 * Runs of consecutive updates with the same filter are combined into a single <code>updateOne</code>
+	 * unless they affect overlapping fields, or affect fields named in the filter.
+	 * The batch ends with a single increment of the revision field, so that
+	 * {@link MongoDriverSettings.FlushMode#REVISION_FIELD_ONLY REVISION_FIELD_ONLY} flushes
+	 * wait for the whole batch.
+	 */
+	private void writeBatch(List<PendingUpdate> batch) throws InterruptedException {
+		List<WriteModel<Document>> models = new ArrayList<>();
+		CombinedUpdate current = null;
+		for (PendingUpdate update: batch) {
+			if (current == null || !current.accepts(update)) {
+				if (current != null) {
+					models.add(current.toModel());
+				}
+				current = new CombinedUpdate(update.filter());
+			}
+			current.add(update.updateDoc());
+		}
+		models.add(current.toModel());
+		models.add(new UpdateOneModel<>(documentFilter(), updateDoc()));
+
+		if (settings.testing().eventDelayMS() < 0) {
+			LOGGER.debug("| Sleeping");
+			Thread.sleep(-settings.testing().eventDelayMS());
+		}
+		MongoException failure = null;
+		try {
+			BulkWriteResult result = collection.bulkWrite(models, new BulkWriteOptions().ordered(true));
+			LOGGER.debug("| Wrote {} updates as {} operations: {}", batch.size(), models.size(), result);
+		} catch (MongoException e) {
+			LOGGER.error("Unable to write batch of {} updates", batch.size(), e);
+			failure = e;
+		}
+		synchronized (pipelineProgress) {
+			pipelineProgress.numWritten += batch.size();
+			if (failure != null) {
+				pipelineProgress.failure = failure;
+			}
+			pipelineProgress.notifyAll();
+		}
+	}
+
+	/**
+	 * Accumulates the <code>$set</code> and <code>$unset</code> operations of
+	 * several updates with the same filter.
+	 */
+	private static final class CombinedUpdate {
+		final BsonDocument filter;
+		final BsonDocument set = new BsonDocument();
+		final BsonDocument unset = new BsonDocument();
+
+		CombinedUpdate(BsonDocument filter) {
+			this.filter = filter;
+		}
+
+		boolean accepts(PendingUpdate update) {
+			if (!filter.equals(update.filter())) {
+				return false;
+			}
+			for (String key: filter.keySet()) {
+				if (overlaps(key, set) || overlaps(key, unset)) {
+					// An earlier update in this group could change the outcome of the filter,
+					// and MongoDB evaluates the filter only once, before the whole group
+					return false;
+				}
+			}
+			for (BsonValue fields: update.updateDoc().values()) {
+				for (String key: fields.asDocument().keySet()) {
+					if (overlaps(key, set) || overlaps(key, unset)) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		void add(BsonDocument updateDoc) {
+			for (Map.Entry<String, BsonValue> entry: updateDoc.entrySet()) {
+				switch (entry.getKey()) {
+					case "$set":
+						set.putAll(entry.getValue().asDocument());
+						break;
+					case "$unset":
+						unset.putAll(entry.getValue().asDocument());
+						break;
+					default:
+						throw new AssertionError("Unexpected update operator: " + entry.getKey());
+				}
+			}
+		}
+
+		UpdateOneModel<Document> toModel() {
+			BsonDocument update = new BsonDocument();
+			if (!set.isEmpty()) {
+				update.put("$set", set);
+			}
+			if (!unset.isEmpty()) {
+				update.put("$unset", unset);
+			}
+			return new UpdateOneModel<>(filter, update);
+		}
+
+		/**
+		 * MongoDB rejects an update that modifies a field and also one of its ancestors or descendants.
+		 */
+		private static boolean overlaps(String key, BsonDocument fields) {
+			for (String existing: fields.keySet()) {
+				if (existing.equals(key) || existing.startsWith(key + ".") || key.startsWith(existing + ".")) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	//
 	// Echo helper logic
 	//
@@ -0,0 +1,150 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.BoskDriver;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Entity;
+import io.vena.bosk.drivers.ForwardingDriver;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import lombok.Value;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.singletonList;
+
+/**
+ * A file holding a snapshot of a bosk's state in BSON form,
+ * encoded using {@link BsonPlugin}, along with a <em>revision</em> number
+ * identifying which version of the state it holds.
+ * The revision is not interpreted here; it's up to the caller to choose
+ * revision numbers that let it determine whether the snapshot is up to date.
+ * ({@link JournalingDriver} uses its journal sequence numbers.
+ * The MongoDB drivers don't use snapshots, and always load their initial state from the database.)
+ *
+ * <p>
+ * Snapshots are streamed to a temporary file, without first encoding the whole
+ * state in memory, and the temporary file then atomically replaces the
+ * snapshot file, so a reader never sees a partially written snapshot.
+ * They are read by mapping the file into memory and decoding directly from the mapping.
+ *
+ * <p>
+ * Useful for warm restarts (see {@link #initialRootFrom}), for capturing
+ * production state for debugging, and for test fixtures.
+ */
+public final class SnapshotFile<R extends Entity> {
+	private final File file;
+	private final Bosk<R> bosk;
+	private final Formatter formatter;
+
+	public SnapshotFile(File file, Bosk<R> bosk, BsonPlugin bsonPlugin) {
+		this.file = file;
+		this.bosk = bosk;
+		this.formatter = new Formatter(bosk, bsonPlugin);
+	}
+
+	/**
+	 * @return a driver factory whose {@link BoskDriver#initialRoot initialRoot}
+	 * comes from the given snapshot file if it exists, or else from the downstream driver.
+	 * All updates are forwarded to the downstream driver.
+	 */
+	public static <RR extends Entity> DriverFactory<RR> initialRootFrom(File file, BsonPlugin bsonPlugin) {
+		return (b, d) -> new ForwardingDriver<RR>(singletonList(d)) {
+			@Override
+			public RR initialRoot(Type rootType) throws InvalidTypeException, IOException, InterruptedException {
+				SnapshotFile<RR> snapshotFile = new SnapshotFile<>(file, b, bsonPlugin);
+				if (snapshotFile.exists()) {
+					return snapshotFile.read().root();
+				} else {
+					LOGGER.debug("No snapshot file {}; delegating downstream", file);
+					return super.initialRoot(rootType);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "Snapshot " + file + " then " + d;
+			}
+		};
+	}
+
+	public File file() {
+		return file;
+	}
+
+	public boolean exists() {
+		return file.isFile();
+	}
+
+	public void write(R root, long revision) throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp");
+		int size;
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), CREATE, TRUNCATE_EXISTING, WRITE)) {
+			ChannelBsonOutput output = new ChannelBsonOutput(channel, WRITE_BUFFER_BYTES);
+			try (BsonBinaryWriter writer = new BsonBinaryWriter(output)) {
+				writer.writeStartDocument();
+				writer.writeInt64(REVISION_FIELD, revision);
+				writer.writeName(STATE_FIELD);
+				formatter.writeValue(writer, root, bosk.rootReference().targetType());
+				writer.writeEndDocument();
+			}
+			output.flush();
+			size = output.getPosition();
+			channel.force(true);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		Files.move(tempFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		LOGGER.debug("Wrote snapshot {} at revision {} ({} bytes)", file, revision, size);
+	}
+
+	public Snapshot<R> read() throws IOException {
+		ByteBuffer contents;
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			// The mapping remains valid after the channel is closed
+			contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		try (BsonBinaryReader reader = new BsonBinaryReader(contents)) {
+			reader.readStartDocument();
+			long revision = reader.readInt64(REVISION_FIELD);
+			reader.readName(STATE_FIELD);
+			R root = formatter.readValue(reader, bosk.rootReference());
+			reader.readEndDocument();
+			LOGGER.debug("Read snapshot {} at revision {}", file, revision);
+			return new Snapshot<>(root, revision);
+		}
+	}
+
+	@Value
+	public static class Snapshot<R extends Entity> {
+		R root;
+		long revision;
+	}
+
+	@Override
+	public String toString() {
+		return "SnapshotFile(" + file + ")";
+	}
+
+	private static final String REVISION_FIELD = "revision";
+	private static final String STATE_FIELD = "state";
+
+	private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotFile.class);
+}
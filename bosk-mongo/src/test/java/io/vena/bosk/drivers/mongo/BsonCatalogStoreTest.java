@@ -0,0 +1,114 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Catalog;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.TestEntityBuilder;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BsonCatalogStoreTest extends AbstractBoskTest {
+	Bosk<TestRoot> bosk;
+	TestEntityBuilder teb;
+	CatalogReference<TestEntity> entitiesRef;
+	BsonPlugin bsonPlugin;
+	List<TestEntity> entities;
+
+	@BeforeEach
+	void setup() throws InvalidTypeException {
+		bosk = setUpBosk(Bosk::simpleDriver);
+		teb = new TestEntityBuilder(bosk);
+		entitiesRef = teb.entitiesRef();
+		bsonPlugin = new BsonPlugin();
+		entities = IntStream.rangeClosed(1, 50)
+			.mapToObj(i -> teb.blankEntity(Identifier.from("entity_" + i), (i % 2 == 0)? TestEnum.OK : TestEnum.NOT_SO_OK))
+			.collect(toList());
+	}
+
+	@Test
+	void offHeap_matchesOriginal() {
+		BsonCatalogStore<TestEntity> store = BsonCatalogStore.offHeap(entities, entitiesRef, bosk, bsonPlugin);
+		assertMatchesOriginal(store);
+	}
+
+	@Test
+	void manySegments_matchesOriginal() throws IOException {
+		BsonCatalogStore<TestEntity> store = BsonCatalogStore.build(entities, entitiesRef, bosk, bsonPlugin, 300, BsonCatalogStore::directBuffer);
+		assertMatchesOriginal(store);
+	}
+
+	@Test
+	void memoryMapped_matchesOriginal(@TempDir File tempDir) throws IOException {
+		BsonCatalogStore<TestEntity> store = BsonCatalogStore.memoryMapped(entities, entitiesRef, bosk, bsonPlugin, new File(tempDir, "entities.bson"));
+		assertMatchesOriginal(store);
+	}
+
+	@Test
+	void repeatedGet_sameObject() {
+		BsonCatalogStore<TestEntity> store = BsonCatalogStore.offHeap(entities, entitiesRef, bosk, bsonPlugin);
+		Identifier id = Identifier.from("entity_7");
+		TestEntity first = store.get(id);
+		assertSame(first, store.get(id));
+	}
+
+	@Test
+	void inBosk_works() {
+		Catalog<TestEntity> catalog = Catalog.backedBy(BsonCatalogStore.offHeap(entities, entitiesRef, bosk, bsonPlugin));
+		bosk.driver().submitReplacement(entitiesRef, catalog);
+		TestEntity newEntity = teb.blankEntity(Identifier.from("newEntity"), TestEnum.OK);
+		bosk.driver().submitReplacement(entitiesRef.then(newEntity.id()), newEntity);
+		bosk.driver().submitDeletion(entitiesRef.then(Identifier.from("entity_1")));
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			Catalog<TestEntity> actual = entitiesRef.value();
+			assertEquals(entities.size(), actual.size());
+			assertEquals(entities.get(4), entitiesRef.then(Identifier.from("entity_5")).value());
+			assertSame(newEntity, entitiesRef.then(newEntity.id()).value());
+			assertNull(entitiesRef.then(Identifier.from("entity_1")).valueIfExists());
+		}
+	}
+
+	@Test
+	void duplicateIDs_throws() {
+		List<TestEntity> duplicates = asList(entities.get(0), entities.get(1), entities.get(0));
+		assertThrows(IllegalArgumentException.class, () -> BsonCatalogStore.offHeap(duplicates, entitiesRef, bosk, bsonPlugin));
+	}
+
+	@Test
+	void empty_works() {
+		BsonCatalogStore<TestEntity> store = BsonCatalogStore.offHeap(Catalog.<TestEntity>empty(), entitiesRef, bosk, bsonPlugin);
+		assertEquals(0, store.size());
+		assertFalse(store.idIterator().hasNext());
+		assertNull(store.get(Identifier.from("entity_1")));
+	}
+
+	private void assertMatchesOriginal(BsonCatalogStore<TestEntity> store) {
+		assertEquals(entities.size(), store.size());
+		Catalog<TestEntity> expected = Catalog.of(entities);
+		Catalog<TestEntity> actual = Catalog.backedBy(store);
+		assertEquals(expected.ids(), actual.ids());
+		assertEquals(expected, actual);
+		for (TestEntity entity: entities) {
+			assertTrue(store.containsID(entity.id()));
+		}
+		assertFalse(store.containsID(Identifier.from("nonexistent")));
+		assertNull(store.get(Identifier.from("nonexistent")));
+	}
+
+}
@@ -0,0 +1,104 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.ListValue;
+import io.vena.bosk.MapValue;
+import io.vena.bosk.drivers.mongo.BsonPluginTest.Payloads;
+import java.util.stream.IntStream;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.ValueCodecProvider;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+
+/**
+ * Compares the cost of encoding and decoding a large {@link ListValue}
+ * with and without compression, so the time can be weighed against the bytes saved.
+ * {@link BsonPluginTest#compressedValues_roundTrip} checks that the compressed encoding is smaller.
+ */
+@Fork(0)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@OutputTimeUnit(MICROSECONDS)
+public class BsonCompressionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		private Payloads payloads;
+		private Codec<Payloads> plainCodec;
+		private Codec<Payloads> compressedCodec;
+		private RawBsonDocument plainBytes;
+		private RawBsonDocument compressedBytes;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Bosk<Payloads> bosk = new Bosk<Payloads>("Benchmark bosk", Payloads.class, b -> new Payloads(
+				Identifier.from("root"),
+				ListValue.from(IntStream.range(0, 10_000).mapToObj(i -> "Entry number " + i + " of a large list")),
+				MapValue.singleton("key", "value")
+			), Bosk::simpleDriver);
+			try (@SuppressWarnings("unused") Bosk<Payloads>.ReadContext context = bosk.readContext()) {
+				payloads = bosk.rootReference().value();
+			}
+			plainCodec = codecFor(bosk, new BsonPlugin());
+			compressedCodec = codecFor(bosk, new BsonPlugin(BsonCompressionSettings.builder()
+				.enabled(true)
+				.build()));
+			plainBytes = encode(plainCodec, payloads);
+			compressedBytes = encode(compressedCodec, payloads);
+		}
+
+		private static Codec<Payloads> codecFor(Bosk<Payloads> bosk, BsonPlugin plugin) {
+			return CodecRegistries.fromProviders(plugin.codecProviderFor(bosk), new ValueCodecProvider()).get(Payloads.class);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object encode_plain(BenchmarkState state) {
+		return encode(state.plainCodec, state.payloads);
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object encode_compressed(BenchmarkState state) {
+		return encode(state.compressedCodec, state.payloads);
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object decode_plain(BenchmarkState state) {
+		return state.plainCodec.decode(state.plainBytes.asBsonReader(), DecoderContext.builder().build());
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object decode_compressed(BenchmarkState state) {
+		return state.compressedCodec.decode(state.compressedBytes.asBsonReader(), DecoderContext.builder().build());
+	}
+
+	private static RawBsonDocument encode(Codec<Payloads> codec, Payloads payloads) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+			codec.encode(writer, payloads, EncoderContext.builder().build());
+		}
+		return new RawBsonDocument(buffer.toByteArray());
+	}
+}
@@ -4,17 +4,29 @@ import io.vena.bosk.Bosk;
 import io.vena.bosk.Bosk.ReadContext;
 import io.vena.bosk.Catalog;
 import io.vena.bosk.CatalogReference;
+import io.vena.bosk.DoubleListValue;
 import io.vena.bosk.Entity;
 import io.vena.bosk.Identifier;
+import io.vena.bosk.IntListValue;
+import io.vena.bosk.ListValue;
+import io.vena.bosk.LongListValue;
+import io.vena.bosk.MapValue;
 import io.vena.bosk.Path;
 import io.vena.bosk.SideTable;
 import io.vena.bosk.exceptions.InvalidTypeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 import lombok.experimental.FieldNameConstants;
 import org.bson.BsonDocument;
 import org.bson.BsonDocumentReader;
 import org.bson.BsonDocumentWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.EncoderContext;
@@ -23,7 +35,10 @@ import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.junit.jupiter.api.Test;
 
+import static java.util.Collections.singleton;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BsonPluginTest {
 
@@ -42,6 +57,127 @@ class BsonPluginTest {
 		}
 	}
 
+	@Test
+	void primitiveListValues() {
+		BsonPlugin bp = new BsonPlugin();
+		Bosk<PrimitiveLists> bosk = new Bosk<PrimitiveLists>("Test bosk", PrimitiveLists.class, b -> new PrimitiveLists(
+			Identifier.from("root"),
+			IntListValue.of(1, -2, Integer.MAX_VALUE),
+			LongListValue.of(1, -2, Long.MAX_VALUE),
+			DoubleListValue.of(1.5, -2.0, Double.NaN)
+		), Bosk::simpleDriver);
+		CodecRegistry registry = CodecRegistries.fromProviders(bp.codecProviderFor(bosk), new ValueCodecProvider());
+		Codec<PrimitiveLists> codec = registry.get(PrimitiveLists.class);
+		try (ReadContext context = bosk.readContext()) {
+			BsonDocument document = new BsonDocument();
+			PrimitiveLists original = bosk.rootReference().value();
+			codec.encode(new BsonDocumentWriter(document), original, EncoderContext.builder().build());
+			assertEquals(BsonType.INT32, document.getArray(PrimitiveLists.Fields.ints).get(0).getBsonType());
+			assertEquals(BsonType.INT64, document.getArray(PrimitiveLists.Fields.longs).get(0).getBsonType());
+			assertEquals(BsonType.DOUBLE, document.getArray(PrimitiveLists.Fields.doubles).get(0).getBsonType());
+			PrimitiveLists decoded = codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+			assertEquals(original, decoded);
+		}
+	}
+
+	@Test
+	void catalogFromRawBytes_matchesOriginal() throws InvalidTypeException {
+		BsonPlugin bp = new BsonPlugin();
+		Bosk<Root> bosk = new Bosk<Root>("Test bosk", Root.class, this::largeRoot, Bosk::simpleDriver);
+		CodecRegistry registry = CodecRegistries.fromProviders(bp.codecProviderFor(bosk), new ValueCodecProvider());
+		Codec<Root> codec = registry.get(Root.class);
+		try (ReadContext context = bosk.readContext()) {
+			BsonDocument document = new BsonDocument();
+			Root original = bosk.rootReference().value();
+			codec.encode(new BsonDocumentWriter(document), original, EncoderContext.builder().build());
+			RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+			try (BsonReader reader = raw.asBsonReader()) {
+				Root decoded = codec.decode(reader, DecoderContext.builder().build());
+				assertEquals(original, decoded);
+				assertEquals(original.items().ids(), decoded.items().ids(), "Entry order should be preserved");
+			}
+		}
+	}
+
+	@Test
+	void compressedValues_roundTrip() {
+		BsonPlugin bp = new BsonPlugin(BsonCompressionSettings.builder()
+			.enabled(true)
+			.thresholdBytes(1024)
+			.build());
+		Bosk<Payloads> bosk = new Bosk<Payloads>("Test bosk", Payloads.class, b -> new Payloads(
+			Identifier.from("root"),
+			ListValue.from(IntStream.range(0, 1000).mapToObj(i -> "entry" + i)),
+			MapValue.singleton("key", "value")
+		), Bosk::simpleDriver);
+		CodecRegistry registry = CodecRegistries.fromProviders(bp.codecProviderFor(bosk), new ValueCodecProvider());
+		Codec<Payloads> codec = registry.get(Payloads.class);
+		try (ReadContext context = bosk.readContext()) {
+			BsonDocument document = new BsonDocument();
+			Payloads original = bosk.rootReference().value();
+			codec.encode(new BsonDocumentWriter(document), original, EncoderContext.builder().build());
+			assertEquals(BsonType.BINARY, document.get(Payloads.Fields.large).getBsonType(), "Large value should be compressed");
+			assertEquals(BsonType.DOCUMENT, document.get(Payloads.Fields.small).getBsonType(), "Small value should not be compressed");
+			Payloads decoded = codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+			assertEquals(original, decoded);
+
+			BsonDocument plainDocument = new BsonDocument();
+			Codec<Payloads> plainCodec = CodecRegistries.fromProviders(new BsonPlugin().codecProviderFor(bosk), new ValueCodecProvider()).get(Payloads.class);
+			plainCodec.encode(new BsonDocumentWriter(plainDocument), original, EncoderContext.builder().build());
+			int compressedSize = encodedSize(document);
+			int plainSize = encodedSize(plainDocument);
+			assertTrue(compressedSize < plainSize, "Compressed encoding (" + compressedSize + " bytes) should be smaller than plain (" + plainSize + " bytes)");
+		}
+	}
+
+	@Test
+	void compressedValues_decodedWithDefaultSettings() {
+		BsonPlugin writerPlugin = new BsonPlugin(BsonCompressionSettings.builder()
+			.enabled(true)
+			.thresholdBytes(1024)
+			.build());
+		BsonPlugin readerPlugin = new BsonPlugin();
+		Bosk<Payloads> bosk = new Bosk<Payloads>("Test bosk", Payloads.class, b -> new Payloads(
+			Identifier.from("root"),
+			ListValue.from(IntStream.range(0, 1000).mapToObj(i -> "entry" + i)),
+			MapValue.singleton("key", "value")
+		), Bosk::simpleDriver);
+		Codec<Payloads> writerCodec = CodecRegistries.fromProviders(writerPlugin.codecProviderFor(bosk), new ValueCodecProvider()).get(Payloads.class);
+		Codec<Payloads> readerCodec = CodecRegistries.fromProviders(readerPlugin.codecProviderFor(bosk), new ValueCodecProvider()).get(Payloads.class);
+		try (ReadContext context = bosk.readContext()) {
+			BsonDocument document = new BsonDocument();
+			Payloads original = bosk.rootReference().value();
+			writerCodec.encode(new BsonDocumentWriter(document), original, EncoderContext.builder().build());
+			assertEquals(BsonType.BINARY, document.get(Payloads.Fields.large).getBsonType(), "Large value should be compressed");
+			Payloads decoded = readerCodec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+			assertEquals(original, decoded);
+		}
+	}
+
+	private static int encodedSize(BsonDocument document) {
+		return new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().remaining();
+	}
+
+	@Test
+	void compressedNodes_throws() {
+		assertThrows(IllegalArgumentException.class, () -> new BsonPlugin(BsonCompressionSettings.builder()
+			.enabled(true)
+			.compressedClasses(singleton(Catalog.class))
+			.build()));
+	}
+
+	private Root largeRoot(Bosk<Root> bosk) throws InvalidTypeException {
+		CatalogReference<Item> catalogRef = bosk.catalogReference(Item.class, Path.just(Root.Fields.items));
+		List<Item> items = new ArrayList<>();
+		SideTable<Item, SideTable<Item, String>> nested = SideTable.empty(catalogRef);
+		for (int i = 999; i >= 0; i--) {
+			Identifier id = Identifier.from("item" + i);
+			items.add(new Item(id));
+			nested = nested.with(id, SideTable.of(catalogRef, id, "value" + i));
+		}
+		return new Root(Identifier.from("root"), Catalog.of(items), nested);
+	}
+
 	private Root defaultRoot(Bosk<Root> bosk) throws InvalidTypeException {
 		CatalogReference<Item> catalogRef = bosk.catalogReference(Item.class, Path.just(Root.Fields.items));
 		return new Root(Identifier.from("root"), Catalog.empty(), SideTable.empty(catalogRef));
@@ -61,4 +197,21 @@ class BsonPluginTest {
 		Identifier id;
 	}
 
+	@Value @FieldNameConstants
+	@EqualsAndHashCode(callSuper = false)
+	public static class Payloads implements Entity {
+		Identifier id;
+		ListValue<String> large;
+		MapValue<String> small;
+	}
+
+	@Value @FieldNameConstants
+	@EqualsAndHashCode(callSuper = false)
+	public static class PrimitiveLists implements Entity {
+		Identifier id;
+		IntListValue ints;
+		LongListValue longs;
+		DoubleListValue doubles;
+	}
+
 }
@@ -0,0 +1,76 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.drivers.state.TestEntity;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.openjdk.jmh.annotations.Mode.AverageTime;
+
+@Fork(0)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@OutputTimeUnit(NANOSECONDS)
+public class DottedFieldNameBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+		private Reference<TestEntity> rootRef;
+		private DottedFieldNameTranslator translator;
+		private Reference<String> deepRef;
+		private String deepDottedName;
+
+		@Setup(Level.Trial)
+		public void setup() throws InvalidTypeException {
+			Bosk<TestEntity> bosk = new Bosk<TestEntity>("Benchmark bosk", TestEntity.class, b -> TestEntity.empty(
+				Identifier.from("root"),
+				b.catalogReference(TestEntity.class, Path.just(TestEntity.Fields.catalog))
+			), Bosk::simpleDriver);
+			rootRef = bosk.rootReference();
+			translator = new DottedFieldNameTranslator(rootRef);
+			deepRef = bosk.reference(String.class, Path.of(
+				TestEntity.Fields.catalog, "parent",
+				TestEntity.Fields.catalog, "child",
+				TestEntity.Fields.string
+			));
+			deepDottedName = Formatter.dottedFieldNameOf(deepRef, rootRef);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object dottedFieldNameOf_formatter(BenchmarkState state) {
+		return Formatter.dottedFieldNameOf(state.deepRef, state.rootRef);
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object dottedFieldNameOf_translator(BenchmarkState state) {
+		return state.translator.dottedFieldNameOf(state.deepRef, state.rootRef);
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object referenceTo_formatter(BenchmarkState state) throws InvalidTypeException {
+		return Formatter.referenceTo(state.deepDottedName, state.rootRef);
+	}
+
+	@Benchmark
+	@BenchmarkMode(AverageTime)
+	public Object referenceTo_translator(BenchmarkState state) throws InvalidTypeException {
+		return state.translator.referenceTo(state.deepDottedName, state.rootRef);
+	}
+}
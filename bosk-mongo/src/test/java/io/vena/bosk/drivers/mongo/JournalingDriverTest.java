@@ -0,0 +1,110 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalingDriverTest extends AbstractBoskTest {
+	@TempDir File directory;
+	final List<JournalingDriver<TestRoot>> drivers = new ArrayList<>();
+
+	@AfterEach
+	void closeDrivers() throws IOException, InterruptedException {
+		for (JournalingDriver<TestRoot> driver: drivers) {
+			driver.close();
+		}
+	}
+
+	@Test
+	void restart_replaysJournal() throws InvalidTypeException, IOException, InterruptedException {
+		JournalingDriverSettings settings = JournalingDriverSettings.builder().build();
+		Bosk<TestRoot> original = newBosk(settings);
+		Reference<String> stringRef = original.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+		for (int i = 1; i <= 10; i++) {
+			original.driver().submitReplacement(stringRef, "value " + i);
+		}
+		original.driver().submitDeletion(original.reference(TestChild.class, Path.parse("/entities/parent/children/child2")));
+		original.driver().flush();
+		closeAll();
+
+		assertEquals(rootOf(original), rootOf(restartedBosk(settings)));
+	}
+
+	@Test
+	void restart_usesSnapshotPlusJournal() throws InvalidTypeException, IOException, InterruptedException {
+		JournalingDriverSettings settings = JournalingDriverSettings.builder()
+			.snapshotIntervalUpdates(3)
+			.journalFileSizeBytes(4096)
+			.build();
+		Bosk<TestRoot> original = newBosk(settings);
+		Reference<String> stringRef = original.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+		Reference<Identifier> child3IdRef = original.reference(Identifier.class, Path.parse("/entities/parent/children/child3/id"));
+		for (int i = 1; i <= 100; i++) {
+			original.driver().submitReplacement(stringRef, "value " + i);
+		}
+		original.driver().submitConditionalReplacement(stringRef, "conditional", child3IdRef, Identifier.from("child3"));
+		original.driver().submitConditionalReplacement(stringRef, "should not happen", child3IdRef, Identifier.from("nope"));
+		original.driver().flush();
+		closeAll();
+
+		File[] snapshots = directory.listFiles((dir, name) -> name.startsWith("snapshot-") && name.endsWith(".bson"));
+		assertEquals(1, snapshots.length, "Obsolete snapshots should be deleted");
+		assertTrue(snapshots[0].getName().compareTo("snapshot-00000000000000000000.bson") > 0, "Should have taken a snapshot after startup");
+
+		Bosk<TestRoot> restarted = restartedBosk(settings);
+		assertEquals(rootOf(original), rootOf(restarted));
+		try (Bosk<TestRoot>.ReadContext context = restarted.readContext()) {
+			assertEquals("conditional", restarted.reference(String.class, stringRef.path()).value());
+		}
+	}
+
+	@Test
+	void invalidSettings_throws() {
+		assertThrows(IllegalArgumentException.class, () -> newBosk(JournalingDriverSettings.builder().snapshotIntervalUpdates(0).build()));
+		assertThrows(IllegalArgumentException.class, () -> newBosk(JournalingDriverSettings.builder().journalFileSizeBytes(10).build()));
+	}
+
+	private Bosk<TestRoot> newBosk(JournalingDriverSettings settings) {
+		return setUpBosk((b, d) -> track(new JournalingDriver<>(b, d, directory, new BsonPlugin(), settings)));
+	}
+
+	/**
+	 * @return a bosk that fails if it doesn't get its initial state from the journal
+	 */
+	private Bosk<TestRoot> restartedBosk(JournalingDriverSettings settings) {
+		return new Bosk<TestRoot>("Restarted", TestRoot.class,
+			b -> { throw new AssertionError("Should not need default root"); },
+			(b, d) -> track(new JournalingDriver<>(b, d, directory, new BsonPlugin(), settings)));
+	}
+
+	private JournalingDriver<TestRoot> track(JournalingDriver<TestRoot> driver) {
+		drivers.add(driver);
+		return driver;
+	}
+
+	private void closeAll() throws IOException, InterruptedException {
+		closeDrivers();
+		drivers.clear();
+	}
+
+	private static TestRoot rootOf(Bosk<TestRoot> bosk) {
+		try (Bosk<TestRoot>.ReadContext context = bosk.readContext()) {
+			return bosk.rootReference().value();
+		}
+	}
+
+}
@@ -47,6 +47,8 @@ class MongoDriverDottedFieldNameTest extends AbstractDriverTest {
 				args("/catalog/xyz", base + ".catalog.xyz"),
 				args("/listing/xyz", base + ".listing.ids.xyz"),
 				args("/sideTable/xyz", base + ".sideTable.valuesById.xyz"),
+				args("/catalog/xyz/listing/abc", base + ".catalog.xyz.listing.ids.abc"),
+				args("/catalog/xyz/catalog/abc/string", base + ".catalog.xyz.catalog.abc.string"),
 				args(Path.of("catalog", "$field.with%unusual\uD83D\uDE09characters").toString(), base + ".catalog.%24field%2Ewith%25unusual\uD83D\uDE09characters")
 
 			);
@@ -76,4 +78,44 @@ class MongoDriverDottedFieldNameTest extends AbstractDriverTest {
 		assertEquals(expected.targetType(), actual.targetType());
 	}
 
+	@ParameterizedTest
+	@ArgumentsSource(PathArgumentProvider.class)
+	void testTranslatorDottedFieldNameOf(String boskPath, String dottedFieldName) throws InvalidTypeException {
+		Reference<?> reference = bosk.reference(Object.class, Path.parse(boskPath));
+		DottedFieldNameTranslator translator = new DottedFieldNameTranslator(bosk.rootReference());
+		assertEquals(dottedFieldName, translator.dottedFieldNameOf(reference, bosk.rootReference()));
+		assertEquals(dottedFieldName, translator.dottedFieldNameOf(reference, bosk.rootReference()), "Second call should give the same answer");
+		if (!reference.path().isEmpty()) {
+			assertEquals(
+				Formatter.dottedFieldNameOf(Formatter.enclosingReference(reference), bosk.rootReference()),
+				translator.enclosingDottedFieldNameOf(reference, bosk.rootReference()));
+		}
+	}
+
+	@ParameterizedTest
+	@ArgumentsSource(PathArgumentProvider.class)
+	void testTranslatorReferenceTo(String boskPath, String dottedFieldName) throws InvalidTypeException {
+		Reference<?> expected = bosk.reference(Object.class, Path.parse(boskPath));
+		DottedFieldNameTranslator translator = new DottedFieldNameTranslator(bosk.rootReference());
+		for (int i = 0; i < 2; i++) {
+			Reference<?> actual = translator.referenceTo(dottedFieldName, bosk.rootReference());
+			assertEquals(expected, actual);
+			assertEquals(expected.path(), actual.path());
+			assertEquals(expected.targetType(), actual.targetType());
+		}
+	}
+
+	@ParameterizedTest
+	@ArgumentsSource(PathArgumentProvider.class)
+	void testTranslatorWithStartingRef_matchesFormatter(String boskPath, String dottedFieldName) throws InvalidTypeException {
+		Reference<?> startingRef = bosk.reference(Object.class, Path.of(TestEntity.Fields.catalog, "xyz"));
+		Reference<?> reference = bosk.reference(Object.class, Path.parse(boskPath));
+		if (startingRef.path().isPrefixOf(reference.path())) {
+			DottedFieldNameTranslator translator = new DottedFieldNameTranslator(bosk.rootReference());
+			String expectedName = Formatter.dottedFieldNameOf(reference, startingRef);
+			assertEquals(expectedName, translator.dottedFieldNameOf(reference, startingRef));
+			assertEquals(reference, translator.referenceTo(expectedName, startingRef));
+		}
+	}
+
 }
@@ -22,14 +22,23 @@ import io.vena.bosk.drivers.mongo.Formatter.DocumentFields;
 import io.vena.bosk.drivers.mongo.MongoDriverSettings.MongoDriverSettingsBuilder;
 import io.vena.bosk.drivers.state.TestEntity;
 import io.vena.bosk.drivers.state.TestValues;
+import io.vena.bosk.exceptions.FlushFailureException;
 import io.vena.bosk.exceptions.InvalidTypeException;
 import io.vena.bosk.junit.ParametersByName;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeoutException;
 import lombok.Value;
 import org.bson.BsonDocument;
 import org.bson.BsonNull;
@@ -42,12 +51,14 @@ import org.junit.jupiter.api.BeforeEach;
 import static io.vena.bosk.ListingEntry.LISTING_ENTRY;
 import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.path;
 import static io.vena.bosk.drivers.mongo.Formatter.DocumentFields.revision;
+import static io.vena.bosk.drivers.mongo.MongoDriverSettings.FlushMode.REVISION_FIELD_COALESCED;
 import static io.vena.bosk.drivers.mongo.SingleDocumentMongoDriver.COLLECTION_NAME;
 import static java.lang.Long.max;
 import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -171,6 +182,91 @@ class MongoDriverSpecialTest implements TestParameters {
 
 	}
 
+	@ParametersByName
+	@UsesMongoService
+	void flushAsync_localStateUpdated() throws InvalidTypeException, InterruptedException, ExecutionException, TimeoutException {
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		CatalogReference<TestEntity> catalogRef = bosk.rootReference().thenCatalog(TestEntity.class,
+			TestEntity.Fields.catalog);
+		ListingReference<TestEntity> listingRef = bosk.rootReference().thenListing(TestEntity.class,
+			TestEntity.Fields.listing);
+		MongoDriver<?> driver = (MongoDriver<?>) bosk.driver();
+
+		bosk.driver().submitReplacement(listingRef.then(entity123), LISTING_ENTRY);
+		List<CompletableFuture<Void>> flushes = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			flushes.add(driver.flushAsync());
+		}
+		CompletableFuture.allOf(flushes.toArray(new CompletableFuture[0])).get(30, SECONDS);
+
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = bosk.readContext()) {
+			TestEntity expected = initialRoot(bosk).withListing(Listing.of(catalogRef, entity123));
+			TestEntity actual = bosk.rootReference().value();
+			assertEquals(expected, actual, "MongoDriver.flushAsync() should reliably update the bosk");
+		}
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void coalescedFlush_concurrentFlushersSeeTheirUpdates() throws InvalidTypeException, InterruptedException, ExecutionException, TimeoutException {
+		MongoDriverSettings coalescedSettings = MongoDriverSettings.builder()
+			.database(driverSettings.database())
+			.flushMode(REVISION_FIELD_COALESCED)
+			.build();
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, createDriverFactory(coalescedSettings));
+		CatalogReference<TestEntity> catalogRef = bosk.rootReference().thenCatalog(TestEntity.class,
+			TestEntity.Fields.catalog);
+		CatalogReference<TestEntity> anyChildCatalog = bosk.catalogReference(TestEntity.class, Path.of(
+			TestEntity.Fields.catalog, "-child-", TestEntity.Fields.catalog
+		));
+		MongoDriver<TestEntity> driver = (MongoDriver<TestEntity>) bosk.driver();
+
+		int numFlushers = 10;
+		ExecutorService executor = Executors.newFixedThreadPool(numFlushers);
+		tearDownActions.addFirst(executor::shutdownNow);
+		List<Future<Void>> flushers = new ArrayList<>();
+		for (int i = 0; i < numFlushers; i++) {
+			Identifier id = Identifier.from("flusher" + i);
+			boolean async = (i % 2 == 0);
+			flushers.add(executor.submit(() -> {
+				driver.submitReplacement(catalogRef.then(id), TestEntity.empty(id, anyChildCatalog.boundTo(id)));
+				if (async) {
+					driver.flushAsync().get(30, SECONDS);
+				} else {
+					driver.flush();
+				}
+				try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = bosk.readContext()) {
+					assertEquals(id, catalogRef.then(id).value().id(), "Flush should wait for this thread's update");
+				}
+				return null;
+			}));
+		}
+		for (Future<Void> flusher: flushers) {
+			flusher.get(30, SECONDS);
+		}
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void coalescedFlush_timesOut() throws InvalidTypeException {
+		MongoDriverSettings slowSettings = MongoDriverSettings.builder()
+			.database(driverSettings.database())
+			.flushMode(REVISION_FIELD_COALESCED)
+			.flushTimeoutMS(500)
+			.testing(MongoDriverSettings.Testing.builder()
+				.eventDelayMS(2000)
+				.build())
+			.build();
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, createDriverFactory(slowSettings));
+		Reference<String> stringRef = bosk.rootReference().then(String.class, TestEntity.Fields.string);
+		MongoDriver<TestEntity> driver = (MongoDriver<TestEntity>) bosk.driver();
+
+		driver.submitReplacement(stringRef, "new value");
+		ExecutionException asyncFailure = assertThrows(ExecutionException.class, () -> driver.flushAsync().get(10, SECONDS));
+		assertEquals(FlushFailureException.class, asyncFailure.getCause().getClass());
+		assertThrows(FlushFailureException.class, driver::flush);
+	}
+
 	@ParametersByName
 	@UsesMongoService
 	void listing_stateMatches() throws InvalidTypeException, InterruptedException, IOException {
@@ -389,6 +485,71 @@ class MongoDriverSpecialTest implements TestParameters {
 		assertEquals(Optional.of(TestValues.blank()), after); // Now it's there
 	}
 
+	@ParametersByName
+	@UsesMongoService
+	void reactiveRefurbish_createsField() throws IOException, InterruptedException {
+		// We'll use this as an honest observer of the actual state
+		Bosk<TestEntity> originalBosk = new Bosk<TestEntity>(
+			"Original",
+			TestEntity.class,
+			this::initialRoot,
+			createDriverFactory()
+		);
+
+		Bosk<UpgradeableEntity> upgradeableBosk = new Bosk<UpgradeableEntity>(
+			"Upgradeable",
+			UpgradeableEntity.class,
+			(b) -> { throw new AssertionError("upgradeableBosk should use the state from MongoDB"); },
+			createReactiveDriverFactory()
+		);
+
+		((MongoDriver<?>)upgradeableBosk.driver()).refurbish();
+		originalBosk.driver().flush(); // Not the bosk that did refurbish!
+
+		Optional<TestValues> after;
+		try (@SuppressWarnings("unused") Bosk<?>.ReadContext readContext = originalBosk.readContext()) {
+			after = originalBosk.rootReference().value().values();
+		}
+		assertEquals(Optional.of(TestValues.blank()), after);
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void refurbishIncrementally_createsField() throws IOException, InterruptedException {
+		// We'll use this as an honest observer of the actual state
+		Bosk<TestEntity> originalBosk = new Bosk<TestEntity>(
+			"Original",
+			TestEntity.class,
+			this::initialRoot,
+			createDriverFactory()
+		);
+
+		Bosk<UpgradeableEntity> upgradeableBosk = new Bosk<UpgradeableEntity>(
+			"Upgradeable",
+			UpgradeableEntity.class,
+			(b) -> { throw new AssertionError("upgradeableBosk should use the state from MongoDB"); },
+			createDriverFactory()
+		);
+
+		List<Integer> progress = new ArrayList<>();
+		((MongoDriver<?>)upgradeableBosk.driver()).refurbishIncrementally(RefurbishSettings.builder()
+			.batchSize(1)
+			.progressListener((chunksWritten, totalChunks) -> {
+				assertEquals(progress.size() + 1, chunksWritten);
+				progress.add(totalChunks);
+			})
+			.build());
+		originalBosk.driver().flush(); // Not the bosk that did refurbish!
+
+		Optional<TestValues> after;
+		try (@SuppressWarnings("unused") Bosk<?>.ReadContext readContext = originalBosk.readContext()) {
+			after = originalBosk.rootReference().value().values();
+		}
+		assertEquals(Optional.of(TestValues.blank()), after);
+		assertFalse(progress.isEmpty(), "Should report progress");
+		assertEquals(progress.size(), (int) progress.get(0), "Should report progress once per chunk with batchSize 1");
+	}
+
 	@ParametersByName
 	@UsesMongoService
 	void refurbish_fixesMetadata() throws IOException, InterruptedException {
@@ -446,6 +607,25 @@ class MongoDriverSpecialTest implements TestParameters {
 
 	}
 
+	@ParametersByName
+	@UsesMongoService
+	void conditionalUpdatesWithSameFilter_appliedInOrder() throws InvalidTypeException, IOException, InterruptedException {
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		Reference<Identifier> idRef = bosk.rootReference().then(Identifier.class, TestEntity.Fields.id);
+		Reference<String> stringRef = bosk.rootReference().then(String.class, TestEntity.Fields.string);
+
+		// These have identical filters. When pipelined, they're written in the same batch,
+		// but the second must still see the effect of the first.
+		bosk.driver().submitConditionalReplacement(idRef, Identifier.from("changed"), idRef, rootID);
+		bosk.driver().submitConditionalReplacement(stringRef, "should not happen", idRef, rootID);
+		bosk.driver().flush();
+
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = bosk.readContext()) {
+			assertEquals(Identifier.from("changed"), idRef.value());
+			assertEquals(rootID.toString(), stringRef.value());
+		}
+	}
+
 	private static void deleteFields(MongoCollection<Document> collection, DocumentFields... fields) {
 		BsonDocument fieldsToUnset = new BsonDocument();
 		for (DocumentFields field: fields) {
@@ -466,6 +646,10 @@ class MongoDriverSpecialTest implements TestParameters {
 	}
 
 	private <E extends Entity> DriverFactory<E> createDriverFactory() {
+		return createDriverFactory(driverSettings);
+	}
+
+	private <E extends Entity> DriverFactory<E> createDriverFactory(MongoDriverSettings driverSettings) {
 		return (bosk, downstream) -> {
 			MongoDriver<E> driver = MongoDriver.<E>factory(
 				MongoClientSettings.builder(mongoService.clientSettings())
@@ -485,6 +669,18 @@ class MongoDriverSpecialTest implements TestParameters {
 		};
 	}
 
+	private <E extends Entity> DriverFactory<E> createReactiveDriverFactory() {
+		return (bosk, downstream) -> {
+			MongoDriver<E> driver = MongoDriver.<E>reactiveFactory(
+				mongoService.clientSettings(),
+				driverSettings,
+				new BsonPlugin()
+			).build(bosk, downstream);
+			tearDownActions.addFirst(driver::close);
+			return driver;
+		};
+	}
+
 	@Value
 	public static class OldEntity implements Entity {
 		Identifier id;
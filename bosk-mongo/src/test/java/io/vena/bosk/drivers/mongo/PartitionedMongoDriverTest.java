@@ -0,0 +1,213 @@
+package io.vena.bosk.drivers.mongo;
+
+import com.mongodb.client.MongoCollection;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Catalog;
+import io.vena.bosk.CatalogReference;
+import io.vena.bosk.DriverFactory;
+import io.vena.bosk.Identifier;
+import io.vena.bosk.Listing;
+import io.vena.bosk.Path;
+import io.vena.bosk.SideTable;
+import io.vena.bosk.drivers.mongo.MongoDriverSettings.MongoDriverSettingsBuilder;
+import io.vena.bosk.drivers.state.TestEntity;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import io.vena.bosk.junit.ParametersByName;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+
+import static io.vena.bosk.drivers.mongo.PartitionedMongoDriver.ROOT_DOCUMENT_ID;
+import static io.vena.bosk.drivers.mongo.PartitionedMongoDriver.entryDocumentID;
+import static io.vena.bosk.drivers.mongo.SingleDocumentMongoDriver.COLLECTION_NAME;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedMongoDriverTest implements TestParameters {
+	private static final Identifier rootID = Identifier.from("root");
+
+	private final Deque<Runnable> tearDownActions = new ArrayDeque<>();
+	private static MongoService mongoService;
+
+	private DriverFactory<TestEntity> driverFactory;
+	private final MongoDriverSettings driverSettings;
+	private MongoCollection<Document> collection;
+
+	@ParametersByName
+	public PartitionedMongoDriverTest(MongoDriverSettingsBuilder driverSettings) {
+		this.driverSettings = driverSettings
+			.initialLoadParallelism(3)
+			.build();
+	}
+
+	@BeforeAll
+	static void setupMongoConnection() {
+		mongoService = new MongoService();
+	}
+
+	@BeforeEach
+	void setupDriverFactory() {
+		driverFactory = (bosk, downstream) -> {
+			MongoDriver<TestEntity> driver = MongoDriver.<TestEntity>partitionedFactory(
+				mongoService.clientSettings(), driverSettings, new BsonPlugin(), Path.just(TestEntity.Fields.catalog)
+			).build(bosk, downstream);
+			tearDownActions.addFirst(driver::close);
+			return driver;
+		};
+
+		// Start with a clean slate
+		collection = mongoService.client()
+			.getDatabase(driverSettings.database())
+			.getCollection(COLLECTION_NAME);
+		collection.drop();
+	}
+
+	@AfterEach
+	void runTearDown() {
+		tearDownActions.forEach(Runnable::run);
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void entries_storedInSeparateDocuments() throws InvalidTypeException, InterruptedException, IOException {
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		CatalogReference<TestEntity> catalogRef = bosk.catalogReference(TestEntity.class, Path.just(TestEntity.Fields.catalog));
+		Identifier newID = Identifier.from("new");
+		bosk.driver().submitReplacement(catalogRef.then(newID), TestEntity.empty(newID, catalogRef.then(newID).thenCatalog(TestEntity.class, TestEntity.Fields.catalog)));
+		bosk.driver().submitReplacement(catalogRef.then(Identifier.from("e1")).then(String.class, TestEntity.Fields.string), "changed");
+		bosk.driver().flush();
+
+		Document rootDocument = collection.find(new BsonDocument("_id", ROOT_DOCUMENT_ID)).first();
+		assertNotNull(rootDocument);
+		assertTrue(rootDocument.get("state", Document.class).get(TestEntity.Fields.catalog, Document.class).isEmpty(),
+			"Partition catalog should be empty in the root document");
+		for (String id: new String[]{ "e1", "e2", "e3", "new" }) {
+			assertNotNull(collection.find(new BsonDocument("_id", entryDocumentID(Identifier.from(id)))).first(),
+				"Entry " + id + " should have its own document");
+		}
+
+		bosk.driver().submitDeletion(catalogRef.then(Identifier.from("e2")));
+		bosk.driver().flush();
+		assertEquals(null, collection.find(new BsonDocument("_id", entryDocumentID(Identifier.from("e2")))).first());
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void entryUpdate_bumpsRootRevision() throws InvalidTypeException, InterruptedException, IOException {
+		Bosk<TestEntity> bosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		CatalogReference<TestEntity> catalogRef = bosk.catalogReference(TestEntity.class, Path.just(TestEntity.Fields.catalog));
+		bosk.driver().flush();
+		long before = rootRevision();
+
+		bosk.driver().submitReplacement(catalogRef.then(Identifier.from("e1")).then(String.class, TestEntity.Fields.string), "changed");
+		bosk.driver().flush();
+		assertTrue(rootRevision() > before, "Flush relies on the root document's revision reflecting every write");
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = bosk.readContext()) {
+			assertEquals("changed", bosk.rootReference().value().catalog().get(Identifier.from("e1")).string());
+		}
+	}
+
+	private long rootRevision() {
+		Document rootDocument = collection.find(new BsonDocument("_id", ROOT_DOCUMENT_ID)).first();
+		assertNotNull(rootDocument);
+		return rootDocument.get("revision", Long.class);
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void warmStart_stateMatches() throws InvalidTypeException, InterruptedException, IOException {
+		Bosk<TestEntity> setupBosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		CatalogReference<TestEntity> catalogRef = setupBosk.catalogReference(TestEntity.class, Path.just(TestEntity.Fields.catalog));
+		setupBosk.driver().submitReplacement(catalogRef.then(Identifier.from("e3")).then(String.class, TestEntity.Fields.string), "changed");
+		setupBosk.driver().flush();
+
+		Bosk<TestEntity> latecomerBosk = new Bosk<TestEntity>("Latecomer bosk", TestEntity.class, b->{
+			throw new AssertionError("Default root function should not be called");
+		}, driverFactory);
+
+		TestEntity expected;
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = setupBosk.readContext()) {
+			expected = setupBosk.rootReference().value();
+		}
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = latecomerBosk.readContext()) {
+			assertEquals(expected, latecomerBosk.rootReference().value());
+		}
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void warmStart_entryOrderMatches() throws InvalidTypeException, InterruptedException, IOException {
+		Bosk<TestEntity> setupBosk = new Bosk<TestEntity>("Test bosk", TestEntity.class, this::initialRoot, driverFactory);
+		CatalogReference<TestEntity> catalogRef = setupBosk.catalogReference(TestEntity.class, Path.just(TestEntity.Fields.catalog));
+		CatalogReference<TestEntity> anyChildCatalog = setupBosk.catalogReference(TestEntity.class, Path.of(
+			TestEntity.Fields.catalog, "-child-", TestEntity.Fields.catalog
+		));
+
+		// Not in order of their IDs
+		Catalog<TestEntity> reversed = Catalog.of(
+			TestEntity.empty(Identifier.from("e3"), anyChildCatalog.boundTo(Identifier.from("e3"))),
+			TestEntity.empty(Identifier.from("e2"), anyChildCatalog.boundTo(Identifier.from("e2"))),
+			TestEntity.empty(Identifier.from("e1"), anyChildCatalog.boundTo(Identifier.from("e1")))
+		);
+		setupBosk.driver().submitReplacement(catalogRef, reversed);
+		Identifier newID = Identifier.from("a0");
+		setupBosk.driver().submitReplacement(catalogRef.then(newID), TestEntity.empty(newID, anyChildCatalog.boundTo(newID)));
+		setupBosk.driver().submitReplacement(catalogRef.then(Identifier.from("e2")).then(String.class, TestEntity.Fields.string), "changed");
+		setupBosk.driver().flush();
+
+		Bosk<TestEntity> latecomerBosk = new Bosk<TestEntity>("Latecomer bosk", TestEntity.class, b->{
+			throw new AssertionError("Default root function should not be called");
+		}, driverFactory);
+
+		List<Identifier> expected = asList(
+			Identifier.from("e3"),
+			Identifier.from("e2"),
+			Identifier.from("e1"),
+			newID);
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = setupBosk.readContext()) {
+			assertEquals(expected, catalogRef.value().ids());
+		}
+		try (@SuppressWarnings("unused") Bosk<TestEntity>.ReadContext context = latecomerBosk.readContext()) {
+			assertEquals(expected, latecomerBosk.rootReference().value().catalog().ids());
+		}
+	}
+
+	@ParametersByName
+	@UsesMongoService
+	void invalidPartitionPath_throws() {
+		assertThrows(IllegalArgumentException.class, () -> new Bosk<TestEntity>("Bad bosk", TestEntity.class, this::initialRoot,
+			MongoDriver.partitionedFactory(mongoService.clientSettings(), driverSettings, new BsonPlugin(), Path.just(TestEntity.Fields.string))));
+	}
+
+	private TestEntity initialRoot(Bosk<TestEntity> testEntityBosk) throws InvalidTypeException {
+		CatalogReference<TestEntity> catalogRef = testEntityBosk.catalogReference(TestEntity.class, Path.just(
+			TestEntity.Fields.catalog
+		));
+		CatalogReference<TestEntity> anyChildCatalog = testEntityBosk.catalogReference(TestEntity.class, Path.of(
+			TestEntity.Fields.catalog, "-child-", TestEntity.Fields.catalog
+		));
+		Catalog<TestEntity> entries = Catalog.of(
+			TestEntity.empty(Identifier.from("e1"), anyChildCatalog.boundTo(Identifier.from("e1"))),
+			TestEntity.empty(Identifier.from("e2"), anyChildCatalog.boundTo(Identifier.from("e2"))),
+			TestEntity.empty(Identifier.from("e3"), anyChildCatalog.boundTo(Identifier.from("e3")))
+		);
+		return new TestEntity(rootID,
+			rootID.toString(),
+			entries,
+			Listing.of(catalogRef, Identifier.from("e1")),
+			SideTable.empty(catalogRef),
+			Optional.empty()
+		);
+	}
+
+}
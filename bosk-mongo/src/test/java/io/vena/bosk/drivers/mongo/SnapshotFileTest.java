@@ -0,0 +1,87 @@
+package io.vena.bosk.drivers.mongo;
+
+import io.vena.bosk.AbstractBoskTest;
+import io.vena.bosk.Bosk;
+import io.vena.bosk.Path;
+import io.vena.bosk.Reference;
+import io.vena.bosk.exceptions.InvalidTypeException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import org.bson.BsonBinaryWriter;
+import org.bson.io.BasicOutputBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTest extends AbstractBoskTest {
+	@TempDir File directory;
+	File file;
+	Bosk<TestRoot> bosk;
+	Reference<String> stringRef;
+
+	@BeforeEach
+	void setup() throws InvalidTypeException, IOException, InterruptedException {
+		file = new File(directory, "snapshot.bson");
+		bosk = setUpBosk(Bosk::simpleDriver);
+		stringRef = bosk.reference(String.class, Path.parse("/entities/parent/children/child1/string"));
+		bosk.driver().submitReplacement(stringRef, "snapshotted");
+		bosk.driver().flush();
+	}
+
+	@Test
+	void roundTrip_matchesOriginal() throws IOException {
+		SnapshotFile<TestRoot> snapshotFile = new SnapshotFile<>(file, bosk, new BsonPlugin());
+		assertFalse(snapshotFile.exists());
+		snapshotFile.write(rootOf(bosk), 123);
+		assertTrue(snapshotFile.exists());
+
+		SnapshotFile.Snapshot<TestRoot> snapshot = snapshotFile.read();
+		assertEquals(123, snapshot.revision());
+		assertEquals(rootOf(bosk), snapshot.root());
+	}
+
+	@Test
+	void initialRootFrom_usesSnapshotIfPresent() throws IOException {
+		Bosk<TestRoot> withoutSnapshot = setUpBosk(SnapshotFile.initialRootFrom(file, new BsonPlugin()));
+		assertEquals(rootOf(setUpBosk(Bosk::simpleDriver)), rootOf(withoutSnapshot));
+
+		new SnapshotFile<>(file, bosk, new BsonPlugin()).write(rootOf(bosk), 1);
+		Bosk<TestRoot> withSnapshot = setUpBosk(SnapshotFile.initialRootFrom(file, new BsonPlugin()));
+		assertEquals(rootOf(bosk), rootOf(withSnapshot));
+	}
+
+	@Test
+	void channelOutput_matchesInMemoryEncoding() throws IOException {
+		Formatter formatter = new Formatter(bosk, new BsonPlugin());
+		BasicOutputBuffer expected = new BasicOutputBuffer();
+		try (BsonBinaryWriter writer = new BsonBinaryWriter(expected)) {
+			formatter.writeValue(writer, rootOf(bosk), bosk.rootReference().targetType());
+		}
+
+		// A tiny buffer, so document lengths must be patched after they've been written to the file
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+			ChannelBsonOutput output = new ChannelBsonOutput(channel, 16);
+			try (BsonBinaryWriter writer = new BsonBinaryWriter(output)) {
+				formatter.writeValue(writer, rootOf(bosk), bosk.rootReference().targetType());
+			}
+			output.flush();
+		}
+		assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file.toPath()));
+	}
+
+	private static TestRoot rootOf(Bosk<TestRoot> b) {
+		try (Bosk<TestRoot>.ReadContext context = b.readContext()) {
+			return b.rootReference().value();
+		}
+	}
+
+}
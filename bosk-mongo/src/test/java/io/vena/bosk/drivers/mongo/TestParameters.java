@@ -15,12 +15,21 @@ public interface TestParameters {
 		return Stream.of(
 			MongoDriverSettings.builder()
 				.database(prefix + "_echo")
+				.flushMode(ECHO),
+			MongoDriverSettings.builder()
+				.database(prefix + "_pipelined")
 				.flushMode(ECHO)
+				.pipelining(MongoDriverSettings.Pipelining.builder()
+					.enabled(true)
+					.build())
 			// These tests fail too often. REVISION_FIELD_ONLY is not reliable yet.
 //			MongoDriverSettings.builder()
 //				.database(prefix + "_rev")
 //				.flushMode(REVISION_FIELD_ONLY),
 //			MongoDriverSettings.builder()
+//				.database(prefix + "_coalesced")
+//				.flushMode(REVISION_FIELD_COALESCED),
+//			MongoDriverSettings.builder()
 //				.database(prefix + "_slow")
 //				.flushMode(REVISION_FIELD_ONLY)
 //				.testing(MongoDriverSettings.Testing.builder()